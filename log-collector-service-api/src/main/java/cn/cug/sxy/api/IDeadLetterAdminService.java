@@ -0,0 +1,57 @@
+package cn.cug.sxy.api;
+
+import cn.cug.sxy.api.dto.DeadLetterQueryRequestDTO;
+import cn.cug.sxy.api.dto.DeadLetterQueryResponseDTO;
+import cn.cug.sxy.api.dto.DeadLetterReplayRequestDTO;
+import cn.cug.sxy.api.dto.DeadLetterReplayResponseDTO;
+import cn.cug.sxy.api.response.Response;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 14:20
+ * @Description 死信管理服务接口（所有操作限定在认证通过的应用范围内）
+ * @Author jerryhotton
+ */
+
+public interface IDeadLetterAdminService {
+
+    /**
+     * 查询死信
+     * 按端点、失败原因和时间范围过滤认证应用最终处理失败的批次
+     *
+     * @param request    HTTP请求（携带认证通过的应用ID）
+     * @param requestDTO 查询请求
+     * @return 死信列表
+     */
+    Response<DeadLetterQueryResponseDTO> queryDeadLetters(HttpServletRequest request, DeadLetterQueryRequestDTO requestDTO);
+
+    /**
+     * 批量重放死信
+     * 按指定速率将匹配的死信重新提交到批次处理流水线，可重复执行
+     *
+     * @param request    HTTP请求（携带认证通过的应用ID）
+     * @param requestDTO 重放请求
+     * @return 重放任务
+     */
+    Response<DeadLetterReplayResponseDTO> replayDeadLetters(HttpServletRequest request, DeadLetterReplayRequestDTO requestDTO);
+
+    /**
+     * 查询重放任务进度
+     *
+     * @param request HTTP请求（携带认证通过的应用ID）
+     * @param taskId  重放任务ID
+     * @return 重放任务
+     */
+    Response<DeadLetterReplayResponseDTO> queryReplayTask(HttpServletRequest request, String taskId);
+
+    /**
+     * 删除死信
+     *
+     * @param request HTTP请求（携带认证通过的应用ID）
+     * @param batchId 批次ID
+     * @return 是否删除
+     */
+    Response<Boolean> deleteDeadLetter(HttpServletRequest request, String batchId);
+
+}
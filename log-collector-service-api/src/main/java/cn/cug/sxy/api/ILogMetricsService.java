@@ -0,0 +1,38 @@
+package cn.cug.sxy.api;
+
+import cn.cug.sxy.api.dto.LogMetricsQueryRequestDTO;
+import cn.cug.sxy.api.dto.LogMetricsQueryResponseDTO;
+import cn.cug.sxy.api.response.Response;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/30 10:40
+ * @Description 日志派生指标服务接口
+ * @Author jerryhotton
+ */
+
+public interface ILogMetricsService {
+
+    /**
+     * 查询日志派生指标
+     * 按端点汇总认证应用最近若干时间桶的级别计数和耗时分布，数据在入库时实时聚合，不查询存储
+     *
+     * @param request    HTTP请求（携带认证通过的应用ID）
+     * @param requestDTO 查询请求
+     * @return 时间桶序列
+     */
+    Response<LogMetricsQueryResponseDTO> queryLogMetrics(HttpServletRequest request, LogMetricsQueryRequestDTO requestDTO);
+
+    /**
+     * 以Prometheus文本格式导出所有应用的派生指标和接入链路运行统计
+     * 需要携带配置的抓取令牌（Authorization: Bearer），未配置令牌时不提供
+     *
+     * @param request  HTTP请求
+     * @param response HTTP响应
+     * @return Prometheus exposition格式文本
+     */
+    String prometheus(HttpServletRequest request, HttpServletResponse response);
+
+}
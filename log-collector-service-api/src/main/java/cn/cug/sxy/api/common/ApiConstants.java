@@ -15,6 +15,9 @@ public class ApiConstants {
     public static final String HEADER_TIMESTAMP = "X-Log-Timestamp";
     public static final String HEADER_CLIENT_IP = "X-Log-Client-Ip";
 
+    // 请求属性常量：认证通过的应用ID，管理接口据此限定操作范围
+    public static final String ATTR_APP_ID = "X-Log-App-Id";
+
     private ApiConstants() {
     }
 
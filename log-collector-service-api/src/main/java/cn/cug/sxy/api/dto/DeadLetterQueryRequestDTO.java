@@ -0,0 +1,46 @@
+package cn.cug.sxy.api.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 14:00
+ * @Description 死信查询请求DTO
+ * @Author jerryhotton
+ */
+
+@Data
+public class DeadLetterQueryRequestDTO {
+
+    /**
+     * 应用ID（可选，只能是认证通过的应用）
+     */
+    private String appId;
+    /**
+     * 接入端点ID
+     */
+    private String endpointId;
+    /**
+     * 指定批次ID列表
+     */
+    private List<String> batchIds;
+    /**
+     * 失败原因关键词
+     */
+    private String reasonKeyword;
+    /**
+     * 进入死信的开始时间（毫秒时间戳）
+     */
+    private Long failedAfter;
+    /**
+     * 进入死信的结束时间（毫秒时间戳）
+     */
+    private Long failedBefore;
+    /**
+     * 最大返回条数
+     */
+    private Integer limit;
+
+}
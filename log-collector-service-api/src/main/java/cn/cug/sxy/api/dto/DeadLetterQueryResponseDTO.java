@@ -0,0 +1,79 @@
+package cn.cug.sxy.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 14:05
+ * @Description 死信查询响应DTO
+ * @Author jerryhotton
+ */
+
+@Data
+@Builder
+public class DeadLetterQueryResponseDTO {
+
+    /**
+     * 符合条件的死信总数
+     */
+    private long total;
+    /**
+     * 死信列表
+     */
+    private List<DeadLetter> deadLetters;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class DeadLetter {
+
+        /**
+         * 批次ID
+         */
+        private String batchId;
+        /**
+         * 应用ID
+         */
+        private String appId;
+        /**
+         * 接入端点ID
+         */
+        private String endpointId;
+        /**
+         * 日志条数
+         */
+        private int logCount;
+        /**
+         * 失败原因
+         */
+        private String failureReason;
+        /**
+         * 失败前的重试次数
+         */
+        private int retryCount;
+        /**
+         * 批次接收时间（毫秒时间戳）
+         */
+        private Long receivedTime;
+        /**
+         * 进入死信的时间（毫秒时间戳）
+         */
+        private Long failedTime;
+        /**
+         * 已重放次数
+         */
+        private int replayCount;
+        /**
+         * 最后重放时间（毫秒时间戳）
+         */
+        private Long lastReplayTime;
+
+    }
+
+}
@@ -0,0 +1,22 @@
+package cn.cug.sxy.api.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 14:10
+ * @Description 死信重放请求DTO（按查询条件批量重放）
+ * @Author jerryhotton
+ */
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class DeadLetterReplayRequestDTO extends DeadLetterQueryRequestDTO {
+
+    /**
+     * 重放速率（批次/秒），为空时使用默认速率
+     */
+    private Double ratePerSecond;
+
+}
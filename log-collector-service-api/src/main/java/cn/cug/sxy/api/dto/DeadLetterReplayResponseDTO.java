@@ -0,0 +1,50 @@
+package cn.cug.sxy.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 14:15
+ * @Description 死信重放任务响应DTO
+ * @Author jerryhotton
+ */
+
+@Data
+@Builder
+public class DeadLetterReplayResponseDTO {
+
+    /**
+     * 重放任务ID
+     */
+    private String taskId;
+    /**
+     * 任务状态: PENDING/RUNNING/COMPLETED/FAILED
+     */
+    private String status;
+    /**
+     * 匹配的死信数量
+     */
+    private int total;
+    /**
+     * 已重新提交的批次数
+     */
+    private int submitted;
+    /**
+     * 跳过的批次数
+     */
+    private int skipped;
+    /**
+     * 重放速率（批次/秒）
+     */
+    private double ratePerSecond;
+    /**
+     * 创建时间（毫秒时间戳）
+     */
+    private Long createTime;
+    /**
+     * 结束时间（毫秒时间戳）
+     */
+    private Long finishTime;
+
+}
@@ -0,0 +1,28 @@
+package cn.cug.sxy.api.dto;
+
+import lombok.Data;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/30 10:30
+ * @Description 日志派生指标查询请求DTO
+ * @Author jerryhotton
+ */
+
+@Data
+public class LogMetricsQueryRequestDTO {
+
+    /**
+     * 应用ID（可选，只能是认证通过的应用）
+     */
+    private String appId;
+    /**
+     * 接入端点ID（为空时汇总应用下所有端点）
+     */
+    private String endpointId;
+    /**
+     * 返回最近的时间桶数
+     */
+    private Integer buckets;
+
+}
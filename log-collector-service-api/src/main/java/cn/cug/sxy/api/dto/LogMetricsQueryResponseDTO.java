@@ -0,0 +1,88 @@
+package cn.cug.sxy.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/30 10:35
+ * @Description 日志派生指标查询响应DTO
+ * @Author jerryhotton
+ */
+
+@Data
+@Builder
+public class LogMetricsQueryResponseDTO {
+
+    /**
+     * 应用ID
+     */
+    private String appId;
+    /**
+     * 接入端点ID
+     */
+    private String endpointId;
+    /**
+     * 时间桶宽度（毫秒）
+     */
+    private long bucketMs;
+    /**
+     * 耗时直方图的桶上界（毫秒），最后一个桶为+Inf
+     */
+    private List<Double> durationBoundsMs;
+    /**
+     * 按时间升序的时间桶
+     */
+    private List<MetricsBucket> buckets;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class MetricsBucket {
+
+        /**
+         * 时间桶起始时间（毫秒时间戳）
+         */
+        private long start;
+        /**
+         * 日志总数
+         */
+        private long total;
+        /**
+         * 按级别的日志数
+         */
+        private Map<String, Long> levelCounts;
+        /**
+         * 耗时直方图各桶计数
+         */
+        private List<Long> durationHistogram;
+        /**
+         * 含耗时字段的日志数
+         */
+        private long durationCount;
+        /**
+         * 平均耗时（毫秒）
+         */
+        private Double durationAvgMs;
+        /**
+         * 耗时P50估算值（毫秒）
+         */
+        private Double durationP50Ms;
+        /**
+         * 耗时P95估算值（毫秒）
+         */
+        private Double durationP95Ms;
+        /**
+         * 耗时P99估算值（毫秒）
+         */
+        private Double durationP99Ms;
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package cn.cug.sxy.config;
+
+import cn.cug.sxy.types.model.SymbolTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SymbolTableConfigProperties.class)
+public class SymbolTableConfig {
+
+    @Bean
+    public SymbolTable metadataSymbolTable(SymbolTableConfigProperties properties) {
+        Set<String> lowCardinalityKeys = new HashSet<>(SymbolTable.DEFAULT_LOW_CARDINALITY_KEYS);
+        lowCardinalityKeys.addAll(properties.getLowCardinalityKeys());
+        // 元数据值对象不由Spring管理，通过全局符号表使用该配置
+        SymbolTable.configureMetadata(properties.getCapacity(), lowCardinalityKeys);
+        log.info("元数据符号表初始化: capacity={}, lowCardinalityKeys={}",
+                properties.getCapacity(), lowCardinalityKeys.size());
+        return SymbolTable.metadata();
+    }
+
+}
@@ -0,0 +1,18 @@
+package cn.cug.sxy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "log-center.metadata.symbols", ignoreInvalidFields = true)
+public class SymbolTableConfigProperties {
+
+    /** 最多保留的符号数 */
+    private Integer capacity = 65536;
+    /** 额外的低基数元数据键（在默认键之外），只有这些键的值会规范化 */
+    private List<String> lowCardinalityKeys = new ArrayList<>();
+
+}
@@ -0,0 +1,156 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.infrastructure.dao.ILogBatchDao;
+import cn.cug.sxy.infrastructure.dao.po.LogBatch;
+import cn.cug.sxy.infrastructure.ledger.LogBatchStatusLedger;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 18:10
+ * @Description 批次状态账本测试（数据库加载与并发放入的合并、写回失败行的重试上限，以及账本已满时的回收与等待）
+ * @Author jerryhotton
+ */
+
+public class LogBatchStatusLedgerTest {
+
+    /**
+     * 模拟数据库中的批次行
+     */
+    private final Map<String, LogBatch> table = new HashMap<>();
+
+    /**
+     * 写回总是失败的批次
+     */
+    private final Set<String> rejected = new HashSet<>();
+
+    private Runnable onSelect = () -> {
+    };
+
+    private LogBatchStatusLedger ledger;
+
+    @Before
+    public void setUp() {
+        ILogBatchDao dao = new ILogBatchDao() {
+            @Override
+            public LogBatch selectById(String batchId) {
+                onSelect.run();
+                return table.get(batchId);
+            }
+
+            @Override
+            public void upsertBatch(List<LogBatch> logBatches) {
+                for (LogBatch logBatch : logBatches) {
+                    if (rejected.contains(logBatch.getBatchId())) {
+                        throw new IllegalArgumentException("Data too long for column 'error_message'");
+                    }
+                }
+                for (LogBatch logBatch : logBatches) {
+                    table.put(logBatch.getBatchId(), logBatch);
+                }
+            }
+        };
+        ledger = new LogBatchStatusLedger(dao);
+        ReflectionTestUtils.setField(ledger, "flushIntervalMs", 1L);
+        ReflectionTestUtils.setField(ledger, "maxRowsPerStatement", 500);
+        ReflectionTestUtils.setField(ledger, "retentionMs", 300_000L);
+        ReflectionTestUtils.setField(ledger, "maxEntries", 100);
+        ReflectionTestUtils.setField(ledger, "admissionTimeoutMs", 50L);
+        ReflectionTestUtils.setField(ledger, "maxRowRetries", 3);
+        ReflectionTestUtils.setField(ledger, "maxRetryBackoffMs", 1L);
+    }
+
+    @Test
+    public void test_update_loadsFromDatabaseAndMergesConcurrentRecord() {
+        table.put("b1", batch("b1", "PENDING"));
+        // 数据库加载期间其他线程写入同一批次，加载结果不应覆盖账本中的条目
+        onSelect = () -> {
+            onSelect = () -> {
+            };
+            LogBatch concurrent = batch("b1", "PROCESSING");
+            concurrent.setRetryCount(2);
+            ledger.record(concurrent);
+        };
+        assertTrue(ledger.update("b1", row -> row.setErrorMessage("timeout")));
+        LogBatch merged = ledger.get("b1").orElseThrow();
+        assertEquals("PROCESSING", merged.getStatus());
+        assertEquals(2, merged.getRetryCount());
+        assertEquals("timeout", merged.getErrorMessage());
+        assertFalse(ledger.update("missing", row -> row.setStatus("FAILED")));
+    }
+
+    @Test
+    public void test_flush_parksRowsThatKeepFailing() throws InterruptedException {
+        ledger.record(batch("good", "PENDING"));
+        ledger.record(batch("bad", "PENDING"));
+        rejected.add("bad");
+        for (int i = 0; i < 10 && ledger.get("bad").isPresent(); i++) {
+            ledger.flush();
+            Thread.sleep(5);
+        }
+        // 失败行不影响同组其他行写回，超过重试次数后移出账本
+        assertEquals("PENDING", table.get("good").getStatus());
+        assertNull(table.get("bad"));
+        assertFalse(ledger.get("bad").isPresent());
+        assertEquals(1, ledger.getParkedRowCount());
+        assertEquals(4, ledger.getFlushFailureCount());
+        assertEquals(0, ledger.getPendingCount());
+    }
+
+    @Test
+    public void test_record_reclaimsFlushedEntriesWhenFull() {
+        ReflectionTestUtils.setField(ledger, "maxEntries", 2);
+        ledger.record(batch("b1", "PENDING"));
+        ledger.record(batch("b2", "PENDING"));
+        // 已满时写入方同步写回，并回收保留期内已写回的条目
+        ledger.record(batch("b3", "PENDING"));
+        assertTrue(ledger.getEntryCount() <= 2);
+        assertEquals(1, ledger.getAdmissionWaitCount());
+        assertEquals("PENDING", table.get("b1").getStatus());
+        assertEquals("PENDING", ledger.load("b2").getStatus());
+        assertTrue(ledger.get("b3").isPresent());
+    }
+
+    @Test
+    public void test_record_rejectsWhenRowsCannotBeWritten() {
+        ReflectionTestUtils.setField(ledger, "maxEntries", 2);
+        ReflectionTestUtils.setField(ledger, "maxRowRetries", 1_000);
+        rejected.add("b1");
+        rejected.add("b2");
+        ledger.record(batch("b1", "PENDING"));
+        ledger.record(batch("b2", "PENDING"));
+        try {
+            ledger.record(batch("b3", "PENDING"));
+            fail("账本已满且无法写回时应拒绝写入");
+        } catch (IllegalStateException expected) {
+            // 等待超时后拒绝，账本不超过上限
+        }
+        assertEquals(2, ledger.getEntryCount());
+        // 已在账本中的批次不受上限影响
+        assertTrue(ledger.update("b1", row -> row.setStatus("FAILED")));
+    }
+
+    private static LogBatch batch(String batchId, String status) {
+        LogBatch logBatch = new LogBatch();
+        logBatch.setBatchId(batchId);
+        logBatch.setAppId("test-app");
+        logBatch.setEndpointId("test-endpoint");
+        logBatch.setStatus(status);
+        return logBatch;
+    }
+
+}
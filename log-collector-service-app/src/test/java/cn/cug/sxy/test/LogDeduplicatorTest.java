@@ -0,0 +1,172 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.domain.reception.model.aggregate.ReceiverEndpoint;
+import cn.cug.sxy.domain.reception.model.valobj.EndpointId;
+import cn.cug.sxy.domain.reception.model.valobj.EndpointType;
+import cn.cug.sxy.domain.reception.model.valobj.LogAttributes;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.reception.model.valobj.RawLog;
+import cn.cug.sxy.domain.reception.service.buffer.LogBufferManager;
+import cn.cug.sxy.domain.reception.service.config.EndpointConfigSnapshot;
+import cn.cug.sxy.domain.reception.service.dedup.LogDeduplicator;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 17:20
+ * @Description 重复日志折叠测试（首次出现放行、窗口内重复折叠、窗口结束输出汇总，以及指纹淘汰和关闭时的汇总输出）
+ * @Author jerryhotton
+ */
+
+public class LogDeduplicatorTest {
+
+    private static final String APP_ID = "test-app";
+
+    private static final String ENDPOINT_ID = "dedup-endpoint";
+
+    /**
+     * 经缓冲区入批的汇总日志
+     */
+    private final List<RawLog> buffered = new ArrayList<>();
+
+    private LogDeduplicator deduplicator;
+
+    @After
+    public void tearDown() {
+        if (deduplicator != null) {
+            deduplicator.destroy();
+        }
+    }
+
+    @Test
+    public void test_deduplicate_passesThroughEndpointsWithoutWindow() {
+        start(60_000, 100);
+        List<RawLog> logs = Arrays.asList(log("timeout", LogLevel.ERROR, 1), log("timeout", LogLevel.ERROR, 2));
+        assertSame(logs, deduplicator.deduplicate(logs, APP_ID, "other-endpoint"));
+    }
+
+    @Test
+    public void test_deduplicate_suppressesNormalizedRepeats() {
+        start(60_000, 100);
+        List<RawLog> out = deduplicator.deduplicate(Arrays.asList(
+                log("request 1001 took 12ms", LogLevel.WARN, 1),
+                // 数字和连续空白不同仍视为重复
+                log("request 1002 took  345ms", LogLevel.WARN, 2),
+                log("request 1003\ttook 7ms", LogLevel.WARN, 3),
+                // 级别不同不是重复
+                log("request 1004 took 8ms", LogLevel.ERROR, 4),
+                log("connection reset", LogLevel.WARN, 5)), APP_ID, ENDPOINT_ID);
+        assertEquals(Arrays.asList("request 1001 took 12ms", "request 1004 took 8ms", "connection reset"), contents(out));
+        LogDeduplicator.DedupStats stats = deduplicator.getStats();
+        assertEquals(3, stats.getPassed());
+        assertEquals(2, stats.getSuppressed());
+        assertEquals(0, stats.getSummaries());
+    }
+
+    @Test
+    public void test_deduplicate_emitsSummaryWhenWindowEnds() throws InterruptedException {
+        start(50, 100);
+        List<RawLog> first = deduplicator.deduplicate(Arrays.asList(
+                log("disk full on /dev/sda1", LogLevel.ERROR, 1_000),
+                log("disk full on /dev/sda1", LogLevel.ERROR, 3_000),
+                log("disk full on /dev/sda1", LogLevel.ERROR, 2_000),
+                log("disk full on /dev/sda1", LogLevel.ERROR, 4_000)), APP_ID, ENDPOINT_ID);
+        assertEquals(1, first.size());
+        Thread.sleep(80);
+        // 窗口结束后的下一条重复先输出上一窗口的汇总，自身计入新窗口
+        List<RawLog> second = deduplicator.deduplicate(
+                Collections.singletonList(log("disk full on /dev/sda1", LogLevel.ERROR, 5_000)), APP_ID, ENDPOINT_ID);
+        assertEquals(1, second.size());
+        LogAttributes summary = second.get(0).getAttributes();
+        assertEquals(3, summary.getRepeatCount());
+        assertEquals(2_000, summary.getFirstSeen());
+        assertEquals(4_000, summary.getLastSeen());
+        assertEquals(LogLevel.ERROR, summary.getLevel());
+        // 汇总以窗口内第一条重复为代表
+        assertEquals(3_000, second.get(0).getTimestamp().toEpochMilli());
+    }
+
+    @Test
+    public void test_deduplicate_flushesEvictedFingerprintsThroughBuffer() {
+        start(60_000, 2);
+        deduplicator.deduplicate(Arrays.asList(
+                log("alpha", LogLevel.INFO, 1),
+                log("alpha", LogLevel.INFO, 2),
+                log("beta", LogLevel.INFO, 3),
+                // 超出容量，最久未出现的 alpha 被淘汰
+                log("gamma", LogLevel.INFO, 4)), APP_ID, ENDPOINT_ID);
+        assertEquals(1, buffered.size());
+        assertEquals("alpha", buffered.get(0).getContent());
+        assertEquals(1, buffered.get(0).getAttributes().getRepeatCount());
+        assertEquals(1, deduplicator.getStats().getEvictions());
+    }
+
+    @Test
+    public void test_destroy_flushesPendingSummaries() {
+        start(60_000, 100);
+        deduplicator.deduplicate(Arrays.asList(
+                log("retrying", LogLevel.WARN, 1),
+                log("retrying", LogLevel.WARN, 2),
+                log("retrying", LogLevel.WARN, 3),
+                log("once", LogLevel.WARN, 4)), APP_ID, ENDPOINT_ID);
+        assertTrue(buffered.isEmpty());
+        deduplicator.destroy();
+        deduplicator = null;
+        assertEquals(Collections.singletonList("retrying"), contents(buffered));
+        assertEquals(2, buffered.get(0).getAttributes().getRepeatCount());
+    }
+
+    private void start(int windowMs, int maxFingerprints) {
+        ReceiverEndpoint endpoint = new ReceiverEndpoint(new EndpointId(ENDPOINT_ID), "dedup", EndpointType.HTTP,
+                "HTTP", "/logs", null, LogFormat.TEXT, 1024 * 1024);
+        endpoint.configureDedup(windowMs);
+        // 不访问端点仓储，订阅时直接推送测试端点
+        EndpointConfigSnapshot snapshot = new EndpointConfigSnapshot(null) {
+            @Override
+            public synchronized void subscribe(Consumer<List<ReceiverEndpoint>> subscriber) {
+                subscriber.accept(Collections.singletonList(endpoint));
+            }
+        };
+        LogBufferManager bufferManager = new LogBufferManager(null) {
+            @Override
+            public boolean addLog(RawLog rawLog, String appId, String endpointId) {
+                buffered.add(rawLog);
+                return false;
+            }
+        };
+        deduplicator = new LogDeduplicator(snapshot, bufferManager);
+        ReflectionTestUtils.setField(deduplicator, "enabled", true);
+        ReflectionTestUtils.setField(deduplicator, "maxFingerprints", maxFingerprints);
+        ReflectionTestUtils.setField(deduplicator, "sweepIntervalMs", 60_000L);
+        deduplicator.afterPropertiesSet();
+    }
+
+    private static RawLog log(String content, LogLevel level, long timestamp) {
+        LogAttributes attributes = new LogAttributes(level, "test-source", "test-host", null, 0L, null);
+        return new RawLog(content, "test-source", LogFormat.TEXT, Instant.ofEpochMilli(timestamp),
+                attributes, Collections.emptyMap());
+    }
+
+    private static List<String> contents(List<RawLog> logs) {
+        List<String> contents = new ArrayList<>(logs.size());
+        for (RawLog rawLog : logs) {
+            contents.add(rawLog.getContent());
+        }
+        return contents;
+    }
+
+}
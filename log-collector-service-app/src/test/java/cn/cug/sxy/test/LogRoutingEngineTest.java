@@ -0,0 +1,216 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.domain.reception.model.entity.RoutingRuleEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.LogAttributes;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import cn.cug.sxy.domain.reception.model.valobj.RuleAction;
+import cn.cug.sxy.domain.reception.service.routing.LogRoutingEngine;
+import cn.cug.sxy.domain.reception.service.routing.RuleCondition;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 17:45
+ * @Description 日志路由规则测试（条件表达式编译与匹配，丢弃、采样、路由、打标签的执行顺序，以及批次重试时沿用首次执行结果）
+ * @Author jerryhotton
+ */
+
+public class LogRoutingEngineTest {
+
+    private static final String APP_ID = "test-app";
+
+    private static final String ENDPOINT_ID = "test-endpoint";
+
+    /**
+     * 规则仓储当前返回的规则
+     */
+    private List<RoutingRuleEntity> rules = new ArrayList<>();
+
+    private LogRoutingEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = new LogRoutingEngine(() -> rules);
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "decisionCacheSize", 16);
+    }
+
+    @Test
+    public void test_condition_matchesCompiledExpression() {
+        RuleCondition condition = RuleCondition.compile(
+                "level <= DEBUG and (source == 'gateway' or tag.env in (dev, test)) and not content ~ 'health'");
+        assertTrue(condition.matches(log(LogLevel.DEBUG, "gateway", Collections.emptyMap(), "GET /orders", 0)));
+        assertTrue(condition.matches(log(LogLevel.TRACE, "order", Collections.singletonMap("env", "test"), "GET /orders", 0)));
+        assertFalse(condition.matches(log(LogLevel.INFO, "gateway", Collections.emptyMap(), "GET /orders", 0)));
+        assertFalse(condition.matches(log(LogLevel.DEBUG, "order", Collections.singletonMap("env", "prod"), "GET /orders", 0)));
+        assertFalse(condition.matches(log(LogLevel.DEBUG, "gateway", Collections.emptyMap(), "GET /healthz", 0)));
+        // 未识别到级别的日志按INFO处理
+        assertTrue(RuleCondition.compile("level >= INFO").matches(log(null, "gateway", Collections.emptyMap(), "x", 0)));
+        // 未配置条件时匹配所有日志
+        assertTrue(RuleCondition.compile(" ").matches(log(LogLevel.ERROR, "gateway", Collections.emptyMap(), "x", 0)));
+    }
+
+    @Test
+    public void test_condition_rejectsInvalidExpressions() {
+        for (String expression : Arrays.asList("level <=", "unknown == 1", "content ~ '('", "source == 'a' extra",
+                "(level == INFO", "source < 'a'")) {
+            try {
+                RuleCondition.compile(expression);
+                fail("非法表达式未被拒绝: " + expression);
+            } catch (IllegalArgumentException expected) {
+                // 编译失败统一以IllegalArgumentException报告
+            }
+        }
+    }
+
+    @Test
+    public void test_apply_dropsRoutesAndTagsByPriority() {
+        rules.add(rule("drop-debug", 1, "level <= DEBUG", RuleAction.DROP, null));
+        rules.add(rule("route-pay", 2, "source == pay", RuleAction.ROUTE, "payments"));
+        rules.add(rule("route-all", 3, null, RuleAction.ROUTE, "other"));
+        rules.add(rule("tag-team", 4, "source in (pay, order)", RuleAction.TAG, "team=trade,tier=1"));
+        // 其他应用的规则不生效
+        rules.add(rule("drop-other-app", 0, null, RuleAction.DROP, null).toBuilder().appId("other-app").build());
+        engine.refresh();
+        List<ProcessedLog> logs = Arrays.asList(
+                log(LogLevel.DEBUG, "pay", Collections.emptyMap(), "debug", 0),
+                log(LogLevel.INFO, "pay", Collections.emptyMap(), "paid", 1),
+                log(LogLevel.WARN, "order", Collections.singletonMap("team", "client"), "slow", 2),
+                log(LogLevel.ERROR, "gateway", Collections.emptyMap(), "down", 3));
+        List<ProcessedLog> kept = engine.apply(new BatchId("batch-1"), APP_ID, ENDPOINT_ID, logs);
+        assertEquals(3, kept.size());
+        assertEquals("payments", kept.get(0).getRoute());
+        assertEquals("trade", kept.get(0).getTags().get("team"));
+        // 路由以第一条命中的规则为准，规则标签覆盖客户端同名标签
+        assertEquals("other", kept.get(1).getRoute());
+        assertEquals("trade", kept.get(1).getTags().get("team"));
+        assertEquals("1", kept.get(1).getTags().get("tier"));
+        assertEquals("other", kept.get(2).getRoute());
+        assertFalse(kept.get(2).hasAddedTags());
+        LogRoutingEngine.RoutingStats stats = engine.getStats();
+        assertEquals(5, stats.getRules());
+        assertEquals(4, stats.getEvaluated());
+        assertEquals(1, stats.getDropped());
+        assertEquals(3, stats.getRouted());
+        assertEquals(2, stats.getTagged());
+    }
+
+    @Test
+    public void test_apply_replaysFirstDecisionOnRetry() {
+        rules.add(rule("sample-half", 1, null, RuleAction.SAMPLE, "0.5"));
+        rules.add(rule("tag-first", 2, null, RuleAction.TAG, "pass=first"));
+        engine.refresh();
+        BatchId batchId = new BatchId("batch-retry");
+        List<Integer> first = sequences(engine.apply(batchId, APP_ID, ENDPOINT_ID, batch(200)));
+        assertTrue(first.size() > 50 && first.size() < 150);
+        // 规则在重试前变更为全部丢弃，重试仍沿用首次执行的结果
+        rules.clear();
+        rules.add(rule("sample-half", 1, null, RuleAction.DROP, null));
+        engine.refresh();
+        List<ProcessedLog> retried = engine.apply(batchId, APP_ID, ENDPOINT_ID, batch(200));
+        assertEquals(first, sequences(retried));
+        for (ProcessedLog processedLog : retried) {
+            assertEquals("first", processedLog.getTags().get("pass"));
+        }
+        assertEquals(200, engine.getStats().getEvaluated());
+        assertEquals(1, engine.getStats().getPendingDecisions());
+        // 入库完成后不再保留结果，同一批次ID按当前规则执行
+        engine.complete(batchId);
+        assertTrue(engine.apply(batchId, APP_ID, ENDPOINT_ID, batch(200)).isEmpty());
+    }
+
+    @Test
+    public void test_apply_samplesBySequenceNotPosition() {
+        rules.add(rule("sample-half", 1, null, RuleAction.SAMPLE, "0.5"));
+        engine.refresh();
+        List<Integer> full = sequences(engine.apply(new BatchId("batch-a"), APP_ID, ENDPOINT_ID, batch(100)));
+        // 另一个引擎实例对同一批次中去掉部分日志后的子集，保留结果与序号一一对应
+        LogRoutingEngine other = new LogRoutingEngine(() -> rules);
+        ReflectionTestUtils.setField(other, "enabled", true);
+        ReflectionTestUtils.setField(other, "decisionCacheSize", 16);
+        other.refresh();
+        List<ProcessedLog> subset = new ArrayList<>();
+        for (ProcessedLog processedLog : batch(100)) {
+            if (processedLog.getSequence() % 3 != 0) {
+                subset.add(processedLog);
+            }
+        }
+        List<Integer> partial = sequences(other.apply(new BatchId("batch-a"), APP_ID, ENDPOINT_ID, subset));
+        List<Integer> expected = new ArrayList<>();
+        for (Integer sequence : full) {
+            if (sequence % 3 != 0) {
+                expected.add(sequence);
+            }
+        }
+        assertEquals(expected, partial);
+    }
+
+    @Test
+    public void test_refresh_skipsInvalidRulesAndKeepsHitCounts() {
+        rules.add(rule("bad", 1, "level <=", RuleAction.DROP, null));
+        rules.add(rule("tag", 2, null, RuleAction.TAG, "k=v"));
+        engine.refresh();
+        assertEquals(1, engine.getStats().getRules());
+        assertEquals(1, engine.getStats().getInvalidRules());
+        engine.apply(new BatchId("b1"), APP_ID, ENDPOINT_ID, batch(3));
+        // 规则未变更时刷新不影响命中计数
+        engine.refresh();
+        engine.apply(new BatchId("b2"), APP_ID, ENDPOINT_ID, batch(2));
+        assertEquals(5, engine.getRuleHits().get(0).getHits());
+        // 规则只对所属应用生效
+        assertFalse(engine.apply(new BatchId("b3"), "other-app", ENDPOINT_ID, batch(1)).get(0).hasAddedTags());
+    }
+
+    private static RoutingRuleEntity rule(String ruleId, int priority, String condition, RuleAction action, String param) {
+        return RoutingRuleEntity.builder()
+                .ruleId(ruleId)
+                .appId(APP_ID)
+                .priority(priority)
+                .condition(condition)
+                .action(action)
+                .actionParam(param)
+                .build();
+    }
+
+    private static List<ProcessedLog> batch(int size) {
+        List<ProcessedLog> logs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            logs.add(log(LogLevel.INFO, "order", Collections.emptyMap(), "message " + i, i));
+        }
+        return logs;
+    }
+
+    private static ProcessedLog log(LogLevel level, String source, Map<String, String> tags, String content, int sequence) {
+        LogAttributes attributes = new LogAttributes(level, source, "test-host", null, 0L, tags);
+        ProcessedLog processedLog = new ProcessedLog(content, LogFormat.TEXT, attributes, Collections.emptyMap(),
+                APP_ID, ENDPOINT_ID, "test-source", Instant.EPOCH, Instant.EPOCH);
+        processedLog.assignSequence(sequence);
+        return processedLog;
+    }
+
+    private static List<Integer> sequences(List<ProcessedLog> logs) {
+        List<Integer> sequences = new ArrayList<>(logs.size());
+        for (ProcessedLog processedLog : logs) {
+            sequences.add(processedLog.getSequence());
+        }
+        return sequences;
+    }
+
+}
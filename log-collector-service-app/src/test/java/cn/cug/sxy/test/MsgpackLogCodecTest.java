@@ -0,0 +1,165 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.domain.preprocess.service.codec.MsgpackLogCodec;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 16:05
+ * @Description MessagePack编解码器测试（各类型字节的解码结果，以及截断、多余字节、过深嵌套等非法载荷）
+ * @Author jerryhotton
+ */
+
+public class MsgpackLogCodecTest {
+
+    private final MsgpackLogCodec codec = new MsgpackLogCodec();
+
+    @Test
+    public void test_decode_scalars() {
+        Map<String, Object> fields = decode(
+                0x8B,
+                str("fixint"), 0x07,
+                str("negint"), 0xE0,
+                str("uint8"), 0xCC, 0xFF,
+                str("uint16"), 0xCD, 0xFF, 0xFF,
+                str("uint32"), 0xCE, 0xFF, 0xFF, 0xFF, 0xFF,
+                str("uint64"), 0xCF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF,
+                str("int16"), 0xD1, 0xFF, 0x00,
+                str("float64"), 0xCB, 0x3F, 0xF8, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                str("nil"), 0xC0,
+                str("true"), 0xC3,
+                str("false"), 0xC2);
+        assertEquals(7L, fields.get("fixint"));
+        assertEquals(-32L, fields.get("negint"));
+        assertEquals(255L, fields.get("uint8"));
+        assertEquals(65535L, fields.get("uint16"));
+        assertEquals(4294967295L, fields.get("uint32"));
+        // 超出long范围的uint64按无符号十进制字符串保留
+        assertEquals("18446744073709551615", fields.get("uint64"));
+        assertEquals(-256L, fields.get("int16"));
+        assertEquals(1.5d, fields.get("float64"));
+        assertTrue(fields.containsKey("nil"));
+        assertNull(fields.get("nil"));
+        assertEquals(Boolean.TRUE, fields.get("true"));
+        assertEquals(Boolean.FALSE, fields.get("false"));
+    }
+
+    @Test
+    public void test_decode_stringsAndContainers() {
+        byte[] chinese = "订单已创建".getBytes(StandardCharsets.UTF_8);
+        Map<String, Object> fields = decode(
+                0x83,
+                str("message"), 0xD9, chinese.length, chinese,
+                str("tags"), 0x92, str("vip"), str("cn"),
+                str("user"), 0x81, str("id"), 0xCD, 0x27, 0x66);
+        assertEquals("订单已创建", fields.get("message"));
+        assertEquals(Arrays.asList("vip", "cn"), fields.get("tags"));
+        assertEquals(Collections.singletonMap("id", 10086L), fields.get("user"));
+        // 保持载荷中的键顺序
+        assertEquals(Arrays.asList("message", "tags", "user"), List.copyOf(fields.keySet()));
+    }
+
+    @Test
+    public void test_decode_binaryAndTimestampExtension() {
+        Map<String, Object> fields = decode(
+                0x84,
+                str("bin"), 0xC4, 0x03, 0x01, 0x02, 0x03,
+                str("ts32"), 0xD6, 0xFF, 0x68, 0x8B, 0x4C, 0x38,
+                str("ts96"), 0xC7, 0x0C, 0xFF, 0x07, 0x5B, 0xCD, 0x15, 0x00, 0x00, 0x00, 0x00, 0x68, 0x8B, 0x4C, 0x38,
+                str("ext"), 0xD4, 0x05, 0x2A);
+        assertEquals("AQID", fields.get("bin"));
+        assertEquals("2025-07-31T10:58:00Z", fields.get("ts32"));
+        assertEquals("2025-07-31T10:58:00.123456789Z", fields.get("ts96"));
+        // 非时间戳扩展类型按字节保留
+        assertEquals("Kg==", fields.get("ext"));
+    }
+
+    @Test
+    public void test_decode_wrapsNonMapTopLevel() {
+        Map<String, Object> fields = decode(str("plain"));
+        assertEquals(Collections.singletonMap("value", "plain"), fields);
+    }
+
+    @Test
+    public void test_decode_rejectsMalformedPayloads() {
+        // 字符串声明5字节，只有2字节
+        assertRejected(bytes(0x81, str("k"), 0xA5, 'a', 'b'));
+        // map声明大小远超剩余字节
+        assertRejected(bytes(0xDF, 0x7F, 0xFF, 0xFF, 0xFF));
+        // 末尾多余字节
+        assertRejected(bytes(0x80, 0x00));
+        // 保留的类型字节
+        assertRejected(bytes(0xC1));
+        // 空载荷
+        assertRejected(new byte[0]);
+        // 嵌套超过上限
+        byte[] nested = new byte[100];
+        Arrays.fill(nested, (byte) 0x91);
+        assertRejected(nested);
+    }
+
+    @Test
+    public void test_decodeBatch_decodesEachPayload() {
+        List<Map<String, Object>> results = codec.decodeBatch(Arrays.asList(
+                ByteBuffer.wrap(bytes(0x81, str("a"), 0x01)),
+                ByteBuffer.wrap(bytes(0x81, str("b"), 0x02))));
+        assertEquals(2, results.size());
+        assertEquals(1L, results.get(0).get("a"));
+        assertEquals(2L, results.get(1).get("b"));
+    }
+
+    private Map<String, Object> decode(Object... parts) {
+        return codec.decode(ByteBuffer.wrap(bytes(parts)));
+    }
+
+    private void assertRejected(byte[] payload) {
+        try {
+            codec.decode(ByteBuffer.wrap(payload));
+            fail("非法载荷未被拒绝: " + Arrays.toString(payload));
+        } catch (IllegalArgumentException expected) {
+            // 非法载荷统一以IllegalArgumentException报告
+        }
+    }
+
+    /**
+     * fixstr编码的字符串
+     */
+    private static byte[] str(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = new byte[utf8.length + 1];
+        encoded[0] = (byte) (0xA0 | utf8.length);
+        System.arraycopy(utf8, 0, encoded, 1, utf8.length);
+        return encoded;
+    }
+
+    /**
+     * 拼接字节，整数按单字节写入
+     */
+    private static byte[] bytes(Object... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Object part : parts) {
+            if (part instanceof byte[]) {
+                out.writeBytes((byte[]) part);
+            } else if (part instanceof Character) {
+                out.write((Character) part);
+            } else {
+                out.write((Integer) part);
+            }
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,248 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.domain.reception.adapter.repository.IDeadLetterRepository;
+import cn.cug.sxy.domain.reception.model.aggregate.ReceiverEndpoint;
+import cn.cug.sxy.domain.reception.model.entity.DeadLetterEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.DeadLetterQuery;
+import cn.cug.sxy.domain.reception.model.valobj.EndpointId;
+import cn.cug.sxy.domain.reception.model.valobj.EndpointType;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.RawLog;
+import cn.cug.sxy.domain.reception.service.buffer.LogBufferManager;
+import cn.cug.sxy.domain.reception.service.config.EndpointConfigSnapshot;
+import cn.cug.sxy.domain.reception.service.multiline.MultilineAssembler;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 18:40
+ * @Description 多行事件组装测试（跨请求合并续行、超时经缓冲区输出、来源数和总字节数上限，以及关闭时写入死信存储）
+ * @Author jerryhotton
+ */
+
+public class MultilineAssemblerTest {
+
+    private static final String APP_ID = "test-app";
+
+    private static final String ENDPOINT_ID = "multiline-endpoint";
+
+    /**
+     * 超时后经缓冲区入批的事件
+     */
+    private final List<RawLog> buffered = new CopyOnWriteArrayList<>();
+
+    /**
+     * 关闭时写入死信存储的事件
+     */
+    private final List<DeadLetterEntity> deadLetters = new ArrayList<>();
+
+    private MultilineAssembler assembler;
+
+    @After
+    public void tearDown() {
+        if (assembler != null) {
+            assembler.destroy();
+        }
+    }
+
+    @Test
+    public void test_assemble_passesThroughEndpointsWithoutRule() {
+        start(60_000, 10, 1 << 20);
+        List<RawLog> logs = Arrays.asList(line("a", "Exception in thread main"), line("a", "\tat Foo.bar(Foo.java:1)"));
+        assertSame(logs, assembler.assemble(logs, APP_ID, "other-endpoint"));
+    }
+
+    @Test
+    public void test_assemble_joinsContinuationsAcrossRequests() {
+        start(60_000, 10, 1 << 20);
+        // 每次请求只有一行，堆栈逐行到达
+        assertTrue(assemble(line("a", "java.lang.IllegalStateException: boom")).isEmpty());
+        assertTrue(assemble(line("a", "\tat cn.cug.sxy.Foo.bar(Foo.java:10)")).isEmpty());
+        assertTrue(assemble(line("a", "Caused by: java.io.IOException: closed")).isEmpty());
+        // 其他来源的日志不影响该来源的未完成事件
+        assertTrue(assemble(line("b", "INFO started")).isEmpty());
+        // 下一条非续行输出上一事件，事件随本次请求的批次输出
+        List<RawLog> out = assemble(line("a", "INFO recovered"));
+        assertEquals(1, out.size());
+        assertEquals("java.lang.IllegalStateException: boom\n\tat cn.cug.sxy.Foo.bar(Foo.java:10)\n"
+                + "Caused by: java.io.IOException: closed", out.get(0).getContent());
+        assertEquals("3", out.get(0).getMetadata().get("multiline.lines"));
+        MultilineAssembler.AssemblerStats stats = assembler.getStats();
+        assertEquals(2, stats.getPendingSources());
+        assertEquals(5, stats.getLinesIn());
+        assertEquals(1, stats.getEventsOut());
+    }
+
+    @Test
+    public void test_assemble_keepsOrderWithinOneRequest() {
+        start(60_000, 10, 1 << 20);
+        List<RawLog> out = assembler.assemble(Arrays.asList(
+                line("a", "ERROR failed"),
+                line("a", "  at A.a(A.java:1)"),
+                line("b", "ERROR other"),
+                line("a", "INFO next"),
+                raw("a", "{\"k\":1}", LogFormat.JSON),
+                line("b", "  at B.b(B.java:2)")), APP_ID, ENDPOINT_ID);
+        // 非文本日志先输出同一来源的未完成事件；每个来源最后一个事件继续等待
+        assertEquals(Arrays.asList("ERROR failed\n  at A.a(A.java:1)", "INFO next", "{\"k\":1}"), contents(out));
+        assertEquals(1, assembler.getStats().getPendingSources());
+    }
+
+    @Test
+    public void test_flush_emitsTimedOutEventsThroughBuffer() throws InterruptedException {
+        start(50, 10, 1 << 20);
+        assemble(line("a", "ERROR failed"), line("a", "  at A.a(A.java:1)"));
+        waitForBuffered(1);
+        assertEquals("ERROR failed\n  at A.a(A.java:1)", buffered.get(0).getContent());
+        // 超时后到达的续行单独成为事件并标记
+        assertTrue(assemble(line("a", "  at A.b(A.java:2)")).isEmpty());
+        waitForBuffered(2);
+        assertEquals("true", buffered.get(1).getMetadata().get("multiline.continued"));
+        assertEquals(2, assembler.getStats().getTimeoutFlushes());
+        assertEquals(0, assembler.getStats().getPendingBytes());
+    }
+
+    @Test
+    public void test_assemble_respectsSourceAndByteCaps() {
+        start(60_000, 1, 1 << 20);
+        assertTrue(assemble(line("a", "ERROR a")).isEmpty());
+        // 来源数达到上限，新来源的日志不等待续行
+        assertEquals(Collections.singletonList("ERROR b"), contents(assemble(line("b", "ERROR b"))));
+        assembler.destroy();
+
+        start(60_000, 10, 20);
+        assertTrue(assemble(line("a", "ERROR 0123456789")).isEmpty());
+        // 追加后总字节数超过上限，事件包含本行立即输出
+        assertEquals(Collections.singletonList("ERROR 0123456789\n  at X.y()"),
+                contents(assemble(line("a", "  at X.y()"))));
+        assertEquals(0, assembler.getStats().getPendingBytes());
+        assertEquals(1, assembler.getStats().getOverflowLines());
+    }
+
+    @Test
+    public void test_destroy_writesPendingEventsToDeadLetterStore() {
+        start(60_000, 10, 1 << 20);
+        assemble(line("a", "ERROR a"), line("a", "  at A.a()"), line("b", "ERROR b"));
+        assembler.destroy();
+        assembler = null;
+        assertTrue(buffered.isEmpty());
+        assertEquals(1, deadLetters.size());
+        DeadLetterEntity deadLetter = deadLetters.get(0);
+        assertEquals(APP_ID, deadLetter.getAppId());
+        assertEquals(ENDPOINT_ID, deadLetter.getEndpointId());
+        assertEquals(2, deadLetter.getLogCount());
+        List<String> contents = contents(deadLetter.getLogs());
+        Collections.sort(contents);
+        assertEquals(Arrays.asList("ERROR a\n  at A.a()", "ERROR b"), contents);
+        assertNull(deadLetter.getLastReplayTime());
+    }
+
+    private void start(long maxWaitMs, int maxSources, long maxPendingBytes) {
+        ReceiverEndpoint endpoint = new ReceiverEndpoint(new EndpointId(ENDPOINT_ID), "multiline", EndpointType.HTTP,
+                "HTTP", "/logs", null, LogFormat.TEXT, 1024 * 1024);
+        endpoint.configureMultiline(null, MultilineAssembler.DEFAULT_CONTINUATION_RULE);
+        // 不访问端点仓储，订阅时直接推送测试端点
+        EndpointConfigSnapshot snapshot = new EndpointConfigSnapshot(null) {
+            @Override
+            public synchronized void subscribe(Consumer<List<ReceiverEndpoint>> subscriber) {
+                subscriber.accept(Collections.singletonList(endpoint));
+            }
+        };
+        LogBufferManager bufferManager = new LogBufferManager(null) {
+            @Override
+            public boolean addLog(RawLog rawLog, String appId, String endpointId) {
+                buffered.add(rawLog);
+                return false;
+            }
+        };
+        assembler = new MultilineAssembler(snapshot, bufferManager, new RecordingDeadLetterRepository());
+        ReflectionTestUtils.setField(assembler, "enabled", true);
+        ReflectionTestUtils.setField(assembler, "maxWaitMs", maxWaitMs);
+        ReflectionTestUtils.setField(assembler, "maxLines", 500);
+        ReflectionTestUtils.setField(assembler, "maxBytes", 262144);
+        ReflectionTestUtils.setField(assembler, "maxSources", maxSources);
+        ReflectionTestUtils.setField(assembler, "maxPendingBytes", maxPendingBytes);
+        assembler.afterPropertiesSet();
+    }
+
+    private List<RawLog> assemble(RawLog... logs) {
+        return assembler.assemble(Arrays.asList(logs), APP_ID, ENDPOINT_ID);
+    }
+
+    private void waitForBuffered(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && buffered.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, buffered.size());
+    }
+
+    private static RawLog line(String sourceId, String content) {
+        return raw(sourceId, content, LogFormat.TEXT);
+    }
+
+    private static RawLog raw(String sourceId, String content, LogFormat format) {
+        return RawLog.of(content, sourceId, format, Instant.EPOCH, Collections.emptyMap());
+    }
+
+    private static List<String> contents(List<RawLog> logs) {
+        List<String> contents = new ArrayList<>(logs.size());
+        for (RawLog rawLog : logs) {
+            contents.add(rawLog.getContent());
+        }
+        return contents;
+    }
+
+    /**
+     * 只记录写入的死信
+     */
+    private class RecordingDeadLetterRepository implements IDeadLetterRepository {
+
+        @Override
+        public void save(DeadLetterEntity deadLetter) {
+            deadLetters.add(deadLetter);
+        }
+
+        @Override
+        public List<DeadLetterEntity> find(DeadLetterQuery query) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public long count(DeadLetterQuery query) {
+            return 0;
+        }
+
+        @Override
+        public Optional<DeadLetterEntity> load(BatchId batchId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void markReplayed(BatchId batchId) {
+        }
+
+        @Override
+        public boolean delete(BatchId batchId) {
+            return false;
+        }
+
+    }
+
+}
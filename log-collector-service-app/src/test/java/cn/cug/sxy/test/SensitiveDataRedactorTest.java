@@ -0,0 +1,112 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.domain.preprocess.service.redact.PiiClass;
+import cn.cug.sxy.domain.preprocess.service.redact.RedactionResult;
+import cn.cug.sxy.domain.preprocess.service.redact.SensitiveDataRedactor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 16:30
+ * @Description 敏感信息检测与脱敏测试（身份证号校验码、银行卡号Luhn校验、词边界及按应用配置的脱敏类别）
+ * @Author jerryhotton
+ */
+
+public class SensitiveDataRedactorTest {
+
+    private SensitiveDataRedactor redactor;
+
+    @Before
+    public void setUp() {
+        redactor = new SensitiveDataRedactor(true,
+                "IP,EMAIL,URL,USER_ID,PHONE,ID_CARD,BANK_CARD,SECRET",
+                "EMAIL,PHONE,ID_CARD,BANK_CARD,SECRET",
+                "audit-app:NONE");
+    }
+
+    @Test
+    public void test_redact_masksIdCardWithValidCheckCode() {
+        RedactionResult result = redactor.redact("app", "实名认证 idCard 11010519491231002X 通过");
+        assertEquals("实名认证 idCard 110105********002X 通过", result.getContent());
+        assertEquals(1, result.hits(PiiClass.ID_CARD));
+        // 小写校验码同样识别
+        assertEquals("id=110105********002x",
+                redactor.redact("app", "id=11010519491231002x").getContent());
+    }
+
+    @Test
+    public void test_redact_keepsIdCardWithWrongCheckCode() {
+        // 校验码错误，且18位数字不满足Luhn校验，不属于任何类别
+        String content = "order 110105194912310021 created";
+        RedactionResult result = redactor.redact("app", content);
+        assertSame(content, result.getContent());
+        assertFalse(result.isMasked());
+        assertEquals(0, result.hits(PiiClass.ID_CARD));
+        assertEquals(0, result.hits(PiiClass.BANK_CARD));
+    }
+
+    @Test
+    public void test_redact_masksBankCardPassingLuhn() {
+        assertEquals("card ************1111 paid",
+                redactor.redact("app", "card 4111111111111111 paid").getContent());
+        assertEquals("card ***************0128 paid",
+                redactor.redact("app", "card 6222021234567890128 paid").getContent());
+    }
+
+    @Test
+    public void test_redact_keepsDigitsFailingLuhn() {
+        String content = "traceNo 4111111111111112 and 6222021234567890123";
+        RedactionResult result = redactor.redact("app", content);
+        assertSame(content, result.getContent());
+        assertEquals(0, result.hits(PiiClass.BANK_CARD));
+    }
+
+    @Test
+    public void test_redact_requiresWordBoundary() {
+        // 数字串前后紧接字母或下划线时不是卡号
+        String content = "id_4111111111111111 4111111111111111abc";
+        assertSame(content, redactor.redact("app", content).getContent());
+    }
+
+    @Test
+    public void test_redact_masksEachClassInOnePass() {
+        RedactionResult result = redactor.redact("app",
+                "user alice@example.com phone 13800138000 from 10.1.2.3 password=hunter2 card 4111111111111111");
+        assertEquals("user a***@example.com phone 138****8000 from 10.1.2.3 password=****** card ************1111",
+                result.getContent());
+        assertTrue(result.isMasked());
+        assertEquals(1, result.hits(PiiClass.EMAIL));
+        assertEquals(1, result.hits(PiiClass.PHONE));
+        assertEquals(1, result.hits(PiiClass.SECRET));
+        assertEquals(1, result.hits(PiiClass.BANK_CARD));
+        // IP只检测不脱敏，保留命中值
+        assertEquals(Collections.singletonList("10.1.2.3"), result.values(PiiClass.IP));
+    }
+
+    @Test
+    public void test_redact_followsAppPolicy() {
+        String content = "id 11010519491231002X card 4111111111111111";
+        RedactionResult result = redactor.redact("audit-app", content);
+        assertSame(content, result.getContent());
+        // 不脱敏的应用仍然统计命中
+        assertEquals(1, result.hits(PiiClass.ID_CARD));
+        assertEquals(1, result.hits(PiiClass.BANK_CARD));
+    }
+
+    @Test
+    public void test_redactField_masksSecretKeysAndScansOtherValues() {
+        assertEquals("******", redactor.redactField("app", "db_password", "p@ss w0rd"));
+        assertEquals("110105********002X", redactor.redactField("app", "idNo", "11010519491231002X"));
+        String plain = "order created";
+        assertSame(plain, redactor.redactField("app", "message", plain));
+    }
+
+}
@@ -0,0 +1,140 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.domain.preprocess.service.grok.EndpointGrokRegistry;
+import cn.cug.sxy.domain.preprocess.service.strategy.TextLayoutMemo;
+import cn.cug.sxy.domain.preprocess.service.strategy.TextPreprocessStrategy;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 15:40
+ * @Description 文本日志格式记忆测试（开启记忆后识别结果与关闭时一致，命中率过低时遗忘并重新学习）
+ * @Author jerryhotton
+ */
+
+public class TextLayoutMemoTest {
+
+    private static final String STANDARD = "2025-07-31 10:10:00,123 [main] WARN  cn.cug.sxy.OrderService - slow query took 1520ms";
+
+    private static final String NGINX = "10.0.0.1 - alice [31/Jul/2025:10:10:00 +0800] \"GET /api/v1/orders HTTP/1.1\" 200 512 \"-\" \"curl/8.0\"";
+
+    private static final String SIMPLE = "2025-07-31 10:10:00 ERROR connection reset by peer";
+
+    private static final String KEY_VALUE = "level=info msg=\"order created\" orderId=O1 costMs=12";
+
+    private static final String PLAIN = "just a plain message";
+
+    private TextPreprocessStrategy memoStrategy;
+
+    private TextPreprocessStrategy noMemoStrategy;
+
+    @Before
+    public void setUp() {
+        // 注册表未订阅端点配置快照，没有任何Grok模式
+        EndpointGrokRegistry grokRegistry = new EndpointGrokRegistry(null);
+        TimestampParser timestampParser = new TimestampParser("UTC", 256, 4096);
+        memoStrategy = new TextPreprocessStrategy(grokRegistry, timestampParser, 4096, 8, 0.5);
+        noMemoStrategy = new TextPreprocessStrategy(grokRegistry, timestampParser, 0, 8, 0.5);
+    }
+
+    @Test
+    public void test_process_memoDoesNotChangeResult() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            lines.add(STANDARD);
+        }
+        // 来源中途切换格式，并夹杂不可记忆的格式
+        for (int i = 0; i < 40; i++) {
+            lines.add(i % 5 == 0 ? KEY_VALUE : i % 7 == 0 ? PLAIN : NGINX);
+        }
+        for (int i = 0; i < 20; i++) {
+            lines.add(i % 2 == 0 ? SIMPLE : STANDARD);
+        }
+        for (String line : lines) {
+            ProcessedLog withMemo = newLog(line);
+            memoStrategy.process(withMemo);
+            ProcessedLog withoutMemo = newLog(line);
+            noMemoStrategy.process(withoutMemo);
+            assertNull(line, withMemo.getValidationFailReason());
+            assertEquals(line, textMetadata(withoutMemo), textMetadata(withMemo));
+            assertEquals(line, withoutMemo.getStructuredFields(), withMemo.getStructuredFields());
+            assertEquals(line, withoutMemo.getEventTime(), withMemo.getEventTime());
+        }
+        TextLayoutMemo.MemoStats stats = memoStrategy.getLayoutMemoStats();
+        assertEquals(1, stats.getSources());
+        assertTrue(stats.getHits() > 0);
+        assertTrue(stats.getRelearns() > 0);
+        assertEquals(0, noMemoStrategy.getLayoutMemoStats().getSources());
+    }
+
+    @Test
+    public void test_record_forgetsLayoutWhenHitRateDrops() {
+        TextLayoutMemo memo = new TextLayoutMemo(16, 4, 0.5);
+        memo.record("s", null, "STANDARD");
+        assertEquals("STANDARD", memo.preferredLayout("s"));
+        // 窗口内4次只命中1次，低于50%
+        memo.record("s", "STANDARD", "STANDARD");
+        memo.record("s", "STANDARD", "NGINX_ACCESS");
+        memo.record("s", "STANDARD", "NGINX_ACCESS");
+        memo.record("s", "STANDARD", "NGINX_ACCESS");
+        assertNull(memo.preferredLayout("s"));
+        assertEquals(1, memo.getStats().getRelearns());
+        // 遗忘后采用下一次匹配的格式
+        memo.record("s", null, "NGINX_ACCESS");
+        assertEquals("NGINX_ACCESS", memo.preferredLayout("s"));
+    }
+
+    @Test
+    public void test_record_keepsLayoutWhileHitRateHolds() {
+        TextLayoutMemo memo = new TextLayoutMemo(16, 4, 0.5);
+        memo.record("s", null, "SIMPLE");
+        for (int i = 0; i < 8; i++) {
+            memo.record("s", "SIMPLE", i % 2 == 0 ? "SIMPLE" : null);
+        }
+        assertEquals("SIMPLE", memo.preferredLayout("s"));
+        assertEquals(0, memo.getStats().getRelearns());
+    }
+
+    @Test
+    public void test_record_evictsLeastRecentlyUsedSource() {
+        TextLayoutMemo memo = new TextLayoutMemo(2, 4, 0.5);
+        memo.record("a", null, "SIMPLE");
+        memo.record("b", null, "SIMPLE");
+        memo.preferredLayout("a");
+        memo.record("c", null, "SIMPLE");
+        assertEquals("SIMPLE", memo.preferredLayout("a"));
+        assertNull(memo.preferredLayout("b"));
+        assertEquals(2, memo.getStats().getSources());
+    }
+
+    private ProcessedLog newLog(String line) {
+        return new ProcessedLog(line, LogFormat.TEXT, Collections.emptyMap(),
+                "test-app", "test-endpoint", "test-source", Instant.EPOCH, Instant.EPOCH);
+    }
+
+    private Map<String, String> textMetadata(ProcessedLog log) {
+        Map<String, String> text = new TreeMap<>();
+        for (Map.Entry<String, String> entry : log.getMetadata().entrySet()) {
+            if (entry.getKey().startsWith("text.")) {
+                text.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return text;
+    }
+
+}
@@ -0,0 +1,112 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.domain.preprocess.service.strategy.TextLogLexer;
+import cn.cug.sxy.domain.preprocess.service.strategy.TextPreprocessStrategy;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 15:10
+ * @Description 文本日志词法分析器测试（快速路径确定格式时，格式和提取的字段须与预定义正则完全一致）
+ * @Author jerryhotton
+ */
+
+public class TextLogLexerTest {
+
+    private static final String[] LINES = {
+            // Log4j2
+            "25-07-31.10:10:00.123 [http-nio-8080-exec-1] INFO  c.c.s.OrderService svc-order 4bf92f3577b34da6 - order created",
+            "25-07-31.10:10:00.123 [main] WARN c.c.s.OrderService svc-order - slow query",
+            "25-07-31.10:10:00.123 [main] ERROR c.c.s.OrderService",
+            "25-07-31.10:10:00.123 [main thread] DEBUG c.c.s.OrderService  message with  spaces",
+            "25-07-31.10:10:00.123 [] INFO c.c.s.OrderService empty thread",
+            // 标准格式
+            "2025-07-31 10:10:00,123 [main] WARN  cn.cug.sxy.OrderService - slow query took 1520ms",
+            "2025-07-31 10:10:00.123 [pool-1-thread-2] INFO cn.cug.sxy.OrderService - ",
+            "2025-07-31 10:10:00,123 [] INFO cn.cug.sxy.OrderService - empty thread",
+            "2025-07-31 10:10:00,123 [main] INFO cn.cug.sxy.OrderService no separator",
+            "2025-07-31 10:10:00,123 [a] b] INFO cn.cug.sxy.OrderService - bracket in thread",
+            // 简单格式
+            "2025-07-31 10:10:00 ERROR connection reset by peer",
+            "2025-07-31 10:10:00 INFO",
+            "2025-07-31 10:10:00   WARN   padded message",
+            "2025-07-31 10:10:00.123 INFO fraction without thread",
+            // 访问日志
+            "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326",
+            "10.0.0.1 - alice [31/Jul/2025:10:10:00 +0800] \"GET /api/v1/orders HTTP/1.1\" 200 512 \"-\" \"curl/8.0\"",
+            "10.0.0.1 ident bob [31/Jul/2025:10:10:00 +0800] \"POST /login HTTP/1.1\" 302 0 trailing",
+            "10.0.0.1 - - [31/Jul/2025:10:10:00 +0800] \"\" 400 0 \"-\" \"-\"",
+            "10.0.0.1 - - [31/Jul/2025:10:10:00 +0800] \"GET / HTTP/1.1\" 200 -",
+            // 键值对
+            "level=info msg=\"order created\" orderId=O20250731000123 costMs=12",
+            "a= b=\"\" c=3",
+            "plain=1",
+            // 不属于任何预定义格式
+            "just a plain message",
+            "",
+            "2025-07-31 boom",
+            "25-07-31.10:10:00.123 no thread bracket",
+            "2025-07-31 10:10:00,123 [main] INFO cn.cug.sxy.OrderService - line one\nline two"
+    };
+
+    @Test
+    public void test_lex_agreesWithRegex() {
+        for (String line : LINES) {
+            Map<String, String> lexed = new HashMap<>();
+            String format = TextLogLexer.lex(line, lexed);
+            Map<String, String> matched = new HashMap<>();
+            String expected = TextPreprocessStrategy.matchPredefinedLayouts(line, matched);
+            if (format == null) {
+                // 快速路径无法确定时不得写入任何字段
+                assertTrue(line, lexed.isEmpty());
+                continue;
+            }
+            if (TextLogLexer.NO_MATCH.equals(format)) {
+                assertNull(line, expected);
+                continue;
+            }
+            assertEquals(line, expected, format);
+            assertEquals(line, matched, lexed);
+        }
+    }
+
+    @Test
+    public void test_lex_recognizesEachLayout() {
+        assertEquals("LOG4J2_PATTERN", TextLogLexer.lex(LINES[0], new HashMap<>()));
+        assertEquals("STANDARD", TextLogLexer.lex(LINES[5], new HashMap<>()));
+        assertEquals("SIMPLE", TextLogLexer.lex(LINES[10], new HashMap<>()));
+        assertEquals("APACHE_ACCESS", TextLogLexer.lex(LINES[14], new HashMap<>()));
+        assertEquals("KEY_VALUE", TextLogLexer.lex(LINES[19], new HashMap<>()));
+        assertEquals(TextLogLexer.NO_MATCH, TextLogLexer.lex(LINES[22], new HashMap<>()));
+    }
+
+    @Test
+    public void test_lex_extractsStandardFields() {
+        Map<String, String> fields = new HashMap<>();
+        TextLogLexer.lex(LINES[5], fields);
+        assertEquals("2025-07-31 10:10:00,123", fields.get("timestamp"));
+        assertEquals("main", fields.get("thread"));
+        assertEquals("WARN", fields.get("level"));
+        assertEquals("cn.cug.sxy.OrderService", fields.get("logger"));
+        assertEquals("slow query took 1520ms", fields.get("message"));
+    }
+
+    @Test
+    public void test_lexLayout_onlyAcceptsRequestedLayout() {
+        Map<String, String> fields = new HashMap<>();
+        assertFalse(TextLogLexer.lexLayout("SIMPLE", LINES[5], fields));
+        assertTrue(fields.isEmpty());
+        assertFalse(TextLogLexer.lexLayout("KEY_VALUE", LINES[19], fields));
+        assertTrue(TextLogLexer.lexLayout("STANDARD", LINES[5], fields));
+        assertEquals("WARN", fields.get("level"));
+    }
+
+}
@@ -0,0 +1,121 @@
+package cn.cug.sxy.test;
+
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampMatch;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 16:55
+ * @Description 时间戳解析测试（逐字符解析结果与DateTimeFormatter一致，覆盖时区偏移、数字时间戳、非法日期和来源记忆）
+ * @Author jerryhotton
+ */
+
+public class TimestampParserTest {
+
+    private static final DateTimeFormatter STANDARD = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+
+    private static final DateTimeFormatter SLASH = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS");
+
+    private static final DateTimeFormatter LOG4J2 = DateTimeFormatter.ofPattern("yy-MM-dd.HH:mm:ss.SSS");
+
+    private static final DateTimeFormatter ACCESS = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+
+    @Test
+    public void test_parse_agreesWithDateTimeFormatter() {
+        ZoneId zone = ZoneId.of("Asia/Shanghai");
+        TimestampParser parser = new TimestampParser(zone.getId(), 256, 4096);
+        LocalDateTime base = LocalDateTime.of(2024, 2, 28, 23, 59, 58);
+        for (int i = 0; i < 500; i++) {
+            // 跨越闰日、月末和年末，毫秒部分逐条变化
+            LocalDateTime time = base.plusSeconds(i * 7919L).plusNanos((i * 37 % 1000) * 1_000_000L);
+            long local = time.atZone(zone).toInstant().toEpochMilli();
+            assertEquals(local, parser.parse("standard", STANDARD.format(time)));
+            assertEquals(local, parser.parse("slash", SLASH.format(time)));
+            assertEquals(local, parser.parse("log4j2", LOG4J2.format(time)));
+            OffsetDateTime offsetTime = time.atOffset(ZoneOffset.ofHoursMinutes(-5, -30));
+            long offset = offsetTime.toInstant().toEpochMilli();
+            assertEquals(offset, parser.parse("iso", DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(offsetTime)));
+            assertEquals(offsetTime.toEpochSecond() * 1000,
+                    parser.parse("access", ACCESS.format(offsetTime)));
+            Instant instant = time.toInstant(ZoneOffset.UTC);
+            assertEquals(instant.toEpochMilli(), parser.parse("utc", DateTimeFormatter.ISO_INSTANT.format(instant)));
+        }
+    }
+
+    @Test
+    public void test_parse_sameSecondReusesConversion() {
+        TimestampParser parser = new TimestampParser("UTC", 256, 4096);
+        long first = parser.parse("s", "2025-07-31 11:05:00,001");
+        long second = parser.parse("s", "2025-07-31 11:05:00,999");
+        // 同一秒内带不同偏移时不能复用偏移
+        long shifted = parser.parse("s", "2025-07-31T11:05:00.500+08:00");
+        assertEquals(Instant.parse("2025-07-31T11:05:00.001Z").toEpochMilli(), first);
+        assertEquals(Instant.parse("2025-07-31T11:05:00.999Z").toEpochMilli(), second);
+        assertEquals(Instant.parse("2025-07-31T03:05:00.500Z").toEpochMilli(), shifted);
+        assertTrue(parser.getStats().getSecondHits() >= 2);
+    }
+
+    @Test
+    public void test_parse_epochDigits() {
+        TimestampParser parser = new TimestampParser("UTC", 256, 4096);
+        long expected = Instant.parse("2025-07-31T11:05:00.123Z").toEpochMilli();
+        assertEquals(expected - 123, parser.parse(null, "1753959900"));
+        assertEquals(expected, parser.parse(null, "1753959900.123"));
+        assertEquals(expected, parser.parse(null, "1753959900123"));
+        assertEquals(expected, parser.parse(null, "1753959900123456"));
+        assertEquals(expected, parser.parse(null, " 1753959900123456789 "));
+        assertEquals(TimestampParser.NOT_FOUND, parser.parse(null, "17539599001"));
+        assertEquals(TimestampParser.NOT_FOUND, parser.parse(null, "1753959900123.5"));
+    }
+
+    @Test
+    public void test_parse_rejectsInvalidValues() {
+        TimestampParser parser = new TimestampParser("UTC", 256, 4096);
+        assertEquals(TimestampParser.NOT_FOUND, parser.parse("s", "2025-02-29 10:00:00,000"));
+        assertEquals(TimestampParser.NOT_FOUND, parser.parse("s", "2025-07-31 24:00:00"));
+        assertEquals(TimestampParser.NOT_FOUND, parser.parse("s", "2025-07-31 11:05:00 trailing"));
+        assertEquals(TimestampParser.NOT_FOUND, parser.parse("s", "31/Foo/2025:11:05:00 +0800"));
+        assertEquals(TimestampParser.NOT_FOUND, parser.parse("s", "   "));
+        assertEquals(TimestampParser.NOT_FOUND, parser.parse("s", null));
+    }
+
+    @Test
+    public void test_find_locatesTimestampAndLearnsOffset() {
+        TimestampParser parser = new TimestampParser("UTC", 256, 4096);
+        String content = "[worker-12] 2025-07-31 11:05:00,123 INFO order 20250731 created";
+        TimestampMatch match = parser.find("s", content);
+        assertNotNull(match);
+        assertEquals(12, match.getStart());
+        assertEquals(35, match.getEnd());
+        assertEquals(Instant.parse("2025-07-31T11:05:00.123Z").toEpochMilli(), match.getEpochMillis());
+        // 同一来源的下一条日志直接命中记忆的格式和位置
+        TimestampMatch next = parser.find("s", "[worker-12] 2025-07-31 11:05:01,000 INFO next");
+        assertEquals(Instant.parse("2025-07-31T11:05:01Z").toEpochMilli(), next.getEpochMillis());
+        assertEquals(1, parser.getStats().getLayoutHits());
+        // 位置变化时回退到完整扫描
+        TimestampMatch moved = parser.find("s", "[w-1] 2025-07-31 11:05:02,000 INFO moved");
+        assertEquals(6, moved.getStart());
+    }
+
+    @Test
+    public void test_find_respectsScanLimit() {
+        TimestampParser parser = new TimestampParser("UTC", 16, 4096);
+        assertNull(parser.find("s", "a long prefix before 2025-07-31 11:05:00"));
+        assertNull(parser.find("s", "no timestamp here 12345"));
+    }
+
+}
@@ -0,0 +1,104 @@
+package cn.cug.sxy.benchmark;
+
+import cn.cug.sxy.domain.preprocess.service.strategy.JsonPreprocessStrategy;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 09:30
+ * @Description JSON日志预处理基准（流式单次遍历 vs 先构建树再转换为Map平展的原实现）
+ * @Author jerryhotton
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonPreprocessBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    @Param({"flat", "nested"})
+    private String shape;
+
+    private String content;
+
+    private ObjectMapper objectMapper;
+
+    private JsonPreprocessStrategy strategy;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        strategy = new JsonPreprocessStrategy(objectMapper, new TimestampParser("UTC", 256, 4096));
+        content = "flat".equals(shape)
+                ? "{\"timestamp\":\"2025-07-31T09:30:00.123Z\",\"level\":\"INFO\",\"logger\":\"c.c.s.OrderService\","
+                + "\"thread\":\"http-nio-8080-exec-1\",\"message\":\"order created\",\"orderId\":\"O20250731000123\","
+                + "\"userId\":10086,\"amount\":99.5,\"paid\":true,\"traceId\":\"4bf92f3577b34da6a3ce929d0e0e4736\"}"
+                : "{\"timestamp\":1753925400123,\"level\":\"ERROR\",\"message\":\"payment failed\","
+                + "\"context\":{\"order\":{\"id\":\"O20250731000123\",\"items\":[{\"sku\":\"A1\",\"qty\":2},{\"sku\":\"B7\",\"qty\":1}]},"
+                + "\"user\":{\"id\":10086,\"tags\":[\"vip\",\"cn\"]}},"
+                + "\"exception\":{\"type\":\"java.net.SocketTimeoutException\",\"message\":\"Read timed out\","
+                + "\"stacktrace\":\"at java.net.SocketInputStream.read(SocketInputStream.java:150)\"}}";
+    }
+
+    @Benchmark
+    public ProcessedLog streaming() {
+        ProcessedLog log = newLog();
+        strategy.process(log);
+        return log;
+    }
+
+    /**
+     * 原实现的主要开销：readTree 构建树，再 convertValue 为Map并平展为结构化字段
+     */
+    @Benchmark
+    public ProcessedLog treeAndConvert() throws Exception {
+        ProcessedLog log = newLog();
+        JsonNode root = objectMapper.readTree(content);
+        Map<String, Object> values = objectMapper.convertValue(root, MAP_TYPE);
+        Map<String, Object> flattened = new HashMap<>();
+        flatten("", values, flattened);
+        for (Map.Entry<String, Object> entry : flattened.entrySet()) {
+            log.addStructuredField(entry.getKey(), entry.getValue());
+        }
+        return log;
+    }
+
+    private ProcessedLog newLog() {
+        return new ProcessedLog(content, LogFormat.JSON, Collections.emptyMap(),
+                "bench-app", "bench-endpoint", "bench-source", Instant.EPOCH, Instant.EPOCH);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void flatten(String prefix, Map<String, Object> values, Map<String, Object> out) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String key = prefix.isEmpty() ? entry.getKey() : prefix + "." + entry.getKey();
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                flatten(key, (Map<String, Object>) value, out);
+            } else if (value instanceof List) {
+                out.put(key, objectMapper.valueToTree(value).toString());
+            } else {
+                out.put(key, value);
+            }
+        }
+    }
+
+}
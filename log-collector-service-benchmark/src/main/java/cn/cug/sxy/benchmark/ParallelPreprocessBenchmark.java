@@ -0,0 +1,87 @@
+package cn.cug.sxy.benchmark;
+
+import cn.cug.sxy.domain.preprocess.service.ParallelPreprocessExecutor;
+import cn.cug.sxy.domain.preprocess.service.grok.EndpointGrokRegistry;
+import cn.cug.sxy.domain.preprocess.service.strategy.TextPreprocessStrategy;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 10:40
+ * @Description 批次并行预处理基准（同一批文本日志在单线程内联执行与分块并行执行时的整批耗时）
+ * @Author jerryhotton
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelPreprocessBenchmark {
+
+    private static final String[] LINES = {
+            "2025-07-31 10:40:00,123 [http-nio-8080-exec-1] INFO  cn.cug.sxy.OrderService - order created orderId=O1 costMs=12",
+            "2025-07-31 10:40:00,456 [http-nio-8080-exec-2] WARN  cn.cug.sxy.PayService - slow query took 1520ms user=alice",
+            "2025-07-31 10:40:01,001 [main] ERROR cn.cug.sxy.PayService - payment failed\n"
+                    + "java.net.SocketTimeoutException: Read timed out\n"
+                    + "\tat java.net.SocketInputStream.read(SocketInputStream.java:150)\n"
+                    + "\tat cn.cug.sxy.PayClient.call(PayClient.java:88)",
+            "10.0.0.1 - alice [31/Jul/2025:10:40:02 +0800] \"GET /api/v1/orders HTTP/1.1\" 200 512 \"-\" \"curl/8.0\""
+    };
+
+    @Param({"64", "512", "4096"})
+    private int batchSize;
+
+    /**
+     * 1 表示单线程内联执行，0 表示按CPU核数并行
+     */
+    @Param({"1", "0"})
+    private int parallelism;
+
+    private TextPreprocessStrategy strategy;
+
+    private ParallelPreprocessExecutor executor;
+
+    private List<ProcessedLog> batch;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        strategy = new TextPreprocessStrategy(new EndpointGrokRegistry(null),
+                new TimestampParser("UTC", 256, 4096), 4096, 128, 0.8);
+        executor = new ParallelPreprocessExecutor(parallelism, 2000, 500, 32, 20000);
+    }
+
+    /**
+     * 预处理会修改日志对象，每次调用前重建批次
+     */
+    @Setup(Level.Invocation)
+    public void setupBatch() {
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new ProcessedLog(LINES[i % LINES.length], LogFormat.TEXT, Collections.emptyMap(),
+                    "bench-app", "bench-endpoint", "source-" + (i % 8), Instant.EPOCH, Instant.EPOCH));
+        }
+    }
+
+    @Benchmark
+    public List<ProcessedLog> preprocessBatch() {
+        executor.execute(LogFormat.TEXT, batch, strategy::process);
+        return batch;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.destroy();
+    }
+
+}
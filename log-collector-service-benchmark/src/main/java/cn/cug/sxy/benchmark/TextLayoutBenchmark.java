@@ -0,0 +1,99 @@
+package cn.cug.sxy.benchmark;
+
+import cn.cug.sxy.domain.preprocess.service.grok.EndpointGrokRegistry;
+import cn.cug.sxy.domain.preprocess.service.strategy.TextLogLexer;
+import cn.cug.sxy.domain.preprocess.service.strategy.TextPreprocessStrategy;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 10:10
+ * @Description 文本日志格式识别基准（单次扫描词法分析 vs 按顺序尝试预定义正则，以及完整策略在开启/关闭格式记忆时的耗时）
+ * @Author jerryhotton
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextLayoutBenchmark {
+
+    @Param({"LOG4J2_PATTERN", "STANDARD", "SIMPLE", "NGINX_ACCESS", "KEY_VALUE"})
+    private String layout;
+
+    private String line;
+
+    private TextPreprocessStrategy memoStrategy;
+
+    private TextPreprocessStrategy noMemoStrategy;
+
+    @Setup
+    public void setup() {
+        switch (layout) {
+            case "LOG4J2_PATTERN":
+                line = "25-07-31.10:10:00.123 [http-nio-8080-exec-1] INFO  c.c.s.OrderService svc-order 4bf92f3577b34da6 - order created";
+                break;
+            case "STANDARD":
+                line = "2025-07-31 10:10:00,123 [main] WARN  cn.cug.sxy.OrderService - slow query took 1520ms";
+                break;
+            case "SIMPLE":
+                line = "2025-07-31 10:10:00 ERROR connection reset by peer";
+                break;
+            case "NGINX_ACCESS":
+                line = "10.0.0.1 - alice [31/Jul/2025:10:10:00 +0800] \"GET /api/v1/orders HTTP/1.1\" 200 512 \"-\" \"curl/8.0\"";
+                break;
+            default:
+                line = "level=info msg=\"order created\" orderId=O20250731000123 costMs=12";
+                break;
+        }
+        // 注册表未订阅端点配置快照，没有任何Grok模式
+        EndpointGrokRegistry grokRegistry = new EndpointGrokRegistry(null);
+        TimestampParser timestampParser = new TimestampParser("UTC", 256, 4096);
+        memoStrategy = new TextPreprocessStrategy(grokRegistry, timestampParser, 4096, 128, 0.8);
+        // 记忆容量为0时每次记录后立即淘汰，格式记忆不生效
+        noMemoStrategy = new TextPreprocessStrategy(grokRegistry, timestampParser, 0, 128, 0.8);
+    }
+
+    @Benchmark
+    public String lexer() {
+        Map<String, String> fields = new HashMap<>();
+        String format = TextLogLexer.lex(line, fields);
+        return format != null ? format : TextPreprocessStrategy.matchPredefinedLayouts(line, fields);
+    }
+
+    @Benchmark
+    public String regex() {
+        return TextPreprocessStrategy.matchPredefinedLayouts(line, new HashMap<>());
+    }
+
+    @Benchmark
+    public ProcessedLog processWithMemo() {
+        ProcessedLog log = newLog();
+        memoStrategy.process(log);
+        return log;
+    }
+
+    @Benchmark
+    public ProcessedLog processWithoutMemo() {
+        ProcessedLog log = newLog();
+        noMemoStrategy.process(log);
+        return log;
+    }
+
+    private ProcessedLog newLog() {
+        return new ProcessedLog(line, LogFormat.TEXT, Collections.emptyMap(),
+                "bench-app", "bench-endpoint", "bench-source", Instant.EPOCH, Instant.EPOCH);
+    }
+
+}
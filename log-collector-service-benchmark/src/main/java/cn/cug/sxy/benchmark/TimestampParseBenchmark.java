@@ -0,0 +1,97 @@
+package cn.cug.sxy.benchmark;
+
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 11:05
+ * @Description 时间戳解析基准（逐字符解析 vs DateTimeFormatter，分别覆盖同一秒内重复和逐条递增两种时间分布）
+ * @Author jerryhotton
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampParseBenchmark {
+
+    private static final int VALUES = 1024;
+
+    private static final DateTimeFormatter STANDARD = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+
+    private static final DateTimeFormatter ACCESS = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+
+    @Param({"ISO", "STANDARD", "ACCESS"})
+    private String layout;
+
+    /**
+     * true 时所有时间戳落在同一秒内，false 时每条递增一秒
+     */
+    @Param({"true", "false"})
+    private boolean sameSecond;
+
+    private String[] values;
+
+    private TimestampParser parser;
+
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        parser = new TimestampParser("UTC", 256, 4096);
+        values = new String[VALUES];
+        LocalDateTime base = LocalDateTime.of(2025, 7, 31, 11, 5, 0);
+        for (int i = 0; i < VALUES; i++) {
+            LocalDateTime time = sameSecond
+                    ? base.plusNanos((i % 1000) * 1_000_000L)
+                    : base.plusSeconds(i).plusNanos((i % 1000) * 1_000_000L);
+            switch (layout) {
+                case "ISO":
+                    values[i] = DateTimeFormatter.ISO_INSTANT.format(time.toInstant(ZoneOffset.UTC));
+                    break;
+                case "STANDARD":
+                    values[i] = STANDARD.format(time);
+                    break;
+                default:
+                    values[i] = ACCESS.format(time.atOffset(ZoneOffset.ofHours(8)));
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public long parser() {
+        return parser.parse("bench-endpoint:bench-source", next());
+    }
+
+    @Benchmark
+    public long formatter() {
+        String value = next();
+        switch (layout) {
+            case "ISO":
+                return Instant.parse(value).toEpochMilli();
+            case "STANDARD":
+                return LocalDateTime.parse(value, STANDARD).toInstant(ZoneOffset.UTC).toEpochMilli();
+            default:
+                return ZonedDateTime.parse(value, ACCESS).toInstant().toEpochMilli();
+        }
+    }
+
+    private String next() {
+        String value = values[cursor];
+        cursor = (cursor + 1) & (VALUES - 1);
+        return value;
+    }
+
+}
@@ -0,0 +1,31 @@
+package cn.cug.sxy.domain.preprocess.adapter.repository;
+
+import cn.cug.sxy.domain.preprocess.model.entity.LogTemplateEntity;
+
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 10:30
+ * @Description 日志模板仓储接口
+ * @Author jerryhotton
+ */
+
+public interface ILogTemplateRepository {
+
+    /**
+     * 加载已持久化的模板，按最近出现时间倒序
+     *
+     * @param limit 最多加载条数
+     * @return 模板列表
+     */
+    List<LogTemplateEntity> loadRecent(int limit);
+
+    /**
+     * 批量保存模板（已存在时更新模板内容、匹配次数和最近出现时间）
+     *
+     * @param templates 模板列表
+     */
+    void saveAll(List<LogTemplateEntity> templates);
+
+}
@@ -0,0 +1,48 @@
+package cn.cug.sxy.domain.preprocess.model.entity;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 10:20
+ * @Description 日志模板实体（在线挖掘得到的日志模板，如 "User <*> logged in from <*>"）
+ * @Author jerryhotton
+ */
+
+@Getter
+@Builder(toBuilder = true)
+public class LogTemplateEntity {
+
+    /**
+     * 模板ID（模板创建时生成，模板泛化后保持不变）
+     */
+    private final String templateId;
+    /**
+     * 所属应用ID
+     */
+    private final String appId;
+    /**
+     * 模板内容，参数位置以 <*> 表示，词元之间以单个空格分隔
+     */
+    private final String template;
+    /**
+     * 词元数
+     */
+    private final int tokenCount;
+    /**
+     * 累计匹配次数
+     */
+    private final long occurrences;
+    /**
+     * 首次出现时间
+     */
+    private final Instant firstSeenTime;
+    /**
+     * 最近出现时间
+     */
+    private final Instant lastSeenTime;
+
+}
@@ -1,7 +1,12 @@
 package cn.cug.sxy.domain.preprocess.service;
 
+import cn.cug.sxy.domain.preprocess.service.raw.RawIngestRegistry;
+import cn.cug.sxy.domain.preprocess.service.redact.PiiClass;
+import cn.cug.sxy.domain.preprocess.service.redact.RedactionResult;
+import cn.cug.sxy.domain.preprocess.service.redact.SensitiveDataRedactor;
 import cn.cug.sxy.domain.preprocess.service.strategy.IPreprocessStrategy;
 import cn.cug.sxy.domain.preprocess.service.strategy.PreprocessStrategyFactory;
+import cn.cug.sxy.domain.preprocess.service.template.DrainTemplateMiner;
 import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
 import cn.cug.sxy.domain.reception.model.valobj.*;
 import lombok.extern.slf4j.Slf4j;
@@ -9,9 +14,11 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * @version 1.0
@@ -25,18 +32,33 @@ import java.util.stream.Collectors;
 public class LogPreprocessService implements ILogPreprocessService {
 
     private final PreprocessStrategyFactory strategyFactory;
+    private final DrainTemplateMiner templateMiner;
+    private final ParallelPreprocessExecutor parallelExecutor;
+    private final RawIngestRegistry rawIngestRegistry;
+    private final SensitiveDataRedactor redactor;
 
-    public LogPreprocessService(PreprocessStrategyFactory strategyFactory) {
+    public LogPreprocessService(PreprocessStrategyFactory strategyFactory, DrainTemplateMiner templateMiner,
+                                ParallelPreprocessExecutor parallelExecutor, RawIngestRegistry rawIngestRegistry,
+                                SensitiveDataRedactor redactor) {
         this.strategyFactory = strategyFactory;
+        this.templateMiner = templateMiner;
+        this.parallelExecutor = parallelExecutor;
+        this.rawIngestRegistry = rawIngestRegistry;
+        this.redactor = redactor;
     }
 
     @Override
     public ProcessedLog preprocess(RawLog rawLog, String appId, String endpointId) {
         try {
+            // 原样接入的端点不做解析，字段在查询时提取
+            if (rawIngestRegistry.isRaw(endpointId)) {
+                return preprocessRaw(List.of(rawLog), appId, endpointId).get(0);
+            }
             // 1. 创建基础的处理后日志对象
             ProcessedLog processedLog = new ProcessedLog(
                     rawLog.getContent(),
                     rawLog.getFormat(),
+                    rawLog.getAttributes(),
                     rawLog.getMetadata(),
                     appId,
                     endpointId,
@@ -50,6 +72,10 @@ public class LogPreprocessService implements ILogPreprocessService {
             if (strategy != null) {
                 strategy.process(processedLog);
             }
+            // 4. 脱敏内容和策略提取的字段
+            redact(processedLog);
+            // 5. 挖掘日志模板（基于脱敏后的消息）
+            mineTemplate(processedLog);
 
             return processedLog;
         } catch (Exception e) {
@@ -59,6 +85,7 @@ public class LogPreprocessService implements ILogPreprocessService {
             ProcessedLog failedLog = new ProcessedLog(
                     rawLog.getContent(),
                     rawLog.getFormat(),
+                    rawLog.getAttributes(),
                     rawLog.getMetadata(),
                     appId,
                     endpointId,
@@ -73,39 +100,58 @@ public class LogPreprocessService implements ILogPreprocessService {
 
     @Override
     public List<ProcessedLog> preprocessBatch(List<RawLog> rawLogs, String appId, String endpointId) {
-        // 按日志格式分组，以便批量处理相同格式的日志
-        Map<LogFormat, List<RawLog>> logsByFormat = rawLogs.stream()
-                .collect(Collectors.groupingBy(RawLog::getFormat));
+        if (rawIngestRegistry.isRaw(endpointId)) {
+            return preprocessRaw(rawLogs, appId, endpointId);
+        }
+        // 按原始顺序创建处理后日志对象并记录序号，存储领域据此生成确定性文档ID
         List<ProcessedLog> result = new ArrayList<>(rawLogs.size());
+        // 按日志格式分组，以便对相同格式的日志应用同一策略
+        Map<LogFormat, List<ProcessedLog>> logsByFormat = new EnumMap<>(LogFormat.class);
+        Instant processTime = Instant.now();
+        for (int i = 0; i < rawLogs.size(); i++) {
+            RawLog rawLog = rawLogs.get(i);
+            ProcessedLog processedLog = new ProcessedLog(
+                    rawLog.getContent(),
+                    rawLog.getFormat(),
+                    rawLog.getAttributes(),
+                    rawLog.getMetadata(),
+                    appId,
+                    endpointId,
+                    rawLog.getSourceId(),
+                    rawLog.getTimestamp(),
+                    processTime
+            );
+            // 序号在任何过滤之前确定，重试时同一条日志的序号不变
+            processedLog.assignSequence(i);
+            result.add(processedLog);
+            logsByFormat.computeIfAbsent(rawLog.getFormat(), k -> new ArrayList<>()).add(processedLog);
+        }
         // 对每种格式的日志批量处理
-        for (Map.Entry<LogFormat, List<RawLog>> entry : logsByFormat.entrySet()) {
+        for (Map.Entry<LogFormat, List<ProcessedLog>> entry : logsByFormat.entrySet()) {
             LogFormat format = entry.getKey();
-            List<RawLog> logs = entry.getValue();
+            List<ProcessedLog> logs = entry.getValue();
             // 获取对应格式的预处理策略
             IPreprocessStrategy strategy = strategyFactory.getStrategy(format);
-            if (strategy != null && strategy.supportsBatchProcessing()) {
+            if (strategy == null || strategy.isThreadSafe()) {
+                // 线程安全的策略（及无需策略的格式）由执行器按批次大小和单条耗时决定是否分片并行
+                parallelExecutor.execute(format, logs, processedLog -> {
+                    applyStrategy(strategy, processedLog);
+                    redact(processedLog);
+                    mineTemplate(processedLog);
+                });
+            } else if (strategy.supportsBatchProcessing()) {
                 // 如果策略支持批量处理，则批量处理
-                List<ProcessedLog> processedLogs = new ArrayList<>(logs.size());
-                // 先创建基础的处理后日志对象
-                for (RawLog rawLog : logs) {
-                    processedLogs.add(new ProcessedLog(
-                            rawLog.getContent(),
-                            rawLog.getFormat(),
-                            rawLog.getMetadata(),
-                            appId,
-                            endpointId,
-                            rawLog.getSourceId(),
-                            rawLog.getTimestamp(),
-                            Instant.now()
-                    ));
+                strategy.processBatch(logs);
+                for (ProcessedLog processedLog : logs) {
+                    redact(processedLog);
+                    mineTemplate(processedLog);
                 }
-                // 批量应用预处理策略
-                strategy.processBatch(processedLogs);
-                result.addAll(processedLogs);
             } else {
                 // 如果策略不支持批量处理，则逐个处理
-                for (RawLog rawLog : logs) {
-                    result.add(preprocess(rawLog, appId, endpointId));
+                for (ProcessedLog processedLog : logs) {
+                    applyStrategy(strategy, processedLog);
+                    redact(processedLog);
+                    mineTemplate(processedLog);
                 }
             }
         }
@@ -118,4 +164,232 @@ public class LogPreprocessService implements ILogPreprocessService {
         return preprocessBatch(batch.getLogs(), batch.getAppId(), batch.getEndpointId());
     }
 
+    /**
+     * 原样接入：只保留内容和接入时解析的信封字段，内容脱敏后存储，不应用预处理策略和模板挖掘
+     *
+     * @param rawLogs    原始日志列表
+     * @param appId      应用ID
+     * @param endpointId 端点ID
+     * @return 标记为原样接入的处理后日志
+     */
+    private List<ProcessedLog> preprocessRaw(List<RawLog> rawLogs, String appId, String endpointId) {
+        List<ProcessedLog> result = new ArrayList<>(rawLogs.size());
+        Instant processTime = Instant.now();
+        for (int i = 0; i < rawLogs.size(); i++) {
+            RawLog rawLog = rawLogs.get(i);
+            ProcessedLog processedLog = new ProcessedLog(
+                    rawLog.getContent(),
+                    rawLog.getFormat(),
+                    rawLog.getAttributes(),
+                    rawLog.getMetadata(),
+                    appId,
+                    endpointId,
+                    rawLog.getSourceId(),
+                    rawLog.getTimestamp(),
+                    processTime
+            );
+            processedLog.assignSequence(i);
+            // 原样接入不解析字段，但内容同样要脱敏后才能存储
+            redactContent(processedLog);
+            processedLog.markRaw();
+            result.add(processedLog);
+        }
+        rawIngestRegistry.recordIngested(result.size());
+        return result;
+    }
+
+    /**
+     * 对单条日志应用预处理策略，失败时标记为验证失败
+     *
+     * @param strategy     预处理策略，为null时不处理
+     * @param processedLog 处理中的日志
+     */
+    private void applyStrategy(IPreprocessStrategy strategy, ProcessedLog processedLog) {
+        if (strategy == null) {
+            return;
+        }
+        try {
+            strategy.process(processedLog);
+        } catch (Exception e) {
+            log.error("预处理日志失败: appId={}, endpointId={}, error={}",
+                    processedLog.getAppId(), processedLog.getEndpointId(), e.getMessage(), e);
+            processedLog.markValidationFailed("预处理失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 在预处理策略之后统一脱敏：内容单次扫描，元数据和结构化字段（含嵌套的Map和List）逐值扫描，
+     * 任何格式的策略都无法把未脱敏的值带入存储
+     *
+     * @param processedLog 已应用预处理策略的日志
+     */
+    private void redact(ProcessedLog processedLog) {
+        RedactionResult redaction = redactContent(processedLog);
+        String appId = processedLog.getAppId();
+        Map<String, String> redactedMetadata = null;
+        for (Map.Entry<String, String> entry : processedLog.getMetadataView().entrySet()) {
+            String value = redactor.redactField(appId, entry.getKey(), entry.getValue());
+            if (value != entry.getValue()) {
+                if (redactedMetadata == null) {
+                    redactedMetadata = new LinkedHashMap<>();
+                }
+                redactedMetadata.put(entry.getKey(), value);
+            }
+        }
+        if (redactedMetadata != null) {
+            redactedMetadata.forEach(processedLog::addMetadata);
+        }
+        Map<String, Object> redactedFields = null;
+        for (Map.Entry<String, Object> entry : processedLog.getStructuredFields().entrySet()) {
+            Object value = redactValue(appId, entry.getKey(), entry.getValue());
+            if (value != entry.getValue()) {
+                if (redactedFields == null) {
+                    redactedFields = new LinkedHashMap<>();
+                }
+                redactedFields.put(entry.getKey(), value);
+            }
+        }
+        if (redactedFields != null) {
+            redactedFields.forEach(processedLog::addStructuredField);
+        }
+        applySensitiveInfo(processedLog, redaction, redactedMetadata != null || redactedFields != null);
+    }
+
+    /**
+     * 单次扫描检测并脱敏日志内容
+     *
+     * @param processedLog 处理中的日志
+     * @return 检测结果
+     */
+    private RedactionResult redactContent(ProcessedLog processedLog) {
+        RedactionResult redaction = redactor.redact(processedLog.getAppId(), processedLog.getContent());
+        if (redaction.isMasked()) {
+            processedLog.redactContent(redaction.getContent());
+        }
+        return redaction;
+    }
+
+    /**
+     * 脱敏字段值，嵌套的Map和List只在有值被脱敏时复制
+     *
+     * @return 脱敏后的值，未脱敏时返回原对象
+     */
+    private Object redactValue(String appId, String key, Object value) {
+        if (value instanceof String) {
+            return redactor.redactField(appId, key, (String) value);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Map<Object, Object> copy = null;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object redacted = redactValue(appId, String.valueOf(entry.getKey()), entry.getValue());
+                if (redacted != entry.getValue() && copy == null) {
+                    copy = new LinkedHashMap<>(map);
+                }
+                if (copy != null) {
+                    copy.put(entry.getKey(), redacted);
+                }
+            }
+            return copy != null ? copy : value;
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            List<Object> copy = null;
+            for (int i = 0; i < list.size(); i++) {
+                Object element = list.get(i);
+                // 数组元素沿用所在字段的键名
+                Object redacted = redactValue(appId, key, element);
+                if (redacted != element && copy == null) {
+                    copy = new ArrayList<>(list);
+                }
+                if (copy != null) {
+                    copy.set(i, redacted);
+                }
+            }
+            return copy != null ? copy : value;
+        }
+        return value;
+    }
+
+    /**
+     * 写入敏感信息检测结果：所有格式写入 containsXxx 标记，文本日志保留原有的元数据和命中值字段
+     *
+     * @param processedLog  处理中的日志
+     * @param redaction     内容检测结果
+     * @param fieldsRedacted 是否有元数据或结构化字段被脱敏
+     */
+    private void applySensitiveInfo(ProcessedLog processedLog, RedactionResult redaction, boolean fieldsRedacted) {
+        boolean text = processedLog.getFormat() == LogFormat.TEXT;
+        for (PiiClass piiClass : PiiClass.values()) {
+            if (redaction.hits(piiClass) == 0) {
+                continue;
+            }
+            if (text) {
+                processedLog.addMetadata("text.contains" + piiClass.getFieldName(), "true");
+            }
+            processedLog.addStructuredField("contains" + piiClass.getFieldName(), true);
+        }
+        if (text) {
+            // 保留原有的命中值字段（脱敏的类别为脱敏后的值）
+            List<String> ipAddresses = redaction.values(PiiClass.IP);
+            if (!ipAddresses.isEmpty()) {
+                processedLog.addStructuredField("ipAddresses", new HashSet<>(ipAddresses));
+            }
+            List<String> urls = redaction.values(PiiClass.URL);
+            if (!urls.isEmpty()) {
+                processedLog.addStructuredField("urls", new HashSet<>(urls));
+            }
+            List<String> userIds = redaction.values(PiiClass.USER_ID);
+            if (!userIds.isEmpty()) {
+                processedLog.addStructuredField("userId", userIds.get(0));
+            }
+        }
+        if (redaction.isMasked() || fieldsRedacted) {
+            processedLog.addMetadata(text ? "text.redacted" : "redacted", "true");
+        }
+    }
+
+    /**
+     * 挖掘日志模板，为日志设置模板ID和参数（模板挖掘失败不影响日志本身）
+     *
+     * @param processedLog 已应用预处理策略的日志
+     */
+    private void mineTemplate(ProcessedLog processedLog) {
+        if (!templateMiner.isEnabled() || !processedLog.isValidated()) {
+            return;
+        }
+        try {
+            DrainTemplateMiner.TemplateMatch match = templateMiner.mine(processedLog.getAppId(), extractMessage(processedLog));
+            if (match != null) {
+                processedLog.assignTemplate(match.getTemplateId(), match.getParams());
+            }
+        } catch (Exception e) {
+            log.warn("日志模板挖掘失败: appId={}, error={}", processedLog.getAppId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 提取用于模板挖掘的消息：优先使用预处理策略解析出的消息字段，文本日志退化为首行
+     */
+    private String extractMessage(ProcessedLog processedLog) {
+        String message = processedLog.getMetadata().get("text.message");
+        if (message != null) {
+            return message;
+        }
+        Map<String, Object> fields = processedLog.getStructuredFields();
+        Object value = fields.get("message");
+        if (value == null) {
+            value = fields.get("msg");
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (processedLog.getFormat() != LogFormat.TEXT || processedLog.getContent() == null) {
+            return null;
+        }
+        String content = processedLog.getContent();
+        int lineEnd = content.indexOf('\n');
+        return lineEnd < 0 ? content : content.substring(0, lineEnd);
+    }
+
 }
@@ -0,0 +1,203 @@
+package cn.cug.sxy.domain.preprocess.service;
+
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/25 09:30
+ * @Description 并行预处理执行器（大批次按分片提交到专用的工作窃取线程池并行预处理；
+ * 是否并行和分片大小按各格式单条日志的实测耗时自适应调整）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class ParallelPreprocessExecutor implements DisposableBean {
+
+    /**
+     * 单条日志耗时的指数加权平均系数
+     */
+    private static final double COST_EWMA_ALPHA = 0.2;
+
+    /**
+     * 预估总耗时达到该值（微秒）时并行处理
+     */
+    private final long parallelMinCostNanos;
+
+    /**
+     * 单个分片的目标耗时（微秒），分片过小时调度开销占比过高
+     */
+    private final long chunkCostNanos;
+
+    /**
+     * 单个分片的最少日志数
+     */
+    private final int minChunkSize;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * 各格式单条日志的耗时估计（纳秒）
+     */
+    private final Map<LogFormat, CostEstimate> costEstimates = new EnumMap<>(LogFormat.class);
+
+    // 执行统计
+    private final LongAdder sequentialGroups = new LongAdder();
+    private final LongAdder parallelGroups = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+
+    public ParallelPreprocessExecutor(
+            @Value("${log-center.preprocess.parallel.parallelism:0}") int parallelism,
+            @Value("${log-center.preprocess.parallel.min-cost-us:2000}") long parallelMinCostUs,
+            @Value("${log-center.preprocess.parallel.chunk-cost-us:500}") long chunkCostUs,
+            @Value("${log-center.preprocess.parallel.min-chunk-size:32}") int minChunkSize,
+            @Value("${log-center.preprocess.parallel.initial-cost-ns:20000}") long initialCostNanos) {
+        this.parallelMinCostNanos = parallelMinCostUs * 1000;
+        this.chunkCostNanos = chunkCostUs * 1000;
+        this.minChunkSize = Math.max(1, minChunkSize);
+        // 尚无实测数据时按 initial-cost-ns 估计单条日志耗时
+        for (LogFormat format : LogFormat.values()) {
+            costEstimates.put(format, new CostEstimate(initialCostNanos));
+        }
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("log-preprocess-worker-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        log.info("并行预处理线程池已创建, 并行度: {}", threads);
+    }
+
+    /**
+     * 对同一格式的日志执行预处理动作，日志数和单条耗时足够大时分片并行执行
+     *
+     * @param format 日志格式
+     * @param logs   日志列表
+     * @param action 单条日志的预处理动作，必须可在多个线程中同时执行
+     */
+    public void execute(LogFormat format, List<ProcessedLog> logs, Consumer<ProcessedLog> action) {
+        CostEstimate estimate = costEstimates.get(format);
+        long costPerLog = estimate.get();
+        int size = logs.size();
+        // 单线程池或已在预处理线程池中时直接执行，避免无意义的提交和嵌套提交
+        boolean inPool = Thread.currentThread() instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) Thread.currentThread()).getPool() == pool;
+        int chunkSize = chunkSize(costPerLog);
+        if (pool.getParallelism() <= 1 || inPool
+                || size < chunkSize * 2 || costPerLog * size < parallelMinCostNanos) {
+            long start = System.nanoTime();
+            for (ProcessedLog processedLog : logs) {
+                action.accept(processedLog);
+            }
+            estimate.update((System.nanoTime() - start) / Math.max(size, 1));
+            sequentialGroups.increment();
+            return;
+        }
+        // 分片数不超过并行度的4倍，保证工作窃取有余量且调度开销可控
+        int maxChunks = pool.getParallelism() * 4;
+        if ((size + chunkSize - 1) / chunkSize > maxChunks) {
+            chunkSize = (size + maxChunks - 1) / maxChunks;
+        }
+        LongAdder busyNanos = new LongAdder();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>((size + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < size; from += chunkSize) {
+            List<ProcessedLog> chunk = logs.subList(from, Math.min(from + chunkSize, size));
+            tasks.add(pool.submit(() -> {
+                long start = System.nanoTime();
+                for (ProcessedLog processedLog : chunk) {
+                    action.accept(processedLog);
+                }
+                busyNanos.add(System.nanoTime() - start);
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        estimate.update(busyNanos.sum() / size);
+        parallelGroups.increment();
+        chunks.add(tasks.size());
+    }
+
+    /**
+     * 获取执行统计快照
+     */
+    public ExecutorStats getStats() {
+        Map<LogFormat, Long> costs = new EnumMap<>(LogFormat.class);
+        for (Map.Entry<LogFormat, CostEstimate> entry : costEstimates.entrySet()) {
+            costs.put(entry.getKey(), entry.getValue().get());
+        }
+        return new ExecutorStats(pool.getParallelism(), sequentialGroups.sum(), parallelGroups.sum(),
+                chunks.sum(), pool.getStealCount(), costs);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 按单条耗时计算分片大小，使每个分片耗时接近目标值
+     */
+    private int chunkSize(long costPerLog) {
+        long size = chunkCostNanos / Math.max(costPerLog, 1);
+        return (int) Math.max(minChunkSize, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    /**
+     * 单条日志耗时估计
+     */
+    private static class CostEstimate {
+        private volatile long costNanos;
+
+        CostEstimate(long initialCostNanos) {
+            this.costNanos = initialCostNanos;
+        }
+
+        long get() {
+            return costNanos;
+        }
+
+        synchronized void update(long sampleNanos) {
+            costNanos = Math.max(1, (long) (costNanos * (1 - COST_EWMA_ALPHA) + sampleNanos * COST_EWMA_ALPHA));
+        }
+    }
+
+    /**
+     * 并行预处理统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ExecutorStats {
+        // 线程池并行度
+        private final int parallelism;
+        // 顺序执行的格式分组数
+        private final long sequentialGroups;
+        // 并行执行的格式分组数
+        private final long parallelGroups;
+        // 提交的分片总数
+        private final long chunks;
+        // 线程池工作窃取次数
+        private final long stealCount;
+        // 各格式单条日志耗时估计（纳秒）
+        private final Map<LogFormat, Long> costPerLogNanos;
+    }
+
+}
@@ -0,0 +1,49 @@
+package cn.cug.sxy.domain.preprocess.service.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/25 16:20
+ * @Description 日志编解码器接口（将二进制或自定义格式的字节载荷解码为字段；
+ * 实现可注册为Spring Bean，也可通过 META-INF/services 以ServiceLoader方式提供，实现必须线程安全）
+ * @Author jerryhotton
+ */
+
+public interface ILogCodec {
+
+    /**
+     * 获取编解码器名称，端点的编解码器配置为该名称时使用该编解码器
+     *
+     * @return 编解码器名称
+     */
+    String getName();
+
+    /**
+     * 解码单条日志载荷
+     *
+     * @param payload 字节载荷，解码时可移动其位置
+     * @return 解码出的字段
+     * @throws IllegalArgumentException 载荷格式非法
+     */
+    Map<String, Object> decode(ByteBuffer payload);
+
+    /**
+     * 批量解码日志载荷，可按批复用解码缓冲区等资源
+     *
+     * @param payloads 字节载荷列表
+     * @return 与载荷一一对应的解码结果
+     * @throws IllegalArgumentException 任一载荷格式非法
+     */
+    default List<Map<String, Object>> decodeBatch(List<ByteBuffer> payloads) {
+        List<Map<String, Object>> results = new ArrayList<>(payloads.size());
+        for (ByteBuffer payload : payloads) {
+            results.add(decode(payload));
+        }
+        return results;
+    }
+
+}
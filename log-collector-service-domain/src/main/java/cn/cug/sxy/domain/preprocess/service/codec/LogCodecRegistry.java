@@ -0,0 +1,199 @@
+package cn.cug.sxy.domain.preprocess.service.codec;
+
+import cn.cug.sxy.domain.reception.model.aggregate.ReceiverEndpoint;
+import cn.cug.sxy.domain.reception.service.config.EndpointConfigSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/25 16:40
+ * @Description 日志编解码器注册表（汇集Spring Bean和ServiceLoader提供的编解码器，
+ * 按端点配置的编解码器名称选择编解码器，订阅端点配置快照）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class LogCodecRegistry implements InitializingBean {
+
+    private final EndpointConfigSnapshot endpointConfigSnapshot;
+
+    /**
+     * 编解码器名称（小写） -> 编解码器
+     */
+    private final Map<String, ILogCodec> codecs = new HashMap<>();
+
+    /**
+     * 端点未配置编解码器时使用的默认编解码器，为空时不解码
+     */
+    @Value("${log-center.preprocess.codec.default:}")
+    private String defaultCodecName;
+
+    private ILogCodec defaultCodec;
+
+    /**
+     * 端点ID -> 编解码器，刷新时整体替换
+     */
+    private volatile Map<String, ILogCodec> endpointCodecs = Collections.emptyMap();
+
+    /**
+     * 端点ID -> 配置了但不存在的编解码器名称
+     */
+    private volatile Map<String, String> unknownCodecs = Collections.emptyMap();
+
+    // 解码统计
+    private final LongAdder decoded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder unresolved = new LongAdder();
+
+    public LogCodecRegistry(EndpointConfigSnapshot endpointConfigSnapshot, List<ILogCodec> codecBeans) {
+        this.endpointConfigSnapshot = endpointConfigSnapshot;
+        // ServiceLoader提供的编解码器先注册，同名时以Spring Bean为准
+        try {
+            for (ILogCodec codec : ServiceLoader.load(ILogCodec.class, LogCodecRegistry.class.getClassLoader())) {
+                register(codec);
+            }
+        } catch (ServiceConfigurationError e) {
+            log.error("加载ServiceLoader编解码器失败: {}", e.getMessage(), e);
+        }
+        for (ILogCodec codec : codecBeans) {
+            register(codec);
+        }
+    }
+
+    /**
+     * 获取端点使用的编解码器
+     *
+     * @param endpointId 端点ID
+     * @return 编解码器，端点未配置且无默认编解码器时返回null
+     */
+    public ILogCodec codecFor(String endpointId) {
+        ILogCodec codec = endpointId == null ? null : endpointCodecs.get(endpointId);
+        return codec != null ? codec : defaultCodec;
+    }
+
+    /**
+     * 按名称获取编解码器
+     *
+     * @param name 编解码器名称（不区分大小写）
+     * @return 编解码器，不存在时返回null
+     */
+    public ILogCodec getCodec(String name) {
+        return name == null ? null : codecs.get(name.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 记录解码结果
+     *
+     * @param success 成功条数
+     * @param failure 失败条数
+     */
+    public void recordDecode(int success, int failure) {
+        decoded.add(success);
+        failed.add(failure);
+    }
+
+    /**
+     * 记录未找到编解码器的日志条数
+     */
+    public void recordUnresolved(int count) {
+        unresolved.add(count);
+    }
+
+    /**
+     * 按端点配置快照重建编解码器选择
+     *
+     * @param endpoints 端点配置快照
+     */
+    synchronized void apply(List<ReceiverEndpoint> endpoints) {
+        Map<String, ILogCodec> selected = new HashMap<>();
+        Map<String, String> unknown = new HashMap<>();
+        for (ReceiverEndpoint endpoint : endpoints) {
+            String name = endpoint.getCodec();
+            if (name == null) {
+                continue;
+            }
+            String endpointId = endpoint.getEndpointId().getValue();
+            ILogCodec codec = getCodec(name);
+            if (codec != null) {
+                selected.put(endpointId, codec);
+                continue;
+            }
+            unknown.put(endpointId, name);
+            // 同一配置只告警一次
+            if (!name.equals(unknownCodecs.get(endpointId))) {
+                log.warn("端点配置的编解码器不存在，使用默认编解码器: endpointId={}, codec={}, 可用编解码器: {}",
+                        endpointId, name, codecs.keySet());
+            }
+        }
+        unknownCodecs = unknown;
+        if (!selected.equals(endpointCodecs)) {
+            log.info("端点编解码器选择已刷新, 配置编解码器的端点数: {}", selected.size());
+        }
+        endpointCodecs = selected;
+    }
+
+    /**
+     * 获取注册表统计快照
+     */
+    public CodecStats getStats() {
+        return new CodecStats(codecs.size(), endpointCodecs.size(), decoded.sum(), failed.sum(), unresolved.sum());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (defaultCodecName != null && !defaultCodecName.isBlank()) {
+            defaultCodec = getCodec(defaultCodecName);
+            if (defaultCodec == null) {
+                log.warn("默认编解码器不存在: {}, 可用编解码器: {}", defaultCodecName, codecs.keySet());
+            }
+        }
+        endpointConfigSnapshot.subscribe(this::apply);
+        log.info("日志编解码器注册表已启动, 编解码器: {}, 配置编解码器的端点数: {}", codecs.keySet(), endpointCodecs.size());
+    }
+
+    private void register(ILogCodec codec) {
+        String name = codec.getName();
+        if (name == null || name.isBlank()) {
+            log.warn("忽略未命名的编解码器: {}", codec.getClass().getName());
+            return;
+        }
+        ILogCodec previous = codecs.put(name.trim().toLowerCase(Locale.ROOT), codec);
+        if (previous != null && previous.getClass() != codec.getClass()) {
+            log.info("编解码器 {} 被覆盖: {} -> {}", name, previous.getClass().getName(), codec.getClass().getName());
+        }
+    }
+
+    /**
+     * 编解码器注册表统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class CodecStats {
+        // 已注册的编解码器数
+        private final int codecs;
+        // 配置了编解码器的端点数
+        private final int endpoints;
+        // 解码成功条数
+        private final long decoded;
+        // 解码失败条数
+        private final long failed;
+        // 未找到编解码器的条数
+        private final long unresolved;
+    }
+
+}
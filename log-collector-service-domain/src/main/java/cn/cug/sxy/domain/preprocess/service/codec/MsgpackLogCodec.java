@@ -0,0 +1,228 @@
+package cn.cug.sxy.domain.preprocess.service.codec;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/25 17:00
+ * @Description MessagePack编解码器（直接读取字节载荷，顶层须为map；bin和ext以Base64字符串保留，时间戳扩展类型转为ISO时间）
+ * @Author jerryhotton
+ */
+
+@Component
+public class MsgpackLogCodec implements ILogCodec {
+
+    public static final String NAME = "msgpack";
+
+    /**
+     * 最大嵌套深度
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * MessagePack时间戳扩展类型
+     */
+    private static final byte TIMESTAMP_EXT_TYPE = -1;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> decode(ByteBuffer payload) {
+        ByteBuffer buffer = payload.order(ByteOrder.BIG_ENDIAN);
+        try {
+            Object value = read(buffer, 0);
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("MessagePack载荷末尾存在多余字节: " + buffer.remaining());
+            }
+            if (value instanceof Map) {
+                return (Map<String, Object>) value;
+            }
+            Map<String, Object> fields = new LinkedHashMap<>(2);
+            fields.put("value", value);
+            return fields;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("MessagePack载荷不完整");
+        }
+    }
+
+    private static Object read(ByteBuffer buffer, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("MessagePack嵌套过深");
+        }
+        int b = buffer.get() & 0xFF;
+        // positive fixint / fixmap / fixarray / fixstr / negative fixint
+        if (b <= 0x7F) {
+            return (long) b;
+        }
+        if (b <= 0x8F) {
+            return readMap(buffer, b & 0x0F, depth);
+        }
+        if (b <= 0x9F) {
+            return readArray(buffer, b & 0x0F, depth);
+        }
+        if (b <= 0xBF) {
+            return readString(buffer, b & 0x1F);
+        }
+        if (b >= 0xE0) {
+            return (long) (byte) b;
+        }
+        switch (b) {
+            case 0xC0:
+                return null;
+            case 0xC2:
+                return Boolean.FALSE;
+            case 0xC3:
+                return Boolean.TRUE;
+            case 0xC4:
+                return readBinary(buffer, buffer.get() & 0xFF);
+            case 0xC5:
+                return readBinary(buffer, buffer.getShort() & 0xFFFF);
+            case 0xC6:
+                return readBinary(buffer, length(buffer.getInt()));
+            case 0xC7:
+                return readExt(buffer, buffer.get() & 0xFF);
+            case 0xC8:
+                return readExt(buffer, buffer.getShort() & 0xFFFF);
+            case 0xC9:
+                return readExt(buffer, length(buffer.getInt()));
+            case 0xCA:
+                return (double) buffer.getFloat();
+            case 0xCB:
+                return buffer.getDouble();
+            case 0xCC:
+                return (long) (buffer.get() & 0xFF);
+            case 0xCD:
+                return (long) (buffer.getShort() & 0xFFFF);
+            case 0xCE:
+                return buffer.getInt() & 0xFFFFFFFFL;
+            case 0xCF:
+                long unsigned = buffer.getLong();
+                // 超出long范围的uint64按无符号十进制字符串保留
+                return unsigned >= 0 ? unsigned : Long.toUnsignedString(unsigned);
+            case 0xD0:
+                return (long) buffer.get();
+            case 0xD1:
+                return (long) buffer.getShort();
+            case 0xD2:
+                return (long) buffer.getInt();
+            case 0xD3:
+                return buffer.getLong();
+            case 0xD4:
+                return readExt(buffer, 1);
+            case 0xD5:
+                return readExt(buffer, 2);
+            case 0xD6:
+                return readExt(buffer, 4);
+            case 0xD7:
+                return readExt(buffer, 8);
+            case 0xD8:
+                return readExt(buffer, 16);
+            case 0xD9:
+                return readString(buffer, buffer.get() & 0xFF);
+            case 0xDA:
+                return readString(buffer, buffer.getShort() & 0xFFFF);
+            case 0xDB:
+                return readString(buffer, length(buffer.getInt()));
+            case 0xDC:
+                return readArray(buffer, buffer.getShort() & 0xFFFF, depth);
+            case 0xDD:
+                return readArray(buffer, length(buffer.getInt()), depth);
+            case 0xDE:
+                return readMap(buffer, buffer.getShort() & 0xFFFF, depth);
+            case 0xDF:
+                return readMap(buffer, length(buffer.getInt()), depth);
+            default:
+                throw new IllegalArgumentException("非法的MessagePack类型字节: 0x" + Integer.toHexString(b));
+        }
+    }
+
+    private static Map<String, Object> readMap(ByteBuffer buffer, int size, int depth) {
+        // 每个键值对至少占2字节，声明的大小超出剩余字节时直接判定非法，避免按声明大小分配
+        checkRemaining(buffer, size * 2L);
+        Map<String, Object> map = new LinkedHashMap<>(Math.max(4, size * 4 / 3 + 1));
+        for (int i = 0; i < size; i++) {
+            Object key = read(buffer, depth + 1);
+            map.put(String.valueOf(key), read(buffer, depth + 1));
+        }
+        return map;
+    }
+
+    private static List<Object> readArray(ByteBuffer buffer, int size, int depth) {
+        checkRemaining(buffer, size);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(read(buffer, depth + 1));
+        }
+        return list;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        checkRemaining(buffer, length);
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static String readBinary(ByteBuffer buffer, int length) {
+        checkRemaining(buffer, length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private static Object readExt(ByteBuffer buffer, int length) {
+        byte type = buffer.get();
+        checkRemaining(buffer, length);
+        if (type == TIMESTAMP_EXT_TYPE) {
+            switch (length) {
+                case 4:
+                    return Instant.ofEpochSecond(buffer.getInt() & 0xFFFFFFFFL).toString();
+                case 8:
+                    long data = buffer.getLong();
+                    return Instant.ofEpochSecond(data & 0x3FFFFFFFFL, data >>> 34).toString();
+                case 12:
+                    int nanos = buffer.getInt();
+                    return Instant.ofEpochSecond(buffer.getLong(), nanos).toString();
+                default:
+                    break;
+            }
+        }
+        return readBinary(buffer, length);
+    }
+
+    private static int length(int declared) {
+        if (declared < 0) {
+            throw new IllegalArgumentException("MessagePack长度超出范围");
+        }
+        return declared;
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, long required) {
+        if (required > buffer.remaining()) {
+            throw new IllegalArgumentException("MessagePack载荷不完整");
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package cn.cug.sxy.domain.preprocess.service.grok;
+
+import cn.cug.sxy.domain.reception.model.aggregate.ReceiverEndpoint;
+import cn.cug.sxy.domain.reception.service.config.EndpointConfigSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 17:20
+ * @Description 端点Grok模式注册表（按端点的预处理策略编译Grok模式，订阅端点配置快照，配置变更无需重新部署）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class EndpointGrokRegistry implements InitializingBean {
+
+    private final EndpointConfigSnapshot endpointConfigSnapshot;
+
+    /**
+     * 端点ID -> 编译后的模式，刷新时整体替换
+     */
+    private volatile Map<String, GrokPattern> patterns = Collections.emptyMap();
+
+    /**
+     * 编译失败的表达式，表达式未变更时不再重复编译
+     */
+    private volatile Map<String, String> invalidExpressions = Collections.emptyMap();
+
+    // 匹配统计
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder unmatched = new LongAdder();
+
+    public EndpointGrokRegistry(EndpointConfigSnapshot endpointConfigSnapshot) {
+        this.endpointConfigSnapshot = endpointConfigSnapshot;
+    }
+
+    /**
+     * 获取端点的Grok模式
+     *
+     * @param endpointId 端点ID
+     * @return 编译后的模式，端点未配置时返回null
+     */
+    public GrokPattern patternFor(String endpointId) {
+        return endpointId == null ? null : patterns.get(endpointId);
+    }
+
+    /**
+     * 记录一次匹配结果
+     */
+    public void recordMatch(boolean success) {
+        if (success) {
+            matched.increment();
+        } else {
+            unmatched.increment();
+        }
+    }
+
+    /**
+     * 按端点配置快照重建模式，表达式未变更的端点沿用已编译的模式
+     *
+     * @param endpoints 端点配置快照
+     */
+    synchronized void apply(List<ReceiverEndpoint> endpoints) {
+        Map<String, GrokPattern> current = patterns;
+        Map<String, GrokPattern> compiled = new HashMap<>();
+        Map<String, String> invalid = new HashMap<>();
+        // 同一表达式只编译一次，多个端点共享
+        Map<String, GrokPattern> byExpression = new HashMap<>();
+        for (GrokPattern pattern : current.values()) {
+            byExpression.put(pattern.getExpression(), pattern);
+        }
+        int changed = 0;
+        for (ReceiverEndpoint endpoint : endpoints) {
+            String endpointId = endpoint.getEndpointId().getValue();
+            String expression = toExpression(endpoint.getPreprocessStrategy());
+            if (expression == null) {
+                continue;
+            }
+            if (expression.equals(invalidExpressions.get(endpointId))) {
+                invalid.put(endpointId, expression);
+                continue;
+            }
+            GrokPattern pattern = byExpression.get(expression);
+            if (pattern == null) {
+                try {
+                    pattern = GrokPattern.compile(expression);
+                    byExpression.put(expression, pattern);
+                } catch (IllegalArgumentException e) {
+                    invalid.put(endpointId, expression);
+                    log.warn("端点Grok模式编译失败，使用默认格式识别: endpointId={}, error={}", endpointId, e.getMessage());
+                    continue;
+                }
+            }
+            GrokPattern previous = current.get(endpointId);
+            if (previous == null || !previous.getExpression().equals(expression)) {
+                changed++;
+            }
+            compiled.put(endpointId, pattern);
+        }
+        int removed = 0;
+        for (String endpointId : current.keySet()) {
+            if (!compiled.containsKey(endpointId)) {
+                removed++;
+            }
+        }
+        patterns = compiled;
+        invalidExpressions = invalid;
+        if (changed > 0 || removed > 0) {
+            log.info("端点Grok模式已刷新, 端点数: {}, 变更: {}, 移除: {}", compiled.size(), changed, removed);
+        }
+    }
+
+    /**
+     * 获取注册表统计快照
+     */
+    public GrokStats getStats() {
+        return new GrokStats(patterns.size(), invalidExpressions.size(), matched.sum(), unmatched.sum());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        endpointConfigSnapshot.subscribe(this::apply);
+        log.info("端点Grok模式注册表已启动, 配置模式的端点数: {}", patterns.size());
+    }
+
+    /**
+     * 预处理策略转为Grok表达式：包含 %{ 的视为表达式，模式库中的名称视为对该模式的引用，其余不使用Grok
+     */
+    private static String toExpression(String preprocessStrategy) {
+        if (preprocessStrategy == null || preprocessStrategy.isBlank()) {
+            return null;
+        }
+        String strategy = preprocessStrategy.trim();
+        if (strategy.contains("%{")) {
+            return strategy;
+        }
+        return GrokPatternLibrary.contains(strategy) ? "%{" + strategy + "}" : null;
+    }
+
+    /**
+     * Grok注册表统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class GrokStats {
+        // 配置了有效模式的端点数
+        private final int endpoints;
+        // 模式编译失败的端点数
+        private final int invalidEndpoints;
+        // 模式匹配成功次数
+        private final long matched;
+        // 模式未匹配、退回默认格式识别的次数
+        private final long unmatched;
+    }
+
+}
@@ -0,0 +1,151 @@
+package cn.cug.sxy.domain.preprocess.service.grok;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 16:40
+ * @Description 编译后的Grok模式（表达式如 "%{TIMESTAMP_ISO8601:ts} %{LOGLEVEL:level} %{GREEDYDATA:message}"，
+ * 编译时展开为单个正则，只为命名字段生成捕获分组；编译结果不可变，可在线程间共享）
+ * @Author jerryhotton
+ */
+
+public final class GrokPattern {
+
+    /**
+     * 模式引用：%{NAME}、%{NAME:field}、%{NAME:field:type}
+     */
+    private static final Pattern REFERENCE = Pattern.compile("%\\{(\\w+)(?::([\\w.@\\[\\]-]+))?(?::(int|long|float|double|boolean|string))?}");
+
+    /**
+     * 模式展开的最大嵌套深度，超出时视为循环引用
+     */
+    private static final int MAX_EXPAND_DEPTH = 32;
+
+    private final String expression;
+    private final Pattern pattern;
+    // 捕获分组名（g0, g1...）与字段名一一对应
+    private final String[] groupNames;
+    private final String[] fieldNames;
+    // 字段名 -> 类型，未声明类型的字段不在其中
+    private final Map<String, String> fieldTypes;
+
+    private GrokPattern(String expression, Pattern pattern, List<String> fieldNames, Map<String, String> fieldTypes) {
+        this.expression = expression;
+        this.pattern = pattern;
+        this.fieldNames = fieldNames.toArray(new String[0]);
+        this.groupNames = new String[this.fieldNames.length];
+        for (int i = 0; i < groupNames.length; i++) {
+            groupNames[i] = "g" + i;
+        }
+        this.fieldTypes = fieldTypes;
+    }
+
+    /**
+     * 编译Grok表达式
+     *
+     * @param expression Grok表达式
+     * @return 编译后的模式
+     * @throws IllegalArgumentException 引用了未定义的模式、存在循环引用或正则非法
+     */
+    public static GrokPattern compile(String expression) {
+        List<String> fieldNames = new ArrayList<>();
+        Map<String, String> fieldTypes = new HashMap<>();
+        String regex = expand(expression, fieldNames, fieldTypes, 0);
+        return new GrokPattern(expression, Pattern.compile(regex), fieldNames, fieldTypes);
+    }
+
+    /**
+     * 匹配日志行并提取命名字段（与Grok一致，未以 ^ 锚定的表达式可匹配行内任意位置）
+     *
+     * @param line   日志行
+     * @param fields 提取的字段
+     * @return 是否匹配
+     */
+    public boolean match(String line, Map<String, String> fields) {
+        Matcher matcher = pattern.matcher(line);
+        if (!matcher.find()) {
+            return false;
+        }
+        for (int i = 0; i < groupNames.length; i++) {
+            String value = matcher.group(groupNames[i]);
+            if (value != null) {
+                fields.put(fieldNames[i], value);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按字段声明的类型转换值，未声明类型或转换失败时返回原字符串
+     *
+     * @param field 字段名
+     * @param value 字段值
+     * @return 转换后的值
+     */
+    public Object convert(String field, String value) {
+        String type = fieldTypes.get(field);
+        if (type == null) {
+            return value;
+        }
+        try {
+            switch (type) {
+                case "int":
+                case "long":
+                    return Long.parseLong(value.trim());
+                case "float":
+                case "double":
+                    return Double.parseDouble(value.trim());
+                case "boolean":
+                    return Boolean.parseBoolean(value.trim());
+                default:
+                    return value;
+            }
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * 递归展开模式引用：命名引用生成命名捕获分组，匿名引用生成非捕获分组
+     */
+    private static String expand(String expression, List<String> fieldNames, Map<String, String> fieldTypes, int depth) {
+        if (depth > MAX_EXPAND_DEPTH) {
+            throw new IllegalArgumentException("Grok模式嵌套过深或存在循环引用: " + expression);
+        }
+        Matcher matcher = REFERENCE.matcher(expression);
+        StringBuilder regex = new StringBuilder(expression.length() * 2);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            String definition = GrokPatternLibrary.get(name);
+            if (definition == null) {
+                throw new IllegalArgumentException("未定义的Grok模式: " + name);
+            }
+            String inner = expand(definition, fieldNames, fieldTypes, depth + 1);
+            String field = matcher.group(2);
+            String replacement;
+            if (field != null) {
+                replacement = "(?<g" + fieldNames.size() + ">" + inner + ")";
+                fieldNames.add(field);
+                if (matcher.group(3) != null) {
+                    fieldTypes.put(field, matcher.group(3));
+                }
+            } else {
+                replacement = "(?:" + inner + ")";
+            }
+            matcher.appendReplacement(regex, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(regex);
+        return regex.toString();
+    }
+
+}
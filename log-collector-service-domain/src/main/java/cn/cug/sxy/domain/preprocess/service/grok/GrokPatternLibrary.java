@@ -0,0 +1,110 @@
+package cn.cug.sxy.domain.preprocess.service.grok;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 16:10
+ * @Description Grok基础模式库（取自Logstash grok-patterns常用子集，分组均改为非捕获分组）
+ * @Author jerryhotton
+ */
+
+public final class GrokPatternLibrary {
+
+    private static final Map<String, String> PATTERNS;
+
+    static {
+        Map<String, String> p = new HashMap<>();
+        // 基础类型
+        p.put("USERNAME", "[a-zA-Z0-9._-]+");
+        p.put("USER", "%{USERNAME}");
+        p.put("EMAILLOCALPART", "[a-zA-Z0-9!#$%&'*+/=?^_`|~-]+(?:\\.[a-zA-Z0-9!#$%&'*+/=?^_`|~-]+)*");
+        p.put("EMAILADDRESS", "%{EMAILLOCALPART}@%{HOSTNAME}");
+        p.put("INT", "(?:[+-]?(?:[0-9]+))");
+        p.put("BASE10NUM", "(?<![0-9.+-])(?>[+-]?(?:(?:[0-9]+(?:\\.[0-9]+)?)|(?:\\.[0-9]+)))");
+        p.put("NUMBER", "(?:%{BASE10NUM})");
+        p.put("BASE16NUM", "(?<![0-9A-Fa-f])(?:[+-]?(?:0x)?(?:[0-9A-Fa-f]+))");
+        p.put("POSINT", "\\b(?:[1-9][0-9]*)\\b");
+        p.put("NONNEGINT", "\\b(?:[0-9]+)\\b");
+        p.put("WORD", "\\b\\w+\\b");
+        p.put("NOTSPACE", "\\S+");
+        p.put("SPACE", "\\s*");
+        p.put("DATA", ".*?");
+        p.put("GREEDYDATA", ".*");
+        p.put("QUOTEDSTRING", "(?>(?<!\\\\)(?>\"(?>\\\\.|[^\\\\\"]+)+\"|\"\"|(?>'(?>\\\\.|[^\\\\']+)+')|''|(?>`(?>\\\\.|[^\\\\`]+)+`)|``))");
+        p.put("QS", "%{QUOTEDSTRING}");
+        p.put("UUID", "[A-Fa-f0-9]{8}-(?:[A-Fa-f0-9]{4}-){3}[A-Fa-f0-9]{12}");
+        // 网络
+        p.put("IPV4", "(?<![0-9])(?:(?:[0-1]?[0-9]{1,2}|2[0-4][0-9]|25[0-5])[.](?:[0-1]?[0-9]{1,2}|2[0-4][0-9]|25[0-5])[.]"
+                + "(?:[0-1]?[0-9]{1,2}|2[0-4][0-9]|25[0-5])[.](?:[0-1]?[0-9]{1,2}|2[0-4][0-9]|25[0-5]))(?![0-9])");
+        // IPv6为简化版本，覆盖常见的完整和压缩写法
+        p.put("IPV6", "(?:[0-9A-Fa-f]{0,4}:){2,7}[0-9A-Fa-f]{0,4}(?:%[0-9A-Za-z]+)?");
+        p.put("IP", "(?:%{IPV6}|%{IPV4})");
+        p.put("HOSTNAME", "\\b(?:[0-9A-Za-z][0-9A-Za-z-]{0,62})(?:\\.(?:[0-9A-Za-z][0-9A-Za-z-]{0,62}))*(?:\\.?|\\b)");
+        p.put("IPORHOST", "(?:%{IP}|%{HOSTNAME})");
+        p.put("HOSTPORT", "%{IPORHOST}:%{POSINT}");
+        // 路径和URI
+        p.put("UNIXPATH", "(?:/[\\w_%!$@:.,+~-]*)+");
+        p.put("WINPATH", "(?>[A-Za-z]+:|\\\\)(?:\\\\[^\\\\?*]*)+");
+        p.put("PATH", "(?:%{UNIXPATH}|%{WINPATH})");
+        p.put("URIPROTO", "[A-Za-z](?:[A-Za-z0-9+\\-.]+)+");
+        p.put("URIHOST", "%{IPORHOST}(?::%{POSINT})?");
+        p.put("URIPATH", "(?:/[A-Za-z0-9$.+!*'(),~:;=@#%&_\\-]*)+");
+        p.put("URIPARAM", "\\?[A-Za-z0-9$.+!*'|(),~@#%&/=:;_?\\-\\[\\]<>]*");
+        p.put("URIPATHPARAM", "%{URIPATH}(?:%{URIPARAM})?");
+        p.put("URI", "%{URIPROTO}://(?:%{USER}(?::[^@]*)?@)?(?:%{URIHOST})?(?:%{URIPATHPARAM})?");
+        // 日期和时间
+        p.put("MONTH", "\\b(?:[Jj]an(?:uary)?|[Ff]eb(?:ruary)?|[Mm]ar(?:ch)?|[Aa]pr(?:il)?|[Mm]ay|[Jj]un(?:e)?|[Jj]ul(?:y)?"
+                + "|[Aa]ug(?:ust)?|[Ss]ep(?:tember)?|[Oo]ct(?:ober)?|[Nn]ov(?:ember)?|[Dd]ec(?:ember)?)\\b");
+        p.put("MONTHNUM", "(?:0?[1-9]|1[0-2])");
+        p.put("MONTHDAY", "(?:(?:0[1-9])|(?:[12][0-9])|(?:3[01])|[1-9])");
+        p.put("DAY", "(?:Mon(?:day)?|Tue(?:sday)?|Wed(?:nesday)?|Thu(?:rsday)?|Fri(?:day)?|Sat(?:urday)?|Sun(?:day)?)");
+        p.put("YEAR", "(?>\\d\\d){1,2}");
+        p.put("HOUR", "(?:2[0123]|[01]?[0-9])");
+        p.put("MINUTE", "(?:[0-5][0-9])");
+        p.put("SECOND", "(?:(?:[0-5]?[0-9]|60)(?:[:.,][0-9]+)?)");
+        p.put("TIME", "(?<![0-9])%{HOUR}:%{MINUTE}(?::%{SECOND})(?![0-9])");
+        p.put("DATE_US", "%{MONTHNUM}[/-]%{MONTHDAY}[/-]%{YEAR}");
+        p.put("DATE_EU", "%{MONTHDAY}[./-]%{MONTHNUM}[./-]%{YEAR}");
+        p.put("ISO8601_TIMEZONE", "(?:Z|[+-]%{HOUR}(?::?%{MINUTE}))");
+        p.put("TIMESTAMP_ISO8601", "%{YEAR}-%{MONTHNUM}-%{MONTHDAY}[T ]%{HOUR}:?%{MINUTE}(?::?%{SECOND})?%{ISO8601_TIMEZONE}?");
+        p.put("DATE", "(?:%{DATE_US}|%{DATE_EU})");
+        p.put("DATESTAMP", "%{DATE}[- ]%{TIME}");
+        p.put("HTTPDATE", "%{MONTHDAY}/%{MONTH}/%{YEAR}:%{TIME} %{INT}");
+        p.put("SYSLOGTIMESTAMP", "%{MONTH} +%{MONTHDAY} %{TIME}");
+        // 日志常用
+        p.put("LOGLEVEL", "(?:[Aa]lert|ALERT|[Tt]race|TRACE|[Dd]ebug|DEBUG|[Nn]otice|NOTICE|[Ii]nfo?(?:rmation)?|INFO?(?:RMATION)?"
+                + "|[Ww]arn?(?:ing)?|WARN?(?:ING)?|[Ee]rr?(?:or)?|ERR?(?:OR)?|[Cc]rit?(?:ical)?|CRIT?(?:ICAL)?|[Ff]atal|FATAL"
+                + "|[Ss]evere|SEVERE|EMERG(?:ENCY)?|[Ee]merg(?:ency)?)");
+        p.put("JAVACLASS", "(?:[a-zA-Z$_][a-zA-Z$_0-9]*\\.)*[a-zA-Z$_][a-zA-Z$_0-9]*");
+        p.put("HTTPDUSER", "(?:%{EMAILADDRESS}|%{USER})");
+        p.put("COMMONAPACHELOG", "%{IPORHOST:clientip} %{HTTPDUSER:ident} %{HTTPDUSER:auth} \\[%{HTTPDATE:timestamp}\\] "
+                + "\"(?:%{WORD:verb} %{NOTSPACE:request}(?: HTTP/%{NUMBER:httpversion})?|%{DATA:rawrequest})\" "
+                + "%{NUMBER:response} (?:%{NUMBER:bytes}|-)");
+        p.put("COMBINEDAPACHELOG", "%{COMMONAPACHELOG} %{QS:referrer} %{QS:agent}");
+        PATTERNS = Collections.unmodifiableMap(p);
+    }
+
+    private GrokPatternLibrary() {
+    }
+
+    /**
+     * 获取模式定义
+     *
+     * @param name 模式名称
+     * @return 模式定义，不存在时返回null
+     */
+    public static String get(String name) {
+        return PATTERNS.get(name);
+    }
+
+    /**
+     * 是否为已定义的模式名称
+     */
+    public static boolean contains(String name) {
+        return PATTERNS.containsKey(name);
+    }
+
+}
@@ -0,0 +1,102 @@
+package cn.cug.sxy.domain.preprocess.service.raw;
+
+import cn.cug.sxy.domain.reception.model.aggregate.ReceiverEndpoint;
+import cn.cug.sxy.domain.reception.service.config.EndpointConfigSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/30 14:00
+ * @Description 原样接入端点注册表（开启原样接入的端点跳过格式解析，订阅端点配置快照）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class RawIngestRegistry implements InitializingBean {
+
+    private final EndpointConfigSnapshot endpointConfigSnapshot;
+
+    /**
+     * 原样接入的端点ID，刷新时整体替换
+     */
+    private volatile Set<String> rawEndpoints = Collections.emptySet();
+
+    // 原样接入的日志条数
+    private final LongAdder ingested = new LongAdder();
+
+    public RawIngestRegistry(EndpointConfigSnapshot endpointConfigSnapshot) {
+        this.endpointConfigSnapshot = endpointConfigSnapshot;
+    }
+
+    /**
+     * 端点是否原样接入
+     *
+     * @param endpointId 端点ID
+     * @return 是否跳过格式解析
+     */
+    public boolean isRaw(String endpointId) {
+        return endpointId != null && rawEndpoints.contains(endpointId);
+    }
+
+    /**
+     * 记录原样接入的日志条数
+     */
+    public void recordIngested(int count) {
+        ingested.add(count);
+    }
+
+    /**
+     * 按端点配置快照重建原样接入的端点
+     *
+     * @param endpoints 端点配置快照
+     */
+    synchronized void apply(List<ReceiverEndpoint> endpoints) {
+        Set<String> selected = new HashSet<>();
+        for (ReceiverEndpoint endpoint : endpoints) {
+            if (endpoint.isRawIngest()) {
+                selected.add(endpoint.getEndpointId().getValue());
+            }
+        }
+        if (!selected.equals(rawEndpoints)) {
+            log.info("原样接入端点已刷新, 端点: {}", selected);
+        }
+        rawEndpoints = selected;
+    }
+
+    /**
+     * 获取注册表统计快照
+     */
+    public RawIngestStats getStats() {
+        return new RawIngestStats(rawEndpoints.size(), ingested.sum());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        endpointConfigSnapshot.subscribe(this::apply);
+        log.info("原样接入端点注册表已启动, 原样接入端点数: {}", rawEndpoints.size());
+    }
+
+    /**
+     * 原样接入注册表统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RawIngestStats {
+        // 原样接入的端点数
+        private final int endpoints;
+        // 原样接入的日志条数
+        private final long ingested;
+    }
+
+}
@@ -0,0 +1,133 @@
+package cn.cug.sxy.domain.preprocess.service.redact;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/26 14:30
+ * @Description 关键字自动机（Aho-Corasick，忽略ASCII大小写；构建为完整的状态转移表，扫描时每个字符一次查表，构建后只读，可在线程间共享）
+ * @Author jerryhotton
+ */
+
+final class KeywordAutomaton {
+
+    private static final int ALPHABET = 128;
+
+    /**
+     * 状态转移表：state -> 字符 -> 下一状态，非ASCII字符回到初始状态
+     */
+    private final int[][] transitions;
+
+    /**
+     * 在该状态结束的关键字编号（含经失败链接可达的关键字），无输出时为null
+     */
+    private final int[][] outputs;
+
+    private final int[] lengths;
+
+    KeywordAutomaton(List<String> keywords) {
+        List<int[]> gotoTable = new ArrayList<>();
+        List<int[]> out = new ArrayList<>();
+        gotoTable.add(newRow());
+        out.add(null);
+        lengths = new int[keywords.size()];
+        // 1. 构建关键字前缀树
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            lengths[k] = keyword.length();
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int c = fold(keyword.charAt(i));
+                if (c < 0) {
+                    throw new IllegalArgumentException("关键字只支持ASCII字符: " + keyword);
+                }
+                if (gotoTable.get(state)[c] < 0) {
+                    gotoTable.get(state)[c] = gotoTable.size();
+                    gotoTable.add(newRow());
+                    out.add(null);
+                }
+                state = gotoTable.get(state)[c];
+            }
+            out.set(state, append(out.get(state), k));
+        }
+        // 2. 按层次计算失败链接，并将缺失的转移补全为经失败链接的转移
+        int[] fail = new int[gotoTable.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        int[] root = gotoTable.get(0);
+        for (int c = 0; c < ALPHABET; c++) {
+            if (root[c] < 0) {
+                root[c] = 0;
+            } else {
+                fail[root[c]] = 0;
+                queue.add(root[c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] row = gotoTable.get(state);
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = row[c];
+                if (next < 0) {
+                    row[c] = gotoTable.get(fail[state])[c];
+                } else {
+                    fail[next] = gotoTable.get(fail[state])[c];
+                    int[] inherited = out.get(fail[next]);
+                    if (inherited != null) {
+                        for (int keyword : inherited) {
+                            out.set(next, append(out.get(next), keyword));
+                        }
+                    }
+                    queue.add(next);
+                }
+            }
+        }
+        this.transitions = gotoTable.toArray(new int[0][]);
+        this.outputs = out.toArray(new int[0][]);
+    }
+
+    /**
+     * 读入一个字符后的状态
+     */
+    int next(int state, char c) {
+        int folded = fold(c);
+        return folded < 0 ? 0 : transitions[state][folded];
+    }
+
+    /**
+     * 在该状态结束的关键字编号，无输出时为null
+     */
+    int[] outputs(int state) {
+        return outputs[state];
+    }
+
+    int length(int keyword) {
+        return lengths[keyword];
+    }
+
+    private static int fold(char c) {
+        if (c >= ALPHABET) {
+            return -1;
+        }
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] append(int[] values, int value) {
+        if (values == null) {
+            return new int[]{value};
+        }
+        int[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+
+}
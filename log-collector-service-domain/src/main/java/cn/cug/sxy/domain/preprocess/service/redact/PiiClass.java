@@ -0,0 +1,32 @@
+package cn.cug.sxy.domain.preprocess.service.redact;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/26 14:10
+ * @Description 敏感信息类别
+ * @Author jerryhotton
+ */
+
+@Getter
+@AllArgsConstructor
+public enum PiiClass {
+
+    IP("Ip", "IP地址"),
+    EMAIL("Email", "邮箱地址"),
+    URL("Url", "URL"),
+    USER_ID("UserId", "用户ID"),
+    PHONE("Phone", "手机号"),
+    ID_CARD("IdCard", "身份证号"),
+    BANK_CARD("BankCard", "银行卡号"),
+    SECRET("Secret", "密码及密钥");
+
+    /**
+     * 元数据和结构化字段名后缀，如 containsIp
+     */
+    private final String fieldName;
+    private final String info;
+
+}
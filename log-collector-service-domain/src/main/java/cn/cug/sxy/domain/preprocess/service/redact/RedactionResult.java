@@ -0,0 +1,70 @@
+package cn.cug.sxy.domain.preprocess.service.redact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/26 14:20
+ * @Description 敏感信息检测结果（脱敏后的内容、各类别命中次数及需要保留的命中值）
+ * @Author jerryhotton
+ */
+
+public class RedactionResult {
+
+    private final String content;
+    private final boolean masked;
+    private final int[] hits;
+    private final Map<PiiClass, List<String>> values;
+
+    RedactionResult(String content, boolean masked, int[] hits, Map<PiiClass, List<String>> values) {
+        this.content = content;
+        this.masked = masked;
+        this.hits = hits;
+        this.values = values;
+    }
+
+    static RedactionResult unchanged(String content) {
+        return new RedactionResult(content, false, new int[PiiClass.values().length], Collections.emptyMap());
+    }
+
+    /**
+     * 获取脱敏后的内容，未脱敏时为原内容
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * 是否有内容被脱敏
+     */
+    public boolean isMasked() {
+        return masked;
+    }
+
+    /**
+     * 获取类别的命中次数
+     */
+    public int hits(PiiClass piiClass) {
+        return hits[piiClass.ordinal()];
+    }
+
+    /**
+     * 获取类别的命中值（脱敏的类别为脱敏后的值），只保留IP、URL和用户ID
+     */
+    public List<String> values(PiiClass piiClass) {
+        return values.getOrDefault(piiClass, Collections.emptyList());
+    }
+
+    static Map<PiiClass, List<String>> addValue(Map<PiiClass, List<String>> values, PiiClass piiClass, String value) {
+        if (values.isEmpty()) {
+            values = new EnumMap<>(PiiClass.class);
+        }
+        values.computeIfAbsent(piiClass, k -> new ArrayList<>(2)).add(value);
+        return values;
+    }
+
+}
@@ -0,0 +1,638 @@
+package cn.cug.sxy.domain.preprocess.service.redact;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/26 14:50
+ * @Description 敏感信息检测与脱敏（单次遍历内容：关键字前缀由Aho-Corasick自动机识别，数字串在词边界处按类别校验；
+ * 命中的片段按应用配置写入复用的输出缓冲区脱敏，未脱敏时不产生新字符串）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class SensitiveDataRedactor {
+
+    /**
+     * 关键字及其类别：@ 触发邮箱校验，协议前缀触发URL校验，键名触发键值校验
+     */
+    private static final String[] KEYWORDS = {
+            "@", "http://", "https://", "userid", "user_id", "password", "passwd", "pwd", "secret", "token"};
+    private static final PiiClass[] KEYWORD_CLASSES = {
+            PiiClass.EMAIL, PiiClass.URL, PiiClass.URL, PiiClass.USER_ID, PiiClass.USER_ID,
+            PiiClass.SECRET, PiiClass.SECRET, PiiClass.SECRET, PiiClass.SECRET, PiiClass.SECRET};
+
+    /**
+     * 需要保留命中值的类别（兼容原有的 ipAddresses、urls、userId 结构化字段）
+     */
+    private static final Set<PiiClass> VALUE_CLASSES = EnumSet.of(PiiClass.IP, PiiClass.URL, PiiClass.USER_ID);
+
+    /**
+     * 身份证号校验码权重及校验码
+     */
+    private static final int[] ID_CARD_WEIGHTS = {7, 9, 10, 5, 8, 4, 2, 1, 6, 3, 7, 9, 10, 5, 8, 4, 2};
+    private static final char[] ID_CARD_CHECK_CODES = {'1', '0', 'X', '9', '8', '7', '6', '5', '4', '3', '2'};
+
+    /**
+     * 键名以这些词结尾的字段整体按密钥处理（值本身通常没有可识别的特征）
+     */
+    private static final String[] SECRET_KEY_SUFFIXES = {"password", "passwd", "pwd", "secret", "token"};
+
+    /**
+     * 密钥的脱敏值
+     */
+    private static final String SECRET_MASK = "******";
+
+    /**
+     * 输出缓冲区超过该容量时不再复用，避免长期持有大块内存
+     */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final KeywordAutomaton AUTOMATON = new KeywordAutomaton(List.of(KEYWORDS));
+
+    private final ThreadLocal<StringBuilder> outputBuffer = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private final boolean enabled;
+    private final Policy defaultPolicy;
+    private final Map<String, Policy> appPolicies;
+
+    // 各类别检测和脱敏计数
+    private final LongAdder[] detected = newCounters();
+    private final LongAdder[] masked = newCounters();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder redacted = new LongAdder();
+    private final LongAdder redactedFields = new LongAdder();
+
+    /**
+     * @param enabled     是否启用检测
+     * @param detect      检测的类别
+     * @param mask        默认脱敏的类别（须同时在检测类别中）
+     * @param appPolicies 按应用覆盖脱敏类别，格式 appId1:EMAIL,PHONE;appId2:NONE
+     */
+    public SensitiveDataRedactor(
+            @Value("${log-center.preprocess.redaction.enabled:true}") boolean enabled,
+            @Value("${log-center.preprocess.redaction.detect-classes:IP,EMAIL,URL,USER_ID,PHONE,ID_CARD,BANK_CARD,SECRET}") String detect,
+            @Value("${log-center.preprocess.redaction.mask-classes:EMAIL,PHONE,ID_CARD,BANK_CARD,SECRET}") String mask,
+            @Value("${log-center.preprocess.redaction.app-policies:}") String appPolicies) {
+        this.enabled = enabled;
+        Set<PiiClass> detectClasses = parseClasses(detect);
+        this.defaultPolicy = new Policy(detectClasses, parseClasses(mask));
+        Map<String, Policy> policies = new HashMap<>();
+        if (appPolicies != null && !appPolicies.isBlank()) {
+            for (String entry : appPolicies.split(";")) {
+                int colon = entry.indexOf(':');
+                if (colon <= 0) {
+                    log.warn("忽略格式错误的应用脱敏配置: {}", entry);
+                    continue;
+                }
+                policies.put(entry.substring(0, colon).trim(),
+                        new Policy(detectClasses, parseClasses(entry.substring(colon + 1))));
+            }
+        }
+        this.appPolicies = policies;
+        log.info("敏感信息检测已初始化, 启用: {}, 检测类别: {}, 默认脱敏类别: {}, 单独配置的应用数: {}",
+                enabled, detectClasses, defaultPolicy.mask, policies.size());
+    }
+
+    /**
+     * 单次遍历检测并按应用配置脱敏
+     *
+     * @param appId   应用ID
+     * @param content 日志内容
+     * @return 检测结果
+     */
+    public RedactionResult redact(String appId, String content) {
+        if (!enabled || content == null || content.isEmpty()) {
+            return RedactionResult.unchanged(content);
+        }
+        Scan scan = new Scan(content, policyOf(appId));
+        scan.run();
+        scanned.increment();
+        if (scan.output != null) {
+            redacted.increment();
+        }
+        return scan.result();
+    }
+
+    /**
+     * 检测并脱敏结构化字段或元数据的值：键名为密码、密钥类时整个值按密钥处理，否则按内容规则扫描
+     *
+     * @param appId 应用ID
+     * @param key   字段名
+     * @param value 字段值
+     * @return 脱敏后的值，未脱敏时返回原对象
+     */
+    public String redactField(String appId, String key, String value) {
+        if (!enabled || value == null || value.isEmpty()) {
+            return value;
+        }
+        Policy policy = policyOf(appId);
+        if (policy.detect.contains(PiiClass.SECRET) && isSecretKey(key)) {
+            detected[PiiClass.SECRET.ordinal()].increment();
+            if (!policy.mask.contains(PiiClass.SECRET) || SECRET_MASK.equals(value)) {
+                return value;
+            }
+            masked[PiiClass.SECRET.ordinal()].increment();
+            redactedFields.increment();
+            return SECRET_MASK;
+        }
+        Scan scan = new Scan(value, policy);
+        scan.run();
+        if (scan.output == null) {
+            return value;
+        }
+        redactedFields.increment();
+        return scan.result().getContent();
+    }
+
+    /**
+     * 获取检测统计快照
+     */
+    public RedactorStats getStats() {
+        Map<PiiClass, Long> detectedCounts = new EnumMap<>(PiiClass.class);
+        Map<PiiClass, Long> maskedCounts = new EnumMap<>(PiiClass.class);
+        for (PiiClass piiClass : PiiClass.values()) {
+            detectedCounts.put(piiClass, detected[piiClass.ordinal()].sum());
+            maskedCounts.put(piiClass, masked[piiClass.ordinal()].sum());
+        }
+        return new RedactorStats(scanned.sum(), redacted.sum(), redactedFields.sum(), detectedCounts, maskedCounts);
+    }
+
+    private Policy policyOf(String appId) {
+        return appId == null ? defaultPolicy : appPolicies.getOrDefault(appId, defaultPolicy);
+    }
+
+    private static boolean isSecretKey(String key) {
+        if (key == null) {
+            return false;
+        }
+        String lower = key.toLowerCase(Locale.ROOT);
+        for (String suffix : SECRET_KEY_SUFFIXES) {
+            if (lower.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 单次扫描状态
+     */
+    private class Scan {
+        private final String s;
+        private final int n;
+        private final Policy policy;
+        private final int[] hits = new int[PiiClass.values().length];
+        private Map<PiiClass, List<String>> values = Collections.emptyMap();
+        // 脱敏输出缓冲区，首次脱敏时获取
+        private StringBuilder output;
+        // 已复制到输出缓冲区的位置
+        private int copied;
+        // 上一个命中片段的结束位置，向左扩展的校验不越过该位置
+        private int lastEnd;
+
+        Scan(String s, Policy policy) {
+            this.s = s;
+            this.n = s.length();
+            this.policy = policy;
+        }
+
+        void run() {
+            int state = 0;
+            int i = 0;
+            while (i < n) {
+                char c = s.charAt(i);
+                // 数字串起始处校验IP、身份证号、银行卡号、手机号
+                if (c >= '0' && c <= '9' && policy.detectsDigits && (i == 0 || !isWordChar(s.charAt(i - 1)) && s.charAt(i - 1) != '.')) {
+                    int end = matchDigits(i);
+                    if (end > i) {
+                        i = end;
+                        state = 0;
+                        continue;
+                    }
+                }
+                state = AUTOMATON.next(state, c);
+                int[] keywords = AUTOMATON.outputs(state);
+                if (keywords != null) {
+                    int end = matchKeyword(keywords, i);
+                    if (end > i) {
+                        i = end;
+                        state = 0;
+                        continue;
+                    }
+                }
+                i++;
+            }
+        }
+
+        /**
+         * 按命中的关键字校验，返回命中片段的结束位置，未命中时返回 -1
+         */
+        private int matchKeyword(int[] keywords, int at) {
+            for (int keyword : keywords) {
+                PiiClass piiClass = KEYWORD_CLASSES[keyword];
+                if (!policy.detect.contains(piiClass)) {
+                    continue;
+                }
+                int start = at - AUTOMATON.length(keyword) + 1;
+                int end;
+                switch (piiClass) {
+                    case EMAIL:
+                        end = matchEmail(at);
+                        break;
+                    case URL:
+                        end = start >= lastEnd ? matchUrl(start, at + 1) : -1;
+                        break;
+                    case SECRET:
+                        // 键名前不能紧接字母（匹配 db_password，不匹配 mytoken）
+                        end = (start == 0 || !Character.isLetter(s.charAt(start - 1))) ? matchKeyValue(piiClass, at + 1) : -1;
+                        break;
+                    default:
+                        end = matchKeyValue(piiClass, at + 1);
+                        break;
+                }
+                if (end > 0) {
+                    return end;
+                }
+            }
+            return -1;
+        }
+
+        private int matchEmail(int at) {
+            int start = at;
+            while (start > lastEnd && isEmailLocalChar(s.charAt(start - 1))) {
+                start--;
+            }
+            if (start == at) {
+                return -1;
+            }
+            int end = at + 1;
+            int lastDot = -1;
+            while (end < n && isDomainChar(s.charAt(end))) {
+                if (s.charAt(end) == '.') {
+                    lastDot = end;
+                }
+                end++;
+            }
+            // 去掉域名末尾的标点
+            while (end > at + 1 && (s.charAt(end - 1) == '.' || s.charAt(end - 1) == '-')) {
+                end--;
+            }
+            if (lastDot >= end - 1) {
+                lastDot = s.lastIndexOf('.', end - 1);
+            }
+            if (lastDot <= at + 1 || end - lastDot - 1 < 2) {
+                return -1;
+            }
+            for (int i = lastDot + 1; i < end; i++) {
+                if (!Character.isLetter(s.charAt(i))) {
+                    return -1;
+                }
+            }
+            hit(PiiClass.EMAIL, start, end);
+            return end;
+        }
+
+        private int matchUrl(int start, int hostStart) {
+            int end = hostStart;
+            while (end < n && !Character.isWhitespace(s.charAt(end)) && s.charAt(end) != '"' && s.charAt(end) != '\''
+                    && s.charAt(end) != '<' && s.charAt(end) != '>') {
+                end++;
+            }
+            if (end == hostStart) {
+                return -1;
+            }
+            if (!hit(PiiClass.URL, start, end)) {
+                // URL未脱敏时继续扫描其中的内容（查询参数中的密钥、邮箱等）
+                lastEnd = hostStart;
+                return hostStart;
+            }
+            return end;
+        }
+
+        /**
+         * 键名后的 [引号] [空白] (:|=) [空白] [引号] 值
+         */
+        private int matchKeyValue(PiiClass piiClass, int from) {
+            int i = from;
+            if (i < n && (s.charAt(i) == '"' || s.charAt(i) == '\'')) {
+                i++;
+            }
+            while (i < n && s.charAt(i) == ' ') {
+                i++;
+            }
+            if (i >= n || (s.charAt(i) != ':' && s.charAt(i) != '=')) {
+                return -1;
+            }
+            i++;
+            while (i < n && s.charAt(i) == ' ') {
+                i++;
+            }
+            char quote = 0;
+            if (i < n && (s.charAt(i) == '"' || s.charAt(i) == '\'')) {
+                quote = s.charAt(i++);
+            }
+            int start = i;
+            if (quote != 0 && piiClass == PiiClass.SECRET) {
+                // 引号中的密钥可以包含任意字符
+                while (i < n && s.charAt(i) != quote) {
+                    i++;
+                }
+            } else if (piiClass == PiiClass.SECRET) {
+                while (i < n && !Character.isWhitespace(s.charAt(i)) && s.charAt(i) != ',' && s.charAt(i) != '&'
+                        && s.charAt(i) != ';' && s.charAt(i) != '}') {
+                    i++;
+                }
+            } else {
+                while (i < n && (isWordChar(s.charAt(i)) || s.charAt(i) == '-')) {
+                    i++;
+                }
+            }
+            if (i == start) {
+                return -1;
+            }
+            hit(piiClass, start, i);
+            return i;
+        }
+
+        /**
+         * 数字串校验，返回命中片段的结束位置，未命中时返回 -1
+         */
+        private int matchDigits(int start) {
+            int runEnd = start;
+            while (runEnd < n && isDigit(s.charAt(runEnd))) {
+                runEnd++;
+            }
+            int length = runEnd - start;
+            if (runEnd < n && s.charAt(runEnd) == '.') {
+                return policy.detect.contains(PiiClass.IP) ? matchIp(start) : -1;
+            }
+            boolean idCardTail = length == 17 && runEnd < n && (s.charAt(runEnd) == 'X' || s.charAt(runEnd) == 'x');
+            int end = idCardTail ? runEnd + 1 : runEnd;
+            if (end < n && isWordChar(s.charAt(end))) {
+                return -1;
+            }
+            if ((length == 18 || idCardTail) && policy.detect.contains(PiiClass.ID_CARD) && isIdCard(start)) {
+                hit(PiiClass.ID_CARD, start, end);
+                return end;
+            }
+            if (idCardTail) {
+                return -1;
+            }
+            if (length >= 16 && length <= 19 && policy.detect.contains(PiiClass.BANK_CARD) && luhn(start, runEnd)) {
+                hit(PiiClass.BANK_CARD, start, runEnd);
+                return runEnd;
+            }
+            if (length == 11 && s.charAt(start) == '1' && s.charAt(start + 1) >= '3'
+                    && policy.detect.contains(PiiClass.PHONE)) {
+                hit(PiiClass.PHONE, start, runEnd);
+                return runEnd;
+            }
+            return -1;
+        }
+
+        private int matchIp(int start) {
+            int i = start;
+            for (int octet = 0; octet < 4; octet++) {
+                int digitsStart = i;
+                int value = 0;
+                while (i < n && isDigit(s.charAt(i)) && i - digitsStart < 3) {
+                    value = value * 10 + (s.charAt(i) - '0');
+                    i++;
+                }
+                if (i == digitsStart || value > 255 || (i < n && isDigit(s.charAt(i)))) {
+                    return -1;
+                }
+                if (octet < 3) {
+                    if (i >= n || s.charAt(i) != '.') {
+                        return -1;
+                    }
+                    i++;
+                }
+            }
+            if (i < n && (isWordChar(s.charAt(i)) || (s.charAt(i) == '.' && i + 1 < n && isDigit(s.charAt(i + 1))))) {
+                return -1;
+            }
+            hit(PiiClass.IP, start, i);
+            return i;
+        }
+
+        private boolean isIdCard(int start) {
+            int sum = 0;
+            for (int i = 0; i < 17; i++) {
+                sum += (s.charAt(start + i) - '0') * ID_CARD_WEIGHTS[i];
+            }
+            return Character.toUpperCase(s.charAt(start + 17)) == ID_CARD_CHECK_CODES[sum % 11];
+        }
+
+        private boolean luhn(int start, int end) {
+            int sum = 0;
+            boolean doubleDigit = false;
+            for (int i = end - 1; i >= start; i--) {
+                int digit = s.charAt(i) - '0';
+                if (doubleDigit) {
+                    digit *= 2;
+                    if (digit > 9) {
+                        digit -= 9;
+                    }
+                }
+                sum += digit;
+                doubleDigit = !doubleDigit;
+            }
+            return sum % 10 == 0;
+        }
+
+        /**
+         * 记录命中片段，按策略脱敏
+         *
+         * @return 是否已脱敏
+         */
+        private boolean hit(PiiClass piiClass, int start, int end) {
+            hits[piiClass.ordinal()]++;
+            detected[piiClass.ordinal()].increment();
+            lastEnd = end;
+            String value = null;
+            if (policy.mask.contains(piiClass)) {
+                if (output == null) {
+                    output = outputBuffer.get();
+                    output.setLength(0);
+                }
+                output.append(s, copied, start);
+                int maskStart = output.length();
+                appendMasked(piiClass, start, end);
+                copied = end;
+                masked[piiClass.ordinal()].increment();
+                if (VALUE_CLASSES.contains(piiClass)) {
+                    value = output.substring(maskStart);
+                }
+            } else if (piiClass == PiiClass.URL) {
+                // 未脱敏的URL不保留查询参数
+                int query = s.indexOf('?', start);
+                value = s.substring(start, query >= 0 && query < end ? query : end);
+            } else if (VALUE_CLASSES.contains(piiClass)) {
+                value = s.substring(start, end);
+            }
+            if (value != null) {
+                values = RedactionResult.addValue(values, piiClass, value);
+            }
+            return policy.mask.contains(piiClass);
+        }
+
+        private void appendMasked(PiiClass piiClass, int start, int end) {
+            switch (piiClass) {
+                case EMAIL:
+                    // a***@example.com
+                    int at = s.indexOf('@', start);
+                    output.append(s.charAt(start)).append("***").append(s, at, end);
+                    break;
+                case PHONE:
+                    // 138****8000
+                    output.append(s, start, start + 3).append("****").append(s, end - 4, end);
+                    break;
+                case ID_CARD:
+                    // 110101********123X
+                    output.append(s, start, start + 6).append("********").append(s, end - 4, end);
+                    break;
+                case BANK_CARD:
+                    // ************1234
+                    repeat('*', end - start - 4);
+                    output.append(s, end - 4, end);
+                    break;
+                case IP:
+                    // 10.1.*.*
+                    int second = s.indexOf('.', s.indexOf('.', start) + 1);
+                    output.append(s, start, second + 1).append("*.*");
+                    break;
+                case URL:
+                    // https://host/*** 只保留协议和主机
+                    int hostStart = s.indexOf("//", start) + 2;
+                    int pathStart = hostStart;
+                    while (pathStart < end && s.charAt(pathStart) != '/' && s.charAt(pathStart) != '?') {
+                        pathStart++;
+                    }
+                    output.append(s, start, pathStart);
+                    if (pathStart < end) {
+                        output.append("/***");
+                    }
+                    break;
+                default:
+                    output.append(SECRET_MASK);
+                    break;
+            }
+        }
+
+        private void repeat(char c, int count) {
+            for (int i = 0; i < count; i++) {
+                output.append(c);
+            }
+        }
+
+        RedactionResult result() {
+            if (output == null) {
+                return new RedactionResult(s, false, hits, values);
+            }
+            output.append(s, copied, n);
+            String content = output.toString();
+            if (output.capacity() > MAX_RETAINED_BUFFER) {
+                outputBuffer.remove();
+            }
+            return new RedactionResult(content, true, hits, values);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isEmailLocalChar(char c) {
+        return isWordChar(c) || c == '.' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomainChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-';
+    }
+
+    private static Set<PiiClass> parseClasses(String value) {
+        Set<PiiClass> classes = EnumSet.noneOf(PiiClass.class);
+        if (value == null) {
+            return classes;
+        }
+        for (String name : value.split(",")) {
+            String trimmed = name.trim().toUpperCase(Locale.ROOT);
+            if (trimmed.isEmpty() || "NONE".equals(trimmed)) {
+                continue;
+            }
+            try {
+                classes.add(PiiClass.valueOf(trimmed));
+            } catch (IllegalArgumentException e) {
+                log.warn("忽略未知的敏感信息类别: {}", name);
+            }
+        }
+        return classes;
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[PiiClass.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * 应用的检测和脱敏类别
+     */
+    private static class Policy {
+        private final Set<PiiClass> detect;
+        private final Set<PiiClass> mask;
+        // 是否检测任一数字类别，不检测时跳过数字串校验
+        private final boolean detectsDigits;
+
+        Policy(Set<PiiClass> detect, Set<PiiClass> mask) {
+            this.detect = detect;
+            this.mask = EnumSet.noneOf(PiiClass.class);
+            this.mask.addAll(mask);
+            this.mask.retainAll(detect);
+            this.detectsDigits = detect.contains(PiiClass.IP) || detect.contains(PiiClass.PHONE)
+                    || detect.contains(PiiClass.ID_CARD) || detect.contains(PiiClass.BANK_CARD);
+        }
+    }
+
+    /**
+     * 敏感信息检测统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RedactorStats {
+        // 扫描的日志数
+        private final long scannedLogs;
+        // 内容被脱敏的日志数
+        private final long redactedLogs;
+        // 被脱敏的结构化字段和元数据值个数
+        private final long redactedFields;
+        // 各类别检测次数
+        private final Map<PiiClass, Long> detected;
+        // 各类别脱敏次数
+        private final Map<PiiClass, Long> masked;
+    }
+
+}
@@ -39,4 +39,10 @@ public abstract class AbstractPreprocessStrategy implements IPreprocessStrategy
         return false;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        // 默认按非线程安全处理，由子类声明
+        return false;
+    }
+
 } 
\ No newline at end of file
@@ -0,0 +1,35 @@
+package cn.cug.sxy.domain.preprocess.service.strategy;
+
+import cn.cug.sxy.domain.preprocess.service.codec.LogCodecRegistry;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/25 17:50
+ * @Description 二进制格式日志预处理策略（将日志内容按Base64解码为载荷）
+ * @Author jerryhotton
+ */
+
+@Component
+public class BinaryPreprocessStrategy extends CodecPreprocessStrategy {
+
+    public BinaryPreprocessStrategy(LogCodecRegistry codecRegistry, TimestampParser timestampParser) {
+        super(LogFormat.BINARY, codecRegistry, timestampParser);
+    }
+
+    @Override
+    protected ByteBuffer payloadOf(ProcessedLog log) {
+        if (log.getContent() == null || log.getContent().isBlank()) {
+            throw new IllegalArgumentException("日志内容为空");
+        }
+        // JSON等文本接入通道以Base64承载二进制内容，非法Base64时抛出IllegalArgumentException
+        return ByteBuffer.wrap(Base64.getMimeDecoder().decode(log.getContent()));
+    }
+
+}
@@ -0,0 +1,227 @@
+package cn.cug.sxy.domain.preprocess.service.strategy;
+
+import cn.cug.sxy.domain.preprocess.service.codec.ILogCodec;
+import cn.cug.sxy.domain.preprocess.service.codec.LogCodecRegistry;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/25 17:30
+ * @Description 编解码器预处理策略基类（按端点选择编解码器，直接对字节载荷解码，不经过字符串转换；
+ * 批量处理时同一编解码器的日志一次解码）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+public abstract class CodecPreprocessStrategy extends AbstractPreprocessStrategy {
+
+    /**
+     * 同时写入元数据的顶层字段
+     */
+    private static final Set<String> PRIORITY_FIELDS = Set.of(
+            "message", "msg", "logger", "thread", "traceId", "spanId", "host", "service");
+    private static final List<String> LEVEL_FIELDS = List.of("level", "severity", "loglevel");
+    private static final List<String> TIMESTAMP_FIELDS = List.of("timestamp", "@timestamp", "time", "ts");
+
+    private final LogCodecRegistry codecRegistry;
+    private final TimestampParser timestampParser;
+
+    protected CodecPreprocessStrategy(LogFormat supportedFormat, LogCodecRegistry codecRegistry,
+                                      TimestampParser timestampParser) {
+        super(supportedFormat);
+        this.codecRegistry = codecRegistry;
+        this.timestampParser = timestampParser;
+    }
+
+    /**
+     * 获取日志的字节载荷
+     *
+     * @param log 日志
+     * @return 字节载荷
+     * @throws IllegalArgumentException 日志内容无法转换为载荷
+     */
+    protected abstract ByteBuffer payloadOf(ProcessedLog log);
+
+    @Override
+    public void process(ProcessedLog log) {
+        ILogCodec codec = codecRegistry.codecFor(log.getEndpointId());
+        if (codec == null) {
+            markUnresolved(log);
+            return;
+        }
+        decodeOne(codec, log);
+    }
+
+    @Override
+    public void processBatch(List<ProcessedLog> logs) {
+        // 按编解码器分组，同一编解码器的载荷一次批量解码
+        Map<ILogCodec, List<ProcessedLog>> logsByCodec = new IdentityHashMap<>();
+        for (ProcessedLog log : logs) {
+            ILogCodec codec = codecRegistry.codecFor(log.getEndpointId());
+            if (codec == null) {
+                markUnresolved(log);
+            } else {
+                logsByCodec.computeIfAbsent(codec, k -> new ArrayList<>()).add(log);
+            }
+        }
+        for (Map.Entry<ILogCodec, List<ProcessedLog>> entry : logsByCodec.entrySet()) {
+            decodeBatch(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public boolean supportsBatchProcessing() {
+        return true;
+    }
+
+    /**
+     * 编解码器本身线程安全，但批量解码依赖processBatch，因此不交由执行器逐条并行
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    private void decodeBatch(ILogCodec codec, List<ProcessedLog> logs) {
+        long startTime = System.currentTimeMillis();
+        List<ProcessedLog> decodable = new ArrayList<>(logs.size());
+        List<ByteBuffer> payloads = new ArrayList<>(logs.size());
+        int failures = 0;
+        for (ProcessedLog log : logs) {
+            try {
+                payloads.add(payloadOf(log));
+                decodable.add(log);
+            } catch (IllegalArgumentException e) {
+                markFailed(log, codec, e);
+                failures++;
+            }
+        }
+        List<Map<String, Object>> results;
+        try {
+            results = codec.decodeBatch(payloads);
+        } catch (RuntimeException e) {
+            // 批量解码失败时逐条解码，只将非法载荷标记为失败
+            log.warn("批量解码失败，改为逐条解码: codec={}, size={}, error={}", codec.getName(), decodable.size(), e.getMessage());
+            codecRegistry.recordDecode(0, failures);
+            for (ProcessedLog log : decodable) {
+                decodeOne(codec, log);
+            }
+            return;
+        }
+        for (int i = 0; i < decodable.size(); i++) {
+            apply(decodable.get(i), codec, results.get(i), startTime);
+        }
+        codecRegistry.recordDecode(decodable.size(), failures);
+    }
+
+    private void decodeOne(ILogCodec codec, ProcessedLog log) {
+        long startTime = System.currentTimeMillis();
+        try {
+            apply(log, codec, codec.decode(payloadOf(log)), startTime);
+            codecRegistry.recordDecode(1, 0);
+        } catch (RuntimeException e) {
+            markFailed(log, codec, e);
+            codecRegistry.recordDecode(0, 1);
+        }
+    }
+
+    /**
+     * 解码出的字段写入结构化字段，重要字段同时写入元数据
+     */
+    private void apply(ProcessedLog log, ILogCodec codec, Map<String, Object> fields, long startTime) {
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+            log.addStructuredField(key, value);
+            if (PRIORITY_FIELDS.contains(key) && !(value instanceof Map) && !(value instanceof List)) {
+                log.addMetadata(key, String.valueOf(value));
+            }
+        }
+        Object level = firstPresent(fields, LEVEL_FIELDS);
+        if (level != null) {
+            log.assignLevel(LogLevel.parse(String.valueOf(level)));
+        }
+        Object timestamp = firstPresent(fields, TIMESTAMP_FIELDS);
+        if (timestamp != null) {
+            log.addMetadata("timestamp", standardizeTimestamp(timestamp));
+            long eventTime = eventTimeOf(log, timestamp);
+            if (eventTime != TimestampParser.NOT_FOUND) {
+                log.assignEventTime(eventTime);
+            }
+        }
+        log.addMetadata("codec", codec.getName());
+        // 添加预处理元信息
+        log.addMetadata("preprocessed", "true");
+        log.addMetadata("preprocessedAt", String.valueOf(System.currentTimeMillis()));
+        log.addMetadata("preprocessDuration", String.valueOf(System.currentTimeMillis() - startTime));
+    }
+
+    private void markUnresolved(ProcessedLog log) {
+        codecRegistry.recordUnresolved(1);
+        log.markValidationFailed(getSupportedFormat() + "格式日志未配置编解码器");
+    }
+
+    private void markFailed(ProcessedLog log, ILogCodec codec, RuntimeException e) {
+        log.markValidationFailed("解码失败(" + codec.getName() + "): " + e.getMessage());
+        log.warn("解码失败: codec=" + codec.getName() + ", error=" + e.getMessage());
+    }
+
+    private static Object firstPresent(Map<String, Object> fields, List<String> names) {
+        for (String name : names) {
+            Object value = fields.get(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 事件时间（毫秒时间戳）：整数按量级识别单位，字符串交给时间戳解析器
+     */
+    private long eventTimeOf(ProcessedLog log, Object timestamp) {
+        if (timestamp instanceof Long) {
+            return TimestampParser.epochMillisOf((Long) timestamp);
+        }
+        if (timestamp instanceof Double) {
+            return (long) ((Double) timestamp * 1000);
+        }
+        if (timestamp instanceof String) {
+            return timestampParser.parse(log.getEndpointId() + ":" + log.getSourceId(), (String) timestamp);
+        }
+        return TimestampParser.NOT_FOUND;
+    }
+
+    /**
+     * 标准化时间戳：整数按量级识别为秒或毫秒，其余原样保留
+     */
+    private static String standardizeTimestamp(Object timestamp) {
+        if (timestamp instanceof Long) {
+            long value = (Long) timestamp;
+            Instant instant = value < 100_000_000_000L ? Instant.ofEpochSecond(value) : Instant.ofEpochMilli(value);
+            return DateTimeFormatter.ISO_INSTANT.format(instant);
+        }
+        if (timestamp instanceof Double) {
+            long millis = (long) ((Double) timestamp * 1000);
+            return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(millis));
+        }
+        return String.valueOf(timestamp);
+    }
+
+}
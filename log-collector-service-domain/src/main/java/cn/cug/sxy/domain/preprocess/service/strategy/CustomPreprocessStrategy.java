@@ -0,0 +1,34 @@
+package cn.cug.sxy.domain.preprocess.service.strategy;
+
+import cn.cug.sxy.domain.preprocess.service.codec.LogCodecRegistry;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/25 17:55
+ * @Description 自定义格式日志预处理策略（将日志内容按UTF-8编码为载荷）
+ * @Author jerryhotton
+ */
+
+@Component
+public class CustomPreprocessStrategy extends CodecPreprocessStrategy {
+
+    public CustomPreprocessStrategy(LogCodecRegistry codecRegistry, TimestampParser timestampParser) {
+        super(LogFormat.CUSTOM, codecRegistry, timestampParser);
+    }
+
+    @Override
+    protected ByteBuffer payloadOf(ProcessedLog log) {
+        if (log.getContent() == null || log.getContent().isEmpty()) {
+            throw new IllegalArgumentException("日志内容为空");
+        }
+        return ByteBuffer.wrap(log.getContent().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
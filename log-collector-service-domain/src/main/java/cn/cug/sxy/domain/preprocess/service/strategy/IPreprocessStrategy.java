@@ -41,4 +41,11 @@ public interface IPreprocessStrategy {
      * @return 是否支持批量处理
      */
     boolean supportsBatchProcessing();
+
+    /**
+     * 是否线程安全（可在多个线程中同时处理不同的日志），线程安全的策略由预处理服务分片并行执行
+     *
+     * @return 是否线程安全
+     */
+    boolean isThreadSafe();
 }
\ No newline at end of file
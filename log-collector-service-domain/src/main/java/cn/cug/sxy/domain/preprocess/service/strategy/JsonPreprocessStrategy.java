@@ -1,21 +1,25 @@
 package cn.cug.sxy.domain.preprocess.service.strategy;
 
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
 import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
 import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * @version 1.0
  * @Date 2025/7/9 13:55
- * @Description JSON格式日志预处理策略
+ * @Description JSON格式日志预处理策略（基于流式解析器单次遍历令牌，同时完成字段提取和结构化字段平展，不构建中间树）
  * @Author jerryhotton
  */
 
@@ -23,62 +27,61 @@ import java.util.regex.Pattern;
 @Component
 public class JsonPreprocessStrategy extends AbstractPreprocessStrategy {
 
-    private final ObjectMapper objectMapper;
-    private final List<String> priorityFields; // 重要字段列表
-    private final Pattern timestampPattern; // 用于识别时间戳字段的正则表达式
+    /**
+     * 日志级别字段名（按优先级排列）
+     */
+    private static final List<String> LEVEL_FIELDS = List.of("level", "severity", "loglevel");
+    /**
+     * 异常字段名（按优先级排列）
+     */
+    private static final List<String> EXCEPTION_FIELDS = List.of("exception", "error", "throwable", "stacktrace");
+    /**
+     * 时间戳字段名（小写，忽略大小写匹配）
+     */
+    private static final Set<String> TIMESTAMP_FIELDS = Set.of(
+            "timestamp", "time", "date", "dt", "created", "created_at", "createdat");
+
+    private final JsonFactory jsonFactory;
+    private final TimestampParser timestampParser;
+    private final Set<String> priorityFields; // 重要字段列表
+    private final Set<String> priorityFieldsLowerCase; // 重要字段列表（小写，用于嵌套字段忽略大小写匹配）
 
-    public JsonPreprocessStrategy(ObjectMapper objectMapper) {
+    public JsonPreprocessStrategy(ObjectMapper objectMapper, TimestampParser timestampParser) {
         super(LogFormat.JSON);
-        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.timestampParser = timestampParser;
         // 初始化重要字段列表
-        this.priorityFields = new ArrayList<>();
-        this.priorityFields.add("timestamp");
-        this.priorityFields.add("time");
-        this.priorityFields.add("date");
-        this.priorityFields.add("level");
-        this.priorityFields.add("severity");
-        this.priorityFields.add("message");
-        this.priorityFields.add("msg");
-        this.priorityFields.add("logger");
-        this.priorityFields.add("thread");
-        this.priorityFields.add("className");
-        this.priorityFields.add("methodName");
-        this.priorityFields.add("lineNumber");
-        this.priorityFields.add("exception");
-        this.priorityFields.add("error");
-        // 用于识别时间戳字段的正则表达式
-        this.timestampPattern = Pattern.compile("(?i)(timestamp|time|date|dt|created|created_at|createdAt)");
+        this.priorityFields = new HashSet<>(Arrays.asList(
+                "timestamp", "time", "date", "level", "severity", "message", "msg", "logger", "thread",
+                "className", "methodName", "lineNumber", "exception", "error"));
+        this.priorityFieldsLowerCase = new HashSet<>();
+        for (String field : priorityFields) {
+            this.priorityFieldsLowerCase.add(field.toLowerCase());
+        }
     }
 
     @Override
     public void process(ProcessedLog log) {
-        try {
-            long startTime = System.currentTimeMillis();
-            // 解析JSON内容
-            JsonNode rootNode = objectMapper.readTree(log.getContent());
-            // 提取关键字段到元数据
-            Map<String, String> extractedFields = extractFields(rootNode);
+        long startTime = System.currentTimeMillis();
+        try (JsonParser parser = jsonFactory.createParser(log.getContent())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                // 非对象JSON（数组或标量）无法提取字段，保留原始内容
+                fallbackProcessing(log);
+                return;
+            }
+            // 单次遍历：提取字段到元数据，平展结构化字段，同时收集级别、时间戳和异常
+            ParseState state = new ParseState();
+            walkObject(parser, null, 0, state, null, log);
             // 将提取的字段添加到元数据中
-            for (Map.Entry<String, String> entry : extractedFields.entrySet()) {
+            for (Map.Entry<String, String> entry : state.extractedFields.entrySet()) {
                 log.addMetadata(entry.getKey(), entry.getValue());
             }
-            // 智能提取和标准化重要字段
-            extractAndStandardizeImportantFields(rootNode, log);
-            // 添加结构化字段
-            try {
-                // 将整个JSON添加为结构化字段
-                @SuppressWarnings("unchecked")
-                Map<String, Object> jsonMap = objectMapper.convertValue(rootNode, Map.class);
-                flattenJsonMap(jsonMap, "", log);
-                // 添加预处理元信息
-                log.addMetadata("preprocessed", "true");
-                log.addMetadata("preprocessedAt", String.valueOf(System.currentTimeMillis()));
-                log.addMetadata("preprocessDuration", String.valueOf(System.currentTimeMillis() - startTime));
-            } catch (Exception e) {
-                log.warn("无法将JSON解析为Map: " + e.getMessage());
-                // 在失败的情况下，尝试更简单的处理方式
-                fallbackProcessing(rootNode, log);
-            }
+            // 标准化重要字段
+            applyImportantFields(state, log);
+            // 添加预处理元信息
+            log.addMetadata("preprocessed", "true");
+            log.addMetadata("preprocessedAt", String.valueOf(System.currentTimeMillis()));
+            log.addMetadata("preprocessDuration", String.valueOf(System.currentTimeMillis() - startTime));
         } catch (Exception e) {
             log.markValidationFailed("JSON解析失败: " + e.getMessage());
             log.error("JSON预处理失败: {}", e.getMessage(), e);
@@ -86,254 +89,180 @@ public class JsonPreprocessStrategy extends AbstractPreprocessStrategy {
     }
 
     /**
-     * 平展JSON Map并添加到结构化字段中
-     * 处理嵌套对象，将它们展平为点分隔的键
+     * 遍历JSON对象（解析器位于START_OBJECT之后），处理到对应的END_OBJECT为止
+     * 嵌套对象平展为点分隔的键，数组序列化为JSON字符串
+     *
+     * @param parser  解析器
+     * @param prefix  当前对象路径，根对象为null
+     * @param depth   当前对象深度，根对象为0
+     * @param state   解析状态
+     * @param capture 需要同时序列化当前对象时的生成器（根级异常对象），否则为null
+     * @param log     日志
      */
-    private void flattenJsonMap(Map<String, Object> jsonMap, String prefix, ProcessedLog log) {
-        for (Map.Entry<String, Object> entry : jsonMap.entrySet()) {
-            String key = prefix.isEmpty() ? entry.getKey() : prefix + "." + entry.getKey();
-            Object value = entry.getValue();
-
-            if (value instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> nestedMap = (Map<String, Object>) value;
-                flattenJsonMap(nestedMap, key, log);
-            } else if (value instanceof List) {
-                // 对于列表，我们可以将其转换为JSON字符串或者单独处理每个元素
-                try {
-                    String jsonArray = objectMapper.writeValueAsString(value);
-                    log.addStructuredField(key, jsonArray);
-                } catch (Exception e) {
-                    log.warn("无法序列化数组字段 " + key + ": " + e.getMessage());
-                    log.addStructuredField(key, value.toString());
+    private void walkObject(JsonParser parser, String prefix, int depth, ParseState state,
+                            JsonGenerator capture, ProcessedLog log) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+            if (token != JsonToken.FIELD_NAME) {
+                throw new IOException("意外的JSON令牌: " + token);
+            }
+            String key = parser.currentName();
+            if (capture != null) {
+                capture.copyCurrentEvent(parser);
+            }
+            String path = prefix == null ? key : prefix + "." + key;
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT) {
+                walkNestedObject(parser, key, path, depth, state, capture, log);
+            } else if (value == JsonToken.START_ARRAY) {
+                // 数组整体序列化为JSON字符串
+                String arrayJson = copyStructure(parser);
+                log.addStructuredField(path, arrayJson);
+                if (capture != null) {
+                    capture.writeRawValue(arrayJson);
                 }
             } else {
-                // 对于基本类型的值，直接添加
-                log.addStructuredField(key, value);
+                if (capture != null) {
+                    capture.copyCurrentEvent(parser);
+                }
+                handleScalar(parser, value, key, path, depth, state, log);
             }
         }
-    }
-
-    /**
-     * 智能提取和标准化重要字段
-     */
-    private void extractAndStandardizeImportantFields(JsonNode rootNode, ProcessedLog log) {
-        // 查找并标准化日志级别
-        String level = findLogLevel(rootNode);
-        if (level != null) {
-            log.addMetadata("level", standardizeLogLevel(level));
-        }
-        // 查找并标准化时间戳
-        String timestamp = findTimestamp(rootNode);
-        if (timestamp != null) {
-            log.addMetadata("timestamp", standardizeTimestamp(timestamp));
+        if (capture != null) {
+            capture.copyCurrentEvent(parser);
         }
-        // 提取异常信息
-        extractExceptionInfo(rootNode, log);
     }
 
     /**
-     * 查找日志级别字段
+     * 遍历嵌套对象，根级异常对象同时序列化为JSON字符串
      */
-    private String findLogLevel(JsonNode rootNode) {
-        // 常见的日志级别字段名
-        String[] levelFieldNames = {"level", "severity", "loglevel"};
-        for (String fieldName : levelFieldNames) {
-            JsonNode levelNode = rootNode.get(fieldName);
-            if (levelNode != null && levelNode.isTextual()) {
-                return levelNode.asText();
+    private void walkNestedObject(JsonParser parser, String key, String path, int depth, ParseState state,
+                                  JsonGenerator capture, ProcessedLog log) throws IOException {
+        int exceptionRank = depth == 0 ? EXCEPTION_FIELDS.indexOf(key) : -1;
+        if (exceptionRank < 0 || exceptionRank >= state.exceptionRank) {
+            if (capture != null) {
+                capture.copyCurrentEvent(parser);
             }
+            walkObject(parser, path, depth + 1, state, capture, log);
+            return;
         }
-        // 递归搜索嵌套字段
-        Iterator<Map.Entry<String, JsonNode>> fields = rootNode.fields();
-        while (fields.hasNext()) {
-            Map.Entry<String, JsonNode> field = fields.next();
-            if (field.getValue().isObject()) {
-                String level = findLogLevel(field.getValue());
-                if (level != null) {
-                    return level;
-                }
-            }
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator exceptionCapture = jsonFactory.createGenerator(writer)) {
+            exceptionCapture.copyCurrentEvent(parser);
+            walkObject(parser, path, depth + 1, state, exceptionCapture, log);
         }
-
-        return null;
+        state.exception = writer.toString();
+        state.exceptionRank = exceptionRank;
     }
 
     /**
-     * 标准化日志级别
+     * 处理标量字段
      */
-    private String standardizeLogLevel(String level) {
-        level = level.toUpperCase();
-        // 标准化不同格式的日志级别
-        if (level.contains("WARN")) return "WARN";
-        if (level.contains("ERR")) return "ERROR";
-        if (level.contains("INFO")) return "INFO";
-        if (level.contains("DEBUG")) return "DEBUG";
-        if (level.contains("TRACE")) return "TRACE";
-        if (level.contains("FATAL")) return "FATAL";
-
-        return level;
-    }
-
-    /**
-     * 查找时间戳字段
-     */
-    private String findTimestamp(JsonNode rootNode) {
-        Iterator<Map.Entry<String, JsonNode>> fields = rootNode.fields();
-        while (fields.hasNext()) {
-            Map.Entry<String, JsonNode> field = fields.next();
-            String fieldName = field.getKey();
-            JsonNode value = field.getValue();
-            // 检查字段名是否匹配时间戳模式
-            if (timestampPattern.matcher(fieldName).matches()) {
-                if (value.isTextual() || value.isNumber()) {
-                    return value.asText();
-                }
-            }
-            // 递归检查嵌套对象
-            if (value.isObject()) {
-                String timestamp = findTimestamp(value);
-                if (timestamp != null) {
-                    return timestamp;
-                }
+    private void handleScalar(JsonParser parser, JsonToken value, String key, String path, int depth,
+                              ParseState state, ProcessedLog log) throws IOException {
+        String text = parser.getText();
+        // 结构化字段保留原始类型
+        log.addStructuredField(path, scalarValue(parser, value));
+        String lowerKey = key.toLowerCase();
+        if (depth == 0) {
+            // 一级字段添加带前缀的版本，重要字段额外添加不带前缀的版本
+            state.extractedFields.put("json." + key, text);
+            if (priorityFields.contains(lowerKey)) {
+                state.extractedFields.put(key, text);
             }
+        } else if (priorityFieldsLowerCase.contains(lowerKey)) {
+            // 嵌套字段中的重要信息
+            state.extractedFields.put("json." + path, text);
         }
-
-        return null;
-    }
-
-    /**
-     * 标准化时间戳格式
-     */
-    private String standardizeTimestamp(String timestamp) {
-        // 如果是13位纯数字，毫秒时间戳
-        if (timestamp.matches("\\d{13}")) {
-            long ms = Long.parseLong(timestamp);
-            Instant instant = Instant.ofEpochMilli(ms);
-            return DateTimeFormatter.ISO_INSTANT.format(instant);
+        boolean textual = value == JsonToken.VALUE_STRING;
+        // 日志级别：一级字段按优先级选取，其次取第一个嵌套的级别字段
+        int levelRank = LEVEL_FIELDS.indexOf(key);
+        if (levelRank >= 0 && textual) {
+            if (depth == 0 && levelRank < state.levelRank) {
+                state.level = text;
+                state.levelRank = levelRank;
+            } else if (depth > 0 && state.nestedLevel == null) {
+                state.nestedLevel = text;
+            }
         }
-        // 如果是10位纯数字，秒级时间戳
-        if (timestamp.matches("\\d{10}")) {
-            long s = Long.parseLong(timestamp);
-            Instant instant = Instant.ofEpochSecond(s);
-            return DateTimeFormatter.ISO_INSTANT.format(instant);
+        // 时间戳：文档顺序中第一个匹配的文本或数字字段
+        if (state.timestamp == null && (textual || value.isNumeric()) && TIMESTAMP_FIELDS.contains(lowerKey)) {
+            state.timestamp = text;
         }
-
-        return timestamp;
-    }
-
-    /**
-     * 提取异常信息
-     */
-    private void extractExceptionInfo(JsonNode rootNode, ProcessedLog log) {
-        // 常见的异常字段名
-        String[] exceptionFieldNames = {"exception", "error", "throwable", "stacktrace"};
-        for (String fieldName : exceptionFieldNames) {
-            JsonNode exNode = rootNode.get(fieldName);
-            if (exNode != null) {
-                if (exNode.isTextual()) {
-                    log.addStructuredField("exception", exNode.asText());
-                    return;
-                } else if (exNode.isObject()) {
-                    try {
-                        log.addStructuredField("exception", objectMapper.writeValueAsString(exNode));
-                        return;
-                    } catch (Exception e) {
-                        log.warn("无法序列化异常对象: " + e.getMessage());
-                    }
-                }
+        if (depth == 0 && textual) {
+            // 异常信息：一级文本字段按优先级选取
+            int exceptionRank = EXCEPTION_FIELDS.indexOf(key);
+            if (exceptionRank >= 0 && exceptionRank < state.exceptionRank) {
+                state.exception = text;
+                state.exceptionRank = exceptionRank;
             }
-        }
-        // 检查message字段中是否包含异常信息
-        JsonNode msgNode = rootNode.get("message");
-        if (msgNode != null && msgNode.isTextual()) {
-            String message = msgNode.asText();
-            if (message.contains("Exception") || message.contains("Error:")) {
-                log.addStructuredField("possibleException", message);
+            if ("message".equals(key)) {
+                state.message = text;
             }
         }
     }
 
     /**
-     * 从JSON中提取关键字段
+     * 将解析器当前所在的数组或对象原样复制为JSON字符串
      */
-    private Map<String, String> extractFields(JsonNode rootNode) {
-        Map<String, String> fields = new HashMap<>();
-
-        // 提取一级字段
-        Iterator<Map.Entry<String, JsonNode>> fieldsIterator = rootNode.fields();
-        while (fieldsIterator.hasNext()) {
-            Map.Entry<String, JsonNode> field = fieldsIterator.next();
-            String key = field.getKey();
-            JsonNode value = field.getValue();
-
-            // 优先提取重要字段
-            if (priorityFields.contains(key.toLowerCase()) && value.isValueNode()) {
-                fields.put(key, value.asText());
-                // 添加带前缀的版本
-                fields.put("json." + key, value.asText());
-            }
-            // 对于其他简单类型字段，只添加带前缀的版本
-            else if (value.isValueNode()) {
-                fields.put("json." + key, value.asText());
-            }
+    private String copyStructure(JsonParser parser) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
         }
+        return writer.toString();
+    }
 
-        // 递归提取嵌套字段中的重要信息
-        for (String priorityField : priorityFields) {
-            extractNestedFieldRecursive(rootNode, priorityField, "", fields);
+    private Object scalarValue(JsonParser parser, JsonToken value) throws IOException {
+        switch (value) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
         }
-
-        return fields;
     }
 
     /**
-     * 递归提取嵌套字段
+     * 标准化并写入重要字段
      */
-    private void extractNestedFieldRecursive(JsonNode node, String targetField, String path, Map<String, String> fields) {
-        if (node.isObject()) {
-            Iterator<Map.Entry<String, JsonNode>> fieldsIterator = node.fields();
-            while (fieldsIterator.hasNext()) {
-                Map.Entry<String, JsonNode> field = fieldsIterator.next();
-                String key = field.getKey();
-                JsonNode value = field.getValue();
-
-                String currentPath = path.isEmpty() ? key : path + "." + key;
-
-                // 如果当前字段名匹配目标字段
-                if (key.equalsIgnoreCase(targetField) && value.isValueNode()) {
-                    fields.put("json." + currentPath, value.asText());
-                    // 如果是根路径下的重要字段，也添加不带前缀的版本
-                    if (path.isEmpty() && priorityFields.contains(key.toLowerCase())) {
-                        fields.put(key, value.asText());
-                    }
-                }
-
-                // 递归处理嵌套对象
-                if (value.isObject()) {
-                    extractNestedFieldRecursive(value, targetField, currentPath, fields);
-                }
+    private void applyImportantFields(ParseState state, ProcessedLog log) {
+        // 标准化日志级别
+        String level = state.level != null ? state.level : state.nestedLevel;
+        if (level != null) {
+            log.assignLevel(LogLevel.parse(level));
+        }
+        // 时间戳原样写入元数据，解析出的毫秒时间戳作为事件时间
+        if (state.timestamp != null) {
+            log.addMetadata("timestamp", state.timestamp);
+            long eventTime = timestampParser.parse(log.getEndpointId() + ":" + log.getSourceId(), state.timestamp);
+            if (eventTime != TimestampParser.NOT_FOUND) {
+                log.assignEventTime(eventTime);
             }
         }
+        // 异常信息
+        if (state.exception != null) {
+            log.addStructuredField("exception", state.exception);
+        } else if (state.message != null
+                && (state.message.contains("Exception") || state.message.contains("Error:"))) {
+            // 检查message字段中是否包含异常信息
+            log.addStructuredField("possibleException", state.message);
+        }
     }
 
     /**
-     * 当标准处理失败时的后备处理方法
+     * 非对象JSON的后备处理方法
      */
-    private void fallbackProcessing(JsonNode rootNode, ProcessedLog log) {
-        log.warn("使用后备方法处理JSON");
-
+    private void fallbackProcessing(ProcessedLog log) {
+        log.warn("JSON内容不是对象，使用后备方法处理");
         // 使用简单的字符串表示
-        log.addStructuredField("rawJson", rootNode.toString());
-
-        // 尝试提取基本字段
-        if (rootNode.has("message")) {
-            log.addStructuredField("message", rootNode.get("message").asText());
-        }
-
-        if (rootNode.has("level")) {
-            log.addStructuredField("level", rootNode.get("level").asText());
-        }
+        log.addStructuredField("rawJson", log.getContent());
     }
 
     @Override
@@ -342,9 +271,29 @@ public class JsonPreprocessStrategy extends AbstractPreprocessStrategy {
     }
 
     @Override
-    public void processBatch(List<ProcessedLog> logs) {
-        // 这里可以实现更高效的批量处理逻辑，例如使用线程池并行处理
-        logs.parallelStream().forEach(this::process);
+    public boolean isThreadSafe() {
+        // 解析状态都在单条日志内，JsonFactory可并发使用
+        return true;
+    }
+
+    /**
+     * 单条日志的解析状态
+     */
+    private static class ParseState {
+        // 提取到元数据的字段
+        private final Map<String, String> extractedFields = new HashMap<>();
+        // 一级级别字段及其优先级
+        private String level;
+        private int levelRank = Integer.MAX_VALUE;
+        // 第一个嵌套的级别字段
+        private String nestedLevel;
+        // 第一个时间戳字段
+        private String timestamp;
+        // 一级异常字段及其优先级
+        private String exception;
+        private int exceptionRank = Integer.MAX_VALUE;
+        // 一级message字段
+        private String message;
     }
 
-} 
\ No newline at end of file
+}
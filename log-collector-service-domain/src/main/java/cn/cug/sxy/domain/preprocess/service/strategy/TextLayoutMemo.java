@@ -0,0 +1,140 @@
+package cn.cug.sxy.domain.preprocess.service.strategy;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 14:20
+ * @Description 文本日志格式记忆（按来源记住最近匹配的日志格式并优先尝试，窗口内命中率过低时遗忘并重新学习）
+ * @Author jerryhotton
+ */
+
+public class TextLayoutMemo {
+
+    /**
+     * 最多记忆的来源数，超出时淘汰最久未访问的来源
+     */
+    private final int maxEntries;
+    /**
+     * 命中率统计窗口（次数）
+     */
+    private final int window;
+    /**
+     * 窗口内最低命中率，低于该值时遗忘记忆的格式
+     */
+    private final double minHitRate;
+
+    private final LinkedHashMap<String, MemoEntry> entries;
+
+    // 记忆统计
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder relearns = new LongAdder();
+
+    public TextLayoutMemo(int maxEntries, int window, double minHitRate) {
+        this.maxEntries = maxEntries;
+        this.window = window;
+        this.minHitRate = minHitRate;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MemoEntry> eldest) {
+                return size() > TextLayoutMemo.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取来源记忆的格式
+     *
+     * @param sourceKey 来源标识
+     * @return 格式名称，未记忆时返回null
+     */
+    public synchronized String preferredLayout(String sourceKey) {
+        MemoEntry entry = entries.get(sourceKey);
+        return entry == null ? null : entry.layout;
+    }
+
+    /**
+     * 记录一次格式识别结果
+     *
+     * @param sourceKey 来源标识
+     * @param preferred 识别前记忆的格式（可为null）
+     * @param matched   实际匹配的格式，不可记忆的格式传null
+     */
+    public void record(String sourceKey, String preferred, String matched) {
+        boolean hit = preferred != null && preferred.equals(matched);
+        if (hit) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        synchronized (this) {
+            MemoEntry entry = entries.get(sourceKey);
+            if (entry == null) {
+                if (matched != null) {
+                    entries.put(sourceKey, new MemoEntry(matched));
+                }
+                return;
+            }
+            if (entry.layout == null) {
+                // 重新学习：采用最新匹配的格式
+                entry.layout = matched;
+            }
+            if (hit) {
+                entry.windowHits++;
+            }
+            if (++entry.windowCount < window) {
+                return;
+            }
+            // 窗口结束，命中率过低时遗忘记忆的格式
+            if (entry.windowHits < window * minHitRate && entry.layout != null) {
+                entry.layout = null;
+                relearns.increment();
+            }
+            entry.windowCount = 0;
+            entry.windowHits = 0;
+        }
+    }
+
+    /**
+     * 获取记忆统计快照
+     */
+    public synchronized MemoStats getStats() {
+        return new MemoStats(entries.size(), hits.sum(), misses.sum(), relearns.sum());
+    }
+
+    /**
+     * 来源的记忆条目
+     */
+    private static class MemoEntry {
+        private String layout;
+        private int windowCount;
+        private int windowHits;
+
+        MemoEntry(String layout) {
+            this.layout = layout;
+        }
+    }
+
+    /**
+     * 格式记忆统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class MemoStats {
+        // 记忆的来源数
+        private final int sources;
+        // 记忆格式命中次数
+        private final long hits;
+        // 未命中次数（包括未记忆格式的识别）
+        private final long misses;
+        // 因命中率过低而重新学习的次数
+        private final long relearns;
+    }
+
+}
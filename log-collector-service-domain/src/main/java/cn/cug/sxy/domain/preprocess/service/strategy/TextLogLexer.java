@@ -0,0 +1,451 @@
+package cn.cug.sxy.domain.preprocess.service.strategy;
+
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 09:40
+ * @Description 文本日志快速词法分析器（对预定义格式单次扫描字符确定字段边界，结果与对应正则完全一致，无法确定时交由正则处理）
+ * @Author jerryhotton
+ */
+
+public final class TextLogLexer {
+
+    /**
+     * 不属于任何预定义格式（可确定正则也不会匹配）
+     */
+    public static final String NO_MATCH = "";
+
+    private TextLogLexer() {
+    }
+
+    /**
+     * 识别单行日志格式并提取字段
+     * <p>
+     * 行首为时间戳形状时只尝试时间戳类格式，失败时返回null，由正则按原顺序重新判断；
+     * 否则时间戳类正则必然不匹配，访问日志和键值对格式的判断是确定的
+     *
+     * @param line   日志行（已去除首尾空白）
+     * @param fields 提取的字段
+     * @return 格式名称；{@link #NO_MATCH} 表示不属于任何预定义格式；null 表示无法确定，需要走正则
+     */
+    public static String lex(String line, Map<String, String> fields) {
+        int length = line.length();
+        if (containsLineTerminator(line)) {
+            return null;
+        }
+        if (isLog4j2Timestamp(line)) {
+            return lexLog4j2(line, fields) ? "LOG4J2_PATTERN" : null;
+        }
+        if (isDateTime(line)) {
+            if (length > 19 && (line.charAt(19) == ',' || line.charAt(19) == '.')) {
+                return lexStandard(line, fields) ? "STANDARD" : null;
+            }
+            return lexSimple(line, fields) ? "SIMPLE" : null;
+        }
+        if (lexApache(line, fields)) {
+            return "APACHE_ACCESS";
+        }
+        if (lexNginx(line, fields)) {
+            return "NGINX_ACCESS";
+        }
+        if (lexKeyValue(line, fields)) {
+            return "KEY_VALUE";
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * 只尝试指定格式（用于优先尝试来源记忆的格式）
+     * <p>
+     * 各时间戳类格式的行首形状互斥，访问日志格式要求行首不是时间戳形状，
+     * 因此返回true时按固定顺序识别也必然得到该格式；返回false时需按完整顺序重新识别
+     *
+     * @param format 格式名称
+     * @param line   日志行（已去除首尾空白）
+     * @param fields 提取的字段，仅在返回true时写入
+     * @return 是否确定为该格式
+     */
+    public static boolean lexLayout(String format, String line, Map<String, String> fields) {
+        if (containsLineTerminator(line)) {
+            return false;
+        }
+        switch (format) {
+            case "LOG4J2_PATTERN":
+                return isLog4j2Timestamp(line) && lexLog4j2(line, fields);
+            case "STANDARD":
+                return isDateTime(line) && line.length() > 19
+                        && (line.charAt(19) == ',' || line.charAt(19) == '.') && lexStandard(line, fields);
+            case "SIMPLE":
+                return isDateTime(line) && lexSimple(line, fields);
+            case "APACHE_ACCESS":
+                return !startsWithTimestamp(line) && lexApache(line, fields);
+            case "NGINX_ACCESS":
+                return !startsWithTimestamp(line) && lexNginx(line, fields);
+            default:
+                // 键值对格式只在其他格式都不匹配时成立，无法单独判断
+                return false;
+        }
+    }
+
+    /**
+     * 是否以时间戳类格式的时间戳形状开头
+     */
+    public static boolean startsWithTimestamp(String line) {
+        return isLog4j2Timestamp(line) || isDateTime(line);
+    }
+
+    /**
+     * 正则中的 . 不匹配行终止符，包含时交由正则处理
+     */
+    private static boolean containsLineTerminator(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Log4j2格式: YY-MM-DD.HH:MM:SS.SSS [thread-name] LEVEL class-name serviceId -traceId message
+     */
+    private static boolean lexLog4j2(String line, Map<String, String> fields) {
+        int length = line.length();
+        int pos = skipSpaces(line, 21);
+        if (pos == 21 || pos >= length || line.charAt(pos) != '[') {
+            return false;
+        }
+        int threadEnd = line.indexOf(']', pos + 1);
+        if (threadEnd <= pos + 1) {
+            return false;
+        }
+        int levelStart = skipSpaces(line, threadEnd + 1);
+        if (levelStart == threadEnd + 1) {
+            return false;
+        }
+        int levelEnd = skipWordChars(line, levelStart);
+        int loggerStart = skipSpaces(line, levelEnd);
+        if (levelEnd == levelStart || loggerStart == levelEnd) {
+            return false;
+        }
+        int loggerEnd = skipNonSpaces(line, loggerStart);
+        int restStart = skipSpaces(line, loggerEnd);
+        if (loggerEnd == loggerStart || restStart == loggerEnd) {
+            return false;
+        }
+        // 可选的 "serviceId -"
+        String serviceId = null;
+        int pos2 = restStart;
+        int serviceEnd = skipNonSpaces(line, restStart);
+        int dashPos = skipSpaces(line, serviceEnd);
+        if (dashPos > serviceEnd && dashPos < length && line.charAt(dashPos) == '-') {
+            serviceId = line.substring(restStart, serviceEnd);
+            pos2 = dashPos + 1;
+        }
+        // 可选的 "traceId "
+        String traceId = null;
+        int traceEnd = skipNonSpaces(line, pos2);
+        int messageStart = skipSpaces(line, traceEnd);
+        if (messageStart > traceEnd) {
+            traceId = line.substring(pos2, traceEnd);
+        } else {
+            messageStart = pos2;
+        }
+        fields.put("timestamp", line.substring(0, 21));
+        fields.put("thread", line.substring(pos + 1, threadEnd));
+        fields.put("level", line.substring(levelStart, levelEnd));
+        fields.put("logger", line.substring(loggerStart, loggerEnd));
+        fields.put("serviceId", serviceId);
+        fields.put("traceId", traceId);
+        fields.put("message", line.substring(messageStart));
+        return true;
+    }
+
+    /**
+     * 标准日志格式: 2023-07-09 13:55:30,123 [thread-1] INFO com.example.Class - Log message
+     */
+    private static boolean lexStandard(String line, Map<String, String> fields) {
+        int length = line.length();
+        if (length < 23 || !isDigits(line, 20, 23)) {
+            return false;
+        }
+        int pos = skipSpaces(line, 23);
+        if (pos == 23 || pos >= length || line.charAt(pos) != '[') {
+            return false;
+        }
+        // 线程名为非贪婪匹配，取第一个 ]，后续不匹配时正则会尝试更靠后的 ]，交由正则处理
+        int threadEnd = line.indexOf(']', pos + 1);
+        if (threadEnd < 0) {
+            return false;
+        }
+        int levelStart = skipSpaces(line, threadEnd + 1);
+        if (levelStart == threadEnd + 1) {
+            return false;
+        }
+        int levelEnd = skipWordChars(line, levelStart);
+        int loggerStart = skipSpaces(line, levelEnd);
+        if (levelEnd == levelStart || loggerStart == levelEnd) {
+            return false;
+        }
+        int loggerEnd = skipNonSpaces(line, loggerStart);
+        int dashPos = skipSpaces(line, loggerEnd);
+        if (loggerEnd == loggerStart || dashPos == loggerEnd || dashPos >= length || line.charAt(dashPos) != '-') {
+            return false;
+        }
+        int messageStart = skipSpaces(line, dashPos + 1);
+        if (messageStart == dashPos + 1) {
+            return false;
+        }
+        fields.put("timestamp", line.substring(0, 23));
+        fields.put("thread", line.substring(pos + 1, threadEnd));
+        fields.put("level", line.substring(levelStart, levelEnd));
+        fields.put("logger", line.substring(loggerStart, loggerEnd));
+        fields.put("message", line.substring(messageStart));
+        return true;
+    }
+
+    /**
+     * 简单日志格式: 2023-07-09 13:55:30 INFO Log message
+     */
+    private static boolean lexSimple(String line, Map<String, String> fields) {
+        int levelStart = skipSpaces(line, 19);
+        if (levelStart == 19) {
+            return false;
+        }
+        int levelEnd = skipWordChars(line, levelStart);
+        int messageStart = skipSpaces(line, levelEnd);
+        if (levelEnd == levelStart || messageStart == levelEnd) {
+            return false;
+        }
+        fields.put("timestamp", line.substring(0, 19));
+        fields.put("level", line.substring(levelStart, levelEnd));
+        fields.put("message", line.substring(messageStart));
+        return true;
+    }
+
+    /**
+     * Apache访问日志格式: 127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] "GET /apache_pb.gif HTTP/1.0" 200 2326
+     */
+    private static boolean lexApache(String line, Map<String, String> fields) {
+        int length = line.length();
+        int ipEnd = skipNonSpaces(line, 0);
+        if (ipEnd == 0 || !charAt(line, ipEnd, ' ')) {
+            return false;
+        }
+        int identityEnd = skipNonSpaces(line, ipEnd + 1);
+        if (identityEnd == ipEnd + 1 || !charAt(line, identityEnd, ' ')) {
+            return false;
+        }
+        int userEnd = skipNonSpaces(line, identityEnd + 1);
+        if (userEnd == identityEnd + 1 || !charAt(line, userEnd, ' ') || !charAt(line, userEnd + 1, '[')) {
+            return false;
+        }
+        int tsStart = userEnd + 2;
+        int tsEnd = line.indexOf(']', tsStart);
+        if (tsEnd <= tsStart || !charAt(line, tsEnd + 1, ' ') || !charAt(line, tsEnd + 2, '"')) {
+            return false;
+        }
+        int requestStart = tsEnd + 3;
+        int requestEnd = line.indexOf('"', requestStart);
+        if (requestEnd < 0 || !charAt(line, requestEnd + 1, ' ')) {
+            return false;
+        }
+        int statusStart = requestEnd + 2;
+        int statusEnd = skipDigits(line, statusStart);
+        if (statusEnd == statusStart || !charAt(line, statusEnd, ' ')) {
+            return false;
+        }
+        int sizeEnd = skipDigits(line, statusEnd + 1);
+        if (sizeEnd == statusEnd + 1 || sizeEnd != length) {
+            return false;
+        }
+        fields.put("ip", line.substring(0, ipEnd));
+        fields.put("identity", line.substring(ipEnd + 1, identityEnd));
+        fields.put("user", line.substring(identityEnd + 1, userEnd));
+        fields.put("timestamp", line.substring(tsStart, tsEnd));
+        fields.put("request", line.substring(requestStart, requestEnd));
+        fields.put("status", line.substring(statusStart, statusEnd));
+        fields.put("size", line.substring(statusEnd + 1, sizeEnd));
+        return true;
+    }
+
+    /**
+     * Nginx访问日志格式: 127.0.0.1 - user [ts] "request" status size "referer" "user_agent"
+     */
+    private static boolean lexNginx(String line, Map<String, String> fields) {
+        int length = line.length();
+        int ipEnd = skipNonSpaces(line, 0);
+        if (ipEnd == 0 || !charAt(line, ipEnd, ' ') || !charAt(line, ipEnd + 1, '-') || !charAt(line, ipEnd + 2, ' ')) {
+            return false;
+        }
+        int userStart = ipEnd + 3;
+        int userEnd = skipNonSpaces(line, userStart);
+        if (userEnd == userStart || !charAt(line, userEnd, ' ') || !charAt(line, userEnd + 1, '[')) {
+            return false;
+        }
+        int tsStart = userEnd + 2;
+        int tsEnd = line.indexOf(']', tsStart);
+        if (tsEnd <= tsStart || !charAt(line, tsEnd + 1, ' ') || !charAt(line, tsEnd + 2, '"')) {
+            return false;
+        }
+        int requestStart = tsEnd + 3;
+        int requestEnd = line.indexOf('"', requestStart);
+        if (requestEnd < 0 || !charAt(line, requestEnd + 1, ' ')) {
+            return false;
+        }
+        int statusStart = requestEnd + 2;
+        int statusEnd = skipDigits(line, statusStart);
+        if (statusEnd == statusStart || !charAt(line, statusEnd, ' ')) {
+            return false;
+        }
+        int sizeStart = statusEnd + 1;
+        int sizeEnd = skipDigits(line, sizeStart);
+        if (sizeEnd == sizeStart || !charAt(line, sizeEnd, ' ') || !charAt(line, sizeEnd + 1, '"')) {
+            return false;
+        }
+        int refererStart = sizeEnd + 2;
+        int refererEnd = line.indexOf('"', refererStart);
+        if (refererEnd < 0 || !charAt(line, refererEnd + 1, ' ') || !charAt(line, refererEnd + 2, '"')) {
+            return false;
+        }
+        int agentStart = refererEnd + 3;
+        int agentEnd = line.indexOf('"', agentStart);
+        if (agentEnd != length - 1) {
+            return false;
+        }
+        fields.put("ip", line.substring(0, ipEnd));
+        fields.put("user", line.substring(userStart, userEnd));
+        fields.put("timestamp", line.substring(tsStart, tsEnd));
+        fields.put("request", line.substring(requestStart, requestEnd));
+        fields.put("status", line.substring(statusStart, statusEnd));
+        fields.put("size", line.substring(sizeStart, sizeEnd));
+        fields.put("referer", line.substring(refererStart, refererEnd));
+        fields.put("user_agent", line.substring(agentStart, agentEnd));
+        return true;
+    }
+
+    /**
+     * 键值对格式: key1=value1 key2="value with spaces" key3=value3
+     */
+    private static boolean lexKeyValue(String line, Map<String, String> fields) {
+        int length = line.length();
+        boolean found = false;
+        int pos = 0;
+        while (pos < length) {
+            if (!isWordChar(line.charAt(pos))) {
+                pos++;
+                continue;
+            }
+            int keyEnd = skipWordChars(line, pos);
+            if (keyEnd >= length || line.charAt(keyEnd) != '=') {
+                // 从单词中间开始同样在此处结束，不会匹配
+                pos = keyEnd;
+                continue;
+            }
+            String key = line.substring(pos, keyEnd);
+            int valueStart = keyEnd + 1;
+            int closingQuote = valueStart < length && line.charAt(valueStart) == '"'
+                    ? line.indexOf('"', valueStart + 1) : -1;
+            if (closingQuote > 0) {
+                fields.put(key, line.substring(valueStart + 1, closingQuote));
+                pos = closingQuote + 1;
+            } else {
+                int valueEnd = skipNonSpaces(line, valueStart);
+                fields.put(key, line.substring(valueStart, valueEnd));
+                pos = valueEnd;
+            }
+            found = true;
+        }
+        return found;
+    }
+
+    /**
+     * 是否以 YY-MM-DD.HH:MM:SS.SSS 开头
+     */
+    private static boolean isLog4j2Timestamp(String line) {
+        return line.length() >= 21
+                && isDigits(line, 0, 2) && line.charAt(2) == '-'
+                && isDigits(line, 3, 5) && line.charAt(5) == '-'
+                && isDigits(line, 6, 8) && line.charAt(8) == '.'
+                && isDigits(line, 9, 11) && line.charAt(11) == ':'
+                && isDigits(line, 12, 14) && line.charAt(14) == ':'
+                && isDigits(line, 15, 17) && line.charAt(17) == '.'
+                && isDigits(line, 18, 21);
+    }
+
+    /**
+     * 是否以 yyyy-MM-dd HH:mm:ss 开头
+     */
+    private static boolean isDateTime(String line) {
+        return line.length() >= 19
+                && isDigits(line, 0, 4) && line.charAt(4) == '-'
+                && isDigits(line, 5, 7) && line.charAt(7) == '-'
+                && isDigits(line, 8, 10) && isSpace(line.charAt(10))
+                && isDigits(line, 11, 13) && line.charAt(13) == ':'
+                && isDigits(line, 14, 16) && line.charAt(16) == ':'
+                && isDigits(line, 17, 19);
+    }
+
+    private static boolean charAt(String line, int index, char expected) {
+        return index < line.length() && line.charAt(index) == expected;
+    }
+
+    private static boolean isDigits(String line, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipSpaces(String line, int from) {
+        int i = from;
+        while (i < line.length() && isSpace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipNonSpaces(String line, int from) {
+        int i = from;
+        while (i < line.length() && !isSpace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWordChars(String line, int from) {
+        int i = from;
+        while (i < line.length() && isWordChar(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipDigits(String line, int from) {
+        int i = from;
+        while (i < line.length() && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 与正则 \s 一致
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * 与正则 \w 一致
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+}
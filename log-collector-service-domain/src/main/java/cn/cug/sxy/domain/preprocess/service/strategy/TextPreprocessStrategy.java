@@ -1,8 +1,14 @@
 package cn.cug.sxy.domain.preprocess.service.strategy;
 
+import cn.cug.sxy.domain.preprocess.service.grok.EndpointGrokRegistry;
+import cn.cug.sxy.domain.preprocess.service.grok.GrokPattern;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampMatch;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
 import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
 import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -20,9 +26,23 @@ import java.util.regex.Pattern;
 @Component
 public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
 
-    // 常见日志格式的正则表达式模式
+    // 常见日志格式的正则表达式模式（快速词法分析器无法确定时的后备）
     private static final List<LogPatternDefinition> LOG_PATTERNS = new ArrayList<>();
 
+    // 异常堆栈起始行
+    private static final Pattern EXCEPTION_LINE_PATTERN = Pattern.compile("^[a-zA-Z]+(\\.[a-zA-Z]+)*(Exception|Error|Throwable)(:\\s.*)?$");
+    // 异常类型和消息
+    private static final Pattern EXCEPTION_PATTERN = Pattern.compile("^([a-zA-Z]+(\\.[a-zA-Z]+)*(Exception|Error|Throwable))(:\\s*(.*))?$");
+    // 堆栈帧
+    private static final Pattern STACK_FRAME_PATTERN = Pattern.compile("\\s+at\\s+([^(]+)\\(([^:]+)(?::([0-9]+))?\\)");
+    // Caused by 异常
+    private static final Pattern CAUSED_BY_PATTERN = Pattern.compile("Caused by:\\s+([a-zA-Z]+(\\.[a-zA-Z]+)*(Exception|Error|Throwable))(:\\s*(.*))?");
+    // 嵌入的JSON对象及其键值对
+    private static final Pattern JSON_PATTERN = Pattern.compile("\\{[^{}]*((\\{[^{}]*\\})[^{}]*)*\\}");
+    private static final Pattern JSON_KEY_VALUE_PATTERN = Pattern.compile("\"([^\"]+)\"\\s*:\\s*(?:\"([^\"]*)\"|([\\d.]+)|true|false|null|\\{[^{}]*\\}|\\[[^\\[\\]]*\\])");
+    // 消息中的键值对
+    private static final Pattern KEY_VALUE_PAIR_PATTERN = Pattern.compile("(\\w+)=(?:\"([^\"]*)\"|([^\\s,}]+))");
+
     // 初始化常见日志格式的正则表达式
     static {
         // Log4j2格式: YY-MM-DD.HH:MM:SS.SSS [thread-name] LEVEL class-name serviceId -traceId message
@@ -62,8 +82,38 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
         ));
     }
 
-    public TextPreprocessStrategy() {
+    /**
+     * 按来源记忆的日志格式
+     */
+    private final TextLayoutMemo layoutMemo;
+
+    /**
+     * 端点配置的Grok模式
+     */
+    private final EndpointGrokRegistry grokRegistry;
+
+    /**
+     * 时间戳解析
+     */
+    private final TimestampParser timestampParser;
+
+    public TextPreprocessStrategy(
+            EndpointGrokRegistry grokRegistry,
+            TimestampParser timestampParser,
+            @Value("${log-center.preprocess.text.layout-memo.max-sources:4096}") int memoMaxSources,
+            @Value("${log-center.preprocess.text.layout-memo.window:128}") int memoWindow,
+            @Value("${log-center.preprocess.text.layout-memo.min-hit-rate:0.8}") double memoMinHitRate) {
         super(LogFormat.TEXT);
+        this.layoutMemo = new TextLayoutMemo(memoMaxSources, memoWindow, memoMinHitRate);
+        this.grokRegistry = grokRegistry;
+        this.timestampParser = timestampParser;
+    }
+
+    /**
+     * 获取按来源记忆日志格式的命中统计
+     */
+    public TextLayoutMemo.MemoStats getLayoutMemoStats() {
+        return layoutMemo.getStats();
     }
 
     @Override
@@ -81,7 +131,13 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
             List<String> stackTraceLines = (List<String>) parsedContent.get("stackTrace");
             // 尝试识别日志格式并提取字段
             Map<String, String> extractedFields = new HashMap<>();
-            String logFormat = identifyAndExtractFields(mainLogLine, extractedFields);
+            // 端点配置了Grok模式时优先使用，未匹配再按预定义格式识别
+            GrokPattern grokPattern = grokRegistry.patternFor(log.getEndpointId());
+            boolean grokMatched = grokPattern != null && grokPattern.match(mainLogLine, extractedFields);
+            if (grokPattern != null) {
+                grokRegistry.recordMatch(grokMatched);
+            }
+            String logFormat = grokMatched ? "GROK" : identifyAndExtractFields(mainLogLine, extractedFields, memoKey(log));
             // 添加格式信息到元数据
             log.addMetadata("text.format", logFormat);
             log.addMetadata("preprocessed", "true");
@@ -90,7 +146,8 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
             for (Map.Entry<String, String> entry : extractedFields.entrySet()) {
                 String key = "text." + entry.getKey();
                 log.addMetadata(key, entry.getValue());
-                log.addStructuredField(entry.getKey(), entry.getValue());
+                log.addStructuredField(entry.getKey(),
+                        grokMatched ? grokPattern.convert(entry.getKey(), entry.getValue()) : entry.getValue());
             }
             // 处理异常堆栈信息
             if (!stackTraceLines.isEmpty()) {
@@ -113,9 +170,9 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
     }
 
     @Override
-    public void processBatch(List<ProcessedLog> logs) {
-        // 批量处理文本日志
-        logs.parallelStream().forEach(this::process);
+    public boolean isThreadSafe() {
+        // 格式记忆和Grok注册表均可并发访问，其余状态都在单条日志内
+        return true;
     }
 
     /**
@@ -138,7 +195,7 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
                     mainLogLine = line;
                 }
                 // 检查是否为异常堆栈的开始（以异常类名开头）
-                if (line.matches("^[a-zA-Z]+(\\.[a-zA-Z]+)*(Exception|Error|Throwable)(:\\s.*)?$")) {
+                if (EXCEPTION_LINE_PATTERN.matcher(line).matches()) {
                     stackTraceStartIndex = i;
                     break;
                 }
@@ -155,6 +212,65 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
         return result;
     }
 
+    /**
+     * 识别日志格式并提取字段，优先尝试该来源记忆的格式
+     *
+     * @param content         日志内容
+     * @param extractedFields 提取的字段Map
+     * @param memoKey         来源标识
+     * @return 识别到的日志格式名称
+     */
+    private String identifyAndExtractFields(String content, Map<String, String> extractedFields, String memoKey) {
+        String preferred = layoutMemo.preferredLayout(memoKey);
+        if (preferred != null && tryPreferredLayout(preferred, content, extractedFields)) {
+            layoutMemo.record(memoKey, preferred, preferred);
+            return preferred;
+        }
+        String format = identifyAndExtractFields(content, extractedFields);
+        // 键值对和非结构化格式只能在其他格式都不匹配时确定，不记忆
+        boolean memorable = !"KEY_VALUE".equals(format) && !"UNSTRUCTURED".equals(format);
+        layoutMemo.record(memoKey, preferred, memorable ? format : null);
+        return format;
+    }
+
+    /**
+     * 只尝试记忆的格式，快速路径无法确定时使用该格式的正则
+     *
+     * @return 是否确定为该格式（按固定顺序识别也会得到同样结果）
+     */
+    private boolean tryPreferredLayout(String layout, String content, Map<String, String> extractedFields) {
+        if (TextLogLexer.lexLayout(layout, content, extractedFields)) {
+            return true;
+        }
+        boolean accessLayout = "APACHE_ACCESS".equals(layout) || "NGINX_ACCESS".equals(layout);
+        if (accessLayout && TextLogLexer.startsWithTimestamp(content)) {
+            // 时间戳类格式排在访问日志格式之前，需按完整顺序识别
+            return false;
+        }
+        for (LogPatternDefinition patternDef : LOG_PATTERNS) {
+            if (!patternDef.getName().equals(layout) || patternDef.getFieldNames().isEmpty()) {
+                continue;
+            }
+            Matcher matcher = patternDef.getPattern().matcher(content);
+            if (!matcher.matches()) {
+                return false;
+            }
+            List<String> fieldNames = patternDef.getFieldNames();
+            for (int i = 0; i < fieldNames.size(); i++) {
+                extractedFields.put(fieldNames.get(i), matcher.group(i + 1));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 来源标识：端点 + 来源ID
+     */
+    private String memoKey(ProcessedLog log) {
+        return log.getEndpointId() + ":" + log.getSourceId();
+    }
+
     /**
      * 识别日志格式并提取字段
      *
@@ -163,7 +279,28 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
      * @return 识别到的日志格式名称
      */
     private String identifyAndExtractFields(String content, Map<String, String> extractedFields) {
-        // 尝试匹配所有预定义的日志格式
+        // 快速路径：单次扫描确定字段边界
+        String lexedFormat = TextLogLexer.lex(content, extractedFields);
+        if (TextLogLexer.NO_MATCH.equals(lexedFormat)) {
+            return analyzeByLines(content, extractedFields);
+        }
+        if (lexedFormat != null) {
+            return lexedFormat;
+        }
+        // 快速路径无法确定时，依次尝试所有预定义的日志格式
+        String format = matchPredefinedLayouts(content, extractedFields);
+        // 如果没有匹配到预定义格式，尝试基于行分析
+        return format != null ? format : analyzeByLines(content, extractedFields);
+    }
+
+    /**
+     * 按固定顺序用正则尝试所有预定义的日志格式（快速路径的对照实现）
+     *
+     * @param content         日志内容
+     * @param extractedFields 提取的字段Map
+     * @return 匹配的格式名称，都不匹配时返回null
+     */
+    public static String matchPredefinedLayouts(String content, Map<String, String> extractedFields) {
         for (LogPatternDefinition patternDef : LOG_PATTERNS) {
             Matcher matcher = patternDef.getPattern().matcher(content);
             // 对于KEY_VALUE格式，使用特殊处理
@@ -190,9 +327,7 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
                 return patternDef.getName();
             }
         }
-
-        // 如果没有匹配到预定义格式，尝试基于行分析
-        return analyzeByLines(content, extractedFields);
+        return null;
     }
 
     /**
@@ -231,8 +366,7 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
         log.addStructuredField("containsException", true);
         // 提取异常类型和消息
         String firstLine = stackTraceLines.get(0);
-        Pattern exceptionPattern = Pattern.compile("^([a-zA-Z]+(\\.[a-zA-Z]+)*(Exception|Error|Throwable))(:\\s*(.*))?$");
-        Matcher matcher = exceptionPattern.matcher(firstLine);
+        Matcher matcher = EXCEPTION_PATTERN.matcher(firstLine);
 
         if (matcher.find()) {
             String exceptionType = matcher.group(1);
@@ -244,9 +378,11 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
         }
         // 提取堆栈信息
         List<Map<String, String>> stackFrames = new ArrayList<>();
-        Pattern stackFramePattern = Pattern.compile("\\s+at\\s+([^(]+)\\(([^:]+)(?::([0-9]+))?\\)");
         for (String line : stackTraceLines) {
-            Matcher frameMatcher = stackFramePattern.matcher(line);
+            if (!line.contains("at")) {
+                continue;
+            }
+            Matcher frameMatcher = STACK_FRAME_PATTERN.matcher(line);
             if (frameMatcher.find()) {
                 Map<String, String> frame = new HashMap<>();
                 frame.put("method", frameMatcher.group(1).trim());
@@ -259,9 +395,11 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
         }
         // 提取 Caused by 异常
         List<Map<String, String>> causedByExceptions = new ArrayList<>();
-        Pattern causedByPattern = Pattern.compile("Caused by:\\s+([a-zA-Z]+(\\.[a-zA-Z]+)*(Exception|Error|Throwable))(:\\s*(.*))?");
         for (String line : stackTraceLines) {
-            Matcher causedByMatcher = causedByPattern.matcher(line);
+            if (!line.contains("Caused by:")) {
+                continue;
+            }
+            Matcher causedByMatcher = CAUSED_BY_PATTERN.matcher(line);
             if (causedByMatcher.find()) {
                 Map<String, String> causedException = new HashMap<>();
                 causedException.put("type", causedByMatcher.group(1));
@@ -295,21 +433,22 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
      * @param extractedFields 已提取的字段
      */
     private void analyzeContent(ProcessedLog log, String content, Map<String, String> extractedFields) {
-        // 提取日志级别（如果尚未提取）
-        if (!extractedFields.containsKey("level")) {
+        // 提取日志级别：按格式提取到的级别覆盖客户端声明的级别，
+        // 按关键字识别的级别不够可靠，只在客户端未声明级别时使用
+        if (extractedFields.containsKey("level")) {
+            log.assignLevel(LogLevel.parse(extractedFields.get("level")));
+        } else {
             extractLogLevel(content, extractedFields);
+            if (log.getLevel() == null) {
+                log.assignLevel(LogLevel.parse(extractedFields.get("level")));
+            }
         }
 
-        // 提取时间戳（如果尚未提取）
-        if (!extractedFields.containsKey("timestamp")) {
-            extractTimestamp(content, extractedFields);
-        }
+        // 提取时间戳（如果尚未提取）并解析为事件时间
+        extractTimestamp(log, content, extractedFields);
 
         // 计算日志的统计信息
         calculateStatistics(log, content);
-
-        // 检测敏感信息
-        detectSensitiveInfo(log, content);
     }
 
     /**
@@ -331,27 +470,25 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
     }
 
     /**
-     * 提取时间戳
+     * 提取时间戳：已按格式提取时直接解析，否则在日志内容中查找
      *
+     * @param log             处理中的日志对象
      * @param content         日志内容
      * @param extractedFields 提取的字段Map
      */
-    private void extractTimestamp(String content, Map<String, String> extractedFields) {
-        // 常见的时间戳格式
-        List<Pattern> timestampPatterns = Arrays.asList(
-                Pattern.compile("\\d{2}-\\d{2}-\\d{2}\\.\\d{2}:\\d{2}:\\d{2}\\.\\d{3}"), // YY-MM-DD.HH:MM:SS.SSS
-                Pattern.compile("\\d{4}-\\d{2}-\\d{2}\\s\\d{2}:\\d{2}:\\d{2}[,.]\\d{3}"),
-                Pattern.compile("\\d{4}-\\d{2}-\\d{2}\\s\\d{2}:\\d{2}:\\d{2}"),
-                Pattern.compile("\\d{4}/\\d{2}/\\d{2}\\s\\d{2}:\\d{2}:\\d{2}"),
-                Pattern.compile("\\d{2}/\\w{3}/\\d{4}:\\d{2}:\\d{2}:\\d{2}")
-        );
-
-        for (Pattern pattern : timestampPatterns) {
-            Matcher matcher = pattern.matcher(content);
-            if (matcher.find()) {
-                extractedFields.put("timestamp", matcher.group());
-                return;
+    private void extractTimestamp(ProcessedLog log, String content, Map<String, String> extractedFields) {
+        String timestamp = extractedFields.get("timestamp");
+        if (timestamp != null) {
+            long eventTime = timestampParser.parse(memoKey(log), timestamp);
+            if (eventTime != TimestampParser.NOT_FOUND) {
+                log.assignEventTime(eventTime);
             }
+            return;
+        }
+        TimestampMatch match = timestampParser.find(memoKey(log), content);
+        if (match != null) {
+            extractedFields.put("timestamp", content.substring(match.getStart(), match.getEnd()));
+            log.assignEventTime(match.getEpochMillis());
         }
     }
 
@@ -362,12 +499,31 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
      * @param content 日志内容
      */
     private void calculateStatistics(ProcessedLog log, String content) {
-        // 计算行数
-        int lineCount = content.split("\\n").length;
+        // 单次扫描计算行数和单词数（与按换行符、空白拆分的计数一致）
+        int lineCount = 1;
+        int pendingNewlines = 0;
+        int wordCount = 0;
+        boolean inWord = false;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '\n') {
+                pendingNewlines++;
+            } else {
+                // 末尾的换行符不计入行数
+                lineCount += pendingNewlines;
+                pendingNewlines = 0;
+            }
+            boolean space = isWhitespace(c);
+            if (!space && !inWord) {
+                wordCount++;
+            }
+            inWord = !space;
+        }
+        if (wordCount > 0 && isWhitespace(content.charAt(0))) {
+            // 以空白开头时拆分结果包含一个空的首元素
+            wordCount++;
+        }
         log.addMetadata("text.lineCount", String.valueOf(lineCount));
-
-        // 计算单词数
-        int wordCount = content.split("\\s+").length;
         log.addMetadata("text.wordCount", String.valueOf(wordCount));
 
         // 计算字符数
@@ -375,64 +531,10 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
     }
 
     /**
-     * 检测敏感信息
-     *
-     * @param log     处理中的日志对象
-     * @param content 日志内容
+     * 是否为空白字符（与正则 \\s 一致）
      */
-    private void detectSensitiveInfo(ProcessedLog log, String content) {
-        // 检测IP地址
-        Pattern ipPattern = Pattern.compile("\\b(?:\\d{1,3}\\.){3}\\d{1,3}\\b");
-        Matcher ipMatcher = ipPattern.matcher(content);
-        if (ipMatcher.find()) {
-            log.addMetadata("text.containsIp", "true");
-            log.addStructuredField("containsIp", true);
-
-            // 收集所有IP地址
-            Set<String> ipAddresses = new HashSet<>();
-            do {
-                ipAddresses.add(ipMatcher.group());
-            } while (ipMatcher.find());
-
-            if (!ipAddresses.isEmpty()) {
-                log.addStructuredField("ipAddresses", ipAddresses);
-            }
-        }
-
-        // 检测邮箱地址
-        Pattern emailPattern = Pattern.compile("\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b");
-        Matcher emailMatcher = emailPattern.matcher(content);
-        if (emailMatcher.find()) {
-            log.addMetadata("text.containsEmail", "true");
-            log.addStructuredField("containsEmail", true);
-        }
-
-        // 检测URL
-        Pattern urlPattern = Pattern.compile("https?://\\S+");
-        Matcher urlMatcher = urlPattern.matcher(content);
-        if (urlMatcher.find()) {
-            log.addMetadata("text.containsUrl", "true");
-            log.addStructuredField("containsUrl", true);
-
-            // 收集所有URL
-            Set<String> urls = new HashSet<>();
-            do {
-                urls.add(urlMatcher.group());
-            } while (urlMatcher.find());
-
-            if (!urls.isEmpty()) {
-                log.addStructuredField("urls", urls);
-            }
-        }
-
-        // 检测用户ID
-        Pattern userIdPattern = Pattern.compile("user[Ii][Dd][\"']?\\s*[:=]\\s*[\"']?([\\w-]+)[\"']?");
-        Matcher userIdMatcher = userIdPattern.matcher(content);
-        if (userIdMatcher.find()) {
-            log.addMetadata("text.containsUserId", "true");
-            log.addStructuredField("containsUserId", true);
-            log.addStructuredField("userId", userIdMatcher.group(1));
-        }
+    private boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     /**
@@ -447,10 +549,8 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
         }
 
         // 尝试提取JSON对象
-        Pattern jsonPattern = Pattern.compile("\\{[^{}]*((\\{[^{}]*\\})[^{}]*)*\\}");
-        Matcher jsonMatcher = jsonPattern.matcher(message);
-
-        if (jsonMatcher.find()) {
+        Matcher jsonMatcher = JSON_PATTERN.matcher(message);
+        if (message.indexOf('{') >= 0 && jsonMatcher.find()) {
             String jsonStr = jsonMatcher.group();
             log.addMetadata("text.containsJson", "true");
             log.addStructuredField("embeddedJson", jsonStr);
@@ -458,8 +558,7 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
             // 提取JSON中的键值对
             try {
                 // 这里可以使用Jackson解析JSON，但为了减少依赖，使用简单的正则表达式
-                Pattern keyValuePattern = Pattern.compile("\"([^\"]+)\"\\s*:\\s*(?:\"([^\"]*)\"|([\\d.]+)|true|false|null|\\{[^{}]*\\}|\\[[^\\[\\]]*\\])");
-                Matcher kvMatcher = keyValuePattern.matcher(jsonStr);
+                Matcher kvMatcher = JSON_KEY_VALUE_PATTERN.matcher(jsonStr);
 
                 Map<String, String> jsonFields = new HashMap<>();
                 while (kvMatcher.find()) {
@@ -478,9 +577,10 @@ public class TextPreprocessStrategy extends AbstractPreprocessStrategy {
         }
 
         // 提取键值对
-        Pattern kvPattern = Pattern.compile("(\\w+)=(?:\"([^\"]*)\"|([^\\s,}]+))");
-        Matcher kvMatcher = kvPattern.matcher(message);
-
+        if (message.indexOf('=') < 0) {
+            return;
+        }
+        Matcher kvMatcher = KEY_VALUE_PAIR_PATTERN.matcher(message);
         Map<String, String> keyValuePairs = new HashMap<>();
         while (kvMatcher.find()) {
             String key = kvMatcher.group(1);
@@ -0,0 +1,463 @@
+package cn.cug.sxy.domain.preprocess.service.strategy;
+
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/25 14:10
+ * @Description XML格式日志预处理策略（基于StAX流式解析单次遍历事件，不构建DOM；
+ * 支持log4j XMLLayout、log4j2 XmlLayout、java.util.logging XMLFormatter及一般XML事件）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class XmlPreprocessStrategy extends AbstractPreprocessStrategy {
+
+    /**
+     * 元素最大嵌套深度，超出时视为非法日志
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * 每个线程复用一个已配置的工厂：禁用DTD和外部实体，合并相邻文本事件
+     */
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // log4j XMLLayout输出的 log4j: 前缀没有命名空间声明，按普通名称处理
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
+    });
+
+    private final TimestampParser timestampParser;
+
+    public XmlPreprocessStrategy(TimestampParser timestampParser) {
+        super(LogFormat.XML);
+        this.timestampParser = timestampParser;
+    }
+
+    @Override
+    public void process(ProcessedLog log) {
+        long startTime = System.currentTimeMillis();
+        String content = log.getContent();
+        if (content == null || content.isBlank()) {
+            log.markValidationFailed("日志内容为空");
+            return;
+        }
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.get().createXMLStreamReader(new StringReader(content));
+            ParseState state = new ParseState();
+            walk(reader, state);
+            // 提取的字段写入元数据和结构化字段
+            log.addMetadata("xml.root", state.root);
+            for (Map.Entry<String, String> entry : state.fields.entrySet()) {
+                log.addMetadata("xml." + entry.getKey(), entry.getValue());
+                log.addStructuredField(entry.getKey(), entry.getValue());
+            }
+            applyImportantFields(state, log);
+            // 添加预处理元信息
+            log.addMetadata("preprocessed", "true");
+            log.addMetadata("preprocessedAt", String.valueOf(System.currentTimeMillis()));
+            log.addMetadata("preprocessDuration", String.valueOf(System.currentTimeMillis() - startTime));
+        } catch (XMLStreamException | RuntimeException e) {
+            log.markValidationFailed("XML解析失败: " + e.getMessage());
+            log.error("XML预处理失败: {}", e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // 读取的是内存字符串，关闭失败无需处理
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsBatchProcessing() {
+        return true;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        // 工厂按线程复用，解析状态都在单条日志内
+        return true;
+    }
+
+    /**
+     * 遍历XML事件：根元素的属性和子元素直接作为字段，更深的元素以点分隔路径作为字段名，
+     * 异常元素（throwable/thrown/exception）整体组装为堆栈文本
+     */
+    private void walk(XMLStreamReader reader, ParseState state) throws XMLStreamException {
+        // 各层元素的字段路径，根元素为null
+        String[] paths = new String[MAX_DEPTH];
+        int depth = -1;
+        String text = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    if (++depth >= MAX_DEPTH) {
+                        throw new XMLStreamException("XML嵌套层级超过" + MAX_DEPTH);
+                    }
+                    text = null;
+                    String name = localName(reader.getLocalName());
+                    if (depth == 0) {
+                        state.root = name;
+                        paths[0] = null;
+                    } else {
+                        paths[depth] = paths[depth - 1] == null ? name : paths[depth - 1] + "." + name;
+                    }
+                    if (state.throwableDepth >= 0) {
+                        startInThrowable(reader, name, state);
+                    } else if (depth > 0 && isThrowableElement(name)) {
+                        state.throwableDepth = depth;
+                        state.throwable = new StringBuilder(256);
+                        startInThrowable(reader, name, state);
+                    } else {
+                        readAttributes(reader, name, depth, paths, state);
+                    }
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA: {
+                    if (!reader.isWhiteSpace()) {
+                        // 合并模式下一个文本节点通常只有一个事件，CDATA与普通文本相邻时再拼接
+                        text = text == null ? reader.getText() : text + reader.getText();
+                    }
+                    break;
+                }
+                case XMLStreamConstants.END_ELEMENT: {
+                    if (state.throwableDepth >= 0) {
+                        endInThrowable(localName(reader.getLocalName()), text, depth, state);
+                    } else if (text != null && depth > 0) {
+                        emit(paths[depth], text.trim(), depth, state);
+                    }
+                    text = null;
+                    depth--;
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 读取普通元素的属性：键值对元素（log4j的data、log4j2的item）按其键名展开，其余以 元素路径.属性名 作为字段名
+     */
+    private void readAttributes(XMLStreamReader reader, String name, int depth, String[] paths, ParseState state) {
+        int count = reader.getAttributeCount();
+        if (count == 0) {
+            return;
+        }
+        if (depth > 1 && ("data".equals(name) || "item".equals(name))) {
+            String key = attribute(reader, "name", "key");
+            String value = attribute(reader, "value", null);
+            if (key != null && value != null) {
+                // 上下文键值不参与重要字段识别
+                emit(paths[depth - 1] + "." + key, value, MAX_DEPTH, state);
+                return;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            String attrName = localName(reader.getAttributeLocalName(i));
+            if (depth == 0) {
+                if (!attrName.startsWith("xmlns")) {
+                    emit(attrName, reader.getAttributeValue(i), 1, state);
+                }
+            } else {
+                emit(paths[depth] + "." + attrName, reader.getAttributeValue(i), depth + 1, state);
+            }
+        }
+    }
+
+    /**
+     * 写入字段（重复出现时保留第一个），并按字段名最后一段识别前两层的重要字段
+     * （第二层用于兼容外层包装元素，如java.util.logging的 log/record）
+     *
+     * @param level 字段所在层级，根元素的属性和子元素为1
+     */
+    private void emit(String key, String value, int level, ParseState state) {
+        state.fields.putIfAbsent(key, value);
+        if (level > 2) {
+            return;
+        }
+        int dot = key.lastIndexOf('.');
+        String name = dot < 0 ? key : key.substring(dot + 1);
+        switch (name.toLowerCase()) {
+            case "level":
+            case "severity":
+                if (state.level == null) state.level = value;
+                break;
+            case "timestamp":
+            case "timemillis":
+            case "millis":
+                if (state.epochMillis == null) state.epochMillis = value;
+                break;
+            case "date":
+            case "time":
+                if (state.timestamp == null) state.timestamp = value;
+                break;
+            case "epochsecond":
+                state.epochSecond = value;
+                break;
+            case "nanoofsecond":
+                state.nanoOfSecond = value;
+                break;
+            case "logger":
+            case "loggername":
+                if (state.logger == null) state.logger = value;
+                break;
+            case "message":
+            case "msg":
+                if (state.message == null) state.message = value;
+                break;
+            case "thread":
+                if (state.thread == null) state.thread = value;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 异常元素内部的开始标签：带name属性的为异常（Cause为起因），带class和method属性的为堆栈帧
+     */
+    private void startInThrowable(XMLStreamReader reader, String name, ParseState state) {
+        if (reader.getAttributeCount() == 0) {
+            return;
+        }
+        String exceptionName = attribute(reader, "name", null);
+        if (exceptionName != null) {
+            if (state.throwable.length() > 0) {
+                state.throwable.append('\n');
+            }
+            if ("Cause".equalsIgnoreCase(name)) {
+                state.throwable.append("Caused by: ");
+            }
+            state.throwable.append(exceptionName);
+            String message = attribute(reader, "message", "localizedMessage");
+            if (message != null) {
+                state.throwable.append(": ").append(message);
+            }
+            return;
+        }
+        String frameClass = attribute(reader, "class", "declaringClass");
+        String frameMethod = attribute(reader, "method", "methodName");
+        if (frameClass != null && frameMethod != null) {
+            appendFrame(state.throwable, frameClass, frameMethod,
+                    attribute(reader, "file", "fileName"), attribute(reader, "line", "lineNumber"));
+        }
+    }
+
+    /**
+     * 异常元素内部的结束标签：收集异常消息、堆栈帧子元素（java.util.logging）和整段堆栈文本（log4j）
+     */
+    private void endInThrowable(String name, String text, int depth, ParseState state) {
+        if (depth == state.throwableDepth) {
+            if (text != null) {
+                if (state.throwable.length() > 0) {
+                    state.throwable.append('\n');
+                }
+                state.throwable.append(text.trim());
+            }
+            state.throwableDepth = -1;
+            return;
+        }
+        switch (name) {
+            case "message":
+                if (text != null) {
+                    if (state.throwable.length() > 0) {
+                        state.throwable.append('\n');
+                    }
+                    state.throwable.append(text.trim());
+                }
+                break;
+            case "class":
+                state.frameClass = text;
+                break;
+            case "method":
+                state.frameMethod = text;
+                break;
+            case "line":
+                state.frameLine = text;
+                break;
+            case "frame":
+                if (state.frameClass != null && state.frameMethod != null) {
+                    appendFrame(state.throwable, state.frameClass, state.frameMethod, null, state.frameLine);
+                }
+                state.frameClass = null;
+                state.frameMethod = null;
+                state.frameLine = null;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void appendFrame(StringBuilder throwable, String frameClass, String frameMethod, String file, String line) {
+        throwable.append("\n\tat ").append(frameClass).append('.').append(frameMethod).append('(');
+        if (file != null) {
+            throwable.append(file);
+            if (line != null) {
+                throwable.append(':');
+            }
+        }
+        if (line != null) {
+            throwable.append(line);
+        }
+        throwable.append(')');
+    }
+
+    /**
+     * 标准化并写入重要字段
+     */
+    private void applyImportantFields(ParseState state, ProcessedLog log) {
+        if (state.level != null) {
+            log.assignLevel(LogLevel.parse(state.level));
+        }
+        String timestamp = resolveTimestamp(state);
+        if (timestamp != null) {
+            log.addMetadata("timestamp", timestamp);
+        }
+        long eventTime = resolveEventTime(state, log);
+        if (eventTime != TimestampParser.NOT_FOUND) {
+            log.assignEventTime(eventTime);
+        }
+        if (state.logger != null) {
+            log.addStructuredField("logger", state.logger);
+        }
+        if (state.thread != null) {
+            log.addStructuredField("thread", state.thread);
+        }
+        if (state.message != null) {
+            log.addStructuredField("message", state.message);
+        }
+        if (state.throwable != null && state.throwable.length() > 0) {
+            String throwable = state.throwable.toString();
+            log.addStructuredField("throwable", throwable);
+            log.addMetadata("xml.hasException", "true");
+            int headerEnd = throwable.indexOf('\n');
+            String header = headerEnd < 0 ? throwable : throwable.substring(0, headerEnd);
+            int typeEnd = header.indexOf(':');
+            log.addMetadata("xml.exceptionType", (typeEnd < 0 ? header : header.substring(0, typeEnd)).trim());
+        }
+    }
+
+    /**
+     * 时间戳：毫秒时间戳优先，其次log4j2的Instant元素，最后为日期字符串
+     */
+    private String resolveTimestamp(ParseState state) {
+        if (state.epochMillis != null && isDigits(state.epochMillis)) {
+            return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(Long.parseLong(state.epochMillis)));
+        }
+        if (state.epochSecond != null && isDigits(state.epochSecond)) {
+            long nanos = state.nanoOfSecond != null && isDigits(state.nanoOfSecond) ? Long.parseLong(state.nanoOfSecond) : 0;
+            return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(Long.parseLong(state.epochSecond), nanos));
+        }
+        return state.timestamp;
+    }
+
+    /**
+     * 事件时间（毫秒时间戳），解析顺序同resolveTimestamp
+     */
+    private long resolveEventTime(ParseState state, ProcessedLog log) {
+        if (state.epochMillis != null && isDigits(state.epochMillis)) {
+            return Long.parseLong(state.epochMillis);
+        }
+        if (state.epochSecond != null && isDigits(state.epochSecond)) {
+            long nanos = state.nanoOfSecond != null && isDigits(state.nanoOfSecond) ? Long.parseLong(state.nanoOfSecond) : 0;
+            return Long.parseLong(state.epochSecond) * 1000 + nanos / 1_000_000;
+        }
+        if (state.timestamp != null) {
+            return timestampParser.parse(log.getEndpointId() + ":" + log.getSourceId(), state.timestamp);
+        }
+        return TimestampParser.NOT_FOUND;
+    }
+
+    private boolean isThrowableElement(String name) {
+        return "throwable".equalsIgnoreCase(name) || "thrown".equalsIgnoreCase(name) || "exception".equalsIgnoreCase(name);
+    }
+
+    /**
+     * 去掉名称的前缀（如 log4j:event -> event）
+     */
+    private String localName(String name) {
+        int colon = name.indexOf(':');
+        return colon < 0 ? name : name.substring(colon + 1);
+    }
+
+    /**
+     * 按名称读取属性（忽略前缀），可指定备选名称
+     */
+    private String attribute(XMLStreamReader reader, String name, String alternative) {
+        String found = null;
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attrName = localName(reader.getAttributeLocalName(i));
+            if (attrName.equals(name)) {
+                return reader.getAttributeValue(i);
+            }
+            if (found == null && attrName.equals(alternative)) {
+                found = reader.getAttributeValue(i);
+            }
+        }
+        return found;
+    }
+
+    private boolean isDigits(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 单条日志的解析状态
+     */
+    private static class ParseState {
+        private String root;
+        private final Map<String, String> fields = new LinkedHashMap<>();
+        private String level;
+        private String epochMillis;
+        private String epochSecond;
+        private String nanoOfSecond;
+        private String timestamp;
+        private String logger;
+        private String message;
+        private String thread;
+        // 异常元素所在层级，不在异常元素内时为-1
+        private int throwableDepth = -1;
+        private StringBuilder throwable;
+        // java.util.logging 堆栈帧的子元素
+        private String frameClass;
+        private String frameMethod;
+        private String frameLine;
+    }
+
+}
@@ -0,0 +1,567 @@
+package cn.cug.sxy.domain.preprocess.service.template;
+
+import cn.cug.sxy.domain.preprocess.adapter.repository.ILogTemplateRepository;
+import cn.cug.sxy.domain.preprocess.model.entity.LogTemplateEntity;
+import com.google.common.hash.Hashing;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 11:00
+ * @Description 日志模板在线挖掘（Drain算法：按应用和词元数分区，再按前若干个词元逐层下探的固定深度解析树，
+ * 叶子节点内按位置相似度匹配模板，不同位置泛化为 <*>；字典达到容量时淘汰最久未命中的模板）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class DrainTemplateMiner implements InitializingBean, DisposableBean {
+
+    /**
+     * 模板中的参数占位符
+     */
+    public static final String WILDCARD = "<*>";
+
+    private final ILogTemplateRepository templateRepository;
+
+    /**
+     * 是否启用模板挖掘
+     */
+    @Value("${log-center.preprocess.template.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 解析树深度（含根节点、词元数分区层和叶子层），按前 depth-3 个词元下探
+     */
+    @Value("${log-center.preprocess.template.depth:4}")
+    private int depth;
+
+    /**
+     * 相似度阈值，叶子节点内相似度不低于该值的模板视为匹配
+     */
+    @Value("${log-center.preprocess.template.similarity-threshold:0.5}")
+    private double similarityThreshold;
+
+    /**
+     * 内部节点最多子节点数，超出后新词元统一归入 <*> 子节点
+     */
+    @Value("${log-center.preprocess.template.max-children:100}")
+    private int maxChildren;
+
+    /**
+     * 模板字典容量，达到后淘汰最久未命中的模板
+     */
+    @Value("${log-center.preprocess.template.max-templates:50000}")
+    private int maxTemplates;
+
+    /**
+     * 字典已满时单次淘汰的模板比例，批量淘汰以分摊排序开销
+     */
+    @Value("${log-center.preprocess.template.eviction-ratio:0.1}")
+    private double evictionRatio;
+
+    /**
+     * 参与挖掘的消息最多词元数，超出的消息不挖掘
+     */
+    @Value("${log-center.preprocess.template.max-tokens:128}")
+    private int maxTokens;
+
+    /**
+     * 模板持久化间隔（毫秒），小于等于0时不持久化
+     */
+    @Value("${log-center.preprocess.template.persist-interval-ms:10000}")
+    private long persistIntervalMs;
+
+    /**
+     * 单次持久化的模板数
+     */
+    private static final int PERSIST_CHUNK_SIZE = 500;
+
+    /**
+     * 解析树第一层：应用ID + 词元数
+     */
+    private final Map<String, TreeNode> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * 模板字典：模板ID -> 模板
+     */
+    private final Map<String, TemplateCluster> templates = new ConcurrentHashMap<>();
+    private final AtomicInteger templateCount = new AtomicInteger();
+
+    /**
+     * 淘汰锁，同一时间只有一个线程执行淘汰
+     */
+    private final Object evictionLock = new Object();
+
+    /**
+     * 淘汰时仍有未持久化变更的模板，由持久化定时器写入
+     */
+    private final Queue<TemplateCluster> evictedDirty = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 持久化定时器
+     */
+    private final ScheduledExecutorService persister = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "log-template-persister");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 挖掘统计
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public DrainTemplateMiner(ILogTemplateRepository templateRepository) {
+        this.templateRepository = templateRepository;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 挖掘消息的模板并提取参数
+     *
+     * @param appId   应用ID
+     * @param message 日志消息
+     * @return 匹配结果，消息为空或词元过多时返回null
+     */
+    public TemplateMatch mine(String appId, String message) {
+        if (!enabled || message == null) {
+            return null;
+        }
+        List<String> tokens = tokenize(message);
+        if (tokens.isEmpty() || tokens.size() > maxTokens) {
+            skipped.increment();
+            return null;
+        }
+        String[] masked = new String[tokens.size()];
+        for (int i = 0; i < masked.length; i++) {
+            masked[i] = maskToken(tokens.get(i));
+        }
+        TreeNode leaf = descend(appId, masked);
+        // 先无锁匹配，未匹配时加锁复查再创建，避免并发创建重复模板
+        TemplateCluster cluster = bestMatch(leaf.clusters, masked);
+        if (cluster == null) {
+            synchronized (leaf) {
+                cluster = bestMatch(leaf.clusters, masked);
+                if (cluster == null) {
+                    cluster = createCluster(appId, masked, leaf);
+                    if (cluster == null) {
+                        rejected.increment();
+                        return null;
+                    }
+                    leaf.clusters.add(cluster);
+                    created.increment();
+                }
+            }
+        } else {
+            matched.increment();
+        }
+        return cluster.absorb(masked, tokens);
+    }
+
+    /**
+     * 按模板ID获取模板内容
+     *
+     * @param templateId 模板ID
+     * @return 模板内容，不存在时返回null
+     */
+    public String getTemplate(String templateId) {
+        TemplateCluster cluster = templates.get(templateId);
+        return cluster == null ? null : cluster.templateText();
+    }
+
+    /**
+     * 获取挖掘统计快照
+     */
+    public MinerStats getStats() {
+        return new MinerStats(templateCount.get(), matched.sum(), created.sum(), rejected.sum(), skipped.sum(),
+                evicted.sum());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            log.info("日志模板挖掘未启用");
+            return;
+        }
+        // 从持久化字典恢复解析树，保证重启后模板ID不变
+        try {
+            List<LogTemplateEntity> persisted = templateRepository.loadRecent(maxTemplates);
+            for (LogTemplateEntity entity : persisted) {
+                restore(entity);
+            }
+            log.info("日志模板字典已加载, 模板数: {}", templateCount.get());
+        } catch (Exception e) {
+            log.warn("加载日志模板字典失败，将从空字典开始学习: {}", e.getMessage());
+        }
+        if (persistIntervalMs > 0) {
+            persister.scheduleWithFixedDelay(this::persist, persistIntervalMs, persistIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("日志模板挖掘已启动, 深度: {}, 相似度阈值: {}, 字典容量: {}", depth, similarityThreshold, maxTemplates);
+    }
+
+    @Override
+    public void destroy() {
+        persister.shutdownNow();
+        if (enabled && persistIntervalMs > 0) {
+            // 关闭前写入最后一批变更
+            persist();
+        }
+    }
+
+    /**
+     * 沿解析树下探到叶子节点：应用ID + 词元数分区，再按前 depth-3 个词元逐层下探
+     */
+    private TreeNode descend(String appId, String[] masked) {
+        TreeNode node = partitions.computeIfAbsent(appId + ":" + masked.length, k -> new TreeNode());
+        int layers = Math.min(Math.max(depth - 3, 0), masked.length);
+        for (int i = 0; i < layers; i++) {
+            String token = masked[i];
+            TreeNode child = node.children.get(token);
+            if (child == null) {
+                // 子节点过多时新词元统一归入通配子节点，限制树的宽度
+                String key = node.children.size() >= maxChildren ? WILDCARD : token;
+                child = node.children.computeIfAbsent(key, k -> new TreeNode());
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * 在叶子节点中查找相似度最高且达到阈值的模板，相似度相同时优先参数更多（更泛化）的模板
+     */
+    private TemplateCluster bestMatch(List<TemplateCluster> clusters, String[] masked) {
+        TemplateCluster best = null;
+        double bestSimilarity = -1;
+        int bestWildcards = -1;
+        for (TemplateCluster cluster : clusters) {
+            String[] template = cluster.tokens;
+            if (template.length != masked.length) {
+                continue;
+            }
+            int same = 0;
+            int wildcards = 0;
+            for (int i = 0; i < template.length; i++) {
+                if (template[i] == WILDCARD) {
+                    wildcards++;
+                }
+                if (template[i].equals(masked[i])) {
+                    same++;
+                }
+            }
+            double similarity = (double) same / template.length;
+            if (similarity > bestSimilarity || (similarity == bestSimilarity && wildcards > bestWildcards)) {
+                best = cluster;
+                bestSimilarity = similarity;
+                bestWildcards = wildcards;
+            }
+        }
+        return best != null && bestSimilarity >= similarityThreshold ? best : null;
+    }
+
+    /**
+     * 创建新模板，字典已满时先淘汰最久未命中的模板，并发淘汰后仍无空间时返回null
+     */
+    private TemplateCluster createCluster(String appId, String[] masked, TreeNode leaf) {
+        if (templateCount.get() >= maxTemplates) {
+            evictLeastRecentlyHit();
+        }
+        if (templateCount.incrementAndGet() > maxTemplates) {
+            templateCount.decrementAndGet();
+            return null;
+        }
+        String[] template = masked.clone();
+        String templateId = generateTemplateId(appId, String.join(" ", template));
+        Instant now = Instant.now();
+        TemplateCluster cluster = new TemplateCluster(templateId, appId, template, 0, now, now, leaf);
+        templates.put(templateId, cluster);
+        return cluster;
+    }
+
+    /**
+     * 按最后命中时间淘汰一批模板，淘汰的模板从字典和所在叶子节点移除；
+     * 有未持久化变更的模板交给持久化定时器写入，持久化字典中的记录保留
+     */
+    private void evictLeastRecentlyHit() {
+        synchronized (evictionLock) {
+            if (templateCount.get() < maxTemplates) {
+                return;
+            }
+            List<TemplateCluster> candidates = new ArrayList<>(templates.values());
+            candidates.sort(Comparator.comparing(cluster -> cluster.lastSeenTime));
+            int target = Math.min(candidates.size(), Math.max(1, (int) (maxTemplates * evictionRatio)));
+            for (int i = 0; i < target; i++) {
+                TemplateCluster cluster = candidates.get(i);
+                if (templates.remove(cluster.templateId, cluster)) {
+                    cluster.leaf.clusters.remove(cluster);
+                    templateCount.decrementAndGet();
+                    evicted.increment();
+                    if (cluster.dirty.get()) {
+                        evictedDirty.offer(cluster);
+                    }
+                }
+            }
+            log.info("日志模板字典已满，淘汰最久未命中的模板: count={}", target);
+        }
+    }
+
+    /**
+     * 恢复持久化的模板到解析树
+     */
+    private void restore(LogTemplateEntity entity) {
+        if (templates.containsKey(entity.getTemplateId()) || templateCount.get() >= maxTemplates) {
+            return;
+        }
+        List<String> tokens = tokenize(entity.getTemplate());
+        if (tokens.isEmpty()) {
+            return;
+        }
+        String[] template = new String[tokens.size()];
+        for (int i = 0; i < template.length; i++) {
+            template[i] = WILDCARD.equals(tokens.get(i)) ? WILDCARD : tokens.get(i);
+        }
+        TreeNode leaf = descend(entity.getAppId(), template);
+        TemplateCluster cluster = new TemplateCluster(entity.getTemplateId(), entity.getAppId(), template,
+                entity.getOccurrences(), entity.getFirstSeenTime(), entity.getLastSeenTime(), leaf);
+        cluster.dirty.set(false);
+        templates.put(cluster.templateId, cluster);
+        templateCount.incrementAndGet();
+        leaf.clusters.add(cluster);
+    }
+
+    /**
+     * 持久化有变更的模板
+     */
+    private void persist() {
+        try {
+            List<TemplateCluster> changed = new ArrayList<>();
+            TemplateCluster evictedCluster;
+            while ((evictedCluster = evictedDirty.poll()) != null) {
+                if (evictedCluster.dirty.getAndSet(false)) {
+                    changed.add(evictedCluster);
+                }
+            }
+            for (TemplateCluster cluster : templates.values()) {
+                if (cluster.dirty.getAndSet(false)) {
+                    changed.add(cluster);
+                }
+            }
+            for (int from = 0; from < changed.size(); from += PERSIST_CHUNK_SIZE) {
+                List<TemplateCluster> chunk = changed.subList(from, Math.min(from + PERSIST_CHUNK_SIZE, changed.size()));
+                List<LogTemplateEntity> entities = new ArrayList<>(chunk.size());
+                for (TemplateCluster cluster : chunk) {
+                    entities.add(cluster.toEntity());
+                }
+                try {
+                    templateRepository.saveAll(entities);
+                } catch (Exception e) {
+                    // 保存失败的模板重新标记，下次继续持久化
+                    for (TemplateCluster cluster : chunk) {
+                        cluster.dirty.set(true);
+                    }
+                    log.warn("持久化日志模板失败: count={}, error={}", chunk.size(), e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error("持久化日志模板异常", e);
+        }
+    }
+
+    /**
+     * 模板ID：应用ID + 初始模板的哈希，冲突时加盐重算
+     */
+    private String generateTemplateId(String appId, String template) {
+        String seed = appId + "\u0000" + template;
+        for (int salt = 0; ; salt++) {
+            String id = Long.toHexString(Hashing.murmur3_128()
+                    .hashString(salt == 0 ? seed : seed + "\u0000" + salt, StandardCharsets.UTF_8).asLong());
+            if (!templates.containsKey(id)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * 按空白字符切分词元
+     */
+    private static List<String> tokenize(String message) {
+        List<String> tokens = new ArrayList<>();
+        int length = message.length();
+        int start = -1;
+        for (int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                if (start >= 0) {
+                    tokens.add(message.substring(start, i));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(message.substring(start));
+        }
+        return tokens;
+    }
+
+    /**
+     * 含数字的词元（ID、IP、耗时、时间等）直接视为参数，统一返回占位符常量实例，匹配时可按引用判断
+     */
+    private static String maskToken(String token) {
+        if (WILDCARD.equals(token)) {
+            return WILDCARD;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return WILDCARD;
+            }
+        }
+        return token;
+    }
+
+    /**
+     * 解析树节点，内部节点只使用子节点，叶子节点只使用模板列表
+     */
+    private static class TreeNode {
+        private final Map<String, TreeNode> children = new ConcurrentHashMap<>();
+        private final List<TemplateCluster> clusters = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * 模板（解析树叶子节点中的一类日志）
+     */
+    private static class TemplateCluster {
+        private final String templateId;
+        private final String appId;
+        // 模板词元，泛化时整体替换
+        private volatile String[] tokens;
+        private long occurrences;
+        private final Instant firstSeenTime;
+        private volatile Instant lastSeenTime;
+        private final AtomicBoolean dirty = new AtomicBoolean(true);
+        // 所在叶子节点，淘汰时从中移除
+        private final TreeNode leaf;
+
+        TemplateCluster(String templateId, String appId, String[] tokens, long occurrences,
+                        Instant firstSeenTime, Instant lastSeenTime, TreeNode leaf) {
+            this.templateId = templateId;
+            this.leaf = leaf;
+            this.appId = appId;
+            this.tokens = tokens;
+            this.occurrences = occurrences;
+            this.firstSeenTime = firstSeenTime != null ? firstSeenTime : Instant.now();
+            this.lastSeenTime = lastSeenTime != null ? lastSeenTime : this.firstSeenTime;
+        }
+
+        /**
+         * 吸收一条消息：不同位置泛化为 <*>，并按泛化后的模板提取参数
+         */
+        synchronized TemplateMatch absorb(String[] masked, List<String> original) {
+            String[] template = tokens;
+            String[] generalized = null;
+            for (int i = 0; i < template.length; i++) {
+                if (template[i] != WILDCARD && !template[i].equals(masked[i])) {
+                    if (generalized == null) {
+                        generalized = template.clone();
+                    }
+                    generalized[i] = WILDCARD;
+                }
+            }
+            if (generalized != null) {
+                tokens = generalized;
+                template = generalized;
+            }
+            List<String> params = new ArrayList<>();
+            for (int i = 0; i < template.length; i++) {
+                if (template[i] == WILDCARD) {
+                    params.add(original.get(i));
+                }
+            }
+            occurrences++;
+            lastSeenTime = Instant.now();
+            dirty.set(true);
+            return new TemplateMatch(templateId, Collections.unmodifiableList(params));
+        }
+
+        String templateText() {
+            return String.join(" ", tokens);
+        }
+
+        synchronized LogTemplateEntity toEntity() {
+            return LogTemplateEntity.builder()
+                    .templateId(templateId)
+                    .appId(appId)
+                    .template(templateText())
+                    .tokenCount(tokens.length)
+                    .occurrences(occurrences)
+                    .firstSeenTime(firstSeenTime)
+                    .lastSeenTime(lastSeenTime)
+                    .build();
+        }
+    }
+
+    /**
+     * 模板匹配结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class TemplateMatch {
+        // 模板ID
+        private final String templateId;
+        // 按位置提取的参数
+        private final List<String> params;
+    }
+
+    /**
+     * 模板挖掘统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class MinerStats {
+        // 模板数
+        private final int templates;
+        // 匹配已有模板的次数
+        private final long matched;
+        // 新建模板次数
+        private final long created;
+        // 淘汰后仍未能建模板的次数（并发创建占满了淘汰出的空间）
+        private final long rejected;
+        // 消息为空或词元过多而跳过的次数
+        private final long skipped;
+        // 字典已满时淘汰的模板数
+        private final long evicted;
+    }
+
+}
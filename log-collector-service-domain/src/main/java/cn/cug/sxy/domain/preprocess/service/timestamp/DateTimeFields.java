@@ -0,0 +1,32 @@
+package cn.cug.sxy.domain.preprocess.service.timestamp;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/27 10:10
+ * @Description 解析出的日期时间字段（单次解析内使用的可变暂存对象）
+ * @Author jerryhotton
+ */
+
+final class DateTimeFields {
+
+    int year;
+    int month;
+    int day;
+    int hour;
+    int minute;
+    int second;
+    int nanos;
+    /**
+     * 是否带有时区偏移，不带时按默认时区解释
+     */
+    boolean hasOffset;
+    int offsetSeconds;
+
+    /**
+     * 精确到秒的日期时间键，用于判断是否与上一次解析处于同一秒
+     */
+    long secondKey() {
+        return ((((year * 13L + month) * 32 + day) * 24 + hour) * 60 + minute) * 60 + second;
+    }
+
+}
@@ -0,0 +1,263 @@
+package cn.cug.sxy.domain.preprocess.service.timestamp;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/27 10:20
+ * @Description 常见时间戳格式（逐字符解析数字，不使用正则和DateTimeFormatter；
+ * 解析成功时将日期时间字段写入DateTimeFields并返回结束位置）
+ * @Author jerryhotton
+ */
+
+enum TimestampLayout {
+
+    /**
+     * Log4j2格式: yy-MM-dd.HH:mm:ss.SSS
+     */
+    LOG4J2_SHORT {
+        @Override
+        int scan(CharSequence s, int i, DateTimeFields f) {
+            if (i + 21 > s.length()
+                    || s.charAt(i + 2) != '-' || s.charAt(i + 5) != '-' || s.charAt(i + 8) != '.'
+                    || s.charAt(i + 11) != ':' || s.charAt(i + 14) != ':' || s.charAt(i + 17) != '.') {
+                return -1;
+            }
+            int year = digits(s, i, 2);
+            f.month = digits(s, i + 3, 2);
+            f.day = digits(s, i + 6, 2);
+            f.hour = digits(s, i + 9, 2);
+            f.minute = digits(s, i + 12, 2);
+            f.second = digits(s, i + 15, 2);
+            int millis = digits(s, i + 18, 3);
+            if ((year | f.month | f.day | f.hour | f.minute | f.second | millis) < 0) {
+                return -1;
+            }
+            f.year = 2000 + year;
+            f.nanos = millis * 1_000_000;
+            f.hasOffset = false;
+            return i + 21;
+        }
+    },
+
+    /**
+     * ISO-8601及标准日志格式: yyyy-MM-dd[T ]HH:mm:ss[.,fraction][Z|±HH[:mm]]
+     */
+    ISO_DATE_TIME {
+        @Override
+        int scan(CharSequence s, int i, DateTimeFields f) {
+            if (i + 19 > s.length()
+                    || s.charAt(i + 4) != '-' || s.charAt(i + 7) != '-'
+                    || (s.charAt(i + 10) != 'T' && s.charAt(i + 10) != ' ')
+                    || s.charAt(i + 13) != ':' || s.charAt(i + 16) != ':') {
+                return -1;
+            }
+            if (!dateTime(s, i, f)) {
+                return -1;
+            }
+            return zone(s, fraction(s, i + 19, f), f);
+        }
+    },
+
+    /**
+     * 斜杠分隔格式: yyyy/MM/dd HH:mm:ss[.,fraction]
+     */
+    SLASH_DATE_TIME {
+        @Override
+        int scan(CharSequence s, int i, DateTimeFields f) {
+            if (i + 19 > s.length()
+                    || s.charAt(i + 4) != '/' || s.charAt(i + 7) != '/' || s.charAt(i + 10) != ' '
+                    || s.charAt(i + 13) != ':' || s.charAt(i + 16) != ':') {
+                return -1;
+            }
+            if (!dateTime(s, i, f)) {
+                return -1;
+            }
+            f.hasOffset = false;
+            return fraction(s, i + 19, f);
+        }
+    },
+
+    /**
+     * 访问日志格式: dd/MMM/yyyy:HH:mm:ss[ ±HHmm]
+     */
+    ACCESS_LOG {
+        @Override
+        int scan(CharSequence s, int i, DateTimeFields f) {
+            if (i + 20 > s.length()
+                    || s.charAt(i + 2) != '/' || s.charAt(i + 6) != '/' || s.charAt(i + 11) != ':'
+                    || s.charAt(i + 14) != ':' || s.charAt(i + 17) != ':') {
+                return -1;
+            }
+            f.day = digits(s, i, 2);
+            f.month = month(s, i + 3);
+            f.year = digits(s, i + 7, 4);
+            f.hour = digits(s, i + 12, 2);
+            f.minute = digits(s, i + 15, 2);
+            f.second = digits(s, i + 18, 2);
+            if ((f.day | f.month | f.year | f.hour | f.minute | f.second) < 0) {
+                return -1;
+            }
+            f.nanos = 0;
+            f.hasOffset = false;
+            int end = i + 20;
+            if (end + 6 <= s.length() && s.charAt(end) == ' ') {
+                int sign = sign(s.charAt(end + 1));
+                int hours = digits(s, end + 2, 2);
+                int minutes = digits(s, end + 4, 2);
+                if (sign != 0 && (hours | minutes) >= 0) {
+                    f.hasOffset = true;
+                    f.offsetSeconds = sign * (hours * 3600 + minutes * 60);
+                    end += 6;
+                }
+            }
+            return end;
+        }
+    };
+
+    private static final TimestampLayout[] VALUES = values();
+
+    /**
+     * 从位置i开始解析时间戳
+     *
+     * @param s 文本
+     * @param i 起始位置
+     * @param f 解析出的字段
+     * @return 时间戳结束位置，不匹配时返回-1
+     */
+    abstract int scan(CharSequence s, int i, DateTimeFields f);
+
+    static TimestampLayout[] all() {
+        return VALUES;
+    }
+
+    /**
+     * 解析 yyyy?MM?dd?HH:mm:ss 的数字部分（分隔符已由调用方检查）
+     */
+    private static boolean dateTime(CharSequence s, int i, DateTimeFields f) {
+        f.year = digits(s, i, 4);
+        f.month = digits(s, i + 5, 2);
+        f.day = digits(s, i + 8, 2);
+        f.hour = digits(s, i + 11, 2);
+        f.minute = digits(s, i + 14, 2);
+        f.second = digits(s, i + 17, 2);
+        return (f.year | f.month | f.day | f.hour | f.minute | f.second) >= 0;
+    }
+
+    /**
+     * 解析可选的秒小数部分（超过纳秒精度的位数忽略）
+     *
+     * @return 小数部分结束位置
+     */
+    private static int fraction(CharSequence s, int i, DateTimeFields f) {
+        f.nanos = 0;
+        int length = s.length();
+        if (i + 1 >= length || (s.charAt(i) != '.' && s.charAt(i) != ',') || !isDigit(s.charAt(i + 1))) {
+            return i;
+        }
+        int pos = i + 1;
+        int nanos = 0;
+        int scale = 100_000_000;
+        while (pos < length && isDigit(s.charAt(pos))) {
+            nanos += (s.charAt(pos) - '0') * scale;
+            scale /= 10;
+            pos++;
+        }
+        f.nanos = nanos;
+        return pos;
+    }
+
+    /**
+     * 解析可选的时区：Z、±HH、±HHmm、±HH:mm
+     *
+     * @return 时区结束位置
+     */
+    private static int zone(CharSequence s, int i, DateTimeFields f) {
+        f.hasOffset = false;
+        int length = s.length();
+        if (i >= length) {
+            return i;
+        }
+        char c = s.charAt(i);
+        if (c == 'Z') {
+            f.hasOffset = true;
+            f.offsetSeconds = 0;
+            return i + 1;
+        }
+        int sign = sign(c);
+        int hours = digits(s, i + 1, 2);
+        if (sign == 0 || hours < 0) {
+            return i;
+        }
+        int end = i + 3;
+        int minutes = 0;
+        if (end < length && s.charAt(end) == ':' && digits(s, end + 1, 2) >= 0) {
+            minutes = digits(s, end + 1, 2);
+            end += 3;
+        } else if (digits(s, end, 2) >= 0) {
+            minutes = digits(s, end, 2);
+            end += 2;
+        }
+        f.hasOffset = true;
+        f.offsetSeconds = sign * (hours * 3600 + minutes * 60);
+        return end;
+    }
+
+    /**
+     * 解析三个字母的英文月份缩写（忽略大小写）
+     *
+     * @return 月份（1-12），不是月份时返回-1
+     */
+    private static int month(CharSequence s, int i) {
+        if ((s.charAt(i) | s.charAt(i + 1) | s.charAt(i + 2)) > 0x7F) {
+            return -1;
+        }
+        int key = (lower(s.charAt(i)) << 16) | (lower(s.charAt(i + 1)) << 8) | lower(s.charAt(i + 2));
+        switch (key) {
+            case ('j' << 16) | ('a' << 8) | 'n': return 1;
+            case ('f' << 16) | ('e' << 8) | 'b': return 2;
+            case ('m' << 16) | ('a' << 8) | 'r': return 3;
+            case ('a' << 16) | ('p' << 8) | 'r': return 4;
+            case ('m' << 16) | ('a' << 8) | 'y': return 5;
+            case ('j' << 16) | ('u' << 8) | 'n': return 6;
+            case ('j' << 16) | ('u' << 8) | 'l': return 7;
+            case ('a' << 16) | ('u' << 8) | 'g': return 8;
+            case ('s' << 16) | ('e' << 8) | 'p': return 9;
+            case ('o' << 16) | ('c' << 8) | 't': return 10;
+            case ('n' << 16) | ('o' << 8) | 'v': return 11;
+            case ('d' << 16) | ('e' << 8) | 'c': return 12;
+            default: return -1;
+        }
+    }
+
+    /**
+     * 解析固定位数的十进制数字
+     *
+     * @return 数值，位数不足或含非数字字符时返回-1
+     */
+    static int digits(CharSequence s, int i, int count) {
+        if (i + count > s.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int end = i + count; i < end; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int sign(char c) {
+        return c == '+' ? 1 : c == '-' ? -1 : 0;
+    }
+
+    private static int lower(char c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+}
@@ -0,0 +1,24 @@
+package cn.cug.sxy.domain.preprocess.service.timestamp;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/27 10:30
+ * @Description 在日志内容中找到的时间戳（位置及解析出的毫秒时间戳）
+ * @Author jerryhotton
+ */
+
+@Getter
+@AllArgsConstructor
+public class TimestampMatch {
+
+    // 起始位置（包含）
+    private final int start;
+    // 结束位置（不包含）
+    private final int end;
+    // 毫秒时间戳
+    private final long epochMillis;
+
+}
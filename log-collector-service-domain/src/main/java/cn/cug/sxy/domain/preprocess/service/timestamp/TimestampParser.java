@@ -0,0 +1,370 @@
+package cn.cug.sxy.domain.preprocess.service.timestamp;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/27 10:40
+ * @Description 时间戳解析器（逐字符解析常见格式得到毫秒时间戳；按来源记住识别到的格式和位置并优先尝试，
+ * 同一来源同一秒内的时间戳复用已换算的秒级时间，只在跨秒时计算日历和时区）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class TimestampParser {
+
+    /**
+     * 未解析到时间戳
+     */
+    public static final long NOT_FOUND = Long.MIN_VALUE;
+
+    /**
+     * 不带时区偏移的时间戳按该时区解释
+     */
+    private final ZoneId defaultZone;
+
+    /**
+     * 在日志内容中查找时间戳时最多扫描的字符数
+     */
+    private final int scanLimit;
+
+    private final int maxSources;
+
+    private final LinkedHashMap<String, SourceMemo> memos;
+
+    // 解析统计
+    private final LongAdder parsed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder layoutHits = new LongAdder();
+    private final LongAdder secondHits = new LongAdder();
+
+    public TimestampParser(
+            @Value("${log-center.preprocess.timestamp.default-zone:}") String defaultZone,
+            @Value("${log-center.preprocess.timestamp.scan-limit:256}") int scanLimit,
+            @Value("${log-center.preprocess.timestamp.max-sources:4096}") int maxSources) {
+        this.defaultZone = defaultZone == null || defaultZone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(defaultZone.trim());
+        this.scanLimit = scanLimit;
+        this.maxSources = maxSources;
+        this.memos = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SourceMemo> eldest) {
+                return size() > TimestampParser.this.maxSources;
+            }
+        };
+        log.info("时间戳解析器初始化: defaultZone={}, scanLimit={}, maxSources={}", this.defaultZone, scanLimit, maxSources);
+    }
+
+    /**
+     * 解析完整的时间戳字段值（日期时间格式或10/13/16/19位数字时间戳）
+     *
+     * @param sourceKey 来源标识，为null时不记忆格式
+     * @param value     时间戳字段值
+     * @return 毫秒时间戳，无法解析时返回NOT_FOUND
+     */
+    public long parse(String sourceKey, String value) {
+        if (value == null) {
+            return NOT_FOUND;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            failures.increment();
+            return NOT_FOUND;
+        }
+        if (TimestampLayout.isDigit(value.charAt(start))) {
+            long epochMillis = parseEpochDigits(value, start, end);
+            if (epochMillis != NOT_FOUND) {
+                parsed.increment();
+                return epochMillis;
+            }
+        }
+        SourceMemo memo = memoFor(sourceKey);
+        DateTimeFields fields = new DateTimeFields();
+        Learned learned = memo == null ? null : memo.learned;
+        TimestampLayout preferred = learned == null ? null : learned.layout;
+        if (preferred != null && preferred.scan(value, start, fields) == end) {
+            long epochMillis = toEpochMillis(fields, memo);
+            if (epochMillis != NOT_FOUND) {
+                layoutHits.increment();
+                parsed.increment();
+                return epochMillis;
+            }
+        }
+        for (TimestampLayout layout : TimestampLayout.all()) {
+            if (layout != preferred && layout.scan(value, start, fields) == end) {
+                long epochMillis = toEpochMillis(fields, memo);
+                if (epochMillis != NOT_FOUND) {
+                    if (memo != null) {
+                        memo.learn(layout, 0);
+                    }
+                    parsed.increment();
+                    return epochMillis;
+                }
+            }
+        }
+        failures.increment();
+        return NOT_FOUND;
+    }
+
+    /**
+     * 在日志内容的前scanLimit个字符中查找第一个时间戳，优先尝试该来源上次识别到的格式和位置
+     *
+     * @param sourceKey 来源标识，为null时不记忆格式
+     * @param content   日志内容
+     * @return 找到的时间戳，未找到时返回null
+     */
+    public TimestampMatch find(String sourceKey, String content) {
+        if (content == null || content.isEmpty()) {
+            return null;
+        }
+        int limit = Math.min(content.length(), scanLimit);
+        SourceMemo memo = memoFor(sourceKey);
+        DateTimeFields fields = new DateTimeFields();
+        TimestampLayout preferred = null;
+        if (memo != null) {
+            Learned learned = memo.learned;
+            if (learned != null) {
+                preferred = learned.layout;
+                int offset = learned.offset;
+                if (offset < limit && isNumberStart(content, offset)) {
+                    int end = preferred.scan(content, offset, fields);
+                    long epochMillis = end < 0 ? NOT_FOUND : toEpochMillis(fields, memo);
+                    if (epochMillis != NOT_FOUND) {
+                        layoutHits.increment();
+                        parsed.increment();
+                        return new TimestampMatch(offset, end, epochMillis);
+                    }
+                }
+            }
+        }
+        // 按位置从左到右扫描，只在数字串的起始处尝试
+        for (int i = 0; i < limit; i++) {
+            if (!isNumberStart(content, i)) {
+                continue;
+            }
+            if (preferred != null) {
+                TimestampMatch match = tryLayout(preferred, content, i, fields, memo);
+                if (match != null) {
+                    return match;
+                }
+            }
+            for (TimestampLayout layout : TimestampLayout.all()) {
+                if (layout != preferred) {
+                    TimestampMatch match = tryLayout(layout, content, i, fields, memo);
+                    if (match != null) {
+                        return match;
+                    }
+                }
+            }
+        }
+        failures.increment();
+        return null;
+    }
+
+    /**
+     * 获取解析统计快照
+     */
+    public TimestampStats getStats() {
+        int sources;
+        synchronized (memos) {
+            sources = memos.size();
+        }
+        return new TimestampStats(sources, parsed.sum(), failures.sum(), layoutHits.sum(), secondHits.sum());
+    }
+
+    /**
+     * 数值时间戳按量级识别为秒、毫秒、微秒或纳秒
+     *
+     * @param value 数值时间戳
+     * @return 毫秒时间戳
+     */
+    public static long epochMillisOf(long value) {
+        long magnitude = Math.abs(value);
+        if (magnitude < 100_000_000_000L) {
+            return value * 1000;
+        }
+        if (magnitude < 100_000_000_000_000L) {
+            return value;
+        }
+        if (magnitude < 100_000_000_000_000_000L) {
+            return value / 1000;
+        }
+        return value / 1_000_000;
+    }
+
+    private TimestampMatch tryLayout(TimestampLayout layout, String content, int i, DateTimeFields fields, SourceMemo memo) {
+        int end = layout.scan(content, i, fields);
+        if (end < 0) {
+            return null;
+        }
+        long epochMillis = toEpochMillis(fields, memo);
+        if (epochMillis == NOT_FOUND) {
+            return null;
+        }
+        if (memo != null) {
+            memo.learn(layout, i);
+        }
+        parsed.increment();
+        return new TimestampMatch(i, end, epochMillis);
+    }
+
+    /**
+     * 解析数字时间戳：10位秒、13位毫秒、16位微秒、19位纳秒，秒级时间戳可带小数部分
+     */
+    private static long parseEpochDigits(String value, int start, int end) {
+        long number = 0;
+        int i = start;
+        while (i < end && TimestampLayout.isDigit(value.charAt(i))) {
+            if (i - start >= 19) {
+                return NOT_FOUND;
+            }
+            number = number * 10 + (value.charAt(i) - '0');
+            i++;
+        }
+        int length = i - start;
+        if (number < 0) {
+            return NOT_FOUND;
+        }
+        if (i < end) {
+            // 只有秒级时间戳允许带小数部分
+            if (length != 10 || value.charAt(i) != '.' || i + 1 == end) {
+                return NOT_FOUND;
+            }
+            int millis = 0;
+            int scale = 100;
+            for (int j = i + 1; j < end; j++) {
+                char c = value.charAt(j);
+                if (!TimestampLayout.isDigit(c)) {
+                    return NOT_FOUND;
+                }
+                millis += (c - '0') * scale;
+                scale /= 10;
+            }
+            return number * 1000 + millis;
+        }
+        switch (length) {
+            case 10: return number * 1000;
+            case 13: return number;
+            case 16: return number / 1000;
+            case 19: return number / 1_000_000;
+            default: return NOT_FOUND;
+        }
+    }
+
+    /**
+     * 将解析出的字段换算为毫秒时间戳，同一秒内复用来源缓存的换算结果
+     *
+     * @return 毫秒时间戳，字段不是合法日期时间时返回NOT_FOUND
+     */
+    private long toEpochMillis(DateTimeFields fields, SourceMemo memo) {
+        long key = fields.secondKey();
+        SecondCache cache = memo == null ? null : memo.second;
+        if (cache != null && cache.key == key) {
+            secondHits.increment();
+        } else {
+            try {
+                LocalDateTime dateTime = LocalDateTime.of(
+                        fields.year, fields.month, fields.day, fields.hour, fields.minute, fields.second);
+                cache = new SecondCache(key, dateTime.toEpochSecond(ZoneOffset.UTC),
+                        dateTime.atZone(defaultZone).toEpochSecond());
+            } catch (DateTimeException e) {
+                return NOT_FOUND;
+            }
+            if (memo != null) {
+                memo.second = cache;
+            }
+        }
+        long epochSecond = fields.hasOffset ? cache.localEpochSecond - fields.offsetSeconds : cache.zonedEpochSecond;
+        return epochSecond * 1000 + fields.nanos / 1_000_000;
+    }
+
+    private SourceMemo memoFor(String sourceKey) {
+        if (sourceKey == null) {
+            return null;
+        }
+        synchronized (memos) {
+            return memos.computeIfAbsent(sourceKey, k -> new SourceMemo());
+        }
+    }
+
+    /**
+     * 数字串的起始位置：当前字符是数字且前一个字符不是数字
+     */
+    private static boolean isNumberStart(String content, int i) {
+        return TimestampLayout.isDigit(content.charAt(i)) && (i == 0 || !TimestampLayout.isDigit(content.charAt(i - 1)));
+    }
+
+    /**
+     * 来源的解析记忆，字段各自整体替换，并发更新时只影响命中率
+     */
+    private static class SourceMemo {
+        private volatile Learned learned;
+        private volatile SecondCache second;
+
+        void learn(TimestampLayout layout, int offset) {
+            Learned current = learned;
+            if (current == null || current.layout != layout || current.offset != offset) {
+                learned = new Learned(layout, offset);
+            }
+        }
+    }
+
+    /**
+     * 记忆的格式及其在日志内容中的位置
+     */
+    @AllArgsConstructor
+    private static class Learned {
+        private final TimestampLayout layout;
+        private final int offset;
+    }
+
+    /**
+     * 最近一秒的换算结果
+     */
+    @AllArgsConstructor
+    private static class SecondCache {
+        private final long key;
+        // 按UTC换算的秒级时间，带时区偏移的时间戳在此基础上减去偏移
+        private final long localEpochSecond;
+        // 按默认时区换算的秒级时间
+        private final long zonedEpochSecond;
+    }
+
+    /**
+     * 时间戳解析统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class TimestampStats {
+        // 记忆的来源数
+        private final int sources;
+        // 解析成功次数
+        private final long parsed;
+        // 未解析到时间戳的次数
+        private final long failures;
+        // 记忆格式直接命中的次数
+        private final long layoutHits;
+        // 复用同一秒换算结果的次数
+        private final long secondHits;
+    }
+
+}
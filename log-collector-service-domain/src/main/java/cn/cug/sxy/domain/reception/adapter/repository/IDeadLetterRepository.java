@@ -0,0 +1,65 @@
+package cn.cug.sxy.domain.reception.adapter.repository;
+
+import cn.cug.sxy.domain.reception.model.entity.DeadLetterEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.DeadLetterQuery;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 09:50
+ * @Description 死信仓储接口
+ * @Author jerryhotton
+ */
+
+public interface IDeadLetterRepository {
+
+    /**
+     * 保存死信（同一批次再次失败时覆盖失败信息，保留重放记录）
+     *
+     * @param deadLetter 死信
+     */
+    void save(DeadLetterEntity deadLetter);
+
+    /**
+     * 按条件查询死信（不加载原始日志），按进入死信时间倒序
+     *
+     * @param query 查询条件
+     * @return 死信列表
+     */
+    List<DeadLetterEntity> find(DeadLetterQuery query);
+
+    /**
+     * 统计符合条件的死信数量
+     *
+     * @param query 查询条件
+     * @return 数量
+     */
+    long count(DeadLetterQuery query);
+
+    /**
+     * 加载死信（包含原始日志）
+     *
+     * @param batchId 批次ID
+     * @return 死信
+     */
+    Optional<DeadLetterEntity> load(BatchId batchId);
+
+    /**
+     * 记录一次重放
+     *
+     * @param batchId 批次ID
+     */
+    void markReplayed(BatchId batchId);
+
+    /**
+     * 删除死信
+     *
+     * @param batchId 批次ID
+     * @return 是否删除
+     */
+    boolean delete(BatchId batchId);
+
+}
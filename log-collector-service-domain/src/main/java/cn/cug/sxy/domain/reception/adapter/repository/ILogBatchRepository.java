@@ -5,15 +5,16 @@ import cn.cug.sxy.domain.auth.model.valobj.AppId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchStatus;
 import cn.cug.sxy.domain.storage.model.entity.LogDocument;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import cn.cug.sxy.domain.storage.model.valobj.LogQuery;
 import cn.cug.sxy.domain.storage.model.valobj.LogQueryResult;
-import cn.cug.sxy.domain.storage.model.valobj.StorageLog;
 import cn.cug.sxy.types.model.Page;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @version 1.0
@@ -155,7 +156,16 @@ public interface ILogBatchRepository {
      */
     Map<BatchStatus, Long> countByStatus();
 
-    String storeBatch(LogBatchEntity batch, List<StorageLog> logs);
+    String storeBatch(LogBatchEntity batch, ColumnarLogBatch logs);
+
+    /**
+     * 异步存储日志批次，写入完成后更新批次状态
+     *
+     * @param batch 批次
+     * @param logs  列式日志批次
+     * @return 批次跟踪ID；日志数据错误导致失败时为null，存储后端不可用时异常完成
+     */
+    CompletableFuture<String> storeBatchAsync(LogBatchEntity batch, ColumnarLogBatch logs);
 
     LogQueryResult queryLogs(LogQuery query);
 
@@ -0,0 +1,23 @@
+package cn.cug.sxy.domain.reception.adapter.repository;
+
+import cn.cug.sxy.domain.reception.model.entity.RoutingRuleEntity;
+
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/29 09:40
+ * @Description 日志路由规则仓储接口
+ * @Author jerryhotton
+ */
+
+public interface IRoutingRuleRepository {
+
+    /**
+     * 加载所有启用的规则
+     *
+     * @return 规则列表
+     */
+    List<RoutingRuleEntity> findEnabled();
+
+}
@@ -3,6 +3,7 @@ package cn.cug.sxy.domain.reception.alc;
 import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
 import cn.cug.sxy.domain.reception.model.valobj.BatchId;
 import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import lombok.Getter;
 
 import java.util.List;
@@ -26,6 +27,57 @@ public interface IStorageGateway {
      */
     BatchStorageResult storeBatch(LogBatchEntity batch, List<ProcessedLog> processedLogs);
 
+    /**
+     * 准备存储数据（将处理后的日志按列写入存储批次，纯内存操作）
+     *
+     * @param batch 日志批次
+     * @param processedLogs 处理后的日志列表
+     * @return 列式存储批次
+     */
+    ColumnarLogBatch prepareBatch(LogBatchEntity batch, List<ProcessedLog> processedLogs);
+
+    /**
+     * 存储已准备好的日志批次（外部系统调用）
+     *
+     * @param batch 日志批次
+     * @param storageBatch 列式存储批次
+     * @return 存储结果，包含批次跟踪ID
+     */
+    BatchStorageResult storePreparedBatch(LogBatchEntity batch, ColumnarLogBatch storageBatch);
+
+    /**
+     * 异步存储已准备好的日志批次（提交后立即返回，结果在存储完成后回调）
+     *
+     * @param batch 日志批次
+     * @param storageBatch 列式存储批次
+     * @return 异步存储结果（不会异常完成，失败和熔断拒绝都体现在结果中）
+     */
+    CompletableFuture<BatchStorageResult> storePreparedBatchAsync(LogBatchEntity batch, ColumnarLogBatch storageBatch);
+
+    /**
+     * 使用已申请的熔断器许可异步存储批次（暂存区释放的批次在释放时已占用许可），许可已失效时重新申请
+     *
+     * @param batch        日志批次
+     * @param storageBatch 列式存储批次
+     * @param permit       已申请的熔断器许可
+     * @return 异步存储结果（不会异常完成，失败和熔断拒绝都体现在结果中）
+     */
+    CompletableFuture<BatchStorageResult> storePreparedBatchAsync(LogBatchEntity batch, ColumnarLogBatch storageBatch, long permit);
+
+    /**
+     * 归还未用于存储调用的熔断器许可
+     *
+     * @param permit 熔断器许可
+     */
+    void releasePermit(long permit);
+
+    /**
+     * 存储后端当前是否可用（熔断器打开时不可用，调用方应暂存批次而不是发起存储）
+     *
+     * @return 是否可用
+     */
+    boolean isAvailable();
+
     /**
      * 异步存储日志批次
      *
@@ -60,19 +112,28 @@ public interface IStorageGateway {
         private final boolean success;
         private final String batchTraceId;
         private final String errorMessage;
+        /**
+         * 是否因熔断被拒绝（未发起存储调用）
+         */
+        private final boolean rejected;
 
         public static BatchStorageResult success(String batchTraceId) {
-            return new BatchStorageResult(true, batchTraceId, null);
+            return new BatchStorageResult(true, batchTraceId, null, false);
         }
 
         public static BatchStorageResult failure(String errorMessage) {
-            return new BatchStorageResult(false, null, errorMessage);
+            return new BatchStorageResult(false, null, errorMessage, false);
+        }
+
+        public static BatchStorageResult rejected(String errorMessage) {
+            return new BatchStorageResult(false, null, errorMessage, true);
         }
 
-        private BatchStorageResult(boolean success, String batchTraceId, String errorMessage) {
+        private BatchStorageResult(boolean success, String batchTraceId, String errorMessage, boolean rejected) {
             this.success = success;
             this.batchTraceId = batchTraceId;
             this.errorMessage = errorMessage;
+            this.rejected = rejected;
         }
 
     }
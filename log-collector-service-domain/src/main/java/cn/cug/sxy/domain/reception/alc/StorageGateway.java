@@ -2,9 +2,12 @@ package cn.cug.sxy.domain.reception.alc;
 
 import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
 import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.LogAttributes;
 import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
 import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
-import cn.cug.sxy.domain.storage.model.valobj.StorageLog;
+import cn.cug.sxy.domain.reception.service.breaker.StorageCircuitBreaker;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import cn.cug.sxy.domain.storage.service.ILogStorageService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -13,11 +16,9 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * @version 1.0
@@ -31,26 +32,20 @@ import java.util.concurrent.CompletableFuture;
 public class StorageGateway implements IStorageGateway {
 
     private final ILogStorageService logStorageService;
+    private final StorageCircuitBreaker circuitBreaker;
 
-    public StorageGateway(ILogStorageService logStorageService) {
+    public StorageGateway(ILogStorageService logStorageService, StorageCircuitBreaker circuitBreaker) {
         this.logStorageService = logStorageService;
+        this.circuitBreaker = circuitBreaker;
     }
 
     @Override
     public BatchStorageResult storeBatch(LogBatchEntity batch, List<ProcessedLog> processedLogs) {
         try {
-            // 1. 将处理后的日志转换为存储日志
-            List<StorageLog> storageLogs = convertToStorageLogs(batch, processedLogs);
-            // 2. 调用存储服务存储日志
-            String traceId = logStorageService.storeBatch(batch, storageLogs);
-            // 3. 检查存储结果
-            if (null != traceId) {
-                // 存储成功
-                return BatchStorageResult.success(traceId);
-            } else {
-                // 存储失败
-                return BatchStorageResult.failure("存储日志失败");
-            }
+            // 1. 将处理后的日志转换为列式存储批次
+            ColumnarLogBatch storageBatch = convertToColumnarBatch(batch, processedLogs);
+            // 2. 存储日志
+            return storePreparedBatch(batch, storageBatch);
         } catch (Exception e) {
             log.error("存储日志批次异常: batchId={}, error={}",
                     batch.getId().getValue(), e.getMessage(), e);
@@ -58,9 +53,78 @@ public class StorageGateway implements IStorageGateway {
         }
     }
 
+    @Override
+    public ColumnarLogBatch prepareBatch(LogBatchEntity batch, List<ProcessedLog> processedLogs) {
+        return convertToColumnarBatch(batch, processedLogs);
+    }
+
+    @Override
+    public BatchStorageResult storePreparedBatch(LogBatchEntity batch, ColumnarLogBatch storageBatch) {
+        return storePreparedBatchAsync(batch, storageBatch).join();
+    }
+
+    @Override
+    public CompletableFuture<BatchStorageResult> storePreparedBatchAsync(LogBatchEntity batch, ColumnarLogBatch storageBatch) {
+        return storePreparedBatchAsync(batch, storageBatch, StorageCircuitBreaker.REJECTED);
+    }
+
+    @Override
+    public CompletableFuture<BatchStorageResult> storePreparedBatchAsync(LogBatchEntity batch, ColumnarLogBatch storageBatch,
+                                                                         long reservedPermit) {
+        // 1. 使用已占用的许可，没有许可或许可已失效时申请，存储后端不可用时快速失败，不发起存储调用
+        long permit = circuitBreaker.isCurrent(reservedPermit) ? reservedPermit : circuitBreaker.tryAcquire();
+        if (permit == StorageCircuitBreaker.REJECTED) {
+            return CompletableFuture.completedFuture(
+                    BatchStorageResult.rejected("存储熔断中: state=" + circuitBreaker.getState()));
+        }
+        long start = System.currentTimeMillis();
+        try {
+            // 2. 调用存储服务存储日志，存储完成后检查结果并归还熔断器许可
+            return logStorageService.storeBatchAsync(batch, storageBatch)
+                    .handle((traceId, error) -> {
+                        if (error != null) {
+                            // 传输异常、超时或存储后端不可用，计入熔断失败率
+                            circuitBreaker.onFailure(permit);
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            log.error("存储日志批次异常: batchId={}, error={}",
+                                    batch.getId().getValue(), cause.getMessage(), cause);
+                            return BatchStorageResult.failure("存储异常: " + cause.getMessage());
+                        }
+                        // 存储后端已正常响应，日志数据错误导致的失败不计入熔断失败率
+                        circuitBreaker.onSuccess(permit, System.currentTimeMillis() - start);
+                        if (null != traceId) {
+                            return BatchStorageResult.success(traceId);
+                        }
+                        return BatchStorageResult.failure("存储日志失败: 日志数据写入错误");
+                    });
+        } catch (Exception e) {
+            circuitBreaker.onFailure(permit);
+            log.error("存储日志批次异常: batchId={}, error={}",
+                    batch.getId().getValue(), e.getMessage(), e);
+            return CompletableFuture.completedFuture(BatchStorageResult.failure("存储异常: " + e.getMessage()));
+        }
+    }
+
+    @Override
+    public void releasePermit(long permit) {
+        circuitBreaker.release(permit);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
+
     @Override
     public CompletableFuture<BatchStorageResult> storeBatchAsync(LogBatchEntity batch, List<ProcessedLog> processedLogs) {
-        return null;
+        try {
+            return storePreparedBatchAsync(batch, convertToColumnarBatch(batch, processedLogs));
+        } catch (Exception e) {
+            log.error("存储日志批次异常: batchId={}, error={}",
+                    batch.getId().getValue(), e.getMessage(), e);
+            return CompletableFuture.completedFuture(BatchStorageResult.failure("存储异常: " + e.getMessage()));
+        }
     }
 
     @Override
@@ -73,41 +137,80 @@ public class StorageGateway implements IStorageGateway {
         return null;
     }
 
-    private List<StorageLog> convertToStorageLogs(LogBatchEntity batch, List<ProcessedLog> processedLogs) {
-        List<StorageLog> storageLogs = new ArrayList<>(processedLogs.size());
+    /**
+     * 将处理后的日志按列写入存储批次：批次级字段只保存一次，低基数字段字典编码，内容写入共享UTF-8缓冲区
+     */
+    private ColumnarLogBatch convertToColumnarBatch(LogBatchEntity batch, List<ProcessedLog> processedLogs) {
+        ColumnarLogBatch.Builder builder = ColumnarLogBatch.builder(
+                batch.getId().getValue(), batch.getAppId(), batch.getEndpointId(), processedLogs.size());
 
         for (ProcessedLog processedLog : processedLogs) {
-            // 1. 准备元数据
-            Map<String, String> metadata = new HashMap<>();
-            // 复制原始元数据
-            if (processedLog.getMetadata() != null) {
-                metadata.putAll(processedLog.getMetadata());
-                // 基本元数据
-                metadata.put("appId", batch.getAppId());
-                metadata.put("endpointId", batch.getEndpointId());
-                metadata.put("batchId", batch.getId().getValue());
-                metadata.put("format", processedLog.getFormat().name());
-                metadata.put("sourceId", processedLog.getSourceId());
-                metadata.put("timestamp", String.valueOf(processedLog.getTimestamp().toEpochMilli()));
-                // 其他常用字段
-                metadata.put("source", processedLog.getMetadata().getOrDefault("source", "unknown"));
-                metadata.put("hostname", processedLog.getMetadata().getOrDefault("hostname", "unknown"));
-                metadata.put("level", processedLog.getMetadata().getOrDefault("level", "INFO"));
+            if (processedLog.isRaw()) {
+                appendRaw(builder, processedLog);
+                continue;
             }
-            // 2. 准备结构化字段
+            // 1. 准备结构化字段
             // 添加处理信息
             processedLog.addStructuredField("_processed", Boolean.TRUE);
             processedLog.addStructuredField("_process_time", processedLog.getProcessTime().toString());
-            // 3. 创建存储日志对象
-            StorageLog storageLog = new StorageLog(
-                    processedLog.getContent(),                  // 日志内容
-                    metadata,                                   // 元数据
-                    processedLog.getStructuredFields()          // 结构化字段
+            // 2. 按列追加一行（核心属性已在接入时解析为类型化字段）
+            LogAttributes attributes = processedLog.getAttributes();
+            LogLevel level = processedLog.getLevel() != null ? processedLog.getLevel() : LogLevel.INFO;
+            builder.add(
+                    processedLog.getSequence(),                         // 原始批次中的序号
+                    processedLog.getContent(),                          // 日志内容
+                    processedLog.getEffectiveTimeMillis(),              // 日志时间
+                    level.name(),                                       // 日志级别
+                    processedLog.getFormat().name(),                    // 日志格式
+                    processedLog.getSourceId(),                         // 来源ID
+                    orUnknown(attributes.getSource()),                  // 来源
+                    orUnknown(attributes.getHostname()),                // 主机名
+                    processedLog.getTags(),                             // 标签
+                    processedLog.getTemplateId(),                       // 日志模板ID
+                    processedLog.getTemplateParams(),                   // 模板参数
+                    processedLog.getStructuredFields()                  // 结构化字段
             );
-            storageLogs.add(storageLog);
+            // 3. 重复日志汇总携带重复次数和首末出现时间，路由规则指定的索引随行记录
+            if (attributes.isRepeated()) {
+                builder.repeated(attributes.getRepeatCount(), attributes.getFirstSeen(), attributes.getLastSeen());
+            }
+            if (processedLog.getRoute() != null) {
+                builder.routed(processedLog.getRoute());
+            }
         }
 
-        return storageLogs;
+        return builder.build();
+    }
+
+    /**
+     * 原样接入的日志只写入内容和信封字段：级别仅在接入时已知的情况下写入，不写结构化字段和模板，由查询时提取
+     */
+    private void appendRaw(ColumnarLogBatch.Builder builder, ProcessedLog processedLog) {
+        LogAttributes attributes = processedLog.getAttributes();
+        builder.add(
+                processedLog.getSequence(),
+                processedLog.getContent(),
+                processedLog.getEffectiveTimeMillis(),
+                processedLog.getLevel() != null ? processedLog.getLevel().name() : null,
+                processedLog.getFormat().name(),
+                processedLog.getSourceId(),
+                orUnknown(attributes.getSource()),
+                orUnknown(attributes.getHostname()),
+                processedLog.getTags(),
+                null,
+                null,
+                null
+        ).raw();
+        if (attributes.isRepeated()) {
+            builder.repeated(attributes.getRepeatCount(), attributes.getFirstSeen(), attributes.getLastSeen());
+        }
+        if (processedLog.getRoute() != null) {
+            builder.routed(processedLog.getRoute());
+        }
+    }
+
+    private static String orUnknown(String value) {
+        return value != null ? value : "unknown";
     }
 
 }
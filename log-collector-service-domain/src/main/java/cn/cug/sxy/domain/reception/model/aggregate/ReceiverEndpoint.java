@@ -73,9 +73,29 @@ public class ReceiverEndpoint implements AggregateRoot<EndpointId> {
      */
     private int maxBatchCount;
     /**
-     * 预处理策略类型
+     * 预处理策略类型（Grok表达式或模式库中的模式名称）
      */
     private String preprocessStrategy;
+    /**
+     * 编解码器名称（BINARY/CUSTOM格式日志使用的解码器），为空时使用默认编解码器
+     */
+    private String codec;
+    /**
+     * 是否原样接入：跳过格式解析、脱敏和模板挖掘，只存储内容和接入信封字段，字段提取推迟到查询时
+     */
+    private boolean rawIngest;
+    /**
+     * 多行事件起始行正则（匹配的行开始新事件，其余行并入上一事件），与续行正则都未配置时端点不组装多行事件
+     */
+    private String multilineStartPattern;
+    /**
+     * 多行事件续行正则（未配置起始行正则时生效，匹配的行并入上一事件），配置为 default 时使用内置的Java堆栈规则
+     */
+    private String multilineContinuationPattern;
+    /**
+     * 重复日志折叠窗口（毫秒），为0时不去重
+     */
+    private int dedupWindowMs;
     /**
      * 是否启用缓冲
      */
@@ -207,6 +227,52 @@ public class ReceiverEndpoint implements AggregateRoot<EndpointId> {
         this.preprocessStrategy = preprocessStrategy;
     }
 
+    /**
+     * 设置编解码器
+     *
+     * @param codec 编解码器名称，为空时使用默认编解码器
+     */
+    public void configureCodec(String codec) {
+        this.codec = codec == null || codec.isBlank() ? null : codec.trim();
+    }
+
+    /**
+     * 启用原样接入
+     */
+    public void enableRawIngest() {
+        this.rawIngest = true;
+    }
+
+    /**
+     * 禁用原样接入
+     */
+    public void disableRawIngest() {
+        this.rawIngest = false;
+    }
+
+    /**
+     * 设置多行事件规则
+     *
+     * @param startPattern        起始行正则
+     * @param continuationPattern 续行正则
+     */
+    public void configureMultiline(String startPattern, String continuationPattern) {
+        this.multilineStartPattern = startPattern;
+        this.multilineContinuationPattern = continuationPattern;
+    }
+
+    /**
+     * 设置重复日志折叠窗口
+     *
+     * @param dedupWindowMs 折叠窗口（毫秒），为0时不去重
+     */
+    public void configureDedup(int dedupWindowMs) {
+        if (dedupWindowMs < 0) {
+            throw new AppException("Dedup window must not be negative");
+        }
+        this.dedupWindowMs = dedupWindowMs;
+    }
+
     /**
      * 启用缓冲
      */
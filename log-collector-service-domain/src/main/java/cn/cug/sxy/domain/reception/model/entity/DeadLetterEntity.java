@@ -0,0 +1,97 @@
+package cn.cug.sxy.domain.reception.model.entity;
+
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.BatchStatus;
+import cn.cug.sxy.domain.reception.model.valobj.RawLog;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 09:40
+ * @Description 死信批次实体（最终处理失败的批次及其原始日志，可重放）
+ * @Author jerryhotton
+ */
+
+@Getter
+@Builder(toBuilder = true)
+public class DeadLetterEntity {
+
+    /**
+     * 批次ID（重放时沿用，保证存储幂等）
+     */
+    private final BatchId batchId;
+    /**
+     * 应用ID
+     */
+    private final String appId;
+    /**
+     * 接收端点ID
+     */
+    private final String endpointId;
+    /**
+     * 原始日志列表（列表查询时不加载）
+     */
+    private final List<RawLog> logs;
+    /**
+     * 日志条数
+     */
+    private final int logCount;
+    /**
+     * 失败原因
+     */
+    private final String failureReason;
+    /**
+     * 失败前的重试次数
+     */
+    private final int retryCount;
+    /**
+     * 批次接收时间
+     */
+    private final Instant receivedTime;
+    /**
+     * 进入死信的时间
+     */
+    private final Instant failedTime;
+    /**
+     * 已重放次数
+     */
+    private final int replayCount;
+    /**
+     * 最后重放时间
+     */
+    private final Instant lastReplayTime;
+
+    /**
+     * 从失败批次创建死信
+     *
+     * @param batch         失败批次
+     * @param retryCount    失败前的重试次数
+     * @param failureReason 失败原因
+     * @return 死信实体
+     */
+    public static DeadLetterEntity fromFailedBatch(LogBatchEntity batch, int retryCount, String failureReason) {
+        return DeadLetterEntity.builder()
+                .batchId(batch.getId())
+                .appId(batch.getAppId())
+                .endpointId(batch.getEndpointId())
+                .logs(batch.getLogs())
+                .logCount(batch.getLogs().size())
+                .failureReason(failureReason)
+                .retryCount(retryCount)
+                .receivedTime(batch.getReceivedTime())
+                .failedTime(Instant.now())
+                .build();
+    }
+
+    /**
+     * 转换为待重放的新批次（沿用原批次ID）
+     */
+    public LogBatchEntity toReplayBatch() {
+        return new LogBatchEntity(batchId, appId, endpointId, logs, BatchStatus.PENDING, receivedTime);
+    }
+
+}
@@ -0,0 +1,53 @@
+package cn.cug.sxy.domain.reception.model.entity;
+
+import cn.cug.sxy.domain.reception.model.valobj.RuleAction;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/29 09:35
+ * @Description 日志路由规则实体（入库前按条件丢弃、采样、路由或打标签，如 "level <= DEBUG and source == 'gateway'" -> DROP）
+ * @Author jerryhotton
+ */
+
+@Getter
+@Builder(toBuilder = true)
+public class RoutingRuleEntity {
+
+    /**
+     * 规则ID
+     */
+    private final String ruleId;
+    /**
+     * 生效的应用ID，为null时对所有应用生效
+     */
+    private final String appId;
+    /**
+     * 生效的端点ID，为null时对应用的所有端点生效
+     */
+    private final String endpointId;
+    /**
+     * 优先级，数值小的先执行
+     */
+    private final int priority;
+    /**
+     * 匹配条件表达式，为空时匹配所有日志
+     */
+    private final String condition;
+    /**
+     * 动作
+     */
+    private final RuleAction action;
+    /**
+     * 动作参数：SAMPLE为保留比例（0~1），ROUTE为索引名后缀，TAG为 key=value[,key=value]
+     */
+    private final String actionParam;
+    /**
+     * 更新时间
+     */
+    private final Instant updatedTime;
+
+}
@@ -0,0 +1,51 @@
+package cn.cug.sxy.domain.reception.model.valobj;
+
+import cn.cug.sxy.types.model.ValueObject;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 09:45
+ * @Description 死信查询条件值对象
+ * @Author jerryhotton
+ */
+
+@Getter
+@Builder
+public class DeadLetterQuery implements ValueObject {
+
+    /**
+     * 应用ID
+     */
+    private String appId;
+    /**
+     * 接收端点ID
+     */
+    private String endpointId;
+    /**
+     * 指定批次ID列表
+     */
+    private List<String> batchIds;
+    /**
+     * 失败原因关键词
+     */
+    private String reasonKeyword;
+    /**
+     * 进入死信的开始时间
+     */
+    private Instant failedAfter;
+    /**
+     * 进入死信的结束时间
+     */
+    private Instant failedBefore;
+    /**
+     * 最大返回条数
+     */
+    @Builder.Default
+    private int limit = 100;
+
+}
@@ -0,0 +1,155 @@
+package cn.cug.sxy.domain.reception.model.valobj;
+
+import cn.cug.sxy.types.model.SymbolTable;
+import cn.cug.sxy.types.model.ValueObject;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/28 14:10
+ * @Description 日志核心属性值对象（接入时解析一次的类型化字段，不再以字符串形式存放在元数据中）
+ * @Author jerryhotton
+ */
+
+@Getter
+public class LogAttributes implements ValueObject {
+
+    /**
+     * 未携带任何核心属性
+     */
+    public static final LogAttributes EMPTY = new LogAttributes(null, null, null, null, 0L, Collections.emptyMap());
+
+    /**
+     * 客户端声明的日志级别，未声明时为null
+     */
+    private final LogLevel level;
+    /**
+     * 来源
+     */
+    private final String source;
+    /**
+     * 主机名
+     */
+    private final String hostname;
+    /**
+     * 客户端IP
+     */
+    private final String clientIp;
+    /**
+     * 接收时间（毫秒时间戳，未知时为0）
+     */
+    private final long receiveTime;
+    /**
+     * 标签（已解析，不可变）
+     */
+    private final Map<String, String> tags;
+    /**
+     * 重复次数（去重后一条日志代表的重复日志条数，未折叠时为1）
+     */
+    private final int repeatCount;
+    /**
+     * 折叠的重复日志中最早和最晚的时间（毫秒时间戳，未折叠时为0）
+     */
+    private final long firstSeen;
+    private final long lastSeen;
+
+    public LogAttributes(LogLevel level, String source, String hostname, String clientIp,
+                         long receiveTime, Map<String, String> tags) {
+        this(level, source, hostname, clientIp, receiveTime, tags, 1, 0L, 0L);
+    }
+
+    private LogAttributes(LogLevel level, String source, String hostname, String clientIp,
+                          long receiveTime, Map<String, String> tags, int repeatCount, long firstSeen, long lastSeen) {
+        SymbolTable symbols = SymbolTable.metadata();
+        this.level = level;
+        // 来源和主机名基数很低，规范化后同批次日志共享同一实例
+        this.source = symbols.intern(source);
+        this.hostname = symbols.intern(hostname);
+        this.clientIp = clientIp;
+        this.receiveTime = receiveTime;
+        this.tags = tags == null || tags.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(tags);
+        this.repeatCount = repeatCount;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+    }
+
+    /**
+     * 创建代表多条重复日志的副本
+     *
+     * @param repeatCount 重复次数
+     * @param firstSeen   最早出现时间（毫秒时间戳）
+     * @param lastSeen    最晚出现时间（毫秒时间戳）
+     * @return 新实例
+     */
+    public LogAttributes withRepeats(int repeatCount, long firstSeen, long lastSeen) {
+        return new LogAttributes(level, source, hostname, clientIp, receiveTime, tags, repeatCount, firstSeen, lastSeen);
+    }
+
+    /**
+     * 是否代表多条重复日志
+     */
+    public boolean isRepeated() {
+        return repeatCount > 1;
+    }
+
+    /**
+     * 解析标签字符串，标签格式: key1=value1,key2=value2
+     *
+     * @param tags 标签字符串，可为null
+     * @return 标签Map，无标签时返回空Map
+     */
+    public static Map<String, String> parseTags(String tags) {
+        if (tags == null || tags.isBlank()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> parsed = new HashMap<>();
+        int start = 0;
+        int length = tags.length();
+        while (start < length) {
+            int end = tags.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int eq = tags.indexOf('=', start);
+            if (eq > start && eq < end) {
+                parsed.put(tags.substring(start, eq), tags.substring(eq + 1, end));
+            }
+            start = end + 1;
+        }
+        return parsed;
+    }
+
+    /**
+     * 客户端IP，未知时返回空字符串
+     */
+    public String getClientIpOrEmpty() {
+        return clientIp != null ? clientIp : "";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LogAttributes that = (LogAttributes) o;
+        return receiveTime == that.receiveTime &&
+                repeatCount == that.repeatCount &&
+                firstSeen == that.firstSeen &&
+                lastSeen == that.lastSeen &&
+                level == that.level &&
+                Objects.equals(source, that.source) &&
+                Objects.equals(hostname, that.hostname) &&
+                Objects.equals(clientIp, that.clientIp) &&
+                Objects.equals(tags, that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(level, source, hostname, clientIp, receiveTime, tags, repeatCount, firstSeen, lastSeen);
+    }
+
+}
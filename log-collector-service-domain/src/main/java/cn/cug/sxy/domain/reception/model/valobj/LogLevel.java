@@ -0,0 +1,59 @@
+package cn.cug.sxy.domain.reception.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/28 14:00
+ * @Description 日志级别枚举
+ * @Author jerryhotton
+ */
+
+@Getter
+@AllArgsConstructor
+public enum LogLevel {
+
+    TRACE(0, "跟踪"),
+    DEBUG(1, "调试"),
+    INFO(2, "信息"),
+    WARN(3, "警告"),
+    ERROR(4, "错误"),
+    FATAL(5, "致命");
+
+    private final Integer code;
+    private final String info;
+
+    /**
+     * 标准化日志级别（兼容各日志框架的级别名称，含java.util.logging和syslog）
+     *
+     * @param level 级别名称，大小写不敏感
+     * @return 日志级别，无法识别时返回null
+     */
+    public static LogLevel parse(String level) {
+        if (level == null || level.isEmpty()) {
+            return null;
+        }
+        // 常见的标准名称直接匹配，不做大小写转换
+        switch (level) {
+            case "INFO": return INFO;
+            case "WARN": return WARN;
+            case "ERROR": return ERROR;
+            case "DEBUG": return DEBUG;
+            case "TRACE": return TRACE;
+            case "FATAL": return FATAL;
+            default: break;
+        }
+        String upper = level.trim().toUpperCase();
+        if (upper.contains("WARN")) return WARN;
+        if (upper.contains("ERR") || "SEVERE".equals(upper)) return ERROR;
+        if (upper.contains("INFO") || "CONFIG".equals(upper) || "NOTICE".equals(upper)) return INFO;
+        if (upper.contains("DEBUG") || "FINE".equals(upper)) return DEBUG;
+        if (upper.contains("TRACE") || "FINER".equals(upper) || "FINEST".equals(upper)) return TRACE;
+        if (upper.contains("FATAL") || "CRITICAL".equals(upper) || "CRIT".equals(upper)
+                || "ALERT".equals(upper) || "EMERG".equals(upper)) return FATAL;
+
+        return null;
+    }
+
+}
@@ -1,6 +1,7 @@
 package cn.cug.sxy.domain.reception.model.valobj;
 
 import cn.cug.sxy.domain.auth.model.valobj.AppId;
+import cn.cug.sxy.types.model.CompactMetadata;
 import cn.cug.sxy.types.model.ValueObject;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -8,6 +9,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,11 +23,20 @@ import java.util.Map;
 @Getter
 public class ProcessedLog implements ValueObject {
 
-    // 日志内容
-    private final String content;
+    /**
+     * 未从日志内容中解析到事件时间
+     */
+    public static final long NO_EVENT_TIME = Long.MIN_VALUE;
+
+    // 日志内容（脱敏后替换）
+    private String content;
     // 日志格式
     private final LogFormat format;
-    // 元数据
+    // 核心属性（接入时解析）
+    private final LogAttributes attributes;
+    // 日志级别（预处理从内容中识别到时覆盖客户端声明的级别，均未知时为null）
+    private LogLevel level;
+    // 自由格式的元数据（紧凑存储，键和低基数值经符号表规范化）
     private Map<String, String> metadata;
     // 所属应用ID
     private final String appId;
@@ -37,12 +48,26 @@ public class ProcessedLog implements ValueObject {
     private final Instant timestamp;
     // 处理时间
     private final Instant processTime;
+    // 从日志内容中解析出的事件时间（毫秒时间戳，未解析到时为NO_EVENT_TIME）
+    private long eventTime = NO_EVENT_TIME;
     // 是否通过验证
     private boolean validated;
     // 验证失败原因
     private String validationFailReason;
     // 提取的结构化字段
     private Map<String, Object> structuredFields;
+    // 日志模板ID（未挖掘到模板时为null）
+    private String templateId;
+    // 按模板位置提取的参数
+    private List<String> templateParams;
+    // 路由规则指定的索引名后缀（为null时写入默认索引）
+    private String route;
+    // 追加了规则标签后的完整标签（未追加时为null，以核心属性中的标签为准）
+    private Map<String, String> tags;
+    // 是否原样接入（未经过格式解析，字段在查询时提取）
+    private boolean raw;
+    // 日志在原始批次中的序号（预处理前的位置，不随校验和路由过滤变化，用于生成文档ID）
+    private int sequence;
 
     /**
      * 构造函数
@@ -56,9 +81,29 @@ public class ProcessedLog implements ValueObject {
      */
     public ProcessedLog(String content, LogFormat format, Map<String, String> metadata,
                         String appId, String endpointId, String sourceId, Instant timestamp, Instant processTime) {
+        this(content, format, LogAttributes.EMPTY, metadata, appId, endpointId, sourceId, timestamp, processTime);
+    }
+
+    /**
+     * 构造函数（携带核心属性）
+     *
+     * @param content     日志内容
+     * @param format      日志格式
+     * @param attributes  核心属性
+     * @param metadata    元数据
+     * @param appId       应用ID
+     * @param endpointId  端点ID
+     * @param processTime 处理时间
+     */
+    public ProcessedLog(String content, LogFormat format, LogAttributes attributes,
+                        Map<String, String> metadata, String appId, String endpointId, String sourceId,
+                        Instant timestamp, Instant processTime) {
         this.content = content;
         this.format = format;
-        this.metadata = new HashMap<>(metadata);
+        this.attributes = attributes != null ? attributes : LogAttributes.EMPTY;
+        this.level = this.attributes.getLevel();
+        // 预处理通常会追加十几个元数据
+        this.metadata = new CompactMetadata(metadata, 16);
         this.appId = appId;
         this.endpointId = endpointId;
         this.sourceId = sourceId;
@@ -78,13 +123,61 @@ public class ProcessedLog implements ValueObject {
         this.validationFailReason = reason;
     }
 
+    /**
+     * 替换为脱敏后的日志内容
+     *
+     * @param redactedContent 脱敏后的内容
+     */
+    public void redactContent(String redactedContent) {
+        this.content = redactedContent;
+    }
+
+    /**
+     * 设置从日志内容中识别出的日志级别
+     *
+     * @param level 日志级别，为null时保留原级别
+     */
+    public void assignLevel(LogLevel level) {
+        if (level != null) {
+            this.level = level;
+        }
+    }
+
+    /**
+     * 设置从日志内容中解析出的事件时间
+     *
+     * @param epochMillis 毫秒时间戳，NO_EVENT_TIME表示未解析到
+     */
+    public void assignEventTime(long epochMillis) {
+        this.eventTime = epochMillis;
+    }
+
+    /**
+     * 是否从日志内容中解析到了事件时间
+     */
+    public boolean hasEventTime() {
+        return eventTime != NO_EVENT_TIME;
+    }
+
+    /**
+     * 获取存储使用的时间（毫秒时间戳）：优先事件时间，未解析到时使用接收时的时间戳
+     *
+     * @return 毫秒时间戳
+     */
+    public long getEffectiveTimeMillis() {
+        if (eventTime != NO_EVENT_TIME) {
+            return eventTime;
+        }
+        return timestamp != null ? timestamp.toEpochMilli() : processTime.toEpochMilli();
+    }
+
     /**
      * 获取客户端IP
      *
      * @return 客户端IP
      */
     public String getClientIp() {
-        return metadata.getOrDefault("clientIp", "");
+        return attributes.getClientIpOrEmpty();
     }
 
     /**
@@ -102,7 +195,7 @@ public class ProcessedLog implements ValueObject {
      * @param newMetadata 新的元数据
      */
     public void updateMetadata(Map<String, String> newMetadata) {
-        this.metadata = new HashMap<>(newMetadata);
+        this.metadata = CompactMetadata.copyOf(newMetadata);
     }
 
     /**
@@ -125,6 +218,83 @@ public class ProcessedLog implements ValueObject {
         this.structuredFields.put(key, value);
     }
 
+    /**
+     * 设置日志模板
+     *
+     * @param templateId     模板ID
+     * @param templateParams 按模板位置提取的参数
+     */
+    public void assignTemplate(String templateId, List<String> templateParams) {
+        this.templateId = templateId;
+        this.templateParams = templateParams;
+    }
+
+    /**
+     * 设置日志在原始批次中的序号
+     *
+     * @param sequence 原始批次中的位置
+     */
+    public void assignSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * 标记为原样接入
+     */
+    public void markRaw() {
+        this.raw = true;
+    }
+
+    /**
+     * 设置路由规则指定的索引名后缀
+     *
+     * @param route 索引名后缀
+     */
+    public void assignRoute(String route) {
+        this.route = route;
+    }
+
+    /**
+     * 追加标签（与客户端标签同名时覆盖）
+     *
+     * @param key   标签名
+     * @param value 标签值
+     */
+    public void addTag(String key, String value) {
+        if (tags == null) {
+            tags = new HashMap<>(attributes.getTags());
+        }
+        tags.put(key, value);
+    }
+
+    /**
+     * 是否有路由规则追加的标签
+     *
+     * @return 是否追加过标签
+     */
+    public boolean hasAddedTags() {
+        return tags != null;
+    }
+
+    /**
+     * 获取标签：客户端标签及路由规则追加的标签
+     *
+     * @return 标签Map
+     */
+    public Map<String, String> getTags() {
+        return tags != null ? Collections.unmodifiableMap(tags) : attributes.getTags();
+    }
+
+    /**
+     * 获取单个结构化字段
+     *
+     * @param key 键
+     * @return 字段值，不存在时为null
+     */
+    public Object getStructuredField(String key) {
+        return structuredFields.get(key);
+    }
+
     /**
      * 获取结构化字段
      *
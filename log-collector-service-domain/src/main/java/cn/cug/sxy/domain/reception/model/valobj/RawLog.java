@@ -1,11 +1,11 @@
 package cn.cug.sxy.domain.reception.model.valobj;
 
+import cn.cug.sxy.types.model.CompactMetadata;
 import cn.cug.sxy.types.model.ValueObject;
 import lombok.Getter;
 
 import java.time.Instant;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -36,26 +36,46 @@ public class RawLog implements ValueObject {
      */
     private final Instant timestamp;
     /**
-     * 元数据
+     * 核心属性（级别、来源、主机名、客户端IP、接收时间、标签）
+     */
+    private final LogAttributes attributes;
+    /**
+     * 自由格式的元数据（紧凑存储，键和低基数值经符号表规范化）
      */
     private final Map<String, String> metadata;
 
-    public RawLog(String content, String sourceId, LogFormat format,
-                  Instant timestamp, Map<String, String> metadata) {
+    public RawLog(String content, String sourceId, LogFormat format, Instant timestamp,
+                  LogAttributes attributes, Map<String, String> metadata) {
         this.content = content;
         this.sourceId = sourceId;
         this.format = format;
         this.timestamp = timestamp;
-        this.metadata = Collections.unmodifiableMap(new HashMap<>(metadata));
+        this.attributes = attributes != null ? attributes : LogAttributes.EMPTY;
+        this.metadata = Collections.unmodifiableMap(CompactMetadata.copyOf(metadata));
+    }
+
+    /**
+     * 创建不带核心属性的原始日志
+     */
+    public static RawLog of(String content, String sourceId, LogFormat format,
+                            Instant timestamp, Map<String, String> metadata) {
+        return new RawLog(content, sourceId, format, timestamp, LogAttributes.EMPTY, metadata);
     }
 
     /**
      * 创建带有附加元数据的新实例
      */
     public RawLog withAddedMetadata(String key, String value) {
-        Map<String, String> newMetadata = new HashMap<>(this.metadata);
+        Map<String, String> newMetadata = new CompactMetadata(this.metadata, 1);
         newMetadata.put(key, value);
-        return new RawLog(content, sourceId, format, timestamp, newMetadata);
+        return new RawLog(content, sourceId, format, timestamp, attributes, newMetadata);
+    }
+
+    /**
+     * 创建替换核心属性的新实例
+     */
+    public RawLog withAttributes(LogAttributes attributes) {
+        return new RawLog(content, sourceId, format, timestamp, attributes, metadata);
     }
 
     @Override
@@ -67,12 +87,13 @@ public class RawLog implements ValueObject {
                 Objects.equals(sourceId, rawLog.sourceId) &&
                 format == rawLog.format &&
                 Objects.equals(timestamp, rawLog.timestamp) &&
+                Objects.equals(attributes, rawLog.attributes) &&
                 Objects.equals(metadata, rawLog.metadata);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(content, sourceId, format, timestamp, metadata);
+        return Objects.hash(content, sourceId, format, timestamp, attributes, metadata);
     }
 
 }
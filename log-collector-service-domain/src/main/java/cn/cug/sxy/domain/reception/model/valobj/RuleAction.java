@@ -0,0 +1,40 @@
+package cn.cug.sxy.domain.reception.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/29 09:30
+ * @Description 路由规则动作枚举
+ * @Author jerryhotton
+ */
+
+@Getter
+@AllArgsConstructor
+public enum RuleAction {
+
+    DROP(0, "丢弃"),
+    SAMPLE(1, "按比例采样"),
+    ROUTE(2, "路由到索引"),
+    TAG(3, "打标签");
+
+    public static RuleAction valueOf(Integer code) {
+        switch (code) {
+            case 0:
+                return DROP;
+            case 1:
+                return SAMPLE;
+            case 2:
+                return ROUTE;
+            case 3:
+                return TAG;
+            default:
+                throw new IllegalArgumentException("Invalid RuleAction code: " + code);
+        }
+    }
+
+    private final Integer code;
+    private final String info;
+
+}
@@ -1,24 +1,37 @@
 package cn.cug.sxy.domain.reception.service;
 
+import cn.cug.sxy.domain.reception.adapter.repository.IDeadLetterRepository;
 import cn.cug.sxy.domain.reception.adapter.repository.ILogBatchRepository;
 import cn.cug.sxy.domain.reception.alc.IPreprocessGateway;
 import cn.cug.sxy.domain.reception.alc.IStorageGateway;
+import cn.cug.sxy.domain.reception.model.entity.DeadLetterEntity;
 import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
 import cn.cug.sxy.domain.reception.model.valobj.BatchId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchStatus;
 import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import cn.cug.sxy.domain.reception.service.breaker.BatchHoldingArea;
+import cn.cug.sxy.domain.reception.service.breaker.StorageCircuitBreaker;
+import cn.cug.sxy.domain.reception.service.metrics.LogDerivedMetrics;
 import cn.cug.sxy.domain.reception.service.metrics.LogProcessingMetrics;
+import cn.cug.sxy.domain.reception.service.pipeline.PipelineStage;
+import cn.cug.sxy.domain.reception.service.retry.BatchRetryScheduler;
+import cn.cug.sxy.domain.reception.service.routing.LogRoutingEngine;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import cn.cug.sxy.types.exception.AppException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.aop.framework.AopContext;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -30,26 +43,90 @@ import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-public class BatchProcessingService implements IBatchProcessingService {
+public class BatchProcessingService implements IBatchProcessingService, InitializingBean, DisposableBean {
 
     private final ILogBatchRepository logBatchRepository;
     private final IStorageGateway storageGateway;
     private final IPreprocessGateway preprocessGateway;
     private final LogProcessingMetrics metrics;
+    private final BatchRetryScheduler batchRetryScheduler;
+    private final IDeadLetterRepository deadLetterRepository;
+    private final BatchHoldingArea batchHoldingArea;
+    private final LogRoutingEngine logRoutingEngine;
+    private final LogDerivedMetrics logDerivedMetrics;
 
     // 重试配置
     private static final int MAX_RETRY_COUNT = 3;
     private static final long RETRY_INTERVAL_MS = 1000;
+    private static final long MAX_RETRY_INTERVAL_MS = 30000;
+
+    /**
+     * 各阶段队列容量（批次数）
+     */
+    @Value("${log-center.reception.pipeline.queue-capacity:256}")
+    private int stageQueueCapacity;
+
+    /**
+     * 预处理阶段线程数（CPU密集，默认为CPU核数）
+     */
+    @Value("${log-center.reception.pipeline.preprocess-workers:0}")
+    private int preprocessWorkers;
+
+    /**
+     * 存储准备阶段线程数（CPU密集，默认为CPU核数的一半）
+     */
+    @Value("${log-center.reception.pipeline.enrich-workers:0}")
+    private int enrichWorkers;
+
+    /**
+     * 存储阶段线程数（只负责提交批次到存储领域，不等待写入结果）
+     */
+    @Value("${log-center.reception.pipeline.store-workers:16}")
+    private int storeWorkers;
+
+    /**
+     * 已提交、等待存储结果的批次数上限，达到上限时存储阶段阻塞，背压传递到上游阶段
+     */
+    @Value("${log-center.reception.pipeline.store-max-pending:512}")
+    private int storeMaxPending;
+
+    /**
+     * 等待存储结果的批次许可
+     */
+    private Semaphore storePending;
+
+    /**
+     * 预处理阶段：校验批次、更新处理中状态、预处理与验证日志
+     */
+    private PipelineStage<BatchTask> preprocessStage;
+    /**
+     * 存储准备阶段：补充存储元数据，转换为存储日志
+     */
+    private PipelineStage<BatchTask> enrichStage;
+    /**
+     * 存储阶段：写入存储领域并更新批次状态
+     */
+    private PipelineStage<BatchTask> storeStage;
 
     public BatchProcessingService(
             ILogBatchRepository logBatchRepository,
             IStorageGateway storageGateway,
             IPreprocessGateway preprocessGateway,
-            LogProcessingMetrics metrics) {
+            LogProcessingMetrics metrics,
+            BatchRetryScheduler batchRetryScheduler,
+            IDeadLetterRepository deadLetterRepository,
+            BatchHoldingArea batchHoldingArea,
+            LogRoutingEngine logRoutingEngine,
+            LogDerivedMetrics logDerivedMetrics) {
         this.logBatchRepository = logBatchRepository;
         this.storageGateway = storageGateway;
         this.preprocessGateway = preprocessGateway;
         this.metrics = metrics;
+        this.batchRetryScheduler = batchRetryScheduler;
+        this.deadLetterRepository = deadLetterRepository;
+        this.batchHoldingArea = batchHoldingArea;
+        this.logRoutingEngine = logRoutingEngine;
+        this.logDerivedMetrics = logDerivedMetrics;
     }
 
     @Override
@@ -58,45 +135,236 @@ public class BatchProcessingService implements IBatchProcessingService {
             log.error("批次为空，无法处理");
             return;
         }
-        BatchId batchId = batchEntity.getId();
-        int retryCount = 0;
-        boolean success = false;
-        Exception lastException = null;
-        while (retryCount <= MAX_RETRY_COUNT && !success) {
+        submitAttempt(new BatchTask(batchEntity, 0));
+    }
+
+    /**
+     * 执行批次重试 (由重试调度器到期后调用)
+     *
+     * @param batchEntity 批次
+     * @param retryCount  当前重试次数
+     */
+    public void retryBatch(LogBatchEntity batchEntity, int retryCount) {
+        submitAttempt(new BatchTask(batchEntity, retryCount));
+    }
+
+    /**
+     * 重新提交暂存区释放的批次，存储时使用释放时申请的熔断器许可
+     *
+     * @param batchEntity 批次
+     * @param retryCount  当前重试次数
+     * @param permit      熔断器许可
+     */
+    private void releaseHeldBatch(LogBatchEntity batchEntity, int retryCount, long permit) {
+        BatchTask task = new BatchTask(batchEntity, retryCount);
+        task.storagePermit = permit;
+        submitAttempt(task);
+    }
+
+    @Override
+    public List<PipelineStage.StageStats> getPipelineStats() {
+        return List.of(preprocessStage.getStats(), enrichStage.getStats(), storeStage.getStats());
+    }
+
+    /**
+     * 提交一次批次处理尝试到流水线，流水线已满时阻塞提交方
+     *
+     * @param task 批次处理任务
+     */
+    private void submitAttempt(BatchTask task) {
+        // 存储熔断期间不再预处理，直接进入暂存区等待存储恢复（已占用许可的批次直接提交）
+        if (task.storagePermit == StorageCircuitBreaker.REJECTED && !storageGateway.isAvailable() && holdBatch(task)) {
+            return;
+        }
+        try {
+            preprocessStage.submit(task);
+        } catch (InterruptedException e) {
+            releasePermit(task);
+            Thread.currentThread().interrupt();
+            log.warn("提交批次到处理流水线被中断: batchId={}", task.source.getId().getValue());
+        }
+    }
+
+    /**
+     * 预处理阶段 (CPU密集)
+     *
+     * @param task 批次处理任务
+     */
+    private void runPreprocessStage(BatchTask task) {
+        // 1. 检查批次是否存在并获取批次信息 (优先读取批次状态账本)
+        LogBatchEntity batch = fetchAndValidateBatch(task.source);
+        if (batch == null) {
+            releasePermit(task);
+            return; // 批次不存在或已处理完成
+        }
+        task.batch = batch;
+        // 2. 更新批次状态为处理中 (写入账本，不直接访问数据库)
+        updateBatchToProcessing(batch.getId(), task.retryCount);
+        // 3. 预处理和验证日志 (纯内存处理)
+        List<ProcessedLog> validLogs = preprocessAndValidateLogs(batch);
+        if (validLogs.isEmpty()) {
+            // 没有有效日志，直接标记为处理完成
+            releasePermit(task);
+            markBatchAsProcessed(batch.getId());
+            return;
+        }
+        task.validLogs = validLogs;
+        forward(enrichStage, task);
+    }
+
+    /**
+     * 存储准备阶段 (CPU密集)
+     *
+     * @param task 批次处理任务
+     */
+    private void runEnrichStage(BatchTask task) {
+        task.storageBatch = storageGateway.prepareBatch(task.batch, task.validLogs);
+        // 处理后的日志已按列写入存储批次，释放逐条日志对象，等待存储期间只保留列式批次
+        task.validLogs = null;
+        forward(storeStage, task);
+    }
+
+    /**
+     * 存储阶段 (IO密集)：提交批次后立即处理下一个批次，写入结果由存储完成回调处理，
+     * 阶段线程不随bulk合并等待时间阻塞；阶段统计中的处理数为已提交的批次数
+     *
+     * @param task 批次处理任务
+     */
+    private void runStoreStage(BatchTask task) {
+        try {
+            storePending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException("批次处理流水线已关闭", e);
+        }
+        // 许可随存储调用交给存储网关，由存储结果归还
+        long permit = task.storagePermit;
+        task.storagePermit = StorageCircuitBreaker.REJECTED;
+        CompletableFuture<IStorageGateway.BatchStorageResult> stored;
+        try {
+            // 1. 将日志批次传递给下游存储领域 (外部系统调用)
+            stored = storageGateway.storePreparedBatchAsync(task.batch, task.storageBatch, permit);
+        } catch (RuntimeException e) {
+            storePending.release();
+            throw e;
+        }
+        stored.whenComplete((storageResult, error) -> {
             try {
-                // 1. 检查批次是否存在并获取批次信息 (只读事务)
-                LogBatchEntity batch = fetchAndValidateBatch(batchEntity);
-                if (batch == null) {
-                    return; // 批次不存在或已处理完成
-                }
-                // 2. 处理批次 (每个步骤都有自己的事务)
-                success = processLogBatch(batch, retryCount);
-                // 如果处理失败但没有抛出异常，记录失败并准备重试
-                if (!success) {
-                    retryCount++;
-                    log.warn("批次处理失败，准备第{}次重试: batchId={}",
-                            retryCount, batchId.getValue());
-                    // 执行重试等待策略
-                    if (retryCount <= MAX_RETRY_COUNT && !executeRetryWait(retryCount, batchId)) {
-                        break; // 如果等待被中断则退出重试
-                    }
+                if (error != null) {
+                    throw new AppException("存储批次失败", error);
                 }
+                completeStore(task, storageResult);
             } catch (Exception e) {
-                lastException = e;
-                retryCount++;
-                // 记录异常信息
-                log.error("批次处理异常: batchId={}, retryCount={}, error={}",
-                        batchId.getValue(), retryCount, e.getMessage(), e);
-                // 执行重试等待策略
-                if (retryCount <= MAX_RETRY_COUNT && !executeRetryWait(retryCount, batchId)) {
-                    break; // 如果等待被中断则退出重试
-                }
+                onStageFailure(task, e);
+            } finally {
+                storePending.release();
             }
+        });
+    }
+
+    /**
+     * 存储完成回调：更新批次状态、发布事件并记录派生指标
+     *
+     * @param task          批次处理任务
+     * @param storageResult 存储结果
+     */
+    private void completeStore(BatchTask task, IStorageGateway.BatchStorageResult storageResult) {
+        BatchId batchId = task.batch.getId();
+        if (storageResult.isRejected()) {
+            // 存储熔断，批次进入暂存区，不计入重试次数
+            if (!holdBatch(task)) {
+                throw new AppException("存储熔断且暂存区已满: " + storageResult.getErrorMessage());
+            }
+            return;
+        }
+        if (!storageResult.isSuccess()) {
+            throw new AppException("批次传输到存储领域失败: " + storageResult.getErrorMessage());
+        }
+        // 2. 处理完成后更新批次状态 (与处理中状态在账本内合并为一次写回)
+        updateProcessedBatchStatus(batchId, storageResult.getBatchTraceId());
+        // 3. 发布事件并记录度量指标
+        publishSuccessEventAndMetrics(batchId, task.storageBatch.size(), storageResult.getBatchTraceId());
+        // 4. 从已入库的日志提取派生指标 (仅在存储成功后记录一次，重试不会重复计数)
+        logDerivedMetrics.record(task.storageBatch);
+        // 5. 批次已入库，释放路由规则的执行结果
+        logRoutingEngine.complete(batchId);
+    }
+
+    /**
+     * 将任务传递到下一阶段，下一阶段队列已满时阻塞当前阶段，背压逐级传递到提交方
+     */
+    private void forward(PipelineStage<BatchTask> next, BatchTask task) {
+        try {
+            next.submit(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException("批次处理流水线已关闭", e);
         }
-        // 如果重试后仍然失败，标记批次为最终失败 (独立事务)
-        if (!success && retryCount > MAX_RETRY_COUNT) {
-            BatchProcessingService proxy = (BatchProcessingService) AopContext.currentProxy();
-            proxy.handleFinalFailure(batchId, lastException);
+    }
+
+    /**
+     * 将批次放入暂存区，存储恢复后以相同重试次数重新提交
+     *
+     * @param task 批次处理任务
+     * @return 是否暂存成功
+     */
+    private boolean holdBatch(BatchTask task) {
+        LogBatchEntity source = task.source;
+        int retryCount = task.retryCount;
+        return batchHoldingArea.hold(source.getId(),
+                permit -> releaseHeldBatch(source, retryCount, permit),
+                // 服务关闭时仍未释放的批次写入死信存储，可通过死信重放恢复
+                () -> recordDeadLetter(source, retryCount, "服务关闭时批次仍在存储熔断暂存区"));
+    }
+
+    /**
+     * 归还批次未用于存储调用的熔断器许可
+     */
+    private void releasePermit(BatchTask task) {
+        if (task.storagePermit != StorageCircuitBreaker.REJECTED) {
+            storageGateway.releasePermit(task.storagePermit);
+            task.storagePermit = StorageCircuitBreaker.REJECTED;
+        }
+    }
+
+    /**
+     * 任一阶段处理失败，交给重试调度器延迟重试，不阻塞阶段线程
+     *
+     * @param task      批次处理任务
+     * @param exception 异常
+     */
+    private void onStageFailure(BatchTask task, Exception exception) {
+        releasePermit(task);
+        log.error("批次处理异常: batchId={}, retryCount={}, error={}",
+                task.source.getId().getValue(), task.retryCount + 1, exception.getMessage(), exception);
+        scheduleRetryOrFail(task.source, task.retryCount + 1, exception);
+    }
+
+    /**
+     * 调度下一次重试，超过最大重试次数则标记为最终失败
+     *
+     * @param batchEntity   批次
+     * @param retryCount    下一次重试次数
+     * @param lastException 最近一次异常
+     */
+    private void scheduleRetryOrFail(LogBatchEntity batchEntity, int retryCount, Exception lastException) {
+        BatchId batchId = batchEntity.getId();
+        // 如果重试后仍然失败，标记批次为最终失败
+        if (retryCount > MAX_RETRY_COUNT) {
+            handleFinalFailure(batchEntity, retryCount - 1, lastException);
+            return;
+        }
+        // 记录重试指标
+        try {
+            recordRetryMetrics(batchId);
+        } catch (Exception e) {
+            log.warn("记录重试指标失败: batchId={}, error={}", batchId.getValue(), e.getMessage());
+        }
+        long delayMs = calculateRetryDelay(retryCount);
+        boolean scheduled = batchRetryScheduler.schedule(batchId, delayMs,
+                () -> retryBatch(batchEntity, retryCount));
+        if (!scheduled) {
+            log.warn("批次重试调度失败，放弃重试: batchId={}, retryCount={}", batchId.getValue(), retryCount);
         }
     }
 
@@ -127,83 +395,17 @@ public class BatchProcessingService implements IBatchProcessingService {
                     batchId.getValue(), batch.getRetryCount());
             return null;
         }
-        // 检查批次是否已经被存储领域处理（幂等性检查）
-        if (storageGateway.isBatchStored(batchId)) {
-            log.info("批次已被存储领域处理，标记为已处理: batchId={}", batchId.getValue());
-            try {
-                // 使用独立事务更新状态，确保本次检查与更新的数据一致性
-                BatchProcessingService proxy = (BatchProcessingService) AopContext.currentProxy();
-                proxy.updateBatchAsAlreadyStored(batchId);
-            } catch (Exception e) {
-                log.error("更新批次状态失败: batchId={}, error={}", batchId.getValue(), e.getMessage(), e);
-                // 即使更新失败，也认为批次已处理，防止重复处理
-            }
-            return null;
-        }
+        // 存储领域使用确定性文档ID写入，重复存储不会产生重复文档，无需再向存储领域确认批次是否已存储
 
         return batch;
     }
 
-    /**
-     * 标记批次为已存储状态 (独立事务)
-     *
-     * @param batchId 批次ID
-     */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updateBatchAsAlreadyStored(BatchId batchId) {
-        Instant now = Instant.now();
-        logBatchRepository.updateProcessedBatchStatus(
-                batchId,
-                BatchStatus.PROCESSED,
-                now,
-                now,
-                null,  // 无需跟踪ID，因为只是确认已存储
-                true   // 已确认
-        );
-    }
-
-    /**
-     * 处理日志批次
-     *
-     * @param batch      日志批次
-     * @param retryCount 当前重试次数
-     * @return 是否处理成功
-     */
-    private boolean processLogBatch(LogBatchEntity batch, int retryCount) {
-        BatchId batchId = batch.getId();
-        try {
-            // 1. 更新批次状态为处理中 (独立事务)
-            BatchProcessingService proxy = (BatchProcessingService) AopContext.currentProxy();
-            proxy.updateBatchToProcessing(batchId, retryCount);
-            // 2. 预处理和验证日志 (非事务操作，纯内存处理)
-            List<ProcessedLog> validLogs = preprocessAndValidateLogs(batch);
-            if (validLogs.isEmpty()) {
-                // 没有有效日志，直接标记为处理完成 (独立事务)
-                proxy.markBatchAsProcessed(batchId);
-                return true;
-            }
-            // 3. 将日志批次传递给下游存储领域 (非事务操作，外部系统调用)
-            IStorageGateway.BatchStorageResult storageResult = storeLogBatch(batch, validLogs);
-            // 4. 处理完成后更新批次状态 (独立事务)
-            proxy.updateProcessedBatchStatus(batchId, storageResult.getBatchTraceId());
-            // 5. 发布事件并记录度量指标 (非事务操作或独立事务)
-            publishSuccessEventAndMetrics(batchId, validLogs.size(), storageResult.getBatchTraceId());
-
-            return true;
-        } catch (Exception e) {
-            // 任何处理过程中的异常都记录并向上抛出，由上层重试机制处理
-            log.error("处理批次过程中出错: batchId={}, error={}", batchId.getValue(), e.getMessage(), e);
-            return false;
-        }
-    }
-
     /**
      * 更新批次状态为处理中
      *
      * @param batchId    批次ID
      * @param retryCount 重试次数
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void updateBatchToProcessing(BatchId batchId, int retryCount) {
         try {
             Instant now = Instant.now();
@@ -230,9 +432,7 @@ public class BatchProcessingService implements IBatchProcessingService {
         try {
             // 1. 日志预处理 - 格式转换、字段提取等
             List<ProcessedLog> processedLogs = preprocessLogs(batch);
-            // 2. todo 日志验证 - 应用业务规则链
-
-            // 过滤出验证通过的日志
+            // 2. 过滤出验证通过的日志
             List<ProcessedLog> validLogs = processedLogs.stream()
                     .filter(ProcessedLog::isValidated)
                     .collect(Collectors.toList());
@@ -240,8 +440,15 @@ public class BatchProcessingService implements IBatchProcessingService {
                 log.warn("批次中没有有效日志，标记为处理完成: batchId={}", batch.getId().getValue());
                 return Collections.emptyList();
             }
+            // 3. 执行路由规则 - 丢弃和采样未保留的日志不再进入存储准备阶段
+            List<ProcessedLog> keptLogs = logRoutingEngine.apply(
+                    batch.getId(), batch.getAppId(), batch.getEndpointId(), validLogs);
+            if (keptLogs.isEmpty()) {
+                log.info("批次日志已全部被路由规则丢弃，标记为处理完成: batchId={}, validCount={}",
+                        batch.getId().getValue(), validLogs.size());
+            }
 
-            return validLogs;
+            return keptLogs;
         } catch (Exception e) {
             log.error("预处理和验证日志失败: batchId={}, error={}",
                     batch.getId().getValue(), e.getMessage(), e);
@@ -249,34 +456,11 @@ public class BatchProcessingService implements IBatchProcessingService {
         }
     }
 
-    /**
-     * 存储日志批次到下游领域
-     *
-     * @param batch     日志批次
-     * @param validLogs 有效的日志列表
-     * @return 存储结果
-     */
-    private IStorageGateway.BatchStorageResult storeLogBatch(LogBatchEntity batch, List<ProcessedLog> validLogs) {
-        try {
-            // 调用存储适配器存储批次
-            IStorageGateway.BatchStorageResult storageResult = storageGateway.storeBatch(batch, validLogs);
-            if (!storageResult.isSuccess()) {
-                throw new AppException("批次传输到存储领域失败: " + storageResult.getErrorMessage());
-            }
-
-            return storageResult;
-        } catch (Exception e) {
-            log.error("存储批次失败: batchId={}, error={}", batch.getId().getValue(), e.getMessage(), e);
-            throw new AppException("存储批次失败", e);
-        }
-    }
-
     /**
      * 标记批次为已处理状态
      *
      * @param batchId 批次ID
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void markBatchAsProcessed(BatchId batchId) {
         try {
             Instant now = Instant.now();
@@ -298,7 +482,6 @@ public class BatchProcessingService implements IBatchProcessingService {
      * @param batchId      批次ID
      * @param batchTraceId 批次跟踪ID
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void updateProcessedBatchStatus(BatchId batchId, String batchTraceId) {
         try {
             Instant now = Instant.now();
@@ -349,30 +532,16 @@ public class BatchProcessingService implements IBatchProcessingService {
     }
 
     /**
-     * 执行重试等待策略
+     * 计算重试等待时间
+     * 指数退避并叠加随机抖动，避免大量失败批次在同一时刻集中重试
      *
      * @param retryCount 当前重试次数
-     * @param batchId    批次ID
-     * @return 是否成功等待（未被中断）
+     * @return 等待时间（毫秒）
      */
-    private boolean executeRetryWait(int retryCount, BatchId batchId) {
-        // 记录重试指标
-        try {
-            recordRetryMetrics(batchId);
-        } catch (Exception e) {
-            log.warn("记录重试指标失败: batchId={}, error={}", batchId.getValue(), e.getMessage());
-        }
-
-        try {
-            // 指数退避策略，每次重试等待时间递增
-            long waitTime = RETRY_INTERVAL_MS * (long) Math.pow(2, retryCount - 1);
-            Thread.sleep(waitTime);
-            return true;
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            log.warn("批次处理重试等待被中断: batchId={}", batchId.getValue());
-            return false;
-        }
+    private long calculateRetryDelay(int retryCount) {
+        long backoff = Math.min(RETRY_INTERVAL_MS << Math.min(retryCount - 1, 20), MAX_RETRY_INTERVAL_MS);
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
     }
 
     /**
@@ -390,23 +559,59 @@ public class BatchProcessingService implements IBatchProcessingService {
     /**
      * 处理最终失败的情况
      *
-     * @param batchId   批次ID
-     * @param exception 导致失败的异常
+     * @param batchEntity 批次（包含原始日志）
+     * @param retryCount  已重试次数
+     * @param exception   导致失败的异常
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void handleFinalFailure(BatchId batchId, Exception exception) {
+    public void handleFinalFailure(LogBatchEntity batchEntity, int retryCount, Exception exception) {
+        BatchId batchId = batchEntity.getId();
         try {
-            String errorMessage = "批次处理失败，已达到最大重试次数: " + exception.getMessage();
+            String errorMessage = "批次处理失败，已达到最大重试次数: " + describeFailure(exception);
             log.error(errorMessage);
             // 更新批次状态为失败
             logBatchRepository.updateStatus(batchId, BatchStatus.FAILED, errorMessage);
-            // 记录失败指标和通知操作在单独的事务中执行
+            // 原始日志连同失败原因写入死信存储，便于排障后重放
+            recordDeadLetter(batchEntity, retryCount, errorMessage);
+            // 记录失败指标和通知
             recordFailureAndNotify(batchId, exception);
         } catch (Exception e) {
             log.error("处理最终失败状态时出错: batchId={}, error={}", batchId.getValue(), e.getMessage(), e);
         }
     }
 
+    /**
+     * 写入死信存储
+     *
+     * @param batchEntity   批次
+     * @param retryCount    已重试次数
+     * @param failureReason 失败原因
+     */
+    private void recordDeadLetter(LogBatchEntity batchEntity, int retryCount, String failureReason) {
+        try {
+            deadLetterRepository.save(DeadLetterEntity.fromFailedBatch(batchEntity, retryCount, failureReason));
+            log.warn("批次已写入死信存储: batchId={}, logCount={}",
+                    batchEntity.getId().getValue(), batchEntity.getLogCount());
+        } catch (Exception e) {
+            log.error("写入死信存储失败: batchId={}, error={}", batchEntity.getId().getValue(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 拼接异常及其原因链的信息
+     */
+    private String describeFailure(Exception exception) {
+        if (exception == null) {
+            return "未知错误";
+        }
+        StringBuilder description = new StringBuilder(String.valueOf(exception.getMessage()));
+        Throwable cause = exception.getCause();
+        while (cause != null && cause != cause.getCause()) {
+            description.append(" <- ").append(cause.getMessage());
+            cause = cause.getCause();
+        }
+        return description.toString();
+    }
+
     /**
      * 记录失败指标并发送通知
      *
@@ -457,4 +662,69 @@ public class BatchProcessingService implements IBatchProcessingService {
                 exception != null ? exception.getMessage() : "未知错误");
     }
 
+    @Override
+    public void afterPropertiesSet() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int preprocessCount = preprocessWorkers > 0 ? preprocessWorkers : cores;
+        int enrichCount = enrichWorkers > 0 ? enrichWorkers : Math.max(1, cores / 2);
+        preprocessStage = new PipelineStage<>("preprocess", stageQueueCapacity, preprocessCount,
+                this::runPreprocessStage, this::onStageFailure);
+        enrichStage = new PipelineStage<>("enrich", stageQueueCapacity, enrichCount,
+                this::runEnrichStage, this::onStageFailure);
+        storeStage = new PipelineStage<>("store", stageQueueCapacity, storeWorkers,
+                this::runStoreStage, this::onStageFailure);
+        storePending = new Semaphore(storeMaxPending);
+        // 先启动下游阶段
+        storeStage.start();
+        enrichStage.start();
+        preprocessStage.start();
+    }
+
+    @Override
+    public void destroy() {
+        // 按上游到下游的顺序停止，使在途批次尽量处理完成
+        int dropped = preprocessStage.stop(5000).size()
+                + enrichStage.stop(5000).size()
+                + storeStage.stop(5000).size();
+        // 等待已提交批次的存储结果回调完成
+        try {
+            if (!storePending.tryAcquire(storeMaxPending, 10, TimeUnit.SECONDS)) {
+                log.warn("等待存储结果超时，未完成的批次由清理任务按超时处理: pending={}",
+                        storeMaxPending - storePending.availablePermits());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 暂存区中的批次在持久化依赖关闭前写入死信存储
+        batchHoldingArea.drain();
+        if (dropped > 0) {
+            // 未处理的批次保持当前状态，由清理任务按超时处理
+            log.warn("批次处理流水线关闭，丢弃未处理的批次: count={}", dropped);
+        }
+        log.info("批次处理流水线已关闭");
+    }
+
+    /**
+     * 批次处理任务（在流水线各阶段之间传递）
+     */
+    private static class BatchTask {
+        // 提交的原始批次
+        private final LogBatchEntity source;
+        // 当前重试次数
+        private final int retryCount;
+        // 校验后的批次
+        private LogBatchEntity batch;
+        // 有效日志
+        private List<ProcessedLog> validLogs;
+        // 列式存储批次
+        private ColumnarLogBatch storageBatch;
+        // 暂存区释放时为批次申请的熔断器许可，没有许可时为 REJECTED
+        private long storagePermit = StorageCircuitBreaker.REJECTED;
+
+        BatchTask(LogBatchEntity source, int retryCount) {
+            this.source = source;
+            this.retryCount = retryCount;
+        }
+    }
+
 }
@@ -1,7 +1,9 @@
 package cn.cug.sxy.domain.reception.service;
 
 import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
-import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.service.pipeline.PipelineStage;
+
+import java.util.List;
 
 /**
  * @version 1.0
@@ -25,4 +27,11 @@ public interface IBatchProcessingService {
      */
     void processBatchAsync(LogBatchEntity batchEntity);
 
+    /**
+     * 获取批次处理流水线各阶段的统计（队列深度、吞吐、耗时）
+     *
+     * @return 各阶段统计
+     */
+    List<PipelineStage.StageStats> getPipelineStats();
+
 }
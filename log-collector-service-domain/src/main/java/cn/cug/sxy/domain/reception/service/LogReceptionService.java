@@ -12,11 +12,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @version 1.0
@@ -34,22 +29,6 @@ public class LogReceptionService implements ILogReceptionService, InitializingBe
     private final LogBufferManager logBufferManager;
     private final IBatchProcessingService batchProcessingService;
 
-    // 异步处理线程池
-    private final Executor asyncExecutor = Executors.newFixedThreadPool(
-            Runtime.getRuntime().availableProcessors(),
-            new ThreadFactory() {
-                private final AtomicInteger counter = new AtomicInteger();
-
-                @Override
-                public Thread newThread(Runnable r) {
-                    Thread thread = new Thread(r);
-                    thread.setName("log-batch-processor-" + counter.incrementAndGet());
-                    thread.setDaemon(true);
-                    return thread;
-                }
-            }
-    );
-
     public LogReceptionService(
             IReceiverEndpointRepository receiverEndpointRepository,
             DefaultLogicChainFactory logicChainFactory,
@@ -63,9 +42,8 @@ public class LogReceptionService implements ILogReceptionService, InitializingBe
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        logBufferManager.setBatchProcessCallback(batchId ->
-                CompletableFuture.runAsync(() -> batchProcessingService.processBatchAsync(batchId), asyncExecutor)
-        );
+        // 批次直接提交到处理流水线，流水线已满时阻塞缓冲区刷新线程，形成端到端背压
+        logBufferManager.setBatchProcessCallback(batchProcessingService::processBatchAsync);
     }
 
     @Override
@@ -0,0 +1,232 @@
+package cn.cug.sxy.domain.reception.service.breaker;
+
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/22 17:45
+ * @Description 批次暂存区（存储熔断期间批次在此等待，熔断器放行后逐个申请许可并随批次释放，避免重试进一步冲击存储后端；
+ * 关闭时未释放的批次交给调用方持久化）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class BatchHoldingArea implements InitializingBean, DisposableBean {
+
+    private final StorageCircuitBreaker circuitBreaker;
+
+    /**
+     * 暂存容量（批次数），超出时由调用方按普通失败处理
+     */
+    @Value("${log-center.reception.storage-breaker.holding-capacity:10000}")
+    private int capacity;
+
+    /**
+     * 释放检查间隔（毫秒）
+     */
+    @Value("${log-center.reception.storage-breaker.release-interval-ms:200}")
+    private long releaseIntervalMs;
+
+    /**
+     * 熔断器关闭时单次最多释放的批次数
+     */
+    @Value("${log-center.reception.storage-breaker.release-batch-size:64}")
+    private int releaseBatchSize;
+
+    private final Queue<HeldBatch> heldBatches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger heldCount = new AtomicInteger();
+
+    /**
+     * 关闭后不再接收和释放批次
+     */
+    private volatile boolean closed;
+
+    /**
+     * 释放定时器，只负责派发释放动作
+     */
+    private final ScheduledExecutorService releaser = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "batch-holding-releaser");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 暂存统计
+    private final LongAdder totalHeld = new LongAdder();
+    private final LongAdder totalReleased = new LongAdder();
+    private final LongAdder totalOverflow = new LongAdder();
+    private final LongAdder totalDrained = new LongAdder();
+
+    public BatchHoldingArea(StorageCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * 暂存批次，熔断器放行后执行释放动作
+     *
+     * @param batchId       批次ID
+     * @param releaseAction 释放时执行的动作（重新提交批次），参数为已为该批次申请的熔断器许可，
+     *                      动作执行失败时许可由暂存区归还
+     * @param drainAction   关闭时批次仍未释放时执行的动作（持久化批次）
+     * @return 是否暂存成功（暂存区已满或已关闭时返回false）
+     */
+    public boolean hold(BatchId batchId, LongConsumer releaseAction, Runnable drainAction) {
+        if (closed) {
+            return false;
+        }
+        if (heldCount.incrementAndGet() > capacity) {
+            heldCount.decrementAndGet();
+            totalOverflow.increment();
+            log.warn("批次暂存区已满，无法暂存批次: batchId={}, capacity={}", batchId.getValue(), capacity);
+            return false;
+        }
+        heldBatches.offer(new HeldBatch(batchId, releaseAction, drainAction));
+        totalHeld.increment();
+        log.debug("存储不可用，批次进入暂存区: batchId={}", batchId.getValue());
+        return true;
+    }
+
+    public int getHeldCount() {
+        return heldCount.get();
+    }
+
+    public long getTotalHeld() {
+        return totalHeld.sum();
+    }
+
+    public long getTotalReleased() {
+        return totalReleased.sum();
+    }
+
+    public long getTotalOverflow() {
+        return totalOverflow.sum();
+    }
+
+    public long getTotalDrained() {
+        return totalDrained.sum();
+    }
+
+    /**
+     * 停止接收和释放批次，对仍在暂存区的批次执行关闭动作（由批次处理服务在关闭时调用，此时持久化依赖仍可用）
+     *
+     * @return 执行关闭动作的批次数
+     */
+    public int drain() {
+        closed = true;
+        releaser.shutdownNow();
+        List<HeldBatch> remaining = new ArrayList<>();
+        HeldBatch heldBatch;
+        while ((heldBatch = heldBatches.poll()) != null) {
+            heldCount.decrementAndGet();
+            remaining.add(heldBatch);
+        }
+        for (HeldBatch batch : remaining) {
+            try {
+                batch.drainAction.run();
+                totalDrained.increment();
+            } catch (Exception e) {
+                log.error("持久化暂存批次失败: batchId={}, error={}", batch.batchId.getValue(), e.getMessage(), e);
+            }
+        }
+        if (!remaining.isEmpty()) {
+            log.warn("批次暂存区关闭，暂存中的批次已交由调用方持久化: count={}", remaining.size());
+        }
+        return remaining.size();
+    }
+
+    /**
+     * 熔断器状态变更时立即尝试释放，不等待下一次定时检查
+     */
+    @EventListener
+    public void onCircuitStateChanged(CircuitStateChangedEvent event) {
+        if (event.getTo() == CircuitState.OPEN || heldBatches.isEmpty()) {
+            return;
+        }
+        try {
+            releaser.execute(this::release);
+        } catch (RejectedExecutionException e) {
+            log.debug("批次暂存区已关闭，忽略熔断器状态变更");
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        releaser.scheduleWithFixedDelay(this::release, releaseIntervalMs, releaseIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("批次暂存区已启动, 容量: {}, 释放间隔: {}ms", capacity, releaseIntervalMs);
+    }
+
+    @Override
+    public void destroy() {
+        // 批次处理服务关闭时已调用，这里兜底处理之后暂存的批次
+        drain();
+    }
+
+    /**
+     * 逐个向熔断器申请许可并随批次释放，许可用于该批次的存储调用，半开状态下释放量受探测名额限制，
+     * 不会与新提交的批次重复占用同一名额
+     */
+    private void release() {
+        try {
+            for (int i = 0; i < releaseBatchSize && !closed && !heldBatches.isEmpty(); i++) {
+                // 先检查可用许可，熔断打开期间不产生拒绝计数
+                if (circuitBreaker.availablePermits() <= 0) {
+                    return;
+                }
+                long permit = circuitBreaker.tryAcquire();
+                if (permit == StorageCircuitBreaker.REJECTED) {
+                    return;
+                }
+                HeldBatch heldBatch = heldBatches.poll();
+                if (heldBatch == null) {
+                    circuitBreaker.release(permit);
+                    return;
+                }
+                heldCount.decrementAndGet();
+                totalReleased.increment();
+                try {
+                    heldBatch.releaseAction.accept(permit);
+                } catch (Exception e) {
+                    circuitBreaker.release(permit);
+                    log.error("释放暂存批次失败: batchId={}, error={}",
+                            heldBatch.batchId.getValue(), e.getMessage(), e);
+                }
+            }
+        } catch (Exception e) {
+            log.error("释放暂存批次异常", e);
+        }
+    }
+
+    /**
+     * 暂存中的批次
+     */
+    private static class HeldBatch {
+        private final BatchId batchId;
+        private final LongConsumer releaseAction;
+        private final Runnable drainAction;
+
+        HeldBatch(BatchId batchId, LongConsumer releaseAction, Runnable drainAction) {
+            this.batchId = batchId;
+            this.releaseAction = releaseAction;
+            this.drainAction = drainAction;
+        }
+    }
+
+}
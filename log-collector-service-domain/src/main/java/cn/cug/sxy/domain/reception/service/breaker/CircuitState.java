@@ -0,0 +1,24 @@
+package cn.cug.sxy.domain.reception.service.breaker;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/22 17:10
+ * @Description 熔断器状态枚举
+ * @Author jerryhotton
+ */
+
+@Getter
+@AllArgsConstructor
+public enum CircuitState {
+
+    CLOSED(0, "关闭，正常放行"),
+    OPEN(1, "打开，快速失败"),
+    HALF_OPEN(2, "半开，逐步放行探测请求");
+
+    private final Integer code;
+    private final String info;
+
+}
@@ -0,0 +1,42 @@
+package cn.cug.sxy.domain.reception.service.breaker;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/22 17:12
+ * @Description 存储熔断器状态变更事件
+ * @Author jerryhotton
+ */
+
+@Getter
+@AllArgsConstructor
+public class CircuitStateChangedEvent {
+
+    /**
+     * 变更前状态
+     */
+    private final CircuitState from;
+    /**
+     * 变更后状态
+     */
+    private final CircuitState to;
+    /**
+     * 变更原因
+     */
+    private final String reason;
+    /**
+     * 变更时统计窗口内的失败率（百分比）
+     */
+    private final double failureRate;
+    /**
+     * 变更时统计窗口内的慢调用率（百分比）
+     */
+    private final double slowCallRate;
+    /**
+     * 变更时间（毫秒时间戳）
+     */
+    private final long timestamp;
+
+}
@@ -0,0 +1,379 @@
+package cn.cug.sxy.domain.reception.service.breaker;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/22 17:20
+ * @Description 存储熔断器（按最近调用的失败率和慢调用率在关闭、打开、半开之间切换，半开时按轮次成倍放行探测请求）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class StorageCircuitBreaker {
+
+    /**
+     * 请求被拒绝时返回的许可标识
+     */
+    public static final long REJECTED = -1L;
+
+    private static final byte OUTCOME_SUCCESS = 0;
+    private static final byte OUTCOME_FAILURE = 1;
+    private static final byte OUTCOME_SLOW = 2;
+
+    /**
+     * 统计窗口大小（最近的调用次数）
+     */
+    @Value("${log-center.reception.storage-breaker.window-size:100}")
+    private int windowSize;
+
+    /**
+     * 窗口内达到该调用次数后才计算失败率
+     */
+    @Value("${log-center.reception.storage-breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    /**
+     * 失败率阈值（百分比），达到后打开熔断器
+     */
+    @Value("${log-center.reception.storage-breaker.failure-rate-threshold:50}")
+    private double failureRateThreshold;
+
+    /**
+     * 慢调用判定时长（毫秒）
+     */
+    @Value("${log-center.reception.storage-breaker.slow-call-duration-ms:5000}")
+    private long slowCallDurationMs;
+
+    /**
+     * 慢调用率阈值（百分比），达到后打开熔断器
+     */
+    @Value("${log-center.reception.storage-breaker.slow-call-rate-threshold:80}")
+    private double slowCallRateThreshold;
+
+    /**
+     * 打开状态持续时间（毫秒），到期后进入半开状态
+     */
+    @Value("${log-center.reception.storage-breaker.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    /**
+     * 半开状态第一轮放行的探测请求数，每轮全部成功后翻倍
+     */
+    @Value("${log-center.reception.storage-breaker.half-open-permits:4}")
+    private int halfOpenPermits;
+
+    /**
+     * 半开状态单轮放行数达到该值且全部成功后关闭熔断器
+     */
+    @Value("${log-center.reception.storage-breaker.half-open-max-permits:64}")
+    private int halfOpenMaxPermits;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private CircuitState state = CircuitState.CLOSED;
+    /**
+     * 状态代数，每次状态变更递增，用于忽略上一状态下发出的请求结果
+     */
+    private long generation;
+    private long openedAt;
+
+    // 关闭状态的调用结果环形窗口
+    private byte[] outcomes;
+    private int outcomeIndex;
+    private int outcomeCount;
+    private int failureCount;
+    private int slowCount;
+
+    // 半开状态的当前轮次
+    private int probeLimit;
+    private int probeIssued;
+    private int probeSucceeded;
+
+    // 熔断统计
+    private final Map<CircuitState, LongAdder> transitionCounters = new EnumMap<>(CircuitState.class);
+    private final LongAdder permittedCalls = new LongAdder();
+    private final LongAdder rejectedCalls = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+
+    public StorageCircuitBreaker(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        for (CircuitState circuitState : CircuitState.values()) {
+            transitionCounters.put(circuitState, new LongAdder());
+        }
+    }
+
+    /**
+     * 申请一次存储调用许可
+     *
+     * @return 许可标识，调用结束后传给 {@link #onSuccess} 或 {@link #onFailure}；被拒绝时返回 {@link #REJECTED}
+     */
+    public long tryAcquire() {
+        CircuitStateChangedEvent event = null;
+        long permit;
+        synchronized (this) {
+            if (state == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+                event = transitionTo(CircuitState.HALF_OPEN, "打开状态已到期，开始放行探测请求");
+            }
+            if (state == CircuitState.CLOSED) {
+                permit = generation;
+            } else if (state == CircuitState.HALF_OPEN && probeIssued < probeLimit) {
+                probeIssued++;
+                permit = generation;
+            } else {
+                permit = REJECTED;
+            }
+        }
+        if (permit == REJECTED) {
+            rejectedCalls.increment();
+        } else {
+            permittedCalls.increment();
+        }
+        publish(event);
+        return permit;
+    }
+
+    /**
+     * 许可是否仍属于当前状态（状态变更后之前申请的许可失效）
+     *
+     * @param permit 调用许可
+     */
+    public synchronized boolean isCurrent(long permit) {
+        return permit != REJECTED && permit == generation;
+    }
+
+    /**
+     * 归还未使用的许可（申请许可后没有发起存储调用），半开状态下归还的探测名额可再次放行
+     *
+     * @param permit 调用许可
+     */
+    public synchronized void release(long permit) {
+        if (permit == generation && state == CircuitState.HALF_OPEN && probeIssued > 0) {
+            probeIssued--;
+        }
+    }
+
+    /**
+     * 当前是否可以放行存储调用（不占用许可）
+     */
+    public synchronized boolean isCallPermitted() {
+        return availablePermits() > 0;
+    }
+
+    /**
+     * 当前可放行的调用数量，关闭状态返回 {@link Integer#MAX_VALUE}
+     */
+    public synchronized int availablePermits() {
+        switch (state) {
+            case CLOSED:
+                return Integer.MAX_VALUE;
+            case HALF_OPEN:
+                return probeLimit - probeIssued;
+            default:
+                // 打开状态到期后的第一个请求会切换到半开状态，此时按第一轮探测数放行
+                return System.currentTimeMillis() - openedAt >= openDurationMs ? halfOpenPermits : 0;
+        }
+    }
+
+    /**
+     * 记录一次成功的调用
+     *
+     * @param permit    调用许可
+     * @param elapsedMs 调用耗时（毫秒）
+     */
+    public void onSuccess(long permit, long elapsedMs) {
+        record(permit, elapsedMs >= slowCallDurationMs ? OUTCOME_SLOW : OUTCOME_SUCCESS);
+    }
+
+    /**
+     * 记录一次失败的调用
+     *
+     * @param permit 调用许可
+     */
+    public void onFailure(long permit) {
+        record(permit, OUTCOME_FAILURE);
+    }
+
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    /**
+     * 获取熔断器统计快照
+     */
+    public synchronized BreakerStats getStats() {
+        return new BreakerStats(state, failureRate(), slowCallRate(), outcomeCount,
+                permittedCalls.sum(), rejectedCalls.sum(), failedCalls.sum(), slowCalls.sum(),
+                transitionCounters.get(CircuitState.OPEN).sum(),
+                transitionCounters.get(CircuitState.HALF_OPEN).sum(),
+                transitionCounters.get(CircuitState.CLOSED).sum());
+    }
+
+    private void record(long permit, byte outcome) {
+        if (outcome == OUTCOME_FAILURE) {
+            failedCalls.increment();
+        } else if (outcome == OUTCOME_SLOW) {
+            slowCalls.increment();
+        }
+        CircuitStateChangedEvent event = null;
+        synchronized (this) {
+            // 上一状态下发出的请求结果不影响当前状态的判断
+            if (permit != generation) {
+                return;
+            }
+            if (state == CircuitState.CLOSED) {
+                event = recordClosedOutcome(outcome);
+            } else if (state == CircuitState.HALF_OPEN) {
+                event = recordProbeOutcome(outcome);
+            }
+        }
+        publish(event);
+    }
+
+    private CircuitStateChangedEvent recordClosedOutcome(byte outcome) {
+        if (outcomes == null) {
+            outcomes = new byte[windowSize];
+        }
+        if (outcomeCount == windowSize) {
+            // 窗口已满，淘汰最早的结果
+            byte evicted = outcomes[outcomeIndex];
+            if (evicted == OUTCOME_FAILURE) {
+                failureCount--;
+            } else if (evicted == OUTCOME_SLOW) {
+                slowCount--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = outcome;
+        outcomeIndex = (outcomeIndex + 1) % windowSize;
+        if (outcome == OUTCOME_FAILURE) {
+            failureCount++;
+        } else if (outcome == OUTCOME_SLOW) {
+            slowCount++;
+        }
+        if (outcomeCount < minimumCalls) {
+            return null;
+        }
+        if (failureRate() >= failureRateThreshold) {
+            return transitionTo(CircuitState.OPEN, "失败率超过阈值");
+        }
+        if (slowCallRate() >= slowCallRateThreshold) {
+            return transitionTo(CircuitState.OPEN, "慢调用率超过阈值");
+        }
+        return null;
+    }
+
+    private CircuitStateChangedEvent recordProbeOutcome(byte outcome) {
+        if (outcome != OUTCOME_SUCCESS) {
+            return transitionTo(CircuitState.OPEN,
+                    outcome == OUTCOME_FAILURE ? "探测请求失败" : "探测请求响应过慢");
+        }
+        probeSucceeded++;
+        if (probeSucceeded < probeLimit) {
+            return null;
+        }
+        if (probeLimit >= halfOpenMaxPermits) {
+            return transitionTo(CircuitState.CLOSED, "探测请求全部成功");
+        }
+        // 本轮探测全部成功，下一轮放行数翻倍
+        probeLimit = Math.min(probeLimit * 2, halfOpenMaxPermits);
+        probeIssued = 0;
+        probeSucceeded = 0;
+        log.info("存储熔断器探测放行数提升: probeLimit={}", probeLimit);
+        return null;
+    }
+
+    /**
+     * 切换状态，调用方持有锁
+     */
+    private CircuitStateChangedEvent transitionTo(CircuitState target, String reason) {
+        CircuitState previous = state;
+        CircuitStateChangedEvent event = new CircuitStateChangedEvent(previous, target, reason,
+                failureRate(), slowCallRate(), System.currentTimeMillis());
+        state = target;
+        generation++;
+        transitionCounters.get(target).increment();
+        if (target == CircuitState.OPEN) {
+            openedAt = System.currentTimeMillis();
+        } else if (target == CircuitState.HALF_OPEN) {
+            probeLimit = Math.max(1, halfOpenPermits);
+            probeIssued = 0;
+            probeSucceeded = 0;
+        } else {
+            outcomeIndex = 0;
+            outcomeCount = 0;
+            failureCount = 0;
+            slowCount = 0;
+        }
+        return event;
+    }
+
+    private void publish(CircuitStateChangedEvent event) {
+        if (event == null) {
+            return;
+        }
+        if (event.getTo() == CircuitState.CLOSED) {
+            log.info("存储熔断器状态变更: {} -> {}, reason={}", event.getFrom(), event.getTo(), event.getReason());
+        } else {
+            log.warn("存储熔断器状态变更: {} -> {}, reason={}, failureRate={}%, slowCallRate={}%",
+                    event.getFrom(), event.getTo(), event.getReason(),
+                    String.format("%.1f", event.getFailureRate()), String.format("%.1f", event.getSlowCallRate()));
+        }
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            log.error("发布存储熔断器状态变更事件失败: error={}", e.getMessage(), e);
+        }
+    }
+
+    private double failureRate() {
+        return outcomeCount == 0 ? 0 : failureCount * 100.0 / outcomeCount;
+    }
+
+    private double slowCallRate() {
+        return outcomeCount == 0 ? 0 : slowCount * 100.0 / outcomeCount;
+    }
+
+    /**
+     * 熔断器统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class BreakerStats {
+        // 当前状态
+        private final CircuitState state;
+        // 窗口内失败率（百分比）
+        private final double failureRate;
+        // 窗口内慢调用率（百分比）
+        private final double slowCallRate;
+        // 窗口内调用次数
+        private final int windowCalls;
+        // 累计放行调用数
+        private final long permittedCalls;
+        // 累计拒绝调用数
+        private final long rejectedCalls;
+        // 累计失败调用数
+        private final long failedCalls;
+        // 累计慢调用数
+        private final long slowCalls;
+        // 累计打开次数
+        private final long openedCount;
+        // 累计进入半开次数
+        private final long halfOpenedCount;
+        // 累计关闭次数
+        private final long closedCount;
+    }
+
+}
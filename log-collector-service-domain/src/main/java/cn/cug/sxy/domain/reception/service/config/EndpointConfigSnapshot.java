@@ -0,0 +1,152 @@
+package cn.cug.sxy.domain.reception.service.config;
+
+import cn.cug.sxy.domain.reception.adapter.repository.IReceiverEndpointRepository;
+import cn.cug.sxy.domain.reception.model.aggregate.ReceiverEndpoint;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 14:20
+ * @Description 端点配置快照（定时加载一次全部端点配置并推送给订阅者，各注册表按快照重建自己的查找表，
+ * 不再各自轮询端点仓储；加载失败时保留上一份快照）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class EndpointConfigSnapshot implements InitializingBean, DisposableBean {
+
+    private final IReceiverEndpointRepository endpointRepository;
+
+    /**
+     * 端点配置刷新间隔（毫秒）
+     */
+    @Value("${log-center.reception.endpoint-config.refresh-interval-ms:30000}")
+    private long refreshIntervalMs;
+
+    /**
+     * 当前快照，刷新时整体替换
+     */
+    private volatile List<ReceiverEndpoint> endpoints = Collections.emptyList();
+
+    private final List<Consumer<List<ReceiverEndpoint>>> subscribers = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "endpoint-config-refresher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 刷新统计
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public EndpointConfigSnapshot(IReceiverEndpointRepository endpointRepository) {
+        this.endpointRepository = endpointRepository;
+    }
+
+    /**
+     * 获取当前快照
+     *
+     * @return 不可修改的端点列表
+     */
+    public List<ReceiverEndpoint> current() {
+        return endpoints;
+    }
+
+    /**
+     * 订阅端点配置，订阅时立即以当前快照回调一次，此后每次刷新后回调
+     *
+     * @param subscriber 回调，在刷新线程中执行，需自行保证与读取方的可见性
+     */
+    public synchronized void subscribe(Consumer<List<ReceiverEndpoint>> subscriber) {
+        subscribers.add(subscriber);
+        deliver(subscriber, endpoints);
+    }
+
+    /**
+     * 重新加载端点配置并推送给所有订阅者
+     */
+    public synchronized void refresh() {
+        List<ReceiverEndpoint> loaded;
+        try {
+            loaded = Collections.unmodifiableList(endpointRepository.findAll());
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("加载端点配置失败，沿用当前快照: {}", e.getMessage());
+            return;
+        }
+        refreshes.increment();
+        endpoints = loaded;
+        for (Consumer<List<ReceiverEndpoint>> subscriber : subscribers) {
+            deliver(subscriber, loaded);
+        }
+    }
+
+    /**
+     * 获取快照统计
+     */
+    public SnapshotStats getStats() {
+        return new SnapshotStats(endpoints.size(), subscribers.size(), refreshes.sum(), failures.sum());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresh();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("端点配置快照已启动, 端点数: {}, 刷新间隔: {}ms", endpoints.size(), refreshIntervalMs);
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    private void deliver(Consumer<List<ReceiverEndpoint>> subscriber, List<ReceiverEndpoint> snapshot) {
+        try {
+            subscriber.accept(snapshot);
+        } catch (Exception e) {
+            log.error("端点配置订阅者处理快照异常", e);
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("刷新端点配置快照异常", e);
+        }
+    }
+
+    /**
+     * 端点配置快照统计
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SnapshotStats {
+        // 快照中的端点数
+        private final int endpoints;
+        // 订阅者数
+        private final int subscribers;
+        // 成功加载次数
+        private final long refreshes;
+        // 加载失败次数
+        private final long failures;
+    }
+
+}
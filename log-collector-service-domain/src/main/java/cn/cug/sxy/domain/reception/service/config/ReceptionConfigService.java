@@ -13,9 +13,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 接收配置管理服务
@@ -26,43 +23,34 @@ import java.util.concurrent.TimeUnit;
 public class ReceptionConfigService {
 
     private final IReceiverEndpointRepository endpointRepository;
+
+    private final EndpointConfigSnapshot endpointConfigSnapshot;
     
     // 缓存端点配置
     private final Map<EndpointId, EndpointConfig> endpointConfigCache = new ConcurrentHashMap<>();
     
-    // 配置刷新调度器
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    
-    // 配置刷新间隔（秒）
-    private static final long CONFIG_REFRESH_INTERVAL_SECONDS = 60;
-    
-    public ReceptionConfigService(IReceiverEndpointRepository endpointRepository) {
+    public ReceptionConfigService(IReceiverEndpointRepository endpointRepository,
+                                  EndpointConfigSnapshot endpointConfigSnapshot) {
         this.endpointRepository = endpointRepository;
+        this.endpointConfigSnapshot = endpointConfigSnapshot;
     }
     
     @PostConstruct
     public void init() {
-        // 初始加载所有配置
-        refreshAllConfigs();
-        
-        // 定时刷新配置
-        scheduler.scheduleAtFixedRate(
-                this::refreshAllConfigs,
-                CONFIG_REFRESH_INTERVAL_SECONDS,
-                CONFIG_REFRESH_INTERVAL_SECONDS,
-                TimeUnit.SECONDS
-        );
+        // 订阅端点配置快照，快照刷新后同步刷新缓存
+        endpointConfigSnapshot.subscribe(this::refreshAllConfigs);
     }
     
     /**
-     * 刷新所有配置
+     * 按端点配置快照刷新所有配置
+     *
+     * @param endpoints 端点配置快照
      */
-    public void refreshAllConfigs() {
+    private void refreshAllConfigs(List<ReceiverEndpoint> endpoints) {
         try {
             log.info("开始刷新接收配置...");
             
             // 刷新端点配置
-            List<ReceiverEndpoint> endpoints = endpointRepository.findAll();
             for (ReceiverEndpoint endpoint : endpoints) {
                 EndpointConfig config = new EndpointConfig(
                         endpoint.getEndpointId(),
@@ -0,0 +1,77 @@
+package cn.cug.sxy.domain.reception.service.deadletter;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 10:20
+ * @Description 死信重放任务（记录一次重放的进度）
+ * @Author jerryhotton
+ */
+
+@Getter
+public class DeadLetterReplayTask {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 任务ID
+     */
+    private final String taskId;
+    /**
+     * 发起重放的应用ID（只有该应用可以查询任务进度）
+     */
+    private final String appId;
+    /**
+     * 匹配的死信数量
+     */
+    private final int total;
+    /**
+     * 重放速率（批次/秒）
+     */
+    private final double ratePerSecond;
+    /**
+     * 创建时间
+     */
+    private final Instant createTime;
+    /**
+     * 已重新提交的批次数
+     */
+    private final AtomicInteger submitted = new AtomicInteger();
+    /**
+     * 跳过的批次数（死信已被删除或加载失败）
+     */
+    private final AtomicInteger skipped = new AtomicInteger();
+    /**
+     * 任务状态
+     */
+    private volatile String status = STATUS_PENDING;
+    /**
+     * 结束时间
+     */
+    private volatile Instant finishTime;
+
+    public DeadLetterReplayTask(String taskId, String appId, int total, double ratePerSecond) {
+        this.taskId = taskId;
+        this.appId = appId;
+        this.total = total;
+        this.ratePerSecond = ratePerSecond;
+        this.createTime = Instant.now();
+    }
+
+    void markRunning() {
+        this.status = STATUS_RUNNING;
+    }
+
+    void markFinished(boolean success) {
+        this.status = success ? STATUS_COMPLETED : STATUS_FAILED;
+        this.finishTime = Instant.now();
+    }
+
+}
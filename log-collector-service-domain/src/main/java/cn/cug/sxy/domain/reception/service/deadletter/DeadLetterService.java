@@ -0,0 +1,196 @@
+package cn.cug.sxy.domain.reception.service.deadletter;
+
+import cn.cug.sxy.domain.reception.adapter.repository.IDeadLetterRepository;
+import cn.cug.sxy.domain.reception.adapter.repository.ILogBatchRepository;
+import cn.cug.sxy.domain.reception.model.entity.DeadLetterEntity;
+import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.DeadLetterQuery;
+import cn.cug.sxy.domain.reception.service.IBatchProcessingService;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 10:30
+ * @Description 死信服务实现
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Service
+public class DeadLetterService implements IDeadLetterService, DisposableBean {
+
+    /**
+     * 保留的重放任务数量
+     */
+    private static final int MAX_RETAINED_TASKS = 100;
+
+    private final IDeadLetterRepository deadLetterRepository;
+    private final ILogBatchRepository logBatchRepository;
+    private final IBatchProcessingService batchProcessingService;
+
+    /**
+     * 默认重放速率（批次/秒）
+     */
+    @Value("${log-center.reception.dead-letter.replay-rate:50}")
+    private double defaultReplayRate;
+
+    /**
+     * 最大重放速率（批次/秒）
+     */
+    @Value("${log-center.reception.dead-letter.max-replay-rate:1000}")
+    private double maxReplayRate;
+
+    /**
+     * 单次重放的最大批次数
+     */
+    @Value("${log-center.reception.dead-letter.max-replay-batches:100000}")
+    private int maxReplayBatches;
+
+    /**
+     * 重放任务串行执行，避免多个重放任务叠加冲击流水线
+     */
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dead-letter-replayer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<String, DeadLetterReplayTask> replayTasks = new ConcurrentHashMap<>();
+
+    public DeadLetterService(
+            IDeadLetterRepository deadLetterRepository,
+            ILogBatchRepository logBatchRepository,
+            IBatchProcessingService batchProcessingService) {
+        this.deadLetterRepository = deadLetterRepository;
+        this.logBatchRepository = logBatchRepository;
+        this.batchProcessingService = batchProcessingService;
+    }
+
+    @Override
+    public List<DeadLetterEntity> query(DeadLetterQuery query) {
+        return deadLetterRepository.find(query);
+    }
+
+    @Override
+    public long count(DeadLetterQuery query) {
+        return deadLetterRepository.count(query);
+    }
+
+    @Override
+    public DeadLetterReplayTask replay(DeadLetterQuery query, double ratePerSecond) {
+        if (query.getAppId() == null) {
+            throw new IllegalArgumentException("重放死信必须指定应用ID");
+        }
+        double rate = ratePerSecond > 0 ? Math.min(ratePerSecond, maxReplayRate) : defaultReplayRate;
+        // 重放范围以提交时匹配到的死信为准
+        DeadLetterQuery boundedQuery = DeadLetterQuery.builder()
+                .appId(query.getAppId())
+                .endpointId(query.getEndpointId())
+                .batchIds(query.getBatchIds())
+                .reasonKeyword(query.getReasonKeyword())
+                .failedAfter(query.getFailedAfter())
+                .failedBefore(query.getFailedBefore())
+                .limit(Math.min(query.getLimit(), maxReplayBatches))
+                .build();
+        List<DeadLetterEntity> matched = deadLetterRepository.find(boundedQuery);
+        DeadLetterReplayTask task = new DeadLetterReplayTask(UUID.randomUUID().toString(), query.getAppId(),
+                matched.size(), rate);
+        retainTask(task);
+        replayExecutor.execute(() -> runReplay(task, matched));
+        log.info("死信重放任务已提交: taskId={}, total={}, ratePerSecond={}", task.getTaskId(), matched.size(), rate);
+
+        return task;
+    }
+
+    @Override
+    public Optional<DeadLetterReplayTask> getReplayTask(String taskId, String appId) {
+        return Optional.ofNullable(replayTasks.get(taskId))
+                .filter(task -> task.getAppId().equals(appId));
+    }
+
+    @Override
+    public boolean delete(BatchId batchId, String appId) {
+        // 只删除属于该应用的死信，其他应用的死信按不存在处理
+        DeadLetterQuery ownedQuery = DeadLetterQuery.builder()
+                .appId(appId)
+                .batchIds(List.of(batchId.getValue()))
+                .limit(1)
+                .build();
+        if (appId == null || deadLetterRepository.find(ownedQuery).isEmpty()) {
+            return false;
+        }
+        return deadLetterRepository.delete(batchId);
+    }
+
+    /**
+     * 执行重放：按速率加载死信并重新提交到批次处理流水线
+     */
+    private void runReplay(DeadLetterReplayTask task, List<DeadLetterEntity> matched) {
+        task.markRunning();
+        RateLimiter rateLimiter = RateLimiter.create(task.getRatePerSecond());
+        try {
+            for (DeadLetterEntity summary : matched) {
+                rateLimiter.acquire();
+                BatchId batchId = summary.getBatchId();
+                Optional<DeadLetterEntity> deadLetterOpt = deadLetterRepository.load(batchId);
+                if (deadLetterOpt.isEmpty()) {
+                    task.getSkipped().incrementAndGet();
+                    continue;
+                }
+                // 沿用原批次ID重建批次，状态重置为待处理
+                LogBatchEntity batch = deadLetterOpt.get().toReplayBatch();
+                logBatchRepository.save(batch);
+                deadLetterRepository.markReplayed(batchId);
+                batchProcessingService.processBatchAsync(batch);
+                task.getSubmitted().incrementAndGet();
+            }
+            task.markFinished(true);
+            log.info("死信重放任务完成: taskId={}, submitted={}, skipped={}",
+                    task.getTaskId(), task.getSubmitted().get(), task.getSkipped().get());
+        } catch (Exception e) {
+            task.markFinished(false);
+            log.error("死信重放任务异常: taskId={}, submitted={}, error={}",
+                    task.getTaskId(), task.getSubmitted().get(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 保存重放任务，超过保留数量时移除最早结束的任务
+     */
+    private void retainTask(DeadLetterReplayTask task) {
+        replayTasks.put(task.getTaskId(), task);
+        if (replayTasks.size() > MAX_RETAINED_TASKS) {
+            replayTasks.values().stream()
+                    .filter(t -> t.getFinishTime() != null)
+                    .min(Comparator.comparing(DeadLetterReplayTask::getFinishTime))
+                    .ifPresent(t -> replayTasks.remove(t.getTaskId()));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replayExecutor.shutdownNow();
+        try {
+            replayExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("死信服务已关闭");
+    }
+
+}
@@ -0,0 +1,63 @@
+package cn.cug.sxy.domain.reception.service.deadletter;
+
+import cn.cug.sxy.domain.reception.model.entity.DeadLetterEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.DeadLetterQuery;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 10:10
+ * @Description 死信服务接口（查询、删除和重放最终处理失败的批次）
+ * @Author jerryhotton
+ */
+
+public interface IDeadLetterService {
+
+    /**
+     * 查询死信
+     *
+     * @param query 查询条件
+     * @return 死信列表（不含原始日志）
+     */
+    List<DeadLetterEntity> query(DeadLetterQuery query);
+
+    /**
+     * 统计死信数量
+     *
+     * @param query 查询条件
+     * @return 数量
+     */
+    long count(DeadLetterQuery query);
+
+    /**
+     * 按条件批量重放死信，按指定速率重新提交到批次处理流水线
+     * 重放沿用原批次ID，存储领域按确定性文档ID幂等写入，可重复执行
+     *
+     * @param query         查询条件（须指定应用ID）
+     * @param ratePerSecond 重放速率（批次/秒），小于等于0时使用默认速率
+     * @return 重放任务
+     */
+    DeadLetterReplayTask replay(DeadLetterQuery query, double ratePerSecond);
+
+    /**
+     * 查询重放任务
+     *
+     * @param taskId 任务ID
+     * @param appId  应用ID，只返回该应用发起的任务
+     * @return 重放任务
+     */
+    Optional<DeadLetterReplayTask> getReplayTask(String taskId, String appId);
+
+    /**
+     * 删除死信
+     *
+     * @param batchId 批次ID
+     * @param appId   应用ID，只删除属于该应用的死信
+     * @return 是否删除
+     */
+    boolean delete(BatchId batchId, String appId);
+
+}
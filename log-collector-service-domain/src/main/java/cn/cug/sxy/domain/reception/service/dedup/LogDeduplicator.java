@@ -0,0 +1,425 @@
+package cn.cug.sxy.domain.reception.service.dedup;
+
+import cn.cug.sxy.domain.reception.model.aggregate.ReceiverEndpoint;
+import cn.cug.sxy.domain.reception.model.valobj.LogAttributes;
+import cn.cug.sxy.domain.reception.model.valobj.RawLog;
+import cn.cug.sxy.domain.reception.service.buffer.LogBufferManager;
+import cn.cug.sxy.domain.reception.service.config.EndpointConfigSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/28 16:00
+ * @Description 重复日志折叠器（按端点配置的窗口折叠重复日志：消息首次出现时直接放行，窗口内的重复只计数，
+ * 窗口结束时输出一条携带重复次数和首末出现时间的汇总日志；消息按规范化内容计算64位指纹，每个端点按LRU保留有限的指纹）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class LogDeduplicator implements InitializingBean, DisposableBean {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final EndpointConfigSnapshot endpointConfigSnapshot;
+    private final LogBufferManager logBufferManager;
+
+    /**
+     * 是否启用重复日志折叠（启用后仍只对配置了折叠窗口的端点生效）
+     */
+    @Value("${log-center.reception.dedup.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每个端点最多保留的消息指纹数，超出时淘汰最久未出现的指纹并输出其汇总日志
+     */
+    @Value("${log-center.reception.dedup.max-fingerprints:10000}")
+    private int maxFingerprints;
+
+    /**
+     * 扫描到期窗口的间隔（毫秒），汇总日志最多延迟一个扫描间隔输出
+     */
+    @Value("${log-center.reception.dedup.sweep-interval-ms:1000}")
+    private long sweepIntervalMs;
+
+    /**
+     * 端点ID -> 该端点的指纹表，只包含配置了折叠窗口的端点
+     */
+    private final Map<String, FingerprintTable> tables = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "log-deduplicator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 折叠统计
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder summaries = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LogDeduplicator(EndpointConfigSnapshot endpointConfigSnapshot, LogBufferManager logBufferManager) {
+        this.endpointConfigSnapshot = endpointConfigSnapshot;
+        this.logBufferManager = logBufferManager;
+    }
+
+    /**
+     * 折叠重复日志：首次出现的消息和窗口结束的汇总日志按顺序返回，窗口内的重复被吸收
+     *
+     * @param rawLogs    按到达顺序排列的原始日志
+     * @param appId      应用ID
+     * @param endpointId 端点ID
+     * @return 需要入批的日志
+     */
+    public List<RawLog> deduplicate(List<RawLog> rawLogs, String appId, String endpointId) {
+        FingerprintTable table = enabled ? tables.get(endpointId) : null;
+        if (table == null || rawLogs.isEmpty()) {
+            return rawLogs;
+        }
+        List<RawLog> out = new ArrayList<>(rawLogs.size());
+        List<RawLog> evicted;
+        long now = System.currentTimeMillis();
+        synchronized (table) {
+            for (RawLog rawLog : rawLogs) {
+                offer(table, rawLog, appId, now, out);
+            }
+            evicted = table.drainEvicted();
+        }
+        // 被淘汰指纹的汇总日志经缓冲区入批
+        for (RawLog summary : evicted) {
+            logBufferManager.addLog(summary, appId, endpointId);
+        }
+        return out;
+    }
+
+    /**
+     * 按端点配置快照重建折叠窗口，不再折叠的端点输出其未完成的汇总日志
+     *
+     * @param endpoints 端点配置快照
+     */
+    synchronized void apply(List<ReceiverEndpoint> endpoints) {
+        Map<String, Integer> windows = new HashMap<>();
+        for (ReceiverEndpoint endpoint : endpoints) {
+            if (endpoint.getDedupWindowMs() > 0) {
+                windows.put(endpoint.getEndpointId().getValue(), endpoint.getDedupWindowMs());
+            }
+        }
+        for (Map.Entry<String, Integer> entry : windows.entrySet()) {
+            FingerprintTable table = tables.get(entry.getKey());
+            if (table == null) {
+                tables.put(entry.getKey(), new FingerprintTable(entry.getValue(), maxFingerprints));
+            } else {
+                table.windowMs = entry.getValue();
+            }
+        }
+        Iterator<Map.Entry<String, FingerprintTable>> iterator = tables.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, FingerprintTable> entry = iterator.next();
+            if (!windows.containsKey(entry.getKey())) {
+                iterator.remove();
+                flushAll(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 获取折叠统计快照
+     */
+    public DedupStats getStats() {
+        int fingerprints = 0;
+        for (FingerprintTable table : tables.values()) {
+            synchronized (table) {
+                fingerprints += table.windows.size();
+            }
+        }
+        return new DedupStats(tables.size(), fingerprints, passed.sum(), suppressed.sum(),
+                summaries.sum(), evictions.sum());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        endpointConfigSnapshot.subscribe(this::apply);
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("重复日志折叠器已启动, 启用: {}, 折叠端点数: {}, 每端点最大指纹数: {}",
+                enabled, tables.size(), maxFingerprints);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        // 关闭前输出所有未完成的汇总日志（日志缓冲区在本组件之后关闭）
+        for (Map.Entry<String, FingerprintTable> entry : tables.entrySet()) {
+            flushAll(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 处理一条日志，需要入批的日志追加到 out
+     */
+    private void offer(FingerprintTable table, RawLog rawLog, String appId, long now, List<RawLog> out) {
+        long fingerprint = fingerprint(appId, rawLog);
+        long seenAt = rawLog.getTimestamp() != null ? rawLog.getTimestamp().toEpochMilli() : now;
+        Window window = table.windows.get(fingerprint);
+        if (window == null) {
+            // 首次出现，放行并开始窗口
+            table.windows.put(fingerprint, new Window(appId, now));
+            passed.increment();
+            out.add(rawLog);
+            return;
+        }
+        if (now - window.start >= table.windowMs) {
+            // 窗口已结束：有重复时先输出汇总，本条作为下一个窗口的第一条重复（持续刷屏时每个窗口只输出一条）；
+            // 没有重复时本条按首次出现放行
+            boolean repeating = window.count > 0;
+            if (repeating) {
+                out.add(summarize(window));
+            }
+            window.reset(now);
+            if (!repeating) {
+                passed.increment();
+                out.add(rawLog);
+                return;
+            }
+        }
+        window.absorb(rawLog, seenAt);
+        suppressed.increment();
+    }
+
+    /**
+     * 输出到期窗口的汇总日志，持续无重复的指纹从表中移除
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, FingerprintTable> entry : tables.entrySet()) {
+            FingerprintTable table = entry.getValue();
+            List<RawLog> expired = new ArrayList<>();
+            List<String> appIds = new ArrayList<>();
+            synchronized (table) {
+                Iterator<Window> iterator = table.windows.values().iterator();
+                while (iterator.hasNext()) {
+                    Window window = iterator.next();
+                    if (now - window.start < table.windowMs) {
+                        continue;
+                    }
+                    if (window.count > 0) {
+                        expired.add(summarize(window));
+                        appIds.add(window.appId);
+                        // 保留指纹并开始新窗口，刷屏仍在持续时后续重复继续折叠
+                        window.reset(now);
+                    } else {
+                        iterator.remove();
+                    }
+                }
+            }
+            for (int i = 0; i < expired.size(); i++) {
+                logBufferManager.addLog(expired.get(i), appIds.get(i), entry.getKey());
+            }
+        }
+    }
+
+    private void flushAll(String endpointId, FingerprintTable table) {
+        List<Window> pending = new ArrayList<>();
+        synchronized (table) {
+            for (Window window : table.windows.values()) {
+                if (window.count > 0) {
+                    pending.add(window);
+                }
+            }
+            table.windows.clear();
+        }
+        for (Window window : pending) {
+            logBufferManager.addLog(summarize(window), window.appId, endpointId);
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            log.error("输出重复日志汇总异常", e);
+        }
+    }
+
+    /**
+     * 生成汇总日志：以窗口内第一条重复为代表，携带重复次数和首末出现时间
+     */
+    private RawLog summarize(Window window) {
+        summaries.increment();
+        RawLog first = window.first;
+        LogAttributes attributes = first.getAttributes().withRepeats(window.count, window.firstSeen, window.lastSeen);
+        return first.withAttributes(attributes);
+    }
+
+    /**
+     * 消息指纹：应用、来源、格式、级别和规范化内容的64位哈希（FNV-1a逐字符累加，最后做一次混合）；
+     * 规范化时连续数字视为同一个占位符、连续空白视为一个空格，内容中的时间、耗时、序号不同的消息仍视为重复
+     */
+    static long fingerprint(String appId, RawLog rawLog) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, appId);
+        hash = mix(hash, rawLog.getSourceId());
+        hash = (hash ^ (rawLog.getFormat() != null ? rawLog.getFormat().ordinal() : -1)) * FNV_PRIME;
+        LogAttributes attributes = rawLog.getAttributes();
+        hash = (hash ^ (attributes.getLevel() != null ? attributes.getLevel().ordinal() : -1)) * FNV_PRIME;
+        String content = rawLog.getContent();
+        if (content != null) {
+            boolean inDigits = false;
+            boolean inSpace = false;
+            for (int i = 0; i < content.length(); i++) {
+                char c = content.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    if (!inDigits) {
+                        hash = (hash ^ '#') * FNV_PRIME;
+                        inDigits = true;
+                    }
+                    inSpace = false;
+                    continue;
+                }
+                inDigits = false;
+                if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                    if (!inSpace) {
+                        hash = (hash ^ ' ') * FNV_PRIME;
+                        inSpace = true;
+                    }
+                    continue;
+                }
+                inSpace = false;
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+        }
+        // murmur3 fmix64，打散FNV在低位的聚集
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        // 字段分隔，避免相邻字段拼接后相同
+        return (hash ^ 0x1f) * FNV_PRIME;
+    }
+
+    /**
+     * 端点的指纹表，按访问顺序淘汰最久未出现的指纹，只在持有表锁时访问
+     */
+    private class FingerprintTable {
+        private volatile int windowMs;
+        private final LinkedHashMap<Long, Window> windows;
+        private List<RawLog> evicted;
+
+        FingerprintTable(int windowMs, int capacity) {
+            this.windowMs = windowMs;
+            this.windows = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Window> eldest) {
+                    if (size() <= capacity) {
+                        return false;
+                    }
+                    evictions.increment();
+                    if (eldest.getValue().count > 0) {
+                        if (evicted == null) {
+                            evicted = new ArrayList<>();
+                        }
+                        evicted.add(summarize(eldest.getValue()));
+                    }
+                    return true;
+                }
+            };
+        }
+
+        List<RawLog> drainEvicted() {
+            if (evicted == null) {
+                return List.of();
+            }
+            List<RawLog> drained = evicted;
+            evicted = null;
+            return drained;
+        }
+    }
+
+    /**
+     * 指纹的当前窗口
+     */
+    private static class Window {
+        private final String appId;
+        // 窗口开始时间（到达时间，毫秒）
+        private long start;
+        // 窗口内第一条重复，作为汇总日志的代表
+        private RawLog first;
+        // 窗口内吸收的重复条数
+        private int count;
+        private long firstSeen;
+        private long lastSeen;
+
+        Window(String appId, long start) {
+            this.appId = appId;
+            this.start = start;
+        }
+
+        void absorb(RawLog rawLog, long seenAt) {
+            if (count == 0) {
+                first = rawLog;
+                firstSeen = seenAt;
+                lastSeen = seenAt;
+            } else {
+                firstSeen = Math.min(firstSeen, seenAt);
+                lastSeen = Math.max(lastSeen, seenAt);
+            }
+            count++;
+        }
+
+        void reset(long now) {
+            start = now;
+            first = null;
+            count = 0;
+        }
+    }
+
+    /**
+     * 重复日志折叠统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class DedupStats {
+        // 配置了折叠窗口的端点数
+        private final int endpoints;
+        // 当前保留的指纹数
+        private final int fingerprints;
+        // 首次出现放行的日志数
+        private final long passed;
+        // 窗口内被折叠的重复日志数
+        private final long suppressed;
+        // 输出的汇总日志数
+        private final long summaries;
+        // 因容量淘汰的指纹数
+        private final long evictions;
+    }
+
+}
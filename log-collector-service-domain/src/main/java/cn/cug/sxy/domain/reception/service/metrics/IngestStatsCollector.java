@@ -0,0 +1,369 @@
+package cn.cug.sxy.domain.reception.service.metrics;
+
+import cn.cug.sxy.domain.preprocess.service.ParallelPreprocessExecutor;
+import cn.cug.sxy.domain.preprocess.service.codec.LogCodecRegistry;
+import cn.cug.sxy.domain.preprocess.service.grok.EndpointGrokRegistry;
+import cn.cug.sxy.domain.preprocess.service.raw.RawIngestRegistry;
+import cn.cug.sxy.domain.preprocess.service.redact.PiiClass;
+import cn.cug.sxy.domain.preprocess.service.redact.SensitiveDataRedactor;
+import cn.cug.sxy.domain.preprocess.service.strategy.TextLayoutMemo;
+import cn.cug.sxy.domain.preprocess.service.strategy.TextPreprocessStrategy;
+import cn.cug.sxy.domain.preprocess.service.template.DrainTemplateMiner;
+import cn.cug.sxy.domain.preprocess.service.timestamp.TimestampParser;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.service.IBatchProcessingService;
+import cn.cug.sxy.domain.reception.service.breaker.BatchHoldingArea;
+import cn.cug.sxy.domain.reception.service.breaker.CircuitState;
+import cn.cug.sxy.domain.reception.service.breaker.StorageCircuitBreaker;
+import cn.cug.sxy.domain.reception.service.config.EndpointConfigSnapshot;
+import cn.cug.sxy.domain.reception.service.dedup.LogDeduplicator;
+import cn.cug.sxy.domain.reception.service.multiline.MultilineAssembler;
+import cn.cug.sxy.domain.reception.service.pipeline.PipelineStage;
+import cn.cug.sxy.domain.reception.service.routing.LogRoutingEngine;
+import cn.cug.sxy.types.model.SymbolTable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/31 10:30
+ * @Description 接入链路运行统计汇总（流水线各阶段、熔断暂存、预处理各组件及接收阶段各组件的统计快照，
+ * 统一转换为带标签的指标族，由指标导出接口输出）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class IngestStatsCollector {
+
+    private static final String COUNTER = "counter";
+    private static final String GAUGE = "gauge";
+
+    private final IBatchProcessingService batchProcessingService;
+    private final StorageCircuitBreaker circuitBreaker;
+    private final BatchHoldingArea holdingArea;
+    private final TextPreprocessStrategy textPreprocessStrategy;
+    private final DrainTemplateMiner templateMiner;
+    private final EndpointGrokRegistry grokRegistry;
+    private final ParallelPreprocessExecutor parallelExecutor;
+    private final LogCodecRegistry codecRegistry;
+    private final MultilineAssembler multilineAssembler;
+    private final SensitiveDataRedactor redactor;
+    private final TimestampParser timestampParser;
+    private final LogDeduplicator deduplicator;
+    private final LogRoutingEngine routingEngine;
+    private final RawIngestRegistry rawIngestRegistry;
+    private final EndpointConfigSnapshot endpointConfigSnapshot;
+
+    public IngestStatsCollector(
+            IBatchProcessingService batchProcessingService,
+            StorageCircuitBreaker circuitBreaker,
+            BatchHoldingArea holdingArea,
+            TextPreprocessStrategy textPreprocessStrategy,
+            DrainTemplateMiner templateMiner,
+            EndpointGrokRegistry grokRegistry,
+            ParallelPreprocessExecutor parallelExecutor,
+            LogCodecRegistry codecRegistry,
+            MultilineAssembler multilineAssembler,
+            SensitiveDataRedactor redactor,
+            TimestampParser timestampParser,
+            LogDeduplicator deduplicator,
+            LogRoutingEngine routingEngine,
+            RawIngestRegistry rawIngestRegistry,
+            EndpointConfigSnapshot endpointConfigSnapshot) {
+        this.batchProcessingService = batchProcessingService;
+        this.circuitBreaker = circuitBreaker;
+        this.holdingArea = holdingArea;
+        this.textPreprocessStrategy = textPreprocessStrategy;
+        this.templateMiner = templateMiner;
+        this.grokRegistry = grokRegistry;
+        this.parallelExecutor = parallelExecutor;
+        this.codecRegistry = codecRegistry;
+        this.multilineAssembler = multilineAssembler;
+        this.redactor = redactor;
+        this.timestampParser = timestampParser;
+        this.deduplicator = deduplicator;
+        this.routingEngine = routingEngine;
+        this.rawIngestRegistry = rawIngestRegistry;
+        this.endpointConfigSnapshot = endpointConfigSnapshot;
+    }
+
+    /**
+     * 采集所有组件的统计快照（单个组件采集失败时跳过，不影响其他组件）
+     *
+     * @return 指标族列表
+     */
+    public List<MetricFamily> collect() {
+        List<MetricFamily> families = new ArrayList<>(96);
+        collectQuietly("pipeline", families, this::collectPipeline);
+        collectQuietly("breaker", families, this::collectBreaker);
+        collectQuietly("preprocess", families, this::collectPreprocess);
+        collectQuietly("redaction", families, this::collectRedaction);
+        collectQuietly("reception", families, this::collectReception);
+        collectQuietly("symbols", families, this::collectSymbols);
+        return families;
+    }
+
+    private void collectPipeline(List<MetricFamily> families) {
+        MetricFamily queueDepth = gauge(families, "log_center_pipeline_queue_depth", "Tasks waiting in the stage queue");
+        MetricFamily queueRemaining = gauge(families, "log_center_pipeline_queue_remaining", "Remaining stage queue capacity");
+        MetricFamily workers = gauge(families, "log_center_pipeline_workers", "Stage worker threads");
+        MetricFamily active = gauge(families, "log_center_pipeline_active_workers", "Stage workers currently processing a task");
+        MetricFamily processed = counter(families, "log_center_pipeline_processed_total", "Tasks completed by the stage");
+        MetricFamily failed = counter(families, "log_center_pipeline_failed_total", "Tasks failed in the stage");
+        MetricFamily busy = counter(families, "log_center_pipeline_busy_ms_total", "Time spent processing tasks in the stage");
+        for (PipelineStage.StageStats stage : batchProcessingService.getPipelineStats()) {
+            queueDepth.add(stage.getQueueDepth(), "stage", stage.getName());
+            queueRemaining.add(stage.getQueueRemaining(), "stage", stage.getName());
+            workers.add(stage.getWorkers(), "stage", stage.getName());
+            active.add(stage.getActiveWorkers(), "stage", stage.getName());
+            processed.add(stage.getProcessed(), "stage", stage.getName());
+            failed.add(stage.getFailed(), "stage", stage.getName());
+            busy.add(stage.getBusyTimeMs(), "stage", stage.getName());
+        }
+    }
+
+    private void collectBreaker(List<MetricFamily> families) {
+        StorageCircuitBreaker.BreakerStats stats = circuitBreaker.getStats();
+        MetricFamily state = gauge(families, "log_center_storage_breaker_state", "Storage circuit breaker state (1 for the current state)");
+        for (CircuitState circuitState : CircuitState.values()) {
+            state.add(stats.getState() == circuitState ? 1 : 0, "state", circuitState.name());
+        }
+        gauge(families, "log_center_storage_breaker_failure_rate", "Failure rate in the sliding window (percent)")
+                .add(stats.getFailureRate());
+        gauge(families, "log_center_storage_breaker_slow_call_rate", "Slow call rate in the sliding window (percent)")
+                .add(stats.getSlowCallRate());
+        MetricFamily calls = counter(families, "log_center_storage_breaker_calls_total", "Storage calls seen by the breaker");
+        calls.add(stats.getPermittedCalls(), "result", "permitted");
+        calls.add(stats.getRejectedCalls(), "result", "rejected");
+        calls.add(stats.getFailedCalls(), "result", "failed");
+        calls.add(stats.getSlowCalls(), "result", "slow");
+        MetricFamily transitions = counter(families, "log_center_storage_breaker_transitions_total", "Breaker state transitions");
+        transitions.add(stats.getOpenedCount(), "to", CircuitState.OPEN.name());
+        transitions.add(stats.getHalfOpenedCount(), "to", CircuitState.HALF_OPEN.name());
+        transitions.add(stats.getClosedCount(), "to", CircuitState.CLOSED.name());
+        gauge(families, "log_center_holding_area_batches", "Batches held while the storage breaker is open")
+                .add(holdingArea.getHeldCount());
+        MetricFamily held = counter(families, "log_center_holding_area_total", "Batches passing through the holding area");
+        held.add(holdingArea.getTotalHeld(), "event", "held");
+        held.add(holdingArea.getTotalReleased(), "event", "released");
+        held.add(holdingArea.getTotalOverflow(), "event", "overflow");
+        held.add(holdingArea.getTotalDrained(), "event", "drained");
+    }
+
+    private void collectPreprocess(List<MetricFamily> families) {
+        TextLayoutMemo.MemoStats memo = textPreprocessStrategy.getLayoutMemoStats();
+        gauge(families, "log_center_layout_memo_sources", "Sources with a memoized text layout").add(memo.getSources());
+        MetricFamily memoLookups = counter(families, "log_center_layout_memo_lookups_total", "Text layout memo lookups");
+        memoLookups.add(memo.getHits(), "result", "hit");
+        memoLookups.add(memo.getMisses(), "result", "miss");
+        counter(families, "log_center_layout_memo_relearns_total", "Layouts relearned after a low hit rate")
+                .add(memo.getRelearns());
+
+        TimestampParser.TimestampStats timestamps = timestampParser.getStats();
+        gauge(families, "log_center_timestamp_sources", "Sources with a learned timestamp layout").add(timestamps.getSources());
+        MetricFamily parses = counter(families, "log_center_timestamp_parses_total", "Timestamp parse attempts");
+        parses.add(timestamps.getParsed(), "result", "parsed");
+        parses.add(timestamps.getFailures(), "result", "failed");
+        MetricFamily timestampHits = counter(families, "log_center_timestamp_cache_hits_total", "Timestamp parser shortcut hits");
+        timestampHits.add(timestamps.getLayoutHits(), "cache", "layout");
+        timestampHits.add(timestamps.getSecondHits(), "cache", "second");
+
+        DrainTemplateMiner.MinerStats miner = templateMiner.getStats();
+        gauge(families, "log_center_templates", "Log templates learned by the miner").add(miner.getTemplates());
+        MetricFamily mined = counter(families, "log_center_template_mining_total", "Template mining outcomes");
+        mined.add(miner.getMatched(), "result", "matched");
+        mined.add(miner.getCreated(), "result", "created");
+        mined.add(miner.getRejected(), "result", "rejected");
+        mined.add(miner.getSkipped(), "result", "skipped");
+        counter(families, "log_center_templates_evicted_total", "Least recently hit templates evicted from a full dictionary")
+                .add(miner.getEvicted());
+
+        EndpointGrokRegistry.GrokStats grok = grokRegistry.getStats();
+        MetricFamily grokEndpoints = gauge(families, "log_center_grok_endpoints", "Endpoints with a grok pattern");
+        grokEndpoints.add(grok.getEndpoints(), "valid", "true");
+        grokEndpoints.add(grok.getInvalidEndpoints(), "valid", "false");
+        MetricFamily grokMatches = counter(families, "log_center_grok_matches_total", "Grok pattern match attempts");
+        grokMatches.add(grok.getMatched(), "result", "matched");
+        grokMatches.add(grok.getUnmatched(), "result", "unmatched");
+
+        ParallelPreprocessExecutor.ExecutorStats executor = parallelExecutor.getStats();
+        gauge(families, "log_center_preprocess_parallelism", "Parallel preprocess pool size").add(executor.getParallelism());
+        MetricFamily groups = counter(families, "log_center_preprocess_groups_total", "Format groups preprocessed");
+        groups.add(executor.getSequentialGroups(), "mode", "sequential");
+        groups.add(executor.getParallelGroups(), "mode", "parallel");
+        counter(families, "log_center_preprocess_chunks_total", "Chunks submitted to the parallel pool").add(executor.getChunks());
+        counter(families, "log_center_preprocess_steals_total", "Work stealing events in the parallel pool").add(executor.getStealCount());
+        MetricFamily cost = gauge(families, "log_center_preprocess_cost_per_log_ns", "Estimated preprocess cost per log");
+        for (Map.Entry<LogFormat, Long> entry : executor.getCostPerLogNanos().entrySet()) {
+            cost.add(entry.getValue(), "format", entry.getKey().name());
+        }
+
+        LogCodecRegistry.CodecStats codecs = codecRegistry.getStats();
+        gauge(families, "log_center_codec_endpoints", "Endpoints with a configured codec").add(codecs.getEndpoints());
+        MetricFamily decoded = counter(families, "log_center_codec_decodes_total", "Codec decode attempts");
+        decoded.add(codecs.getDecoded(), "result", "decoded");
+        decoded.add(codecs.getFailed(), "result", "failed");
+        decoded.add(codecs.getUnresolved(), "result", "unresolved");
+
+        RawIngestRegistry.RawIngestStats raw = rawIngestRegistry.getStats();
+        gauge(families, "log_center_raw_endpoints", "Endpoints in schema-on-read raw mode").add(raw.getEndpoints());
+        counter(families, "log_center_raw_logs_total", "Logs ingested without parsing").add(raw.getIngested());
+    }
+
+    private void collectRedaction(List<MetricFamily> families) {
+        SensitiveDataRedactor.RedactorStats stats = redactor.getStats();
+        counter(families, "log_center_redaction_scanned_logs_total", "Log contents scanned for sensitive data")
+                .add(stats.getScannedLogs());
+        MetricFamily redacted = counter(families, "log_center_redaction_redacted_total", "Values rewritten by redaction");
+        redacted.add(stats.getRedactedLogs(), "target", "content");
+        redacted.add(stats.getRedactedFields(), "target", "field");
+        MetricFamily detected = counter(families, "log_center_redaction_detected_total", "Sensitive values detected by class");
+        MetricFamily masked = counter(families, "log_center_redaction_masked_total", "Sensitive values masked by class");
+        for (PiiClass piiClass : PiiClass.values()) {
+            detected.add(stats.getDetected().getOrDefault(piiClass, 0L), "class", piiClass.name());
+            masked.add(stats.getMasked().getOrDefault(piiClass, 0L), "class", piiClass.name());
+        }
+    }
+
+    private void collectReception(List<MetricFamily> families) {
+        EndpointConfigSnapshot.SnapshotStats snapshot = endpointConfigSnapshot.getStats();
+        gauge(families, "log_center_endpoint_config_endpoints", "Endpoints in the shared config snapshot")
+                .add(snapshot.getEndpoints());
+        MetricFamily snapshotLoads = counter(families, "log_center_endpoint_config_loads_total", "Endpoint config snapshot loads");
+        snapshotLoads.add(snapshot.getRefreshes(), "result", "loaded");
+        snapshotLoads.add(snapshot.getFailures(), "result", "failed");
+
+        MultilineAssembler.AssemblerStats multiline = multilineAssembler.getStats();
+        gauge(families, "log_center_multiline_endpoints", "Endpoints with a multiline rule configured")
+                .add(multiline.getEndpoints());
+        gauge(families, "log_center_multiline_pending_sources", "Sources holding an incomplete multiline event")
+                .add(multiline.getPendingSources());
+        gauge(families, "log_center_multiline_pending_bytes", "Bytes held in incomplete multiline events")
+                .add(multiline.getPendingBytes());
+        counter(families, "log_center_multiline_lines_total", "Lines fed to multiline assembly").add(multiline.getLinesIn());
+        counter(families, "log_center_multiline_events_total", "Events emitted by multiline assembly").add(multiline.getEventsOut());
+        MetricFamily flushes = counter(families, "log_center_multiline_forced_flushes_total", "Events emitted before a terminating line");
+        flushes.add(multiline.getTimeoutFlushes(), "reason", "timeout");
+        flushes.add(multiline.getLimitFlushes(), "reason", "limit");
+        flushes.add(multiline.getShutdownEvents(), "reason", "shutdown");
+        counter(families, "log_center_multiline_overflow_lines_total", "Lines passed through because the source or byte cap was reached")
+                .add(multiline.getOverflowLines());
+        counter(families, "log_center_multiline_continued_events_total", "Events starting with a continuation line whose head already timed out")
+                .add(multiline.getOrphanContinuations());
+
+        LogDeduplicator.DedupStats dedup = deduplicator.getStats();
+        gauge(families, "log_center_dedup_endpoints", "Endpoints with a suppression window").add(dedup.getEndpoints());
+        gauge(families, "log_center_dedup_fingerprints", "Message fingerprints currently tracked").add(dedup.getFingerprints());
+        MetricFamily dedupLogs = counter(families, "log_center_dedup_logs_total", "Logs seen by repeated-message suppression");
+        dedupLogs.add(dedup.getPassed(), "result", "passed");
+        dedupLogs.add(dedup.getSuppressed(), "result", "suppressed");
+        counter(families, "log_center_dedup_summaries_total", "Summary logs emitted for suppressed repeats").add(dedup.getSummaries());
+        counter(families, "log_center_dedup_evictions_total", "Fingerprints evicted at capacity").add(dedup.getEvictions());
+
+        LogRoutingEngine.RoutingStats routing = routingEngine.getStats();
+        MetricFamily rules = gauge(families, "log_center_routing_rules", "Routing rules loaded");
+        rules.add(routing.getRules(), "valid", "true");
+        rules.add(routing.getInvalidRules(), "valid", "false");
+        counter(families, "log_center_routing_evaluated_total", "Logs evaluated by routing rules").add(routing.getEvaluated());
+        MetricFamily outcomes = counter(families, "log_center_routing_outcomes_total", "Routing rule outcomes");
+        outcomes.add(routing.getDropped(), "action", "drop");
+        outcomes.add(routing.getSampledOut(), "action", "sample_out");
+        outcomes.add(routing.getRouted(), "action", "route");
+        outcomes.add(routing.getTagged(), "action", "tag");
+        gauge(families, "log_center_routing_pending_decisions", "Batches whose routing decision awaits storage")
+                .add(routing.getPendingDecisions());
+    }
+
+    private void collectSymbols(List<MetricFamily> families) {
+        SymbolTable.SymbolStats symbols = SymbolTable.metadata().getStats();
+        gauge(families, "log_center_symbols", "Interned metadata symbols").add(symbols.getSize());
+        gauge(families, "log_center_symbols_capacity", "Metadata symbol table capacity").add(symbols.getCapacity());
+        MetricFamily lookups = counter(families, "log_center_symbol_lookups_total", "Metadata symbol lookups");
+        lookups.add(symbols.getHits(), "result", "hit");
+        lookups.add(symbols.getMisses(), "result", "miss");
+        counter(families, "log_center_symbol_evictions_total", "Metadata symbols evicted").add(symbols.getEvictions());
+    }
+
+    private void collectQuietly(String group, List<MetricFamily> families, StatsSource source) {
+        List<MetricFamily> collected = new ArrayList<>();
+        try {
+            source.collect(collected);
+            families.addAll(collected);
+        } catch (Exception e) {
+            log.warn("采集运行统计失败, 分组: {}, 错误: {}", group, e.getMessage());
+        }
+    }
+
+    private static MetricFamily counter(List<MetricFamily> families, String name, String help) {
+        MetricFamily family = new MetricFamily(name, help, COUNTER);
+        families.add(family);
+        return family;
+    }
+
+    private static MetricFamily gauge(List<MetricFamily> families, String name, String help) {
+        MetricFamily family = new MetricFamily(name, help, GAUGE);
+        families.add(family);
+        return family;
+    }
+
+    @FunctionalInterface
+    private interface StatsSource {
+        void collect(List<MetricFamily> families);
+    }
+
+    /**
+     * 指标族：同名指标的说明、类型及各标签组合的取值
+     */
+    @Getter
+    public static class MetricFamily {
+        private final String name;
+        private final String help;
+        // counter 或 gauge
+        private final String type;
+        private final List<Sample> samples = new ArrayList<>(4);
+
+        MetricFamily(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        /**
+         * 添加一个取值
+         *
+         * @param value  取值
+         * @param labels 标签名和标签值交替排列
+         */
+        MetricFamily add(double value, String... labels) {
+            Map<String, String> labelMap = labels.length == 0 ? Collections.emptyMap() : new LinkedHashMap<>();
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                labelMap.put(labels[i], labels[i + 1]);
+            }
+            samples.add(new Sample(labelMap, value));
+            return this;
+        }
+    }
+
+    /**
+     * 指标取值
+     */
+    @Getter
+    public static class Sample {
+        private final Map<String, String> labels;
+        private final double value;
+
+        Sample(Map<String, String> labels, double value) {
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,428 @@
+package cn.cug.sxy.domain.reception.service.metrics;
+
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/30 10:00
+ * @Description 日志派生指标（入库时从已解析的字段提取按级别计数和耗时直方图，按应用/端点/时间桶聚合）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class LogDerivedMetrics implements InitializingBean {
+
+    /**
+     * 耗时直方图的桶上界（毫秒），最后隐含+Inf桶
+     */
+    public static final double[] DURATION_BOUNDS_MS = {
+            1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    /**
+     * 超出序列上限后合并使用的应用/端点名
+     */
+    public static final String OVERFLOW_SERIES = "_other";
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    // 计数数组布局：各级别计数 | 直方图各桶 | 耗时总和（微秒）| 耗时样本数
+    private static final int LEVEL_OFFSET = 0;
+    private static final int HISTOGRAM_OFFSET = LEVEL_OFFSET + LEVELS.length;
+    private static final int SUM_SLOT = HISTOGRAM_OFFSET + DURATION_BOUNDS_MS.length + 1;
+    private static final int COUNT_SLOT = SUM_SLOT + 1;
+    private static final int SLOTS = COUNT_SLOT + 1;
+
+    /**
+     * 时间桶宽度
+     */
+    @Value("${log-center.metrics.bucket-ms:60000}")
+    private long bucketMs;
+
+    /**
+     * 每个序列保留的时间桶数
+     */
+    @Value("${log-center.metrics.retained-buckets:60}")
+    private int retainedBuckets;
+
+    /**
+     * 应用/端点序列数上限，超出后合并到_other序列，防止端点数失控占满内存
+     */
+    @Value("${log-center.metrics.max-series:10000}")
+    private int maxSeries;
+
+    /**
+     * 作为耗时提取的结构化字段名，按顺序取第一个存在的数值字段
+     */
+    @Value("${log-center.metrics.duration-fields:duration_ms,durationMs,elapsed_ms,latency_ms}")
+    private String[] durationFields;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    private final LongAdder recordedLogs = new LongAdder();
+    private final LongAdder durationSamples = new LongAdder();
+    private final LongAdder lateLogs = new LongAdder();
+    private final LongAdder overflowLogs = new LongAdder();
+
+    @Override
+    public void afterPropertiesSet() {
+        bucketMs = Math.max(1000, bucketMs);
+        retainedBuckets = Math.max(1, retainedBuckets);
+        maxSeries = Math.max(1, maxSeries);
+        log.info("日志派生指标已启用: bucketMs={}, retainedBuckets={}, maxSeries={}, durationFields={}",
+                bucketMs, retainedBuckets, maxSeries, Arrays.toString(durationFields));
+    }
+
+    /**
+     * 记录一个已成功入库的批次（仅在存储成功后调用一次，重试的批次不会重复计数）
+     *
+     * @param batch 列式存储批次
+     */
+    public void record(ColumnarLogBatch batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        Series target = seriesOf(batch.getAppId(), batch.getEndpointId());
+        long nowBucket = bucketStart(System.currentTimeMillis());
+        long oldestBucket = nowBucket - (retainedBuckets - 1) * bucketMs;
+        // 同一批次的日志大多落在同一时间桶，缓存上一个桶避免逐行查找环形数组
+        long cachedStart = Long.MIN_VALUE;
+        AtomicLongArray cachedBucket = null;
+        int logs = 0;
+        int durations = 0;
+        int late = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            // 重复日志汇总行按原始条数计数
+            int count = Math.max(1, batch.repeatCount(row));
+            int levelSlot = LEVEL_OFFSET + levelIndex(batch.level(row));
+            double duration = durationOf(batch.structuredFields(row));
+            // 未来时间归入当前桶，超出保留窗口的迟到日志只计入累计值
+            long start = Math.min(bucketStart(batch.timestamp(row)), nowBucket);
+            AtomicLongArray bucket;
+            if (start == cachedStart) {
+                bucket = cachedBucket;
+            } else if (start < oldestBucket) {
+                bucket = null;
+                late += count;
+            } else {
+                bucket = target.bucket(start, bucketMs);
+                cachedStart = start;
+                cachedBucket = bucket;
+            }
+            add(target.totals, levelSlot, count, duration);
+            if (bucket != null) {
+                add(bucket, levelSlot, count, duration);
+            }
+            logs += count;
+            if (duration >= 0) {
+                durations++;
+            }
+        }
+        recordedLogs.add(logs);
+        durationSamples.add(durations);
+        if (late > 0) {
+            lateLogs.add(late);
+        }
+        if (target.overflow) {
+            overflowLogs.add(logs);
+        }
+    }
+
+    /**
+     * 查询时间桶序列
+     *
+     * @param appId      应用ID，为空时汇总所有应用
+     * @param endpointId 端点ID，为空时汇总应用下所有端点
+     * @param buckets    返回最近的时间桶数
+     * @return 按时间升序的时间桶快照（无数据的桶计数为0）
+     */
+    public List<BucketSnapshot> query(String appId, String endpointId, int buckets) {
+        int count = Math.max(1, Math.min(buckets, retainedBuckets));
+        long nowBucket = bucketStart(System.currentTimeMillis());
+        long firstBucket = nowBucket - (count - 1) * bucketMs;
+        long[][] merged = new long[count][SLOTS];
+        for (Series s : series.values()) {
+            if (!s.matches(appId, endpointId)) {
+                continue;
+            }
+            for (int i = 0; i < s.ring.length(); i++) {
+                Bucket bucket = s.ring.get(i);
+                if (bucket == null || bucket.start < firstBucket || bucket.start > nowBucket) {
+                    continue;
+                }
+                accumulate(merged[(int) ((bucket.start - firstBucket) / bucketMs)], bucket.counts);
+            }
+        }
+        List<BucketSnapshot> snapshots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            snapshots.add(toSnapshot(firstBucket + i * bucketMs, merged[i]));
+        }
+        return snapshots;
+    }
+
+    /**
+     * 各序列的累计值（Prometheus计数器语义，进程生命周期内单调递增）
+     */
+    public List<SeriesSnapshot> totals() {
+        List<SeriesSnapshot> snapshots = new ArrayList<>(series.size());
+        for (Series s : series.values()) {
+            long[] counts = new long[SLOTS];
+            accumulate(counts, s.totals);
+            snapshots.add(new SeriesSnapshot(s.appId, s.endpointId, toSnapshot(0, counts)));
+        }
+        return snapshots;
+    }
+
+    public Stats getStats() {
+        return new Stats(series.size(), recordedLogs.sum(), durationSamples.sum(),
+                lateLogs.sum(), overflowLogs.sum());
+    }
+
+    public long getBucketMs() {
+        return bucketMs;
+    }
+
+    /**
+     * 按直方图估算分位数（桶内线性插值，落在+Inf桶时返回最后一个上界）
+     *
+     * @param histogram 各桶计数（非累计）
+     * @param quantile  分位（0~1）
+     * @return 估算值，无样本时返回null
+     */
+    public static Double percentile(long[] histogram, double quantile) {
+        long total = 0;
+        for (long c : histogram) {
+            total += c;
+        }
+        if (total == 0) {
+            return null;
+        }
+        double rank = quantile * total;
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0) {
+                continue;
+            }
+            if (seen + histogram[i] >= rank) {
+                if (i >= DURATION_BOUNDS_MS.length) {
+                    return DURATION_BOUNDS_MS[DURATION_BOUNDS_MS.length - 1];
+                }
+                double lower = i == 0 ? 0 : DURATION_BOUNDS_MS[i - 1];
+                double upper = DURATION_BOUNDS_MS[i];
+                return lower + (upper - lower) * (rank - seen) / histogram[i];
+            }
+            seen += histogram[i];
+        }
+        return DURATION_BOUNDS_MS[DURATION_BOUNDS_MS.length - 1];
+    }
+
+    private Series seriesOf(String appId, String endpointId) {
+        String key = appId + ":" + endpointId;
+        Series existing = series.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (series.size() >= maxSeries) {
+            // 超出上限后不再新建序列，并发下可能略超上限，不影响正确性
+            return series.computeIfAbsent(OVERFLOW_SERIES + ":" + OVERFLOW_SERIES,
+                    k -> new Series(OVERFLOW_SERIES, OVERFLOW_SERIES, retainedBuckets, true));
+        }
+        return series.computeIfAbsent(key, k -> new Series(appId, endpointId, retainedBuckets, false));
+    }
+
+    private long bucketStart(long timestamp) {
+        return Math.floorDiv(timestamp, bucketMs) * bucketMs;
+    }
+
+    private static int levelIndex(String level) {
+        LogLevel parsed = LogLevel.parse(level);
+        // 缺失或无法识别的级别按INFO计数，与存储网关写入的默认级别一致
+        return (parsed != null ? parsed : LogLevel.INFO).ordinal();
+    }
+
+    /**
+     * 从结构化字段中取耗时（毫秒），没有可用的数值字段时返回-1
+     */
+    private double durationOf(Map<String, Object> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return -1;
+        }
+        for (String name : durationFields) {
+            Object value = fields.get(name);
+            if (value instanceof Number) {
+                double duration = ((Number) value).doubleValue();
+                return duration >= 0 && Double.isFinite(duration) ? duration : -1;
+            }
+            if (value instanceof String && isNumeric((String) value)) {
+                double duration = Double.parseDouble((String) value);
+                return duration >= 0 && Double.isFinite(duration) ? duration : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 只接受简单的十进制数（可带小数部分），避免对非数值字符串抛出异常
+     */
+    private static boolean isNumeric(String value) {
+        int length = value.length();
+        if (length == 0 || length > 24) {
+            return false;
+        }
+        boolean digit = false;
+        boolean dot = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return false;
+            }
+        }
+        return digit;
+    }
+
+    private static void add(AtomicLongArray counts, int levelSlot, int count, double duration) {
+        counts.addAndGet(levelSlot, count);
+        if (duration < 0) {
+            return;
+        }
+        counts.incrementAndGet(HISTOGRAM_OFFSET + histogramIndex(duration));
+        counts.addAndGet(SUM_SLOT, Math.round(duration * 1000));
+        counts.incrementAndGet(COUNT_SLOT);
+    }
+
+    private static int histogramIndex(double duration) {
+        int index = Arrays.binarySearch(DURATION_BOUNDS_MS, duration);
+        // 等于上界的值归入该桶（le语义），否则取插入点
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static void accumulate(long[] target, AtomicLongArray counts) {
+        for (int i = 0; i < SLOTS; i++) {
+            target[i] += counts.get(i);
+        }
+    }
+
+    private static BucketSnapshot toSnapshot(long start, long[] counts) {
+        long[] levels = Arrays.copyOfRange(counts, LEVEL_OFFSET, LEVEL_OFFSET + LEVELS.length);
+        long[] histogram = Arrays.copyOfRange(counts, HISTOGRAM_OFFSET, SUM_SLOT);
+        long total = 0;
+        for (long c : levels) {
+            total += c;
+        }
+        return new BucketSnapshot(start, total, levels, histogram, counts[SUM_SLOT] / 1000.0, counts[COUNT_SLOT]);
+    }
+
+    /**
+     * 应用/端点的指标序列：累计值 + 按时间桶的环形数组
+     */
+    private static class Series {
+
+        private final String appId;
+        private final String endpointId;
+        private final boolean overflow;
+        private final AtomicLongArray totals = new AtomicLongArray(SLOTS);
+        private final AtomicReferenceArray<Bucket> ring;
+
+        private Series(String appId, String endpointId, int retainedBuckets, boolean overflow) {
+            this.appId = appId;
+            this.endpointId = endpointId;
+            this.overflow = overflow;
+            this.ring = new AtomicReferenceArray<>(retainedBuckets);
+        }
+
+        /**
+         * 取时间桶，槽位中是旧时间段的桶时以CAS替换为新桶（无锁）
+         */
+        private AtomicLongArray bucket(long start, long bucketMs) {
+            int slot = (int) Math.floorMod(start / bucketMs, (long) ring.length());
+            while (true) {
+                Bucket current = ring.get(slot);
+                if (current != null && current.start == start) {
+                    return current.counts;
+                }
+                if (current != null && current.start > start) {
+                    // 槽位已被更新的时间段占用，说明该时间段已滚出窗口
+                    return null;
+                }
+                Bucket fresh = new Bucket(start);
+                if (ring.compareAndSet(slot, current, fresh)) {
+                    return fresh.counts;
+                }
+            }
+        }
+
+        private boolean matches(String appId, String endpointId) {
+            return (appId == null || appId.equals(this.appId))
+                    && (endpointId == null || endpointId.equals(this.endpointId));
+        }
+
+    }
+
+    private static class Bucket {
+
+        private final long start;
+        private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+
+        private Bucket(long start) {
+            this.start = start;
+        }
+
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class BucketSnapshot {
+        // 时间桶起始时间（毫秒时间戳，累计值为0）
+        private final long start;
+        private final long total;
+        // 按LogLevel顺序的计数
+        private final long[] levelCounts;
+        // 按DURATION_BOUNDS_MS的各桶计数（非累计），最后一个为+Inf
+        private final long[] durationHistogram;
+        private final double durationSumMs;
+        private final long durationCount;
+
+        public long levelCount(LogLevel level) {
+            return levelCounts[level.ordinal()];
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SeriesSnapshot {
+        private final String appId;
+        private final String endpointId;
+        private final BucketSnapshot totals;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final int series;
+        private final long recordedLogs;
+        private final long durationSamples;
+        private final long lateLogs;
+        private final long overflowLogs;
+    }
+
+}
@@ -0,0 +1,494 @@
+package cn.cug.sxy.domain.reception.service.multiline;
+
+import cn.cug.sxy.domain.reception.adapter.repository.IDeadLetterRepository;
+import cn.cug.sxy.domain.reception.model.aggregate.ReceiverEndpoint;
+import cn.cug.sxy.domain.reception.model.entity.DeadLetterEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.service.buffer.LogBufferManager;
+import cn.cug.sxy.domain.reception.service.config.EndpointConfigSnapshot;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.RawLog;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/26 10:20
+ * @Description 多行事件组装器（按来源将逐行到达的文本日志合并为完整事件，如Java异常堆栈，续行可以来自之后的请求；
+ * 只对配置了多行规则的端点生效。每个来源最多持有一个未完成事件，由该来源的下一次请求带入其批次，
+ * 超时后写入日志缓冲区，服务关闭时写入死信存储，未完成事件的总行数和总字节数有上限）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class MultilineAssembler implements InitializingBean, DisposableBean {
+
+    /**
+     * 续行正则配置为该值时使用内置的Java堆栈续行规则
+     */
+    public static final String DEFAULT_CONTINUATION_RULE = "default";
+
+    /**
+     * 内置续行规则：缩进行（堆栈帧）、Caused by/Suppressed、省略帧提示以及单独成行的异常类名
+     */
+    private static final Pattern DEFAULT_CONTINUATION = Pattern.compile(
+            "^(?:\\s+\\S|Caused by:|Suppressed:|\\.\\.\\. \\d+ (?:more|common frames omitted))"
+                    + "|^(?:[a-zA-Z_$][\\w$]*\\.)+[\\w$]*(?:Exception|Error|Throwable)(?::.*)?$");
+
+    private final EndpointConfigSnapshot endpointConfigSnapshot;
+    private final LogBufferManager logBufferManager;
+    private final IDeadLetterRepository deadLetterRepository;
+
+    /**
+     * 是否启用多行组装（启用后仍只对配置了多行规则的端点生效）
+     */
+    @Value("${log-center.reception.multiline.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 未完成事件的最长等待时间（毫秒），自最后一行到达起计算
+     */
+    @Value("${log-center.reception.multiline.max-wait-ms:2000}")
+    private long maxWaitMs;
+
+    /**
+     * 单个事件的最大行数
+     */
+    @Value("${log-center.reception.multiline.max-lines:500}")
+    private int maxLines;
+
+    /**
+     * 单个事件的最大字节数
+     */
+    @Value("${log-center.reception.multiline.max-bytes:262144}")
+    private int maxBytes;
+
+    /**
+     * 同时持有未完成事件的最大来源数，超出时新来源的日志不再等待续行
+     */
+    @Value("${log-center.reception.multiline.max-sources:10000}")
+    private int maxSources;
+
+    /**
+     * 所有未完成事件的总字节数上限，超出时事件立即输出而不再等待续行
+     */
+    @Value("${log-center.reception.multiline.max-pending-bytes:67108864}")
+    private long maxPendingBytes;
+
+    /**
+     * 来源键（appId、endpointId、sourceId） -> 未完成事件
+     */
+    private final Map<String, PendingEvent> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 未完成事件的总字节数
+     */
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    /**
+     * 端点ID -> 多行规则，只包含配置了规则的端点，刷新时整体替换
+     */
+    private volatile Map<String, MultilineRule> rules = Collections.emptyMap();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "multiline-assembler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 组装统计
+    private final LongAdder linesIn = new LongAdder();
+    private final LongAdder eventsOut = new LongAdder();
+    private final LongAdder timeoutFlushes = new LongAdder();
+    private final LongAdder limitFlushes = new LongAdder();
+    private final LongAdder overflowLines = new LongAdder();
+    private final LongAdder orphanContinuations = new LongAdder();
+    private final LongAdder shutdownEvents = new LongAdder();
+
+    public MultilineAssembler(
+            EndpointConfigSnapshot endpointConfigSnapshot,
+            LogBufferManager logBufferManager,
+            IDeadLetterRepository deadLetterRepository) {
+        this.endpointConfigSnapshot = endpointConfigSnapshot;
+        this.logBufferManager = logBufferManager;
+        this.deadLetterRepository = deadLetterRepository;
+    }
+
+    /**
+     * 组装日志：续行并入所属来源的未完成事件（可能来自之前的请求），返回已完成的事件（按完成顺序）；
+     * 每个来源最后一个事件继续等待续行，由该来源的下一次请求带入其批次，或超时后写入日志缓冲区
+     *
+     * @param rawLogs    按到达顺序排列的原始日志
+     * @param appId      应用ID
+     * @param endpointId 端点ID
+     * @return 已完成的事件，未配置多行规则的端点原样返回
+     */
+    public List<RawLog> assemble(List<RawLog> rawLogs, String appId, String endpointId) {
+        MultilineRule rule = enabled ? rules.get(endpointId) : null;
+        if (rule == null || rawLogs.isEmpty()) {
+            return rawLogs;
+        }
+        List<RawLog> completed = new ArrayList<>(rawLogs.size());
+        for (RawLog rawLog : rawLogs) {
+            String key = sourceKey(appId, endpointId, rawLog.getSourceId());
+            if (rawLog.getFormat() != LogFormat.TEXT || rawLog.getContent() == null) {
+                // 非文本日志不参与组装，先输出同一来源的未完成事件以保持顺序
+                pending.computeIfPresent(key, (k, event) -> {
+                    completed.add(release(event));
+                    return null;
+                });
+                completed.add(rawLog);
+                continue;
+            }
+            linesIn.increment();
+            offer(key, rawLog, rule, appId, endpointId, completed);
+        }
+        return completed;
+    }
+
+    /**
+     * 按端点配置快照重建多行规则
+     *
+     * @param endpoints 端点配置快照
+     */
+    synchronized void apply(List<ReceiverEndpoint> endpoints) {
+        Map<String, MultilineRule> current = rules;
+        Map<String, MultilineRule> compiled = new HashMap<>();
+        for (ReceiverEndpoint endpoint : endpoints) {
+            String start = blankToNull(endpoint.getMultilineStartPattern());
+            String continuation = blankToNull(endpoint.getMultilineContinuationPattern());
+            if (start == null && continuation == null) {
+                continue;
+            }
+            String endpointId = endpoint.getEndpointId().getValue();
+            MultilineRule previous = current.get(endpointId);
+            if (previous != null && previous.sameAs(start, continuation)) {
+                compiled.put(endpointId, previous);
+                continue;
+            }
+            try {
+                compiled.put(endpointId, new MultilineRule(
+                        start == null ? null : Pattern.compile(start),
+                        continuation == null ? null : DEFAULT_CONTINUATION_RULE.equalsIgnoreCase(continuation)
+                                ? DEFAULT_CONTINUATION : Pattern.compile(continuation)));
+            } catch (PatternSyntaxException e) {
+                log.warn("端点多行规则编译失败，该端点不组装多行事件: endpointId={}, error={}", endpointId, e.getMessage());
+            }
+        }
+        if (!compiled.keySet().equals(current.keySet())) {
+            log.info("端点多行规则已刷新, 配置规则的端点数: {}", compiled.size());
+        }
+        rules = compiled;
+    }
+
+    /**
+     * 获取组装统计快照
+     */
+    public AssemblerStats getStats() {
+        return new AssemblerStats(rules.size(), pending.size(), pendingBytes.get(), linesIn.sum(), eventsOut.sum(),
+                timeoutFlushes.sum(), limitFlushes.sum(), overflowLines.sum(), orphanContinuations.sum(),
+                shutdownEvents.sum());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        endpointConfigSnapshot.subscribe(this::apply);
+        // 按最长等待时间的1/4扫描超时事件，事件最多延迟 1.25 倍等待时间输出
+        long sweepIntervalMs = Math.max(50, maxWaitMs / 4);
+        scheduler.scheduleWithFixedDelay(this::flushExpiredQuietly, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("多行事件组装器已启动, 启用: {}, 配置规则的端点数: {}, 最长等待: {}ms, 最大行数: {}, 最大字节数: {}, 最大来源数: {}",
+                enabled, rules.size(), maxWaitMs, maxLines, maxBytes, maxSources);
+    }
+
+    /**
+     * 关闭时将未完成事件按应用和端点写入死信存储（持久化依赖在本组件之后关闭），可通过死信重放恢复
+     */
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        // 按应用和端点分组，每组写入一条死信
+        Map<String, List<PendingEvent>> groups = new LinkedHashMap<>();
+        for (String key : new ArrayList<>(pending.keySet())) {
+            PendingEvent event = pending.remove(key);
+            if (event != null) {
+                groups.computeIfAbsent(event.appId + '\0' + event.endpointId, g -> new ArrayList<>()).add(event);
+            }
+        }
+        for (List<PendingEvent> group : groups.values()) {
+            PendingEvent head = group.get(0);
+            List<RawLog> logs = new ArrayList<>(group.size());
+            Instant receivedTime = head.createdAt;
+            for (PendingEvent event : group) {
+                logs.add(release(event));
+                if (event.createdAt.isBefore(receivedTime)) {
+                    receivedTime = event.createdAt;
+                }
+            }
+            DeadLetterEntity deadLetter = DeadLetterEntity.builder()
+                    .batchId(BatchId.generate())
+                    .appId(head.appId)
+                    .endpointId(head.endpointId)
+                    .logs(logs)
+                    .logCount(logs.size())
+                    .failureReason("服务关闭时多行事件尚未组装完成")
+                    .retryCount(0)
+                    .receivedTime(receivedTime)
+                    .failedTime(Instant.now())
+                    .build();
+            try {
+                deadLetterRepository.save(deadLetter);
+                shutdownEvents.add(logs.size());
+                log.warn("未完成的多行事件已写入死信存储: appId={}, endpointId={}, batchId={}, events={}",
+                        head.appId, head.endpointId, deadLetter.getBatchId().getValue(), logs.size());
+            } catch (Exception e) {
+                log.error("未完成的多行事件写入死信存储失败: appId={}, endpointId={}, events={}, error={}",
+                        head.appId, head.endpointId, logs.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 处理单行文本日志，已完成的事件追加到 completed
+     */
+    private void offer(String key, RawLog line, MultilineRule rule, String appId, String endpointId, List<RawLog> completed) {
+        boolean continuation = rule.isContinuation(line.getContent());
+        int lineBytes = utf8Length(line.getContent());
+        long now = System.nanoTime();
+        // compute 保证同一来源的并发请求串行修改未完成事件
+        pending.compute(key, (k, event) -> {
+            if (event != null && continuation) {
+                if (event.lines < maxLines && event.bytes + lineBytes + 1 <= maxBytes) {
+                    event.append(line.getContent(), lineBytes, now);
+                    if (pendingBytes.addAndGet(lineBytes + 1) > maxPendingBytes) {
+                        // 总字节数超过上限，事件包含本行立即输出
+                        overflowLines.increment();
+                        completed.add(release(event));
+                        return null;
+                    }
+                    return event;
+                }
+                // 达到行数或字节上限，输出当前事件，超出部分作为新事件
+                limitFlushes.increment();
+            }
+            if (event != null) {
+                completed.add(release(event));
+            }
+            // 续行之前没有未完成事件：所属事件的开头已超时输出
+            boolean continued = continuation && event == null;
+            if (continued) {
+                orphanContinuations.increment();
+            }
+            PendingEvent started = new PendingEvent(line, lineBytes, appId, endpointId, continued, now);
+            if ((event == null && pending.size() >= maxSources)
+                    || pendingBytes.get() + lineBytes > maxPendingBytes) {
+                // 来源数或总字节数达到上限，不再为该行持有事件
+                overflowLines.increment();
+                eventsOut.increment();
+                completed.add(started.toRawLog());
+                return null;
+            }
+            pendingBytes.addAndGet(lineBytes);
+            return started;
+        });
+    }
+
+    /**
+     * 将超过最长等待时间的事件写入日志缓冲区
+     */
+    private void flushExpired() {
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        for (Map.Entry<String, PendingEvent> entry : pending.entrySet()) {
+            if (entry.getValue().lastAppendNanos - deadline > 0) {
+                continue;
+            }
+            // 仅在事件未被并发追加时移除
+            PendingEvent[] removed = new PendingEvent[1];
+            pending.computeIfPresent(entry.getKey(), (k, current) -> {
+                if (current.lastAppendNanos - deadline <= 0) {
+                    removed[0] = current;
+                    return null;
+                }
+                return current;
+            });
+            if (removed[0] != null) {
+                timeoutFlushes.increment();
+                logBufferManager.addLog(release(removed[0]), removed[0].appId, removed[0].endpointId);
+            }
+        }
+    }
+
+    private void flushExpiredQuietly() {
+        try {
+            flushExpired();
+        } catch (Exception e) {
+            log.error("输出超时多行事件异常", e);
+        }
+    }
+
+    /**
+     * 事件离开未完成状态：扣减总字节数并转换为日志
+     */
+    private RawLog release(PendingEvent event) {
+        pendingBytes.addAndGet(-event.bytes);
+        eventsOut.increment();
+        return event.toRawLog();
+    }
+
+    private static String sourceKey(String appId, String endpointId, String sourceId) {
+        return appId + '\0' + endpointId + '\0' + sourceId;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 多行规则：配置了起始模式时，匹配起始模式的行开始新事件，其余为续行；
+     * 否则匹配续行模式的行为续行
+     */
+    private static class MultilineRule {
+        private final Pattern start;
+        private final Pattern continuation;
+
+        MultilineRule(Pattern start, Pattern continuation) {
+            this.start = start;
+            this.continuation = continuation;
+        }
+
+        boolean isContinuation(String line) {
+            if (start != null) {
+                return !start.matcher(line).find();
+            }
+            return continuation.matcher(line).find();
+        }
+
+        boolean sameAs(String startExpression, String continuationExpression) {
+            String continuationPattern = continuation == DEFAULT_CONTINUATION ? DEFAULT_CONTINUATION_RULE
+                    : continuation == null ? null : continuation.pattern();
+            return Objects.equals(start == null ? null : start.pattern(), startExpression)
+                    && Objects.equals(continuationPattern, continuationExpression);
+        }
+    }
+
+    /**
+     * 来源的未完成事件，只在 ConcurrentHashMap.compute 中修改
+     */
+    private static class PendingEvent {
+        private final RawLog first;
+        private final String appId;
+        private final String endpointId;
+        private final boolean continued;
+        private final Instant createdAt;
+        private StringBuilder content;
+        private int lines;
+        private int bytes;
+        private volatile long lastAppendNanos;
+
+        PendingEvent(RawLog first, int bytes, String appId, String endpointId, boolean continued, long now) {
+            this.first = first;
+            this.appId = appId;
+            this.endpointId = endpointId;
+            this.continued = continued;
+            this.createdAt = Instant.now();
+            this.lines = 1;
+            this.bytes = bytes;
+            this.lastAppendNanos = now;
+        }
+
+        void append(String line, int lineBytes, long now) {
+            if (content == null) {
+                content = new StringBuilder(first.getContent());
+            }
+            content.append('\n').append(line);
+            lines++;
+            bytes += lineBytes + 1;
+            lastAppendNanos = now;
+        }
+
+        RawLog toRawLog() {
+            if (lines == 1 && !continued) {
+                return first;
+            }
+            Map<String, String> metadata = new LinkedHashMap<>(first.getMetadata());
+            if (lines > 1) {
+                metadata.put("multiline.lines", String.valueOf(lines));
+            }
+            if (continued) {
+                // 首行即为续行，所属事件的开头已超时输出
+                metadata.put("multiline.continued", "true");
+            }
+            return new RawLog(content != null ? content.toString() : first.getContent(), first.getSourceId(),
+                    first.getFormat(), first.getTimestamp(), first.getAttributes(), metadata);
+        }
+    }
+
+    /**
+     * 多行组装统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class AssemblerStats {
+        // 配置了多行规则的端点数
+        private final int endpoints;
+        // 持有未完成事件的来源数
+        private final int pendingSources;
+        // 未完成事件的总字节数
+        private final long pendingBytes;
+        // 参与组装的文本行数
+        private final long linesIn;
+        // 输出的事件数
+        private final long eventsOut;
+        // 超时输出的事件数
+        private final long timeoutFlushes;
+        // 因行数或字节上限提前输出的事件数
+        private final long limitFlushes;
+        // 来源数或总字节数达到上限未等待续行的行数
+        private final long overflowLines;
+        // 以续行开头的事件数（所属事件的开头已超时输出）
+        private final long orphanContinuations;
+        // 服务关闭时写入死信存储的未完成事件数
+        private final long shutdownEvents;
+    }
+
+}
@@ -0,0 +1,185 @@
+package cn.cug.sxy.domain.reception.service.pipeline;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/22 10:05
+ * @Description 流水线阶段（有界输入队列 + 独立工作线程组，队列满时提交方阻塞，实现逐级背压）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+public class PipelineStage<T> {
+
+    /**
+     * 阶段名称
+     */
+    private final String name;
+    /**
+     * 有界输入队列
+     */
+    private final BlockingQueue<T> queue;
+    /**
+     * 工作线程数
+     */
+    private final int workerCount;
+    /**
+     * 任务处理器
+     */
+    private final Consumer<T> handler;
+    /**
+     * 处理器抛出异常时的回调
+     */
+    private final BiConsumer<T, Exception> failureHandler;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    // 阶段统计
+    private final LongAdder processedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    public PipelineStage(String name, int queueCapacity, int workerCount,
+                         Consumer<T> handler, BiConsumer<T, Exception> failureHandler) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerCount = workerCount;
+        this.handler = handler;
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * 启动工作线程
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(this::workLoop, "pipeline-" + name + "-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("流水线阶段已启动: stage={}, workers={}, queueCapacity={}",
+                name, workerCount, queue.remainingCapacity());
+    }
+
+    /**
+     * 提交任务，队列满时阻塞等待，将背压传递给上游
+     *
+     * @param item 任务
+     * @throws InterruptedException 等待期间被中断
+     */
+    public void submit(T item) throws InterruptedException {
+        queue.put(item);
+    }
+
+    /**
+     * 停止阶段，等待队列中的任务处理完毕
+     *
+     * @param timeoutMs 最大等待时间（毫秒）
+     * @return 未处理完而被丢弃的任务
+     */
+    public List<T> stop(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!queue.isEmpty() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        List<T> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        return remaining;
+    }
+
+    /**
+     * 获取阶段统计快照
+     */
+    public StageStats getStats() {
+        return new StageStats(name, workerCount, queue.size(), queue.remainingCapacity(),
+                activeWorkers.get(), processedCount.sum(), failedCount.sum(),
+                TimeUnit.NANOSECONDS.toMillis(busyNanos.sum()));
+    }
+
+    private void workLoop() {
+        while (running) {
+            T item;
+            try {
+                item = queue.poll(500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            if (item == null) {
+                continue;
+            }
+            activeWorkers.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                handler.accept(item);
+                processedCount.increment();
+            } catch (Exception e) {
+                failedCount.increment();
+                try {
+                    failureHandler.accept(item, e);
+                } catch (Exception callbackException) {
+                    log.error("流水线阶段失败回调异常: stage={}, error={}", name, callbackException.getMessage(), callbackException);
+                }
+            } finally {
+                busyNanos.add(System.nanoTime() - start);
+                activeWorkers.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 阶段统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class StageStats {
+        // 阶段名称
+        private final String name;
+        // 工作线程数
+        private final int workers;
+        // 当前队列深度
+        private final int queueDepth;
+        // 队列剩余容量
+        private final int queueRemaining;
+        // 正在处理任务的线程数
+        private final int activeWorkers;
+        // 累计处理成功数
+        private final long processed;
+        // 累计处理失败数
+        private final long failed;
+        // 累计处理耗时（毫秒）
+        private final long busyTimeMs;
+    }
+
+}
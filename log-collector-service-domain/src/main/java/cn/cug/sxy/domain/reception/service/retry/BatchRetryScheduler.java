@@ -0,0 +1,119 @@
+package cn.cug.sxy.domain.reception.service.retry;
+
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/21 10:12
+ * @Description 批次重试调度器（失败批次在延迟队列中等待，到期后重新派发到重试线程池，处理线程无需阻塞等待）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class BatchRetryScheduler implements DisposableBean {
+
+    /**
+     * 延迟定时器，只负责到期派发，不执行批次处理
+     */
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "batch-retry-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 重试执行线程池
+     */
+    private final ExecutorService retryExecutor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r);
+                    thread.setName("batch-retry-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+    );
+
+    /**
+     * 等待中的重试数量
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * 延迟调度一次批次重试
+     *
+     * @param batchId     批次ID
+     * @param delayMs     延迟时间（毫秒）
+     * @param retryAction 到期后执行的重试动作
+     * @return 是否调度成功（调度器已关闭时返回false）
+     */
+    public boolean schedule(BatchId batchId, long delayMs, Runnable retryAction) {
+        pendingCount.incrementAndGet();
+        try {
+            timer.schedule(() -> dispatch(batchId, retryAction), delayMs, TimeUnit.MILLISECONDS);
+            log.debug("批次已进入重试等待队列: batchId={}, delayMs={}", batchId.getValue(), delayMs);
+            return true;
+        } catch (RejectedExecutionException e) {
+            pendingCount.decrementAndGet();
+            log.warn("重试调度器已关闭，无法调度批次重试: batchId={}", batchId.getValue());
+            return false;
+        }
+    }
+
+    /**
+     * 获取等待中的重试数量
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 到期派发重试任务
+     */
+    private void dispatch(BatchId batchId, Runnable retryAction) {
+        pendingCount.decrementAndGet();
+        try {
+            retryExecutor.execute(retryAction);
+        } catch (RejectedExecutionException e) {
+            log.error("派发批次重试任务失败: batchId={}", batchId.getValue());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // 未到期的重试直接丢弃，对应批次保持处理中状态，由清理任务按超时处理
+        List<Runnable> dropped = timer.shutdownNow();
+        if (!dropped.isEmpty()) {
+            log.warn("批次重试调度器关闭，丢弃未到期的重试任务: count={}", dropped.size());
+        }
+        retryExecutor.shutdown();
+        try {
+            if (!retryExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                retryExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            retryExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        log.info("批次重试调度器已关闭");
+    }
+
+}
@@ -0,0 +1,540 @@
+package cn.cug.sxy.domain.reception.service.routing;
+
+import cn.cug.sxy.domain.reception.adapter.repository.IRoutingRuleRepository;
+import cn.cug.sxy.domain.reception.model.entity.RoutingRuleEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.LogAttributes;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+import cn.cug.sxy.domain.reception.model.valobj.RuleAction;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/29 10:40
+ * @Description 日志路由规则引擎（入库前按应用/端点的规则丢弃、采样、路由或打标签；规则编译为谓词树后缓存，
+ * 定时从规则表刷新，规则未变更时沿用已编译的规则和命中计数；每个批次的执行结果被记录，重试时沿用，
+ * 保证规则刷新前后保留的日志不变且不重复计数）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class LogRoutingEngine implements InitializingBean, DisposableBean {
+
+    /**
+     * 路由索引名后缀：小写字母、数字、下划线和连字符（需满足ES索引名要求）
+     */
+    private static final Pattern ROUTE_NAME = Pattern.compile("[a-z0-9][a-z0-9_-]{0,63}");
+
+    private static final CompiledRule[] NO_RULES = new CompiledRule[0];
+
+    private final IRoutingRuleRepository ruleRepository;
+
+    /**
+     * 是否启用路由规则
+     */
+    @Value("${log-center.reception.routing.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 规则刷新间隔（毫秒）
+     */
+    @Value("${log-center.reception.routing.refresh-interval-ms:30000}")
+    private long refreshIntervalMs;
+
+    /**
+     * 保留执行结果的批次数上限（批次入库成功后移除，上限只用于兜底）
+     */
+    @Value("${log-center.reception.routing.decision-cache-size:16384}")
+    private int decisionCacheSize;
+
+    /**
+     * 批次ID -> 首次执行规则的结果，按访问顺序淘汰
+     */
+    private final Map<String, BatchDecision> decisions = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * 当前生效的规则，刷新时整体替换
+     */
+    private volatile RuleSet ruleSet = new RuleSet(Collections.emptyList());
+
+    /**
+     * 编译失败的规则（规则ID -> 失败时的规则签名），规则未变更时不再重复编译
+     */
+    private volatile Map<String, String> invalidRules = Collections.emptyMap();
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "routing-rule-refresher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 规则执行统计
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder routed = new LongAdder();
+    private final LongAdder tagged = new LongAdder();
+
+    public LogRoutingEngine(IRoutingRuleRepository ruleRepository) {
+        this.ruleRepository = ruleRepository;
+    }
+
+    /**
+     * 对一个批次的日志执行规则：丢弃和采样未保留的日志被移除，路由和标签直接写入日志
+     * <p>
+     * 采样按批次ID和日志在原始批次中的序号决定。批次首次执行的结果被记录，重试时直接沿用，
+     * 期间规则刷新不会改变保留的日志、路由和标签，命中计数也只在首次执行时累加
+     *
+     * @param batchId    批次ID
+     * @param appId      应用ID
+     * @param endpointId 端点ID
+     * @param logs       预处理后的日志
+     * @return 保留的日志
+     */
+    public List<ProcessedLog> apply(BatchId batchId, String appId, String endpointId, List<ProcessedLog> logs) {
+        if (logs.isEmpty()) {
+            return logs;
+        }
+        BatchDecision previous = decisionOf(batchId);
+        CompiledRule[] rules = enabled ? ruleSet.rulesFor(appId, endpointId) : NO_RULES;
+        if (previous == null && rules.length == 0) {
+            return logs;
+        }
+        BatchDecision decision = previous != null ? previous : new BatchDecision();
+        long seed = mix(batchId.getValue().hashCode());
+        List<ProcessedLog> kept = new ArrayList<>(logs.size());
+        for (ProcessedLog processedLog : logs) {
+            int sequence = processedLog.getSequence();
+            boolean keep;
+            if (decision.decided.get(sequence)) {
+                keep = decision.replay(processedLog);
+            } else {
+                // 首次执行才计数；重试时新出现的日志（如预处理配置变更后通过校验）按当前规则执行但不计数
+                keep = evaluate(rules, processedLog, seed, previous == null);
+                decision.record(processedLog, keep);
+            }
+            if (keep) {
+                kept.add(processedLog);
+            }
+        }
+        if (previous == null) {
+            evaluated.add(logs.size());
+            remember(batchId, decision);
+        }
+        return kept;
+    }
+
+    /**
+     * 批次已入库，不再需要保留执行结果
+     *
+     * @param batchId 批次ID
+     */
+    public void complete(BatchId batchId) {
+        synchronized (decisions) {
+            decisions.remove(batchId.getValue());
+        }
+    }
+
+    /**
+     * 按优先级执行规则：DROP和未被采样保留的日志立即结束，路由以第一条命中的规则为准，标签依次追加
+     *
+     * @param count 是否累加命中计数
+     * @return 是否保留日志
+     */
+    private boolean evaluate(CompiledRule[] rules, ProcessedLog processedLog, long seed, boolean count) {
+        boolean routedLog = false;
+        boolean taggedLog = false;
+        for (CompiledRule rule : rules) {
+            if (!rule.condition.matches(processedLog)) {
+                continue;
+            }
+            if (count) {
+                rule.hits.increment();
+            }
+            switch (rule.action) {
+                case DROP:
+                    if (count) {
+                        dropped.increment();
+                    }
+                    return false;
+                case SAMPLE:
+                    if (!rule.keeps(seed, processedLog.getSequence())) {
+                        if (count) {
+                            sampledOut.increment();
+                        }
+                        return false;
+                    }
+                    break;
+                case ROUTE:
+                    if (!routedLog) {
+                        processedLog.assignRoute(rule.route);
+                        routedLog = true;
+                        if (count) {
+                            routed.increment();
+                        }
+                    }
+                    break;
+                case TAG:
+                    for (Map.Entry<String, String> tag : rule.tags.entrySet()) {
+                        processedLog.addTag(tag.getKey(), tag.getValue());
+                    }
+                    if (!taggedLog) {
+                        taggedLog = true;
+                        if (count) {
+                            tagged.increment();
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private BatchDecision decisionOf(BatchId batchId) {
+        synchronized (decisions) {
+            return decisions.get(batchId.getValue());
+        }
+    }
+
+    private void remember(BatchId batchId, BatchDecision decision) {
+        synchronized (decisions) {
+            decisions.put(batchId.getValue(), decision);
+            if (decisions.size() > decisionCacheSize) {
+                // 超出上限时淘汰最久未访问的批次，该批次再次重试时按当前规则重新执行
+                Iterator<String> eldest = decisions.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * 从规则表刷新规则，未变更的规则沿用已编译的条件和命中计数
+     */
+    public synchronized void refresh() {
+        List<RoutingRuleEntity> entities;
+        try {
+            entities = ruleRepository.findEnabled();
+        } catch (Exception e) {
+            log.warn("加载路由规则失败，沿用当前规则: {}", e.getMessage());
+            return;
+        }
+        Map<String, CompiledRule> current = new HashMap<>();
+        for (CompiledRule rule : ruleSet.rules) {
+            current.put(rule.ruleId, rule);
+        }
+        List<CompiledRule> compiled = new ArrayList<>(entities.size());
+        Map<String, String> invalid = new HashMap<>();
+        int changed = 0;
+        for (RoutingRuleEntity entity : entities) {
+            String signature = signatureOf(entity);
+            if (signature.equals(invalidRules.get(entity.getRuleId()))) {
+                invalid.put(entity.getRuleId(), signature);
+                continue;
+            }
+            CompiledRule previous = current.get(entity.getRuleId());
+            if (previous != null && previous.signature.equals(signature)) {
+                compiled.add(previous);
+                continue;
+            }
+            try {
+                // 同一规则修改后重新编译，命中计数延续
+                compiled.add(new CompiledRule(entity, signature, previous != null ? previous.hits : new LongAdder()));
+                changed++;
+            } catch (IllegalArgumentException e) {
+                invalid.put(entity.getRuleId(), signature);
+                log.warn("路由规则编译失败，已跳过: ruleId={}, error={}", entity.getRuleId(), e.getMessage());
+            }
+        }
+        Set<String> compiledIds = new HashSet<>();
+        for (CompiledRule rule : compiled) {
+            compiledIds.add(rule.ruleId);
+        }
+        int removed = 0;
+        for (String ruleId : current.keySet()) {
+            if (!compiledIds.contains(ruleId)) {
+                removed++;
+            }
+        }
+        ruleSet = new RuleSet(compiled);
+        invalidRules = invalid;
+        if (changed > 0 || removed > 0) {
+            log.info("路由规则已刷新, 规则数: {}, 变更: {}, 移除: {}", compiled.size(), changed, removed);
+        }
+    }
+
+    /**
+     * 获取规则执行统计快照
+     */
+    public RoutingStats getStats() {
+        int pendingDecisions;
+        synchronized (decisions) {
+            pendingDecisions = decisions.size();
+        }
+        return new RoutingStats(ruleSet.rules.size(), invalidRules.size(), evaluated.sum(), dropped.sum(),
+                sampledOut.sum(), routed.sum(), tagged.sum(), pendingDecisions);
+    }
+
+    /**
+     * 获取各规则的命中次数
+     */
+    public List<RuleHits> getRuleHits() {
+        List<RuleHits> hits = new ArrayList<>(ruleSet.rules.size());
+        for (CompiledRule rule : ruleSet.rules) {
+            hits.add(new RuleHits(rule.ruleId, rule.action.name(), rule.hits.sum()));
+        }
+        return hits;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresh();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("路由规则引擎已启动, 启用: {}, 规则数: {}, 刷新间隔: {}ms", enabled, ruleSet.rules.size(), refreshIntervalMs);
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("刷新路由规则异常", e);
+        }
+    }
+
+    /**
+     * 规则签名，规则内容不变时签名不变
+     */
+    private static String signatureOf(RoutingRuleEntity entity) {
+        return entity.getAppId() + '\u0001' + entity.getEndpointId() + '\u0001' + entity.getPriority() + '\u0001'
+                + entity.getCondition() + '\u0001' + entity.getAction() + '\u0001' + entity.getActionParam();
+    }
+
+    /**
+     * murmur3 fmix64
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 一个批次首次执行规则的结果，按日志在原始批次中的序号记录
+     */
+    private static class BatchDecision {
+        // 已执行过规则的序号
+        private final BitSet decided = new BitSet();
+        // 被丢弃或采样未保留的序号
+        private final BitSet removed = new BitSet();
+        // 序号 -> 路由，大多数日志没有路由
+        private final Map<Integer, String> routes = new HashMap<>();
+        // 序号 -> 追加标签后的完整标签
+        private final Map<Integer, Map<String, String>> tags = new HashMap<>();
+
+        void record(ProcessedLog processedLog, boolean keep) {
+            int sequence = processedLog.getSequence();
+            decided.set(sequence);
+            if (!keep) {
+                removed.set(sequence);
+                return;
+            }
+            if (processedLog.getRoute() != null) {
+                routes.put(sequence, processedLog.getRoute());
+            }
+            if (processedLog.hasAddedTags()) {
+                tags.put(sequence, new HashMap<>(processedLog.getTags()));
+            }
+        }
+
+        /**
+         * 将记录的结果应用到重试时重新预处理的日志
+         *
+         * @return 是否保留日志
+         */
+        boolean replay(ProcessedLog processedLog) {
+            int sequence = processedLog.getSequence();
+            if (removed.get(sequence)) {
+                return false;
+            }
+            String route = routes.get(sequence);
+            if (route != null) {
+                processedLog.assignRoute(route);
+            }
+            Map<String, String> added = tags.get(sequence);
+            if (added != null) {
+                for (Map.Entry<String, String> tag : added.entrySet()) {
+                    processedLog.addTag(tag.getKey(), tag.getValue());
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 一组生效的规则，按应用和端点缓存适用的规则（已按优先级排序）
+     */
+    private static class RuleSet {
+        private final List<CompiledRule> rules;
+        private final Map<String, CompiledRule[]> byScope = new ConcurrentHashMap<>();
+
+        RuleSet(List<CompiledRule> rules) {
+            List<CompiledRule> sorted = new ArrayList<>(rules);
+            sorted.sort(Comparator.comparingInt((CompiledRule rule) -> rule.priority).thenComparing(rule -> rule.ruleId));
+            this.rules = Collections.unmodifiableList(sorted);
+        }
+
+        CompiledRule[] rulesFor(String appId, String endpointId) {
+            if (rules.isEmpty()) {
+                return NO_RULES;
+            }
+            return byScope.computeIfAbsent(appId + '\u0001' + endpointId, key -> {
+                List<CompiledRule> applicable = new ArrayList<>();
+                for (CompiledRule rule : rules) {
+                    if ((rule.appId == null || rule.appId.equals(appId))
+                            && (rule.endpointId == null || rule.endpointId.equals(endpointId))) {
+                        applicable.add(rule);
+                    }
+                }
+                return applicable.toArray(NO_RULES);
+            });
+        }
+    }
+
+    /**
+     * 编译后的规则，条件和动作参数在编译时解析
+     */
+    private static class CompiledRule {
+        private final String ruleId;
+        private final String appId;
+        private final String endpointId;
+        private final int priority;
+        private final RuleCondition condition;
+        private final RuleAction action;
+        private final String signature;
+        private final LongAdder hits;
+        // 采样保留阈值（53位随机数小于该值时保留）
+        private final long sampleThreshold;
+        // 采样随机数的规则盐值，不同采样规则相互独立
+        private final long sampleSalt;
+        private final String route;
+        private final Map<String, String> tags;
+
+        CompiledRule(RoutingRuleEntity entity, String signature, LongAdder hits) {
+            this.ruleId = entity.getRuleId();
+            this.appId = blankToNull(entity.getAppId());
+            this.endpointId = blankToNull(entity.getEndpointId());
+            this.priority = entity.getPriority();
+            this.condition = RuleCondition.compile(entity.getCondition());
+            if (entity.getAction() == null) {
+                throw new IllegalArgumentException("规则动作未配置或非法");
+            }
+            this.action = entity.getAction();
+            this.signature = signature;
+            this.hits = hits;
+            String param = entity.getActionParam() != null ? entity.getActionParam().trim() : "";
+            this.sampleThreshold = action == RuleAction.SAMPLE ? parseThreshold(param) : 0L;
+            this.sampleSalt = mix(ruleId.hashCode());
+            if (action == RuleAction.ROUTE && !ROUTE_NAME.matcher(param).matches()) {
+                throw new IllegalArgumentException("路由索引名后缀非法: '" + param + "'");
+            }
+            this.route = action == RuleAction.ROUTE ? param : null;
+            this.tags = action == RuleAction.TAG ? LogAttributes.parseTags(param) : Collections.emptyMap();
+            if (action == RuleAction.TAG && tags.isEmpty()) {
+                throw new IllegalArgumentException("标签参数为空或格式非法: '" + param + "'");
+            }
+        }
+
+        boolean keeps(long seed, int position) {
+            long random = mix(seed ^ sampleSalt ^ (position * 0x9e3779b97f4a7c15L)) >>> 11;
+            return random < sampleThreshold;
+        }
+
+        private static long parseThreshold(String param) {
+            double rate;
+            try {
+                rate = Double.parseDouble(param);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("采样比例非法: '" + param + "'");
+            }
+            if (!(rate >= 0 && rate <= 1)) {
+                throw new IllegalArgumentException("采样比例应在0~1之间: '" + param + "'");
+            }
+            return (long) (rate * (1L << 53));
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+    }
+
+    /**
+     * 路由规则执行统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RoutingStats {
+        // 生效的规则数
+        private final int rules;
+        // 编译失败的规则数
+        private final int invalidRules;
+        // 执行过规则的日志数
+        private final long evaluated;
+        // 被DROP规则丢弃的日志数
+        private final long dropped;
+        // 采样未保留的日志数
+        private final long sampledOut;
+        // 路由到指定索引的日志数
+        private final long routed;
+        // 追加了标签的日志数
+        private final long tagged;
+        // 保留执行结果、等待入库的批次数
+        private final int pendingDecisions;
+    }
+
+    /**
+     * 单条规则的命中次数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RuleHits {
+        private final String ruleId;
+        private final String action;
+        private final long hits;
+    }
+
+}
@@ -0,0 +1,409 @@
+package cn.cug.sxy.domain.reception.service.routing;
+
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.reception.model.valobj.ProcessedLog;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/29 10:00
+ * @Description 编译后的规则条件（表达式如 "level <= DEBUG and (source == 'gateway' or tag.env in (dev, test))"，
+ * 编译时解析为谓词树：字段取值方式、级别序号、正则和取值集合都在编译时确定，匹配时不再解析表达式；编译结果不可变，可在线程间共享）
+ * <p>
+ * 字段：level、source、hostname、sourceId、format、template、content、tag.名称、field.名称（结构化字段）；
+ * 比较：== != < <= > >=（仅级别）、~（正则查找）、contains、in (a, b)、exists；
+ * 组合：and / or / not 及括号（也可写作 && || !），取值可为单引号或双引号字符串，不含空白和符号时可省略引号
+ * @Author jerryhotton
+ */
+
+public final class RuleCondition {
+
+    /**
+     * 未配置条件时匹配所有日志
+     */
+    private static final Node ALWAYS = log -> true;
+
+    private final String expression;
+    private final Node root;
+
+    private RuleCondition(String expression, Node root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * 编译条件表达式
+     *
+     * @param expression 条件表达式，为空时匹配所有日志
+     * @return 编译后的条件
+     * @throws IllegalArgumentException 表达式语法错误、字段未知或正则非法
+     */
+    public static RuleCondition compile(String expression) {
+        if (expression == null || expression.isBlank()) {
+            return new RuleCondition(expression, ALWAYS);
+        }
+        Parser parser = new Parser(expression);
+        Node root = parser.parseOr();
+        if (parser.peek() != null) {
+            throw parser.error("多余的内容 '" + parser.peek().text + "'");
+        }
+        return new RuleCondition(expression, root);
+    }
+
+    /**
+     * 日志是否满足条件
+     */
+    public boolean matches(ProcessedLog log) {
+        return root.test(log);
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * 谓词树节点
+     */
+    private interface Node {
+        boolean test(ProcessedLog log);
+    }
+
+    /**
+     * 日志级别，未识别到级别的日志按INFO处理（与入库时一致）
+     */
+    private static LogLevel levelOf(ProcessedLog log) {
+        return log.getLevel() != null ? log.getLevel() : LogLevel.INFO;
+    }
+
+    /**
+     * 字符串字段的取值方式
+     */
+    private static Function<ProcessedLog, String> accessor(String field) {
+        switch (field) {
+            case "source":
+                return log -> log.getAttributes().getSource();
+            case "hostname":
+                return log -> log.getAttributes().getHostname();
+            case "sourceId":
+                return ProcessedLog::getSourceId;
+            case "format":
+                return log -> log.getFormat() != null ? log.getFormat().name() : null;
+            case "template":
+                return ProcessedLog::getTemplateId;
+            case "content":
+                return ProcessedLog::getContent;
+            default:
+                break;
+        }
+        if (field.startsWith("tag.") && field.length() > 4) {
+            String name = field.substring(4);
+            return log -> log.getTags().get(name);
+        }
+        if (field.startsWith("field.") && field.length() > 6) {
+            String name = field.substring(6);
+            return log -> {
+                Object value = log.getStructuredField(name);
+                return value != null ? value.toString() : null;
+            };
+        }
+        return null;
+    }
+
+    private enum TokenType {
+        WORD, STRING, OPERATOR, LPAREN, RPAREN, COMMA
+    }
+
+    private static final class Token {
+        private final TokenType type;
+        private final String text;
+        private final int position;
+
+        Token(TokenType type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == TokenType.WORD && text.equalsIgnoreCase(keyword);
+        }
+
+        boolean isOperator(String operator) {
+            return type == TokenType.OPERATOR && text.equals(operator);
+        }
+    }
+
+    /**
+     * 递归下降解析器：or -> and (OR and)*；and -> unary (AND unary)*；unary -> NOT unary | '(' or ')' | comparison
+     */
+    private static final class Parser {
+
+        private final String expression;
+        private final List<Token> tokens;
+        private int index;
+
+        Parser(String expression) {
+            this.expression = expression;
+            this.tokens = tokenize(expression);
+        }
+
+        Node parseOr() {
+            Node left = parseAnd();
+            while (peek() != null && (peek().isKeyword("or") || peek().isOperator("||"))) {
+                index++;
+                Node l = left;
+                Node r = parseAnd();
+                left = log -> l.test(log) || r.test(log);
+            }
+            return left;
+        }
+
+        Node parseAnd() {
+            Node left = parseUnary();
+            while (peek() != null && (peek().isKeyword("and") || peek().isOperator("&&"))) {
+                index++;
+                Node l = left;
+                Node r = parseUnary();
+                left = log -> l.test(log) && r.test(log);
+            }
+            return left;
+        }
+
+        Node parseUnary() {
+            Token token = next("条件");
+            if (token.isKeyword("not") || token.isOperator("!")) {
+                Node operand = parseUnary();
+                return log -> !operand.test(log);
+            }
+            if (token.type == TokenType.LPAREN) {
+                Node inner = parseOr();
+                expect(TokenType.RPAREN, "')'");
+                return inner;
+            }
+            if (token.type != TokenType.WORD) {
+                throw error("此处应为字段名", token);
+            }
+            return parseComparison(token);
+        }
+
+        private Node parseComparison(Token fieldToken) {
+            String field = fieldToken.text;
+            Token operator = next("比较运算符");
+            if ("level".equals(field)) {
+                return levelComparison(operator);
+            }
+            Function<ProcessedLog, String> accessor = accessor(field);
+            if (accessor == null) {
+                throw error("未知字段 '" + field + "'", fieldToken);
+            }
+            // 格式按枚举名比较，大小写不敏感
+            boolean upper = "format".equals(field);
+            if (operator.isKeyword("exists")) {
+                return log -> accessor.apply(log) != null;
+            }
+            if (operator.isKeyword("in")) {
+                Set<String> values = new HashSet<>();
+                for (String value : parseValueList()) {
+                    values.add(upper ? value.toUpperCase(Locale.ROOT) : value);
+                }
+                return log -> {
+                    String actual = accessor.apply(log);
+                    return actual != null && values.contains(actual);
+                };
+            }
+            String value = parseValue();
+            String expected = upper ? value.toUpperCase(Locale.ROOT) : value;
+            if (operator.isOperator("==") || operator.isOperator("=")) {
+                return log -> expected.equals(accessor.apply(log));
+            }
+            if (operator.isOperator("!=")) {
+                return log -> !expected.equals(accessor.apply(log));
+            }
+            if (operator.isKeyword("contains")) {
+                return log -> {
+                    String actual = accessor.apply(log);
+                    return actual != null && actual.contains(expected);
+                };
+            }
+            if (operator.isOperator("~") || operator.isKeyword("matches")) {
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(value);
+                } catch (PatternSyntaxException e) {
+                    throw error("正则表达式非法: " + e.getDescription(), operator);
+                }
+                return log -> {
+                    String actual = accessor.apply(log);
+                    return actual != null && pattern.matcher(actual).find();
+                };
+            }
+            throw error("字段 '" + field + "' 不支持运算符 '" + operator.text + "'", operator);
+        }
+
+        /**
+         * 级别按严重程度比较，编译时解析为级别序号
+         */
+        private Node levelComparison(Token operator) {
+            if (operator.isKeyword("exists")) {
+                return log -> log.getLevel() != null;
+            }
+            if (operator.isKeyword("in")) {
+                boolean[] accepted = new boolean[LogLevel.values().length];
+                for (String value : parseValueList()) {
+                    accepted[parseLevel(value).ordinal()] = true;
+                }
+                return log -> accepted[levelOf(log).ordinal()];
+            }
+            if (operator.type != TokenType.OPERATOR) {
+                throw error("级别不支持运算符 '" + operator.text + "'", operator);
+            }
+            int expected = parseLevel(parseValue()).ordinal();
+            switch (operator.text) {
+                case "==":
+                case "=":
+                    return log -> levelOf(log).ordinal() == expected;
+                case "!=":
+                    return log -> levelOf(log).ordinal() != expected;
+                case "<":
+                    return log -> levelOf(log).ordinal() < expected;
+                case "<=":
+                    return log -> levelOf(log).ordinal() <= expected;
+                case ">":
+                    return log -> levelOf(log).ordinal() > expected;
+                case ">=":
+                    return log -> levelOf(log).ordinal() >= expected;
+                default:
+                    throw error("级别不支持运算符 '" + operator.text + "'", operator);
+            }
+        }
+
+        private LogLevel parseLevel(String value) {
+            LogLevel level = LogLevel.parse(value);
+            if (level == null) {
+                throw error("未知日志级别 '" + value + "'");
+            }
+            return level;
+        }
+
+        private List<String> parseValueList() {
+            expect(TokenType.LPAREN, "'('");
+            List<String> values = new ArrayList<>();
+            values.add(parseValue());
+            while (peek() != null && peek().type == TokenType.COMMA) {
+                index++;
+                values.add(parseValue());
+            }
+            expect(TokenType.RPAREN, "')'");
+            return values;
+        }
+
+        private String parseValue() {
+            Token token = next("取值");
+            if (token.type != TokenType.WORD && token.type != TokenType.STRING) {
+                throw error("此处应为取值", token);
+            }
+            return token.text;
+        }
+
+        Token peek() {
+            return index < tokens.size() ? tokens.get(index) : null;
+        }
+
+        private Token next(String expected) {
+            if (index >= tokens.size()) {
+                throw error("表达式不完整，缺少" + expected);
+            }
+            return tokens.get(index++);
+        }
+
+        private void expect(TokenType type, String description) {
+            Token token = next(description);
+            if (token.type != type) {
+                throw error("此处应为" + description, token);
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + ": " + expression);
+        }
+
+        private IllegalArgumentException error(String message, Token token) {
+            return new IllegalArgumentException(message + " (位置 " + token.position + "): " + expression);
+        }
+
+        private List<Token> tokenize(String text) {
+            List<Token> result = new ArrayList<>();
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(') {
+                    result.add(new Token(TokenType.LPAREN, "(", i++));
+                } else if (c == ')') {
+                    result.add(new Token(TokenType.RPAREN, ")", i++));
+                } else if (c == ',') {
+                    result.add(new Token(TokenType.COMMA, ",", i++));
+                } else if (c == '\'' || c == '"') {
+                    i = readString(text, i, result);
+                } else if ("=!<>~&|".indexOf(c) >= 0) {
+                    int start = i;
+                    String two = i + 1 < length ? text.substring(i, i + 2) : null;
+                    if ("==".equals(two) || "!=".equals(two) || "<=".equals(two) || ">=".equals(two)
+                            || "&&".equals(two) || "||".equals(two)) {
+                        i += 2;
+                    } else if (c == '&' || c == '|') {
+                        throw new IllegalArgumentException("非法字符 '" + c + "' (位置 " + i + "): " + text);
+                    } else {
+                        i++;
+                    }
+                    result.add(new Token(TokenType.OPERATOR, text.substring(start, i), start));
+                } else {
+                    int start = i;
+                    while (i < length && isWordChar(text.charAt(i))) {
+                        i++;
+                    }
+                    if (i == start) {
+                        throw new IllegalArgumentException("非法字符 '" + c + "' (位置 " + i + "): " + text);
+                    }
+                    result.add(new Token(TokenType.WORD, text.substring(start, i), start));
+                }
+            }
+            return result;
+        }
+
+        private int readString(String text, int start, List<Token> result) {
+            char quote = text.charAt(start);
+            StringBuilder value = new StringBuilder();
+            int i = start + 1;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (c == '\\' && i + 1 < text.length()) {
+                    value.append(text.charAt(i + 1));
+                    i += 2;
+                } else if (c == quote) {
+                    result.add(new Token(TokenType.STRING, value.toString(), start));
+                    return i + 1;
+                } else {
+                    value.append(c);
+                    i++;
+                }
+            }
+            throw new IllegalArgumentException("字符串未闭合 (位置 " + start + "): " + text);
+        }
+
+        private static boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-' || c == ':' || c == '/' || c == '@' || c == '*';
+        }
+    }
+
+}
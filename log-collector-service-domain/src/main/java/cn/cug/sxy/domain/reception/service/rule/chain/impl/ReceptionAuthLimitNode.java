@@ -34,7 +34,7 @@ public class ReceptionAuthLimitNode extends AbstractLogicChainNode<ReceptionRequ
         RawLog rawLog = request.getRawLog().get(0);
         String appId = request.getAppId();
         String endpointId = request.getEndpointId();
-        String clientIp = rawLog.getMetadata().getOrDefault("clientIp", "");
+        String clientIp = rawLog.getAttributes().getClientIpOrEmpty();
 
         log.info("日志接收责任链-应用权限与限流校验节点接管 request:{}", JSON.toJSONString(request));
         // 1. 验证应用是否有权限访问该端点
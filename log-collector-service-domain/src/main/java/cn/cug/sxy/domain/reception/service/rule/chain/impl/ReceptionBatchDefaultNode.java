@@ -5,7 +5,9 @@ import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
 import cn.cug.sxy.domain.reception.model.entity.ReceptionDynamicContext;
 import cn.cug.sxy.domain.reception.model.valobj.*;
 import cn.cug.sxy.domain.reception.service.IBatchProcessingService;
+import cn.cug.sxy.domain.reception.service.dedup.LogDeduplicator;
 import cn.cug.sxy.domain.reception.service.metrics.LogProcessingMetrics;
+import cn.cug.sxy.domain.reception.service.multiline.MultilineAssembler;
 import cn.cug.sxy.types.framework.chain.AbstractLogicChainNode;
 import cn.cug.sxy.domain.reception.service.rule.chain.factory.DefaultLogicChainFactory;
 import com.alibaba.fastjson2.JSON;
@@ -14,11 +16,6 @@ import org.springframework.stereotype.Component;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @version 1.0
@@ -34,29 +31,20 @@ public class ReceptionBatchDefaultNode extends AbstractLogicChainNode<ReceptionR
     private final ILogBatchRepository logBatchRepository;
     private final LogProcessingMetrics metrics;
     private final IBatchProcessingService batchProcessingService;
-
-    private final Executor asyncExecutor = Executors.newFixedThreadPool(
-            Runtime.getRuntime().availableProcessors(),
-            new ThreadFactory() {
-                private final AtomicInteger counter = new AtomicInteger();
-
-                @Override
-                public Thread newThread(Runnable r) {
-                    Thread thread = new Thread(r);
-                    thread.setName("log-batch-processor-" + counter.incrementAndGet());
-                    thread.setDaemon(true);
-                    return thread;
-                }
-            }
-    );
+    private final MultilineAssembler multilineAssembler;
+    private final LogDeduplicator logDeduplicator;
 
     public ReceptionBatchDefaultNode(
             ILogBatchRepository logBatchRepository,
             LogProcessingMetrics metrics,
-            IBatchProcessingService batchProcessingService) {
+            IBatchProcessingService batchProcessingService,
+            MultilineAssembler multilineAssembler,
+            LogDeduplicator logDeduplicator) {
         this.logBatchRepository = logBatchRepository;
         this.metrics = metrics;
         this.batchProcessingService = batchProcessingService;
+        this.multilineAssembler = multilineAssembler;
+        this.logDeduplicator = logDeduplicator;
     }
 
     @Override
@@ -66,6 +54,15 @@ public class ReceptionBatchDefaultNode extends AbstractLogicChainNode<ReceptionR
         List<RawLog> validLogs = context.getValidLogs();
         List<RawLog> invalidLogs = context.getInvalidLogs();
         log.info("日志接收责任链-默认节点接管 request:{}", JSON.toJSONString(request));
+        // 0. 合并多行事件（仅配置了多行规则的端点）：同一来源之前请求中的未完成事件随本批次输出，
+        // 每个来源最后一个事件等待后续请求中的续行，超时后经日志缓冲区入批
+        List<RawLog> events = multilineAssembler.assemble(validLogs, appId, endpointId);
+        // 0.1 折叠重复日志，窗口内的重复只计数，窗口结束时输出汇总日志
+        events = logDeduplicator.deduplicate(events, appId, endpointId);
+        if (events.isEmpty()) {
+            metrics.recordLogReceived(appId, endpointId, validLogs.size());
+            return ReceptionResult.buffered();
+        }
         // 1. 创建批次ID
         BatchId batchId = BatchId.generate();
         // 2. 创建日志批次
@@ -73,7 +70,7 @@ public class ReceptionBatchDefaultNode extends AbstractLogicChainNode<ReceptionR
                 batchId,
                 appId,
                 endpointId,
-                validLogs,
+                events,
                 BatchStatus.PENDING,
                 Instant.now()
         );
@@ -82,8 +79,8 @@ public class ReceptionBatchDefaultNode extends AbstractLogicChainNode<ReceptionR
         // 4. 记录监控指标
         metrics.recordBatchReceived(appId, endpointId);
         metrics.recordLogReceived(appId, endpointId, validLogs.size());
-        // 5. 异步处理批次
-        CompletableFuture.runAsync(() -> batchProcessingService.processBatchAsync(batch), asyncExecutor);
+        // 5. 提交批次到处理流水线异步处理（流水线已满时阻塞请求线程，向客户端传递背压）
+        batchProcessingService.processBatchAsync(batch);
         log.info("批量日志接收成功: appId={}, endpointId={}, batchId={}, validCount={}, invalidCount={}",
                 appId, endpointId, batchId.getValue(), validLogs.size(), invalidLogs.size());
         log.info("日志接收责任链-默认节点放行 request:{}", JSON.toJSONString(request));
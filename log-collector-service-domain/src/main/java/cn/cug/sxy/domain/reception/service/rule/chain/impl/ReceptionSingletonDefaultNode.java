@@ -3,13 +3,18 @@ package cn.cug.sxy.domain.reception.service.rule.chain.impl;
 import cn.cug.sxy.domain.reception.model.entity.ReceptionDynamicContext;
 import cn.cug.sxy.domain.reception.model.valobj.*;
 import cn.cug.sxy.domain.reception.service.buffer.LogBufferManager;
+import cn.cug.sxy.domain.reception.service.dedup.LogDeduplicator;
 import cn.cug.sxy.domain.reception.service.metrics.LogProcessingMetrics;
+import cn.cug.sxy.domain.reception.service.multiline.MultilineAssembler;
 import cn.cug.sxy.types.framework.chain.AbstractLogicChainNode;
 import cn.cug.sxy.domain.reception.service.rule.chain.factory.DefaultLogicChainFactory;
 import com.alibaba.fastjson2.JSON;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @version 1.0
  * @Date 2025/7/9 09:36
@@ -23,10 +28,18 @@ public class ReceptionSingletonDefaultNode extends AbstractLogicChainNode<Recept
 
     private final LogBufferManager logBufferManager;
     private final LogProcessingMetrics metrics;
+    private final MultilineAssembler multilineAssembler;
+    private final LogDeduplicator logDeduplicator;
 
-    public ReceptionSingletonDefaultNode(LogBufferManager logBufferManager, LogProcessingMetrics metrics) {
+    public ReceptionSingletonDefaultNode(
+            LogBufferManager logBufferManager,
+            LogProcessingMetrics metrics,
+            MultilineAssembler multilineAssembler,
+            LogDeduplicator logDeduplicator) {
         this.logBufferManager = logBufferManager;
         this.metrics = metrics;
+        this.multilineAssembler = multilineAssembler;
+        this.logDeduplicator = logDeduplicator;
     }
 
     @Override
@@ -35,8 +48,12 @@ public class ReceptionSingletonDefaultNode extends AbstractLogicChainNode<Recept
         String endpointId = request.getEndpointId();
         RawLog rawLog = request.getRawLog().get(0);
         log.info("日志接收责任链-默认节点接管 request:{}", JSON.toJSONString(request));
-        // 1. 添加日志到缓冲区
-        boolean flushed = logBufferManager.addLog(rawLog, appId, endpointId);
+        // 1. 合并多行事件并折叠重复日志，需要入批的事件添加到缓冲区（续行并入同一来源的未完成事件）
+        List<RawLog> events = multilineAssembler.assemble(Collections.singletonList(rawLog), appId, endpointId);
+        boolean flushed = false;
+        for (RawLog event : logDeduplicator.deduplicate(events, appId, endpointId)) {
+            flushed |= logBufferManager.addLog(event, appId, endpointId);
+        }
         // 2. 记录监控指标
         metrics.recordLogReceived(appId, endpointId, 1);
         // 3. 返回结果
@@ -3,6 +3,7 @@ package cn.cug.sxy.domain.storage.model.entity;
 import lombok.Data;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,7 +17,7 @@ import java.util.Map;
 public class LogDocument {
 
     /**
-     * 文档唯一标识符，使用UUID生成
+     * 文档唯一标识符，由批次ID和批次内序号组成
      */
     private String id;
     /**
@@ -83,10 +84,36 @@ public class LogDocument {
      * 用于存储所有结构化数据的值
      */
     private String structuredDataText;
+    /**
+     * 日志模板ID，由在线模板挖掘生成
+     * 用于按模板分组、采样和聚合
+     */
+    private String templateId;
+    /**
+     * 模板参数，按模板中 <*> 的位置顺序存储
+     */
+    private List<String> templateParams;
     /**
      * 索引时间，记录日志被索引到ES的时间
      * 用于区分日志生成时间和接收时间
      */
     private Instant indexTime;
+    /**
+     * 重复次数，只有重复日志汇总文档携带
+     * 表示窗口内折叠的同类日志条数
+     */
+    private Integer repeatCount;
+    /**
+     * 折叠的重复日志中最早出现的时间（毫秒时间戳）
+     */
+    private Long firstSeen;
+    /**
+     * 折叠的重复日志中最晚出现的时间（毫秒时间戳）
+     */
+    private Long lastSeen;
+    /**
+     * 是否原样接入，原样接入的文档没有结构化字段，查询时从内容中提取
+     */
+    private Boolean raw;
 
 }
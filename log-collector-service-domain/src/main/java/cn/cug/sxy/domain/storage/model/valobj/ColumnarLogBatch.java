@@ -0,0 +1,570 @@
+package cn.cug.sxy.domain.storage.model.valobj;
+
+import cn.cug.sxy.types.model.ValueObject;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/28 09:40
+ * @Description 列式日志批次（按列存放一个批次的待存储日志：时间为long数组，级别和格式为字节编码，
+ * 来源、主机名、模板ID等按批次内字典编码，日志内容以UTF-8连续存放在共享缓冲区中按偏移访问；
+ * 序列化时直接按行读取各列，不为每条日志构建存储对象）
+ * @Author jerryhotton
+ */
+
+public class ColumnarLogBatch implements ValueObject {
+
+    @Getter
+    private final String batchId;
+    @Getter
+    private final String appId;
+    @Getter
+    private final String endpointId;
+
+    private final int size;
+
+    // 时间列（毫秒时间戳）
+    private final long[] timestamps;
+    // 日志在原始批次中的序号（文档ID的一部分，不随过滤变化）
+    private final int[] sequences;
+    // 字节编码列
+    private final ByteColumn levels;
+    private final ByteColumn formats;
+    // 字典编码列
+    private final String[] sourceIdDictionary;
+    private final int[] sourceIds;
+    private final String[] sourceDictionary;
+    private final int[] sources;
+    private final String[] hostnameDictionary;
+    private final int[] hostnames;
+    private final String[] templateIdDictionary;
+    private final int[] templateIds;
+    // 日志内容：共享UTF-8缓冲区及每行的起始偏移（最后一项为结束偏移）
+    private final byte[] contentBuffer;
+    private final int[] contentOffsets;
+    // 内容为null的行（与空字符串区分）
+    private final BitSet nullContents;
+    // 稀疏列，大多数行为null
+    private final Map<String, String>[] tags;
+    private final List<String>[] templateParams;
+    // 结构化字段
+    private final Map<String, Object>[] structuredFields;
+    // 重复日志折叠信息，批次中没有汇总日志时为null
+    private final int[] repeatCounts;
+    private final long[] firstSeen;
+    private final long[] lastSeen;
+    // 路由规则指定的索引名后缀（字典编码），批次中没有路由的日志时为null
+    private final String[] routeDictionary;
+    private final int[] routes;
+    // 原样接入的行（未经过格式解析，字段在查询时提取）
+    private final BitSet rawRows;
+
+    private ColumnarLogBatch(Builder builder) {
+        this.batchId = builder.batchId;
+        this.appId = builder.appId;
+        this.endpointId = builder.endpointId;
+        this.size = builder.size;
+        this.timestamps = Arrays.copyOf(builder.timestamps, size);
+        this.sequences = Arrays.copyOf(builder.sequences, size);
+        this.levels = builder.levels.build(size);
+        this.formats = builder.formats.build(size);
+        this.sourceIdDictionary = builder.sourceIdDictionary.values();
+        this.sourceIds = Arrays.copyOf(builder.sourceIds, size);
+        this.sourceDictionary = builder.sourceDictionary.values();
+        this.sources = Arrays.copyOf(builder.sources, size);
+        this.hostnameDictionary = builder.hostnameDictionary.values();
+        this.hostnames = Arrays.copyOf(builder.hostnames, size);
+        this.templateIdDictionary = builder.templateIdDictionary.values();
+        this.templateIds = Arrays.copyOf(builder.templateIds, size);
+        // 缓冲区空闲超过四分之一时才收缩，避免再复制一遍全部内容
+        int contentLength = builder.contentLength;
+        this.contentBuffer = builder.contentBuffer.length - contentLength > builder.contentBuffer.length / 4
+                ? Arrays.copyOf(builder.contentBuffer, contentLength) : builder.contentBuffer;
+        this.contentOffsets = Arrays.copyOf(builder.contentOffsets, size + 1);
+        this.nullContents = builder.nullContents;
+        this.tags = Arrays.copyOf(builder.tags, size);
+        this.templateParams = Arrays.copyOf(builder.templateParams, size);
+        this.structuredFields = Arrays.copyOf(builder.structuredFields, size);
+        this.repeatCounts = builder.repeatCounts != null ? Arrays.copyOf(builder.repeatCounts, size) : null;
+        this.firstSeen = builder.firstSeen != null ? Arrays.copyOf(builder.firstSeen, size) : null;
+        this.lastSeen = builder.lastSeen != null ? Arrays.copyOf(builder.lastSeen, size) : null;
+        this.routeDictionary = builder.routeDictionary.values();
+        this.routes = builder.routes != null ? Arrays.copyOf(builder.routes, size) : null;
+        this.rawRows = builder.rawRows;
+    }
+
+    /**
+     * 创建批次构建器
+     *
+     * @param batchId         批次ID
+     * @param appId           应用ID
+     * @param endpointId      端点ID
+     * @param expectedSize    预计日志数
+     * @return 构建器
+     */
+    public static Builder builder(String batchId, String appId, String endpointId, int expectedSize) {
+        return new Builder(batchId, appId, endpointId, expectedSize);
+    }
+
+    /**
+     * 日志数
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 该行日志在原始批次中的序号
+     */
+    public int sequence(int row) {
+        return sequences[row];
+    }
+
+    public long timestamp(int row) {
+        return timestamps[row];
+    }
+
+    public String level(int row) {
+        return levels.get(row);
+    }
+
+    public String format(int row) {
+        return formats.get(row);
+    }
+
+    public String sourceId(int row) {
+        return decode(sourceIdDictionary, sourceIds[row]);
+    }
+
+    public String source(int row) {
+        return decode(sourceDictionary, sources[row]);
+    }
+
+    public String hostname(int row) {
+        return decode(hostnameDictionary, hostnames[row]);
+    }
+
+    public String templateId(int row) {
+        return decode(templateIdDictionary, templateIds[row]);
+    }
+
+    public List<String> templateParams(int row) {
+        return templateParams[row];
+    }
+
+    /**
+     * 已解析的标签，未设置时为null
+     */
+    public Map<String, String> tags(int row) {
+        return tags[row];
+    }
+
+    public Map<String, Object> structuredFields(int row) {
+        return structuredFields[row];
+    }
+
+    /**
+     * 该行代表的重复日志条数，未折叠时为1
+     */
+    public int repeatCount(int row) {
+        return repeatCounts != null && repeatCounts[row] > 0 ? repeatCounts[row] : 1;
+    }
+
+    /**
+     * 折叠的重复日志中最早出现的时间（毫秒时间戳），未折叠时为0
+     */
+    public long firstSeen(int row) {
+        return firstSeen != null ? firstSeen[row] : 0L;
+    }
+
+    /**
+     * 折叠的重复日志中最晚出现的时间（毫秒时间戳），未折叠时为0
+     */
+    public long lastSeen(int row) {
+        return lastSeen != null ? lastSeen[row] : 0L;
+    }
+
+    /**
+     * 路由规则指定的索引名后缀，写入默认索引时为null
+     */
+    public String route(int row) {
+        return routes != null ? decode(routeDictionary, routes[row]) : null;
+    }
+
+    /**
+     * 批次中出现的所有索引名后缀
+     */
+    public String[] routeNames() {
+        return routeDictionary.clone();
+    }
+
+    /**
+     * 该行是否原样接入
+     */
+    public boolean isRaw(int row) {
+        return rawRows.get(row);
+    }
+
+    /**
+     * 内容共享缓冲区（UTF-8，有效数据到最后一行的结束偏移为止），只读
+     */
+    public byte[] contentBuffer() {
+        return contentBuffer;
+    }
+
+    public int contentOffset(int row) {
+        return contentOffsets[row];
+    }
+
+    public int contentLength(int row) {
+        return contentOffsets[row + 1] - contentOffsets[row];
+    }
+
+    /**
+     * 解码日志内容，为null的内容返回null
+     */
+    public String content(int row) {
+        if (nullContents.get(row)) {
+            return null;
+        }
+        int offset = contentOffsets[row];
+        return new String(contentBuffer, offset, contentOffsets[row + 1] - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 内容是否为null
+     */
+    public boolean isNullContent(int row) {
+        return nullContents.get(row);
+    }
+
+    /**
+     * 全部日志内容的字节数
+     */
+    public int contentBytes() {
+        return contentOffsets[size];
+    }
+
+    private static String decode(String[] dictionary, int code) {
+        return code < 0 ? null : dictionary[code];
+    }
+
+    /**
+     * 批次构建器，按行追加
+     */
+    public static class Builder {
+
+        private final String batchId;
+        private final String appId;
+        private final String endpointId;
+
+        private int size;
+        private long[] timestamps;
+        private int[] sequences;
+        private final ByteColumnBuilder levels = new ByteColumnBuilder();
+        private final ByteColumnBuilder formats = new ByteColumnBuilder();
+        private final Dictionary sourceIdDictionary = new Dictionary();
+        private int[] sourceIds;
+        private final Dictionary sourceDictionary = new Dictionary();
+        private int[] sources;
+        private final Dictionary hostnameDictionary = new Dictionary();
+        private int[] hostnames;
+        private final Dictionary templateIdDictionary = new Dictionary();
+        private int[] templateIds;
+        private byte[] contentBuffer;
+        private int contentLength;
+        private int[] contentOffsets;
+        private final BitSet nullContents = new BitSet();
+        private Map<String, String>[] tags;
+        private List<String>[] templateParams;
+        private Map<String, Object>[] structuredFields;
+        // 出现第一条汇总日志时才分配
+        private int[] repeatCounts;
+        private long[] firstSeen;
+        private long[] lastSeen;
+        private final Dictionary routeDictionary = new Dictionary();
+        private int[] routes;
+        private final BitSet rawRows = new BitSet();
+
+        @SuppressWarnings("unchecked")
+        private Builder(String batchId, String appId, String endpointId, int expectedSize) {
+            this.batchId = batchId;
+            this.appId = appId;
+            this.endpointId = endpointId;
+            int capacity = Math.max(expectedSize, 1);
+            this.timestamps = new long[capacity];
+            this.sequences = new int[capacity];
+            this.sourceIds = new int[capacity];
+            this.sources = new int[capacity];
+            this.hostnames = new int[capacity];
+            this.templateIds = new int[capacity];
+            this.contentBuffer = new byte[capacity * 256];
+            this.contentOffsets = new int[capacity + 1];
+            this.tags = new Map[capacity];
+            this.templateParams = new List[capacity];
+            this.structuredFields = new Map[capacity];
+        }
+
+        /**
+         * 追加一行
+         *
+         * @param sequence         日志在原始批次中的序号
+         * @param content          日志内容
+         * @param timestamp        日志时间（毫秒时间戳）
+         * @param level            日志级别
+         * @param format           日志格式
+         * @param sourceId         来源ID
+         * @param source           日志来源
+         * @param hostname         主机名
+         * @param tags             已解析的标签
+         * @param templateId       日志模板ID
+         * @param templateParams   模板参数
+         * @param structuredFields 结构化字段
+         * @return 构建器
+         */
+        public Builder add(int sequence, String content, long timestamp, String level, String format, String sourceId,
+                           String source, String hostname, Map<String, String> tags, String templateId,
+                           List<String> templateParams, Map<String, Object> structuredFields) {
+            ensureCapacity(size + 1);
+            int row = size;
+            sequences[row] = sequence;
+            timestamps[row] = timestamp;
+            levels.add(row, level);
+            formats.add(row, format);
+            sourceIds[row] = sourceIdDictionary.encode(sourceId);
+            sources[row] = sourceDictionary.encode(source);
+            hostnames[row] = hostnameDictionary.encode(hostname);
+            templateIds[row] = templateIdDictionary.encode(templateId);
+            this.tags[row] = tags == null || tags.isEmpty() ? null : tags;
+            this.templateParams[row] = templateParams;
+            this.structuredFields[row] = structuredFields;
+            if (routes != null) {
+                routes[row] = -1;
+            }
+            if (content == null) {
+                nullContents.set(row);
+            } else {
+                appendUtf8(content);
+            }
+            contentOffsets[row + 1] = contentLength;
+            size++;
+            return this;
+        }
+
+        /**
+         * 标记最后追加的一行为重复日志汇总
+         *
+         * @param repeatCount 代表的重复日志条数
+         * @param firstSeen   最早出现时间（毫秒时间戳）
+         * @param lastSeen    最晚出现时间（毫秒时间戳）
+         * @return 构建器
+         */
+        public Builder repeated(int repeatCount, long firstSeen, long lastSeen) {
+            if (size == 0) {
+                throw new IllegalStateException("批次中没有可标记的行");
+            }
+            if (repeatCounts == null) {
+                repeatCounts = new int[timestamps.length];
+                this.firstSeen = new long[timestamps.length];
+                this.lastSeen = new long[timestamps.length];
+            }
+            int row = size - 1;
+            repeatCounts[row] = repeatCount;
+            this.firstSeen[row] = firstSeen;
+            this.lastSeen[row] = lastSeen;
+            return this;
+        }
+
+        /**
+         * 将最后追加的一行路由到指定索引
+         *
+         * @param route 索引名后缀
+         * @return 构建器
+         */
+        public Builder routed(String route) {
+            if (size == 0) {
+                throw new IllegalStateException("批次中没有可标记的行");
+            }
+            if (routes == null) {
+                routes = new int[timestamps.length];
+                Arrays.fill(routes, -1);
+            }
+            routes[size - 1] = routeDictionary.encode(route);
+            return this;
+        }
+
+        /**
+         * 标记最后追加的一行为原样接入
+         *
+         * @return 构建器
+         */
+        public Builder raw() {
+            if (size == 0) {
+                throw new IllegalStateException("批次中没有可标记的行");
+            }
+            rawRows.set(size - 1);
+            return this;
+        }
+
+        public ColumnarLogBatch build() {
+            return new ColumnarLogBatch(this);
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= timestamps.length) {
+                return;
+            }
+            int capacity = Math.max(required, timestamps.length + (timestamps.length >> 1));
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            sourceIds = Arrays.copyOf(sourceIds, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            hostnames = Arrays.copyOf(hostnames, capacity);
+            templateIds = Arrays.copyOf(templateIds, capacity);
+            contentOffsets = Arrays.copyOf(contentOffsets, capacity + 1);
+            tags = Arrays.copyOf(tags, capacity);
+            templateParams = Arrays.copyOf(templateParams, capacity);
+            structuredFields = Arrays.copyOf(structuredFields, capacity);
+            if (routes != null) {
+                routes = Arrays.copyOf(routes, capacity);
+            }
+            if (repeatCounts != null) {
+                repeatCounts = Arrays.copyOf(repeatCounts, capacity);
+                firstSeen = Arrays.copyOf(firstSeen, capacity);
+                lastSeen = Arrays.copyOf(lastSeen, capacity);
+            }
+        }
+
+        /**
+         * 将内容按UTF-8编码追加到共享缓冲区，不创建中间字节数组
+         */
+        private void appendUtf8(String content) {
+            int length = content.length();
+            ensureContentCapacity(contentLength + length * 3);
+            byte[] buffer = contentBuffer;
+            int pos = contentLength;
+            for (int i = 0; i < length; i++) {
+                char c = content.charAt(i);
+                if (c < 0x80) {
+                    buffer[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[pos++] = (byte) (0xC0 | (c >> 6));
+                    buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(content.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, content.charAt(++i));
+                    buffer[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // 不成对的代理字符按替换字符编码，与String.getBytes一致
+                    buffer[pos++] = (byte) '?';
+                } else {
+                    buffer[pos++] = (byte) (0xE0 | (c >> 12));
+                    buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            contentLength = pos;
+        }
+
+        private void ensureContentCapacity(int required) {
+            if (required > contentBuffer.length) {
+                contentBuffer = Arrays.copyOf(contentBuffer, Math.max(required, contentBuffer.length * 2));
+            }
+        }
+    }
+
+    /**
+     * 批次内字典：值到编码，null编码为-1
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String[] values() {
+            return values.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * 字节编码列：最多255个不同取值，超出的取值按行单独保存
+     */
+    private static class ByteColumn {
+        private static final int OVERFLOW = 0xFF;
+
+        private final byte[] codes;
+        private final String[] dictionary;
+        private final Map<Integer, String> overflow;
+
+        ByteColumn(byte[] codes, String[] dictionary, Map<Integer, String> overflow) {
+            this.codes = codes;
+            this.dictionary = dictionary;
+            this.overflow = overflow;
+        }
+
+        String get(int row) {
+            int code = codes[row] & 0xFF;
+            return code == OVERFLOW ? overflow.get(row) : dictionary[code];
+        }
+    }
+
+    private static class ByteColumnBuilder {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private byte[] column = new byte[64];
+        private Map<Integer, String> overflow;
+
+        void add(int row, String value) {
+            if (row >= column.length) {
+                column = Arrays.copyOf(column, Math.max(row + 1, column.length * 2));
+            }
+            Integer code = codes.get(value);
+            if (code == null && values.size() < ByteColumn.OVERFLOW && value != null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            if (code == null) {
+                if (overflow == null) {
+                    overflow = new HashMap<>();
+                }
+                overflow.put(row, value);
+                column[row] = (byte) ByteColumn.OVERFLOW;
+            } else {
+                column[row] = (byte) (int) code;
+            }
+        }
+
+        ByteColumn build(int size) {
+            return new ByteColumn(Arrays.copyOf(column, size), values.toArray(new String[0]),
+                    overflow == null ? Map.of() : overflow);
+        }
+    }
+
+}
@@ -1,10 +1,12 @@
 package cn.cug.sxy.domain.storage.model.valobj;
 
+import cn.cug.sxy.types.model.CompactMetadata;
 import cn.cug.sxy.types.model.ValueObject;
 import lombok.Getter;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -26,6 +28,15 @@ public class StorageLog implements ValueObject {
     // 结构化字段
     private final Map<String, Object> structuredFields;
 
+    // 日志模板ID（未挖掘到模板时为null）
+    private final String templateId;
+
+    // 按模板位置提取的参数
+    private final List<String> templateParams;
+
+    // 日志时间（毫秒时间戳）
+    private final long timestamp;
+
     /**
      * 构造函数
      *
@@ -34,9 +45,41 @@ public class StorageLog implements ValueObject {
      * @param structuredFields 结构化字段
      */
     public StorageLog(String content, Map<String, String> metadata, Map<String, Object> structuredFields) {
+        this(content, metadata, structuredFields, null, null);
+    }
+
+    /**
+     * 构造函数（日志时间取当前时间）
+     *
+     * @param content 日志内容
+     * @param metadata 元数据
+     * @param structuredFields 结构化字段
+     * @param templateId 日志模板ID
+     * @param templateParams 按模板位置提取的参数
+     */
+    public StorageLog(String content, Map<String, String> metadata, Map<String, Object> structuredFields,
+                      String templateId, List<String> templateParams) {
+        this(content, metadata, structuredFields, templateId, templateParams, System.currentTimeMillis());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param content 日志内容
+     * @param metadata 元数据
+     * @param structuredFields 结构化字段
+     * @param templateId 日志模板ID
+     * @param templateParams 按模板位置提取的参数
+     * @param timestamp 日志时间（毫秒时间戳）
+     */
+    public StorageLog(String content, Map<String, String> metadata, Map<String, Object> structuredFields,
+                      String templateId, List<String> templateParams, long timestamp) {
         this.content = content;
-        this.metadata = metadata != null ? new HashMap<>(metadata) : new HashMap<>();
+        this.metadata = CompactMetadata.copyOf(metadata);
         this.structuredFields = structuredFields != null ? new HashMap<>(structuredFields) : new HashMap<>();
+        this.templateId = templateId;
+        this.templateParams = templateParams;
+        this.timestamp = timestamp;
     }
 
     /**
@@ -3,9 +3,10 @@ package cn.cug.sxy.domain.storage.service;
 import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
 import cn.cug.sxy.domain.reception.model.valobj.BatchId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchStatus;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import cn.cug.sxy.domain.storage.model.valobj.StorageLog;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @version 1.0
@@ -20,10 +21,19 @@ public interface ILogStorageService {
      * 存储日志批次
      *
      * @param batch 批次
-     * @param logs 日志列表
+     * @param logs 列式日志批次
      * @return 批次跟踪ID
      */
-    String storeBatch(LogBatchEntity batch, List<StorageLog> logs);
+    String storeBatch(LogBatchEntity batch, ColumnarLogBatch logs);
+
+    /**
+     * 异步存储日志批次
+     *
+     * @param batch 批次
+     * @param logs  列式日志批次
+     * @return 批次跟踪ID；日志数据错误导致失败时为null，存储后端不可用时异常完成
+     */
+    CompletableFuture<String> storeBatchAsync(LogBatchEntity batch, ColumnarLogBatch logs);
 
     /**
      * 确认批次是否已存储
@@ -4,11 +4,12 @@ import cn.cug.sxy.domain.reception.adapter.repository.ILogBatchRepository;
 import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
 import cn.cug.sxy.domain.reception.model.valobj.BatchId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchStatus;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import cn.cug.sxy.domain.storage.model.valobj.StorageLog;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @version 1.0
@@ -28,10 +29,15 @@ public class LogStorageService implements ILogStorageService {
     }
 
     @Override
-    public String storeBatch(LogBatchEntity batch, List<StorageLog> logs) {
+    public String storeBatch(LogBatchEntity batch, ColumnarLogBatch logs) {
         return logBatchRepository.storeBatch(batch, logs);
     }
 
+    @Override
+    public CompletableFuture<String> storeBatchAsync(LogBatchEntity batch, ColumnarLogBatch logs) {
+        return logBatchRepository.storeBatchAsync(batch, logs);
+    }
+
     @Override
     public boolean isBatchStored(BatchId batchId) {
         return false;
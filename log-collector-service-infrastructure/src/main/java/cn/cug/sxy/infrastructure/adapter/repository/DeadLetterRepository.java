@@ -0,0 +1,299 @@
+package cn.cug.sxy.infrastructure.adapter.repository;
+
+import cn.cug.sxy.domain.preprocess.service.redact.SensitiveDataRedactor;
+import cn.cug.sxy.domain.reception.adapter.repository.IDeadLetterRepository;
+import cn.cug.sxy.domain.reception.model.entity.DeadLetterEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.DeadLetterQuery;
+import cn.cug.sxy.domain.reception.model.valobj.LogAttributes;
+import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.reception.model.valobj.RawLog;
+import cn.cug.sxy.infrastructure.deadletter.DeadLetterFileStore;
+import cn.cug.sxy.infrastructure.deadletter.DeadLetterRecord;
+import cn.cug.sxy.types.exception.AppException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 11:40
+ * @Description 死信仓储实现
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Repository
+public class DeadLetterRepository implements IDeadLetterRepository {
+
+    private final DeadLetterFileStore deadLetterFileStore;
+
+    private final SensitiveDataRedactor sensitiveDataRedactor;
+
+    /**
+     * 写入死信文件前是否脱敏日志内容和元数据
+     * <p>
+     * 死信中的日志尚未经过预处理脱敏，且在本地磁盘保留数天；关闭后文件中保留原始内容（含敏感信息），
+     * 仅在死信目录另有加密或访问控制时关闭
+     */
+    @Value("${log-center.reception.dead-letter.redact-content:true}")
+    private boolean redactContent;
+
+    public DeadLetterRepository(DeadLetterFileStore deadLetterFileStore, SensitiveDataRedactor sensitiveDataRedactor) {
+        this.deadLetterFileStore = deadLetterFileStore;
+        this.sensitiveDataRedactor = sensitiveDataRedactor;
+    }
+
+    @Override
+    public void save(DeadLetterEntity deadLetter) {
+        DeadLetterRecord record = convertToRecord(deadLetter);
+        // 同一批次再次进入死信时保留重放记录
+        deadLetterFileStore.getMeta(record.getBatchId()).ifPresent(existing -> {
+            record.setReplayCount(existing.getReplayCount());
+            record.setLastReplayTime(existing.getLastReplayTime());
+        });
+        DeadLetterRecord.RawLogPayload payload = new DeadLetterRecord.RawLogPayload();
+        payload.setLogs(convertToRawLogRecords(deadLetter.getAppId(), deadLetter.getLogs()));
+        try {
+            deadLetterFileStore.write(record, payload);
+        } catch (IOException e) {
+            throw new AppException("写入死信存储失败", e);
+        }
+    }
+
+    @Override
+    public List<DeadLetterEntity> find(DeadLetterQuery query) {
+        return deadLetterFileStore.listMeta().stream()
+                .filter(buildFilter(query))
+                .sorted(Comparator.comparing(DeadLetterRecord::getFailedTime,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(Math.max(0, query.getLimit()))
+                .map(record -> convertToEntity(record, Collections.emptyList()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count(DeadLetterQuery query) {
+        return deadLetterFileStore.listMeta().stream()
+                .filter(buildFilter(query))
+                .count();
+    }
+
+    @Override
+    public Optional<DeadLetterEntity> load(BatchId batchId) {
+        Optional<DeadLetterRecord> recordOpt = deadLetterFileStore.getMeta(batchId.getValue());
+        if (recordOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            Optional<DeadLetterRecord.RawLogPayload> payload = deadLetterFileStore.readPayload(batchId.getValue());
+            if (payload.isEmpty()) {
+                log.warn("死信原始日志文件缺失: batchId={}", batchId.getValue());
+                return Optional.empty();
+            }
+            return Optional.of(convertToEntity(recordOpt.get(), convertToRawLogs(payload.get().getLogs())));
+        } catch (IOException e) {
+            log.error("读取死信原始日志失败: batchId={}, error={}", batchId.getValue(), e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void markReplayed(BatchId batchId) {
+        deadLetterFileStore.getMeta(batchId.getValue()).ifPresent(existing -> {
+            DeadLetterRecord updated = copyOf(existing);
+            updated.setReplayCount(existing.getReplayCount() + 1);
+            updated.setLastReplayTime(System.currentTimeMillis());
+            try {
+                deadLetterFileStore.writeMeta(updated);
+            } catch (IOException e) {
+                log.error("更新死信重放记录失败: batchId={}, error={}", batchId.getValue(), e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public boolean delete(BatchId batchId) {
+        return deadLetterFileStore.delete(batchId.getValue());
+    }
+
+    /**
+     * 构建查询过滤条件
+     */
+    private Predicate<DeadLetterRecord> buildFilter(DeadLetterQuery query) {
+        Set<String> batchIds = query.getBatchIds() != null && !query.getBatchIds().isEmpty()
+                ? new HashSet<>(query.getBatchIds()) : null;
+        Long failedAfter = query.getFailedAfter() != null ? query.getFailedAfter().toEpochMilli() : null;
+        Long failedBefore = query.getFailedBefore() != null ? query.getFailedBefore().toEpochMilli() : null;
+        return record -> {
+            if (batchIds != null && !batchIds.contains(record.getBatchId())) {
+                return false;
+            }
+            if (query.getAppId() != null && !query.getAppId().equals(record.getAppId())) {
+                return false;
+            }
+            if (query.getEndpointId() != null && !query.getEndpointId().equals(record.getEndpointId())) {
+                return false;
+            }
+            if (query.getReasonKeyword() != null && (record.getFailureReason() == null
+                    || !record.getFailureReason().contains(query.getReasonKeyword()))) {
+                return false;
+            }
+            long failedTime = record.getFailedTime() != null ? record.getFailedTime() : 0L;
+            if (failedAfter != null && failedTime < failedAfter) {
+                return false;
+            }
+            return failedBefore == null || failedTime < failedBefore;
+        };
+    }
+
+    private DeadLetterRecord convertToRecord(DeadLetterEntity deadLetter) {
+        DeadLetterRecord record = new DeadLetterRecord();
+        record.setBatchId(deadLetter.getBatchId().getValue());
+        record.setAppId(deadLetter.getAppId());
+        record.setEndpointId(deadLetter.getEndpointId());
+        record.setLogCount(deadLetter.getLogCount());
+        record.setFailureReason(deadLetter.getFailureReason());
+        record.setRetryCount(deadLetter.getRetryCount());
+        record.setReceivedTime(toEpochMilli(deadLetter.getReceivedTime()));
+        record.setFailedTime(toEpochMilli(deadLetter.getFailedTime()));
+        record.setReplayCount(deadLetter.getReplayCount());
+        record.setLastReplayTime(toEpochMilli(deadLetter.getLastReplayTime()));
+        return record;
+    }
+
+    private DeadLetterEntity convertToEntity(DeadLetterRecord record, List<RawLog> logs) {
+        return DeadLetterEntity.builder()
+                .batchId(new BatchId(record.getBatchId()))
+                .appId(record.getAppId())
+                .endpointId(record.getEndpointId())
+                .logs(logs)
+                .logCount(record.getLogCount())
+                .failureReason(record.getFailureReason())
+                .retryCount(record.getRetryCount())
+                .receivedTime(toInstant(record.getReceivedTime()))
+                .failedTime(toInstant(record.getFailedTime()))
+                .replayCount(record.getReplayCount())
+                .lastReplayTime(toInstant(record.getLastReplayTime()))
+                .build();
+    }
+
+    private List<DeadLetterRecord.RawLogRecord> convertToRawLogRecords(String appId, List<RawLog> logs) {
+        List<DeadLetterRecord.RawLogRecord> records = new ArrayList<>(logs.size());
+        for (RawLog rawLog : logs) {
+            DeadLetterRecord.RawLogRecord record = new DeadLetterRecord.RawLogRecord();
+            record.setContent(redactContent
+                    ? sensitiveDataRedactor.redact(appId, rawLog.getContent()).getContent() : rawLog.getContent());
+            record.setSourceId(rawLog.getSourceId());
+            record.setFormat(rawLog.getFormat().name());
+            record.setTimestamp(toEpochMilli(rawLog.getTimestamp()));
+            LogAttributes attributes = rawLog.getAttributes();
+            record.setLevel(attributes.getLevel() != null ? attributes.getLevel().name() : null);
+            record.setSource(attributes.getSource());
+            record.setHostname(attributes.getHostname());
+            record.setClientIp(attributes.getClientIp());
+            record.setReceiveTime(attributes.getReceiveTime());
+            record.setTags(attributes.getTags());
+            if (attributes.isRepeated()) {
+                record.setRepeatCount(attributes.getRepeatCount());
+                record.setFirstSeen(attributes.getFirstSeen());
+                record.setLastSeen(attributes.getLastSeen());
+            }
+            record.setMetadata(redactContent ? redactMetadata(appId, rawLog.getMetadata()) : rawLog.getMetadata());
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * 按与预处理相同的规则脱敏元数据的值，没有值被脱敏时返回原对象
+     */
+    private Map<String, String> redactMetadata(String appId, Map<String, String> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return metadata;
+        }
+        Map<String, String> redacted = null;
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            String value = sensitiveDataRedactor.redactField(appId, entry.getKey(), entry.getValue());
+            if (value != entry.getValue() && redacted == null) {
+                redacted = new LinkedHashMap<>(metadata);
+            }
+            if (redacted != null) {
+                redacted.put(entry.getKey(), value);
+            }
+        }
+        return redacted != null ? redacted : metadata;
+    }
+
+    private List<RawLog> convertToRawLogs(List<DeadLetterRecord.RawLogRecord> records) {
+        if (records == null) {
+            return Collections.emptyList();
+        }
+        List<RawLog> logs = new ArrayList<>(records.size());
+        for (DeadLetterRecord.RawLogRecord record : records) {
+            logs.add(new RawLog(
+                    record.getContent(),
+                    record.getSourceId(),
+                    LogFormat.valueOf(record.getFormat()),
+                    toInstant(record.getTimestamp()),
+                    attributesOf(record),
+                    record.getMetadata() != null ? record.getMetadata() : Collections.emptyMap()
+            ));
+        }
+        return logs;
+    }
+
+    /**
+     * 还原核心属性
+     */
+    private LogAttributes attributesOf(DeadLetterRecord.RawLogRecord record) {
+        LogAttributes attributes = new LogAttributes(LogLevel.parse(record.getLevel()), record.getSource(),
+                record.getHostname(), record.getClientIp(),
+                record.getReceiveTime() != null ? record.getReceiveTime() : 0L, record.getTags());
+        if (record.getRepeatCount() != null && record.getRepeatCount() > 1) {
+            attributes = attributes.withRepeats(record.getRepeatCount(),
+                    record.getFirstSeen() != null ? record.getFirstSeen() : 0L,
+                    record.getLastSeen() != null ? record.getLastSeen() : 0L);
+        }
+        return attributes;
+    }
+
+    private DeadLetterRecord copyOf(DeadLetterRecord source) {
+        DeadLetterRecord copy = new DeadLetterRecord();
+        copy.setBatchId(source.getBatchId());
+        copy.setAppId(source.getAppId());
+        copy.setEndpointId(source.getEndpointId());
+        copy.setLogCount(source.getLogCount());
+        copy.setFailureReason(source.getFailureReason());
+        copy.setRetryCount(source.getRetryCount());
+        copy.setReceivedTime(source.getReceivedTime());
+        copy.setFailedTime(source.getFailedTime());
+        copy.setReplayCount(source.getReplayCount());
+        copy.setLastReplayTime(source.getLastReplayTime());
+        return copy;
+    }
+
+    private Long toEpochMilli(Instant instant) {
+        return instant != null ? instant.toEpochMilli() : null;
+    }
+
+    private Instant toInstant(Long epochMilli) {
+        return epochMilli != null ? Instant.ofEpochMilli(epochMilli) : null;
+    }
+
+}
@@ -5,27 +5,22 @@ import cn.cug.sxy.domain.reception.model.entity.LogBatchEntity;
 import cn.cug.sxy.domain.auth.model.valobj.AppId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchStatus;
-import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
 import cn.cug.sxy.domain.reception.model.valobj.RawLog;
 import cn.cug.sxy.domain.storage.model.entity.LogDocument;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import cn.cug.sxy.domain.storage.model.valobj.LogQuery;
 import cn.cug.sxy.domain.storage.model.valobj.LogQueryResult;
-import cn.cug.sxy.domain.storage.model.valobj.StorageLog;
-import cn.cug.sxy.infrastructure.dao.ILogBatchDao;
 import cn.cug.sxy.infrastructure.dao.po.LogBatch;
 import cn.cug.sxy.infrastructure.elastic.IElasticsearchLogQueryService;
 import cn.cug.sxy.infrastructure.elastic.IElasticsearchLogStorageService;
+import cn.cug.sxy.infrastructure.ledger.LogBatchStatusLedger;
 import cn.cug.sxy.types.model.Page;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @version 1.0
@@ -40,22 +35,22 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
 
     private final IElasticsearchLogStorageService elasticsearchLogStorageService;
     private final IElasticsearchLogQueryService elasticsearchLogQueryService;
-    private final ILogBatchDao logBatchDao;
+    private final LogBatchStatusLedger logBatchStatusLedger;
 
     public LogBatchRepository(
             IElasticsearchLogStorageService elasticsearchLogStorageService,
             IElasticsearchLogQueryService elasticsearchLogQueryService,
-            ILogBatchDao logBatchDao) {
+            LogBatchStatusLedger logBatchStatusLedger) {
         this.elasticsearchLogStorageService = elasticsearchLogStorageService;
         this.elasticsearchLogQueryService = elasticsearchLogQueryService;
-        this.logBatchDao = logBatchDao;
+        this.logBatchStatusLedger = logBatchStatusLedger;
     }
 
     @Override
     public void save(LogBatchEntity logBatchEntity) {
         LogBatch logBatch = convertToLogBatch(logBatchEntity);
-        // 存储日志批次元数据到关系数据库
-        logBatchDao.save(logBatch);
+        // 记录到批次状态账本，由账本批量写回关系数据库
+        logBatchStatusLedger.record(logBatch);
     }
 
     @Override
@@ -63,7 +58,7 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
         if (null == batchId) {
             return Optional.empty();
         }
-        LogBatch batch = logBatchDao.selectById(batchId.getValue());
+        LogBatch batch = logBatchStatusLedger.load(batchId.getValue());
         if (null == batch) {
             return Optional.empty();
         }
@@ -82,7 +77,12 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
 
     @Override
     public void updateStatus(BatchId batchId, BatchStatus status, String errorMessage) {
-
+        logBatchStatusLedger.update(batchId.getValue(), logBatch -> {
+            logBatch.setStatus(status.name());
+            if (errorMessage != null) {
+                logBatch.setErrorMessage(errorMessage);
+            }
+        });
     }
 
     @Override
@@ -102,17 +102,31 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
 
     @Override
     public void updateStatusAndProcessTime(BatchId batchId, BatchStatus status, Instant processedTime, Instant lastProcessTime) {
-
+        logBatchStatusLedger.update(batchId.getValue(), logBatch -> {
+            logBatch.setStatus(status.name());
+            logBatch.setProcessedTime(toDate(processedTime));
+            logBatch.setLastProcessTime(toDate(lastProcessTime));
+        });
     }
 
     @Override
     public void updateStatusAndRetryCount(BatchId batchId, BatchStatus status, int retryCount, Instant lastProcessTime) {
-
+        logBatchStatusLedger.update(batchId.getValue(), logBatch -> {
+            logBatch.setStatus(status.name());
+            logBatch.setRetryCount(retryCount);
+            logBatch.setLastProcessTime(toDate(lastProcessTime));
+        });
     }
 
     @Override
     public void updateProcessedBatchStatus(BatchId batchId, BatchStatus status, Instant processedTime, Instant lastProcessTime, String batchTraceId, boolean confirmed) {
-
+        logBatchStatusLedger.update(batchId.getValue(), logBatch -> {
+            logBatch.setStatus(status.name());
+            logBatch.setProcessedTime(toDate(processedTime));
+            logBatch.setLastProcessTime(toDate(lastProcessTime));
+            logBatch.setBatchTraceId(batchTraceId);
+            logBatch.setConfirmed(confirmed);
+        });
     }
 
     @Override
@@ -131,28 +145,32 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
     }
 
     @Override
-    public String storeBatch(LogBatchEntity logBatchEntity, List<StorageLog> logs) {
+    public String storeBatch(LogBatchEntity logBatchEntity, ColumnarLogBatch logs) {
+        return storeBatchAsync(logBatchEntity, logs).exceptionally(error -> null).join();
+    }
+
+    @Override
+    public CompletableFuture<String> storeBatchAsync(LogBatchEntity logBatchEntity, ColumnarLogBatch logs) {
         try {
             // 1. 将日志内容发送到Elasticsearch
-            String traceId = elasticsearchLogStorageService.storeBatch(logBatchEntity.getId(), logs);
-            // 2. 更新批次状态和跟踪ID
-            if (traceId != null) {
-                logBatchEntity.markAsProcessed(traceId);
-            } else {
-                logBatchEntity.markAsFailed("存储到Elasticsearch失败");
-            }
-            LogBatch logBatch = convertToLogBatch(logBatchEntity);
-            logBatchDao.updateBatchMetadata(logBatch);
-
-            return traceId;
+            return elasticsearchLogStorageService.storeBatchAsync(logBatchEntity.getId(), logs)
+                    .whenComplete((traceId, error) -> {
+                        // 2. 写入完成后更新批次状态和跟踪ID
+                        if (traceId != null) {
+                            logBatchEntity.markAsProcessed(traceId);
+                        } else {
+                            logBatchEntity.markAsFailed(error != null
+                                    ? "批次保存异常: " + error.getMessage() : "存储到Elasticsearch失败");
+                        }
+                        applyBatchStatus(logBatchEntity);
+                    });
         } catch (Exception e) {
             log.error("保存日志批次异常: batchId={}, error={}",
                     logBatchEntity.getId().getValue(), e.getMessage(), e);
             logBatchEntity.markAsFailed("批次保存异常: " + e.getMessage());
-            LogBatch logBatch = convertToLogBatch(logBatchEntity);
-            logBatchDao.updateBatchMetadata(logBatch);
+            applyBatchStatus(logBatchEntity);
 
-            return null;
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -166,52 +184,23 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
         return elasticsearchLogQueryService.getLogById(logId);
     }
 
-    // 将LogBatch转换为StorageLog列表
-    private List<StorageLog> convertToStorageLogs(LogBatchEntity batch) {
-        return batch.getLogs().stream()
-                .map(rawLog -> {
-                    // 准备元数据
-                    Map<String, String> metadata = new HashMap<>(rawLog.getMetadata());
-                    metadata.put("appId", batch.getAppId());
-                    metadata.put("endpointId", batch.getEndpointId());
-                    metadata.put("format", rawLog.getFormat().name());
-                    metadata.put("sourceId", rawLog.getSourceId());
-                    metadata.put("timestamp", String.valueOf(
-                            rawLog.getTimestamp().toEpochMilli()));
-                    // 准备结构化字段（如果内容是JSON）
-                    Map<String, Object> structuredFields = new HashMap<>();
-                    if (rawLog.getFormat() == LogFormat.JSON) {
-                        try {
-                            // 使用Jackson解析JSON内容
-                            if (rawLog.getContent() != null && !rawLog.getContent().isEmpty()) {
-                                ObjectMapper objectMapper = new ObjectMapper();
-                                // 启用特性以处理不同类型的JSON结构
-                                objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                                objectMapper.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
-                                try {
-                                    // 尝试解析为Map结构
-                                    structuredFields = objectMapper.readValue(rawLog.getContent(),
-                                            new TypeReference<>() {
-                                            });
-                                    // 确保所有值都是可序列化的
-                                    structuredFields = sanitizeMap(structuredFields);
-                                } catch (JsonProcessingException e) {
-                                    log.warn("无法将日志内容解析为JSON: batchId={}, error={}",
-                                            batch.getId().getValue(), e.getMessage());
-                                    // 创建部分结构化数据，包含原始内容和解析错误
-                                    structuredFields = new HashMap<>();
-                                    structuredFields.put("_raw_content", rawLog.getContent());
-                                    structuredFields.put("_parse_error", e.getMessage());
-                                }
-                            }
-                        } catch (Exception e) {
-                            log.warn("解析JSON日志失败: {}", e.getMessage());
-                        }
-                    }
+    /**
+     * 将批次实体的状态字段写入账本
+     */
+    private void applyBatchStatus(LogBatchEntity logBatchEntity) {
+        logBatchStatusLedger.update(logBatchEntity.getId().getValue(), logBatch -> {
+            logBatch.setStatus(logBatchEntity.getStatus().name());
+            logBatch.setErrorMessage(logBatchEntity.getErrorMessage());
+            logBatch.setBatchTraceId(logBatchEntity.getBatchTraceId());
+            logBatch.setConfirmed(Boolean.TRUE.equals(logBatchEntity.getConfirmed()));
+            logBatch.setRetryCount(logBatchEntity.getRetryCount());
+            logBatch.setProcessedTime(toDate(logBatchEntity.getProcessedTime()));
+            logBatch.setLastProcessTime(toDate(logBatchEntity.getLastProcessTime()));
+        });
+    }
 
-                    return new StorageLog(rawLog.getContent(), metadata, structuredFields);
-                })
-                .collect(Collectors.toList());
+    private Date toDate(Instant instant) {
+        return instant != null ? Date.from(instant) : null;
     }
 
     private LogBatch convertToLogBatch(LogBatchEntity logBatchEntity) {
@@ -278,7 +267,8 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
     private String determineMainSource(List<RawLog> logs) {
         // 简单实现：返回第一条日志的来源
         if (!logs.isEmpty()) {
-            return logs.get(0).getMetadata().getOrDefault("source", "unknown");
+            String source = logs.get(0).getAttributes().getSource();
+            return source != null ? source : "unknown";
         }
         return "unknown";
     }
@@ -290,57 +280,6 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
         return "logs-" + java.time.LocalDate.now().toString().replace("-", ".");
     }
 
-    /**
-     * 清理Map，确保所有值都是ES可接受的类型
-     */
-    private Map<String, Object> sanitizeMap(Map<String, Object> map) {
-        Map<String, Object> result = new HashMap<>();
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-
-            if (value == null) {
-                result.put(key, null);
-            } else if (value instanceof Map) {
-                // 递归处理嵌套Map
-                result.put(key, sanitizeMap((Map<String, Object>) value));
-            } else if (value instanceof Collection) {
-                // 处理集合类型
-                result.put(key, sanitizeCollection((Collection<?>) value));
-            } else if (value instanceof Number || value instanceof Boolean ||
-                    value instanceof String || value instanceof Date) {
-                // 基础类型直接添加
-                result.put(key, value);
-            } else {
-                // 其他类型转为字符串
-                result.put(key, value.toString());
-            }
-        }
-        return result;
-    }
-
-    /**
-     * 清理集合，确保所有元素都是ES可接受的类型
-     */
-    private List<Object> sanitizeCollection(Collection<?> collection) {
-        List<Object> result = new ArrayList<>();
-        for (Object item : collection) {
-            if (item == null) {
-                result.add(null);
-            } else if (item instanceof Map) {
-                result.add(sanitizeMap((Map<String, Object>) item));
-            } else if (item instanceof Collection) {
-                result.add(sanitizeCollection((Collection<?>) item));
-            } else if (item instanceof Number || item instanceof Boolean ||
-                    item instanceof String || item instanceof Date) {
-                result.add(item);
-            } else {
-                result.add(item.toString());
-            }
-        }
-        return result;
-    }
-
     /**
      * 将持久层对象 LogBatch 转换为领域实体 LogBatchEntity
      *
@@ -417,8 +356,8 @@ public class LogBatchRepository extends AbstractRepository implements ILogBatchR
      * @return 批次实体，未找到则返回空
      */
     public Optional<LogBatchEntity> findByBatchId(String batchId, boolean loadLogs) {
-        // 查询数据库获取元数据
-        LogBatch batch = logBatchDao.selectById(batchId);
+        // 查询账本或数据库获取元数据
+        LogBatch batch = logBatchStatusLedger.load(batchId);
         if (null == batch) {
             return Optional.empty();
         }
@@ -0,0 +1,67 @@
+package cn.cug.sxy.infrastructure.adapter.repository;
+
+import cn.cug.sxy.domain.preprocess.adapter.repository.ILogTemplateRepository;
+import cn.cug.sxy.domain.preprocess.model.entity.LogTemplateEntity;
+import cn.cug.sxy.infrastructure.dao.ILogTemplateDao;
+import cn.cug.sxy.infrastructure.dao.po.LogTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 14:10
+ * @Description 日志模板仓储实现
+ * @Author jerryhotton
+ */
+
+@Repository
+public class LogTemplateRepository implements ILogTemplateRepository {
+
+    private final ILogTemplateDao logTemplateDao;
+
+    public LogTemplateRepository(ILogTemplateDao logTemplateDao) {
+        this.logTemplateDao = logTemplateDao;
+    }
+
+    @Override
+    public List<LogTemplateEntity> loadRecent(int limit) {
+        List<LogTemplate> logTemplates = logTemplateDao.selectRecent(limit);
+        List<LogTemplateEntity> entities = new ArrayList<>(logTemplates.size());
+        for (LogTemplate logTemplate : logTemplates) {
+            entities.add(LogTemplateEntity.builder()
+                    .templateId(logTemplate.getTemplateId())
+                    .appId(logTemplate.getAppId())
+                    .template(logTemplate.getTemplate())
+                    .tokenCount(logTemplate.getTokenCount() != null ? logTemplate.getTokenCount() : 0)
+                    .occurrences(logTemplate.getOccurrences() != null ? logTemplate.getOccurrences() : 0L)
+                    .firstSeenTime(logTemplate.getFirstSeenTime() != null ? logTemplate.getFirstSeenTime().toInstant() : null)
+                    .lastSeenTime(logTemplate.getLastSeenTime() != null ? logTemplate.getLastSeenTime().toInstant() : null)
+                    .build());
+        }
+        return entities;
+    }
+
+    @Override
+    public void saveAll(List<LogTemplateEntity> templates) {
+        if (templates.isEmpty()) {
+            return;
+        }
+        List<LogTemplate> logTemplates = new ArrayList<>(templates.size());
+        for (LogTemplateEntity entity : templates) {
+            LogTemplate logTemplate = new LogTemplate();
+            logTemplate.setTemplateId(entity.getTemplateId());
+            logTemplate.setAppId(entity.getAppId());
+            logTemplate.setTemplate(entity.getTemplate());
+            logTemplate.setTokenCount(entity.getTokenCount());
+            logTemplate.setOccurrences(entity.getOccurrences());
+            logTemplate.setFirstSeenTime(entity.getFirstSeenTime() != null ? Date.from(entity.getFirstSeenTime()) : null);
+            logTemplate.setLastSeenTime(entity.getLastSeenTime() != null ? Date.from(entity.getLastSeenTime()) : null);
+            logTemplates.add(logTemplate);
+        }
+        logTemplateDao.upsertBatch(logTemplates);
+    }
+
+}
@@ -12,6 +12,7 @@ import cn.cug.sxy.types.common.Constants;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -70,7 +71,13 @@ public class ReceiverEndpointRepository extends AbstractRepository implements IR
 
     @Override
     public List<ReceiverEndpoint> findAll() {
-        return List.of();
+        // 直接查询数据库，不经过缓存，供配置刷新感知端点变更
+        List<LogReceiverEndpoint> pos = receiverEndpointDao.selectAll();
+        List<ReceiverEndpoint> endpoints = new ArrayList<>(pos.size());
+        for (LogReceiverEndpoint po : pos) {
+            endpoints.add(convertToDomainEntity(po));
+        }
+        return endpoints;
     }
 
     @Override
@@ -132,6 +139,19 @@ public class ReceiverEndpointRepository extends AbstractRepository implements IR
             }
         }
 
+        // 设置预处理策略
+        endpoint.setPreprocessStrategy(po.getPreprocessStrategy());
+        // 设置编解码器
+        endpoint.configureCodec(po.getCodec());
+        // 设置原样接入
+        if (Boolean.TRUE.equals(po.getRawIngest())) {
+            endpoint.enableRawIngest();
+        }
+        // 设置多行事件规则
+        endpoint.configureMultiline(po.getMultilineStartPattern(), po.getMultilineContinuationPattern());
+        // 设置重复日志折叠窗口
+        endpoint.configureDedup(po.getDedupWindowMs() != null ? Math.max(0, po.getDedupWindowMs()) : 0);
+
         return endpoint;
     }
 
@@ -0,0 +1,60 @@
+package cn.cug.sxy.infrastructure.adapter.repository;
+
+import cn.cug.sxy.domain.reception.adapter.repository.IRoutingRuleRepository;
+import cn.cug.sxy.domain.reception.model.entity.RoutingRuleEntity;
+import cn.cug.sxy.domain.reception.model.valobj.RuleAction;
+import cn.cug.sxy.infrastructure.dao.ILogRoutingRuleDao;
+import cn.cug.sxy.infrastructure.dao.po.LogRoutingRule;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/29 11:30
+ * @Description 日志路由规则仓储实现（规则由引擎定时刷新，不经过缓存）
+ * @Author jerryhotton
+ */
+
+@Repository
+public class RoutingRuleRepository implements IRoutingRuleRepository {
+
+    private final ILogRoutingRuleDao logRoutingRuleDao;
+
+    public RoutingRuleRepository(ILogRoutingRuleDao logRoutingRuleDao) {
+        this.logRoutingRuleDao = logRoutingRuleDao;
+    }
+
+    @Override
+    public List<RoutingRuleEntity> findEnabled() {
+        List<LogRoutingRule> rules = logRoutingRuleDao.selectEnabled();
+        List<RoutingRuleEntity> entities = new ArrayList<>(rules.size());
+        for (LogRoutingRule rule : rules) {
+            entities.add(RoutingRuleEntity.builder()
+                    .ruleId(rule.getRuleId())
+                    .appId(rule.getAppId())
+                    .endpointId(rule.getEndpointId())
+                    .priority(rule.getPriority() != null ? rule.getPriority() : 0)
+                    .condition(rule.getConditionExpr())
+                    // 非法的动作编码留空，由引擎跳过该规则
+                    .action(toAction(rule.getAction()))
+                    .actionParam(rule.getActionParam())
+                    .updatedTime(rule.getUpdatedTime() != null ? rule.getUpdatedTime().toInstant() : null)
+                    .build());
+        }
+        return entities;
+    }
+
+    private static RuleAction toAction(Integer code) {
+        if (code == null) {
+            return null;
+        }
+        try {
+            return RuleAction.valueOf(code);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
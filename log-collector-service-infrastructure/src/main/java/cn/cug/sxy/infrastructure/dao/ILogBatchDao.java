@@ -3,6 +3,8 @@ package cn.cug.sxy.infrastructure.dao;
 import cn.cug.sxy.infrastructure.dao.po.LogBatch;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.List;
+
 /**
  * @version 1.0
  * @Date 2025/7/11 16:00
@@ -13,10 +15,8 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface ILogBatchDao {
 
-    void save(LogBatch logBatch);
-
-    void updateBatchMetadata(LogBatch logBatch);
-
     LogBatch selectById(String batchId);
 
+    void upsertBatch(List<LogBatch> logBatches);
+
 }
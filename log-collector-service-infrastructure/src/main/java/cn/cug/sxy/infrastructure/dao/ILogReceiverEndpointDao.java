@@ -3,6 +3,8 @@ package cn.cug.sxy.infrastructure.dao;
 import cn.cug.sxy.infrastructure.dao.po.LogReceiverEndpoint;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.List;
+
 /**
  * @version 1.0
  * @Date 2025/7/7 16:26
@@ -15,4 +17,6 @@ public interface ILogReceiverEndpointDao {
 
     LogReceiverEndpoint selectById(String id);
 
+    List<LogReceiverEndpoint> selectAll();
+
 }
@@ -0,0 +1,20 @@
+package cn.cug.sxy.infrastructure.dao;
+
+import cn.cug.sxy.infrastructure.dao.po.LogRoutingRule;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/29 11:25
+ * @Description 日志路由规则数据访问层接口
+ * @Author jerryhotton
+ */
+
+@Mapper
+public interface ILogRoutingRuleDao {
+
+    List<LogRoutingRule> selectEnabled();
+
+}
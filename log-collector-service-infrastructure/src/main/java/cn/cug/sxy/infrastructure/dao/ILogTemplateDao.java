@@ -0,0 +1,22 @@
+package cn.cug.sxy.infrastructure.dao;
+
+import cn.cug.sxy.infrastructure.dao.po.LogTemplate;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 14:05
+ * @Description 日志模板数据访问层接口
+ * @Author jerryhotton
+ */
+
+@Mapper
+public interface ILogTemplateDao {
+
+    List<LogTemplate> selectRecent(int limit);
+
+    void upsertBatch(List<LogTemplate> logTemplates);
+
+}
@@ -66,6 +66,30 @@ public class LogReceiverEndpoint {
      * 允许的应用ID列表(逗号分隔)
      */
     private String allowedAppIds;
+    /**
+     * 预处理策略（Grok表达式或模式库中的模式名称）
+     */
+    private String preprocessStrategy;
+    /**
+     * 编解码器名称
+     */
+    private String codec;
+    /**
+     * 是否原样接入
+     */
+    private Boolean rawIngest;
+    /**
+     * 多行事件起始行正则
+     */
+    private String multilineStartPattern;
+    /**
+     * 多行事件续行正则
+     */
+    private String multilineContinuationPattern;
+    /**
+     * 重复日志折叠窗口（毫秒）
+     */
+    private Integer dedupWindowMs;
     /**
      * 创建时间
      */
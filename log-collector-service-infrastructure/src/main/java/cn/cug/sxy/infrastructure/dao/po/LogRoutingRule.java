@@ -0,0 +1,62 @@
+package cn.cug.sxy.infrastructure.dao.po;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/29 11:20
+ * @Description 日志路由规则持久层对象
+ * @Author jerryhotton
+ */
+
+@Data
+public class LogRoutingRule {
+
+    /**
+     * 主键ID
+     */
+    private Long id;
+    /**
+     * 规则ID
+     */
+    private String ruleId;
+    /**
+     * 生效的应用ID（为空时对所有应用生效）
+     */
+    private String appId;
+    /**
+     * 生效的端点ID（为空时对应用的所有端点生效）
+     */
+    private String endpointId;
+    /**
+     * 优先级（数值小的先执行）
+     */
+    private Integer priority;
+    /**
+     * 匹配条件表达式
+     */
+    private String conditionExpr;
+    /**
+     * 动作（0-丢弃 1-采样 2-路由 3-打标签）
+     */
+    private Integer action;
+    /**
+     * 动作参数
+     */
+    private String actionParam;
+    /**
+     * 状态（0-禁用 1-启用）
+     */
+    private Integer status;
+    /**
+     * 创建时间
+     */
+    private Date createdTime;
+    /**
+     * 更新时间
+     */
+    private Date updatedTime;
+
+}
@@ -0,0 +1,58 @@
+package cn.cug.sxy.infrastructure.dao.po;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/24 14:00
+ * @Description 日志模板持久层对象
+ * @Author jerryhotton
+ */
+
+@Data
+public class LogTemplate {
+
+    /**
+     * 主键ID
+     */
+    private Long id;
+    /**
+     * 模板ID
+     */
+    private String templateId;
+    /**
+     * 应用ID
+     */
+    private String appId;
+    /**
+     * 模板内容
+     */
+    private String template;
+    /**
+     * 词元数
+     */
+    private Integer tokenCount;
+    /**
+     * 累计匹配次数
+     */
+    private Long occurrences;
+    /**
+     * 首次出现时间
+     */
+    private Date firstSeenTime;
+    /**
+     * 最近出现时间
+     */
+    private Date lastSeenTime;
+    /**
+     * 创建时间
+     */
+    private Date createdTime;
+    /**
+     * 更新时间
+     */
+    private Date updatedTime;
+
+}
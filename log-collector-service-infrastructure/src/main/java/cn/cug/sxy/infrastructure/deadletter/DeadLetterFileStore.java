@@ -0,0 +1,214 @@
+package cn.cug.sxy.infrastructure.deadletter;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 11:10
+ * @Description 死信本地文件存储（每个批次一个摘要文件和一个gzip压缩的原始日志文件，摘要常驻内存用于列表和过滤）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class DeadLetterFileStore implements InitializingBean, DisposableBean {
+
+    private static final String META_SUFFIX = ".meta.json";
+    private static final String PAYLOAD_SUFFIX = ".logs.json.gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * 存储目录
+     */
+    @Value("${log-center.reception.dead-letter.dir:data/dead-letter}")
+    private String storeDir;
+
+    /**
+     * 死信保留天数
+     */
+    @Value("${log-center.reception.dead-letter.retention-days:7}")
+    private int retentionDays;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * 死信摘要索引
+     * key: batchId
+     */
+    private final Map<String, DeadLetterRecord> index = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "dead-letter-purger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Path root;
+
+    /**
+     * 写入死信（摘要和原始日志）
+     *
+     * @param record  死信摘要
+     * @param payload 原始日志
+     */
+    public void write(DeadLetterRecord record, DeadLetterRecord.RawLogPayload payload) throws IOException {
+        String batchId = record.getBatchId();
+        Path payloadTemp = root.resolve(batchId + PAYLOAD_SUFFIX + TEMP_SUFFIX);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(payloadTemp))) {
+            objectMapper.writeValue(out, payload);
+        }
+        Files.move(payloadTemp, root.resolve(batchId + PAYLOAD_SUFFIX),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writeMeta(record);
+    }
+
+    /**
+     * 更新死信摘要
+     *
+     * @param record 死信摘要
+     */
+    public void writeMeta(DeadLetterRecord record) throws IOException {
+        Path metaTemp = root.resolve(record.getBatchId() + META_SUFFIX + TEMP_SUFFIX);
+        objectMapper.writeValue(metaTemp.toFile(), record);
+        Files.move(metaTemp, root.resolve(record.getBatchId() + META_SUFFIX),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index.put(record.getBatchId(), record);
+    }
+
+    /**
+     * 读取死信摘要
+     */
+    public Optional<DeadLetterRecord> getMeta(String batchId) {
+        return Optional.ofNullable(index.get(batchId));
+    }
+
+    /**
+     * 所有死信摘要
+     */
+    public Collection<DeadLetterRecord> listMeta() {
+        return Collections.unmodifiableCollection(index.values());
+    }
+
+    /**
+     * 读取原始日志
+     */
+    public Optional<DeadLetterRecord.RawLogPayload> readPayload(String batchId) throws IOException {
+        // 只访问索引中存在的批次，外部传入的ID不直接参与文件路径拼接
+        if (!index.containsKey(batchId)) {
+            return Optional.empty();
+        }
+        Path payloadPath = root.resolve(batchId + PAYLOAD_SUFFIX);
+        if (!Files.exists(payloadPath)) {
+            return Optional.empty();
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(payloadPath))) {
+            return Optional.of(objectMapper.readValue(in, DeadLetterRecord.RawLogPayload.class));
+        }
+    }
+
+    /**
+     * 删除死信
+     */
+    public boolean delete(String batchId) {
+        DeadLetterRecord removed = index.remove(batchId);
+        if (removed == null) {
+            return false;
+        }
+        try {
+            Files.deleteIfExists(root.resolve(batchId + META_SUFFIX));
+            Files.deleteIfExists(root.resolve(batchId + PAYLOAD_SUFFIX));
+        } catch (IOException e) {
+            log.error("删除死信文件失败: batchId={}, error={}", batchId, e.getMessage(), e);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        root = Paths.get(storeDir);
+        Files.createDirectories(root);
+        loadIndex();
+        scheduler.scheduleWithFixedDelay(this::purgeExpired, 1, 60, TimeUnit.MINUTES);
+
+        log.info("死信存储已启动, 目录: {}, 死信数量: {}, 保留天数: {}",
+                root.toAbsolutePath(), index.size(), retentionDays);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 启动时加载摘要索引，清理写入中断留下的临时文件
+     */
+    private void loadIndex() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                if (!fileName.endsWith(META_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    DeadLetterRecord record = objectMapper.readValue(file.toFile(), DeadLetterRecord.class);
+                    index.put(record.getBatchId(), record);
+                } catch (IOException e) {
+                    log.error("读取死信摘要失败: file={}, error={}", fileName, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 清理超过保留时间的死信
+     */
+    private void purgeExpired() {
+        try {
+            long expireBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays);
+            int purged = 0;
+            for (DeadLetterRecord record : new ArrayList<>(index.values())) {
+                if (record.getFailedTime() != null && record.getFailedTime() < expireBefore) {
+                    delete(record.getBatchId());
+                    purged++;
+                }
+            }
+            if (purged > 0) {
+                log.info("清理过期死信: count={}", purged);
+            }
+        } catch (Exception e) {
+            log.error("清理过期死信异常", e);
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package cn.cug.sxy.infrastructure.deadletter;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 11:00
+ * @Description 死信记录（本地文件存储格式，时间字段为毫秒时间戳）
+ * @Author jerryhotton
+ */
+
+@Data
+public class DeadLetterRecord {
+
+    /**
+     * 批次ID
+     */
+    private String batchId;
+    /**
+     * 应用ID
+     */
+    private String appId;
+    /**
+     * 接收端点ID
+     */
+    private String endpointId;
+    /**
+     * 日志条数
+     */
+    private int logCount;
+    /**
+     * 失败原因
+     */
+    private String failureReason;
+    /**
+     * 失败前的重试次数
+     */
+    private int retryCount;
+    /**
+     * 批次接收时间
+     */
+    private Long receivedTime;
+    /**
+     * 进入死信的时间
+     */
+    private Long failedTime;
+    /**
+     * 已重放次数
+     */
+    private int replayCount;
+    /**
+     * 最后重放时间
+     */
+    private Long lastReplayTime;
+
+    /**
+     * 原始日志（单独压缩存储）
+     */
+    @Data
+    public static class RawLogRecord {
+        private String content;
+        private String sourceId;
+        private String format;
+        private Long timestamp;
+        // 核心属性
+        private String level;
+        private String source;
+        private String hostname;
+        private String clientIp;
+        private Long receiveTime;
+        private Map<String, String> tags;
+        // 重复日志汇总的折叠信息，普通日志为null
+        private Integer repeatCount;
+        private Long firstSeen;
+        private Long lastSeen;
+        private Map<String, String> metadata;
+    }
+
+    /**
+     * 原始日志列表包装
+     */
+    @Data
+    public static class RawLogPayload {
+        private List<RawLogRecord> logs;
+    }
+
+}
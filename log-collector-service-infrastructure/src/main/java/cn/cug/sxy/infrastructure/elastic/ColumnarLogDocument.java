@@ -0,0 +1,126 @@
+package cn.cug.sxy.infrastructure.elastic;
+
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/28 10:30
+ * @Description 列式批次中一行对应的ES文档视图（序列化时直接读取批次各列，字段与LogDocument一致；
+ * 内容以UTF-8字节从共享缓冲区写出，不解码为字符串）
+ * @Author jerryhotton
+ */
+
+@JsonSerialize(using = ColumnarLogDocument.Serializer.class)
+public class ColumnarLogDocument {
+
+    private final ColumnarLogBatch batch;
+    private final int row;
+    private final String id;
+    private final Instant indexTime;
+
+    public ColumnarLogDocument(ColumnarLogBatch batch, int row, Instant indexTime) {
+        this.batch = batch;
+        this.row = row;
+        // 确定性文档ID：批次ID + 日志在原始批次中的序号，同一条源日志在每次重试中ID相同，
+        // 与校验、路由过滤后的行号无关
+        this.id = batch.getBatchId() + "-" + batch.sequence(row);
+        this.indexTime = indexTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public static class Serializer extends JsonSerializer<ColumnarLogDocument> {
+
+        @Override
+        public void serialize(ColumnarLogDocument document, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            ColumnarLogBatch batch = document.batch;
+            int row = document.row;
+            gen.writeStartObject();
+            gen.writeStringField("id", document.id);
+            gen.writeStringField("batchId", batch.getBatchId());
+            gen.writeStringField("appId", orUnknown(batch.getAppId()));
+            gen.writeStringField("endpointId", orUnknown(batch.getEndpointId()));
+            gen.writeFieldName("content");
+            writeContent(batch, row, gen);
+            gen.writeStringField("format", orUnknown(batch.format(row)));
+            gen.writeStringField("sourceId", orUnknown(batch.sourceId(row)));
+            gen.writeNumberField("timestamp", batch.timestamp(row));
+            Map<String, String> tags = batch.tags(row);
+            provider.defaultSerializeField("tags", tags != null ? tags : Map.of(), gen);
+            gen.writeStringField("source", orUnknown(batch.source(row)));
+            gen.writeStringField("hostname", orUnknown(batch.hostname(row)));
+            if (batch.isRaw(row)) {
+                // 原样接入只写信封字段，级别未知时不写出，查询时由运行时字段从内容中提取
+                gen.writeBooleanField("raw", true);
+                if (batch.level(row) != null) {
+                    gen.writeStringField("level", batch.level(row));
+                }
+            } else {
+                gen.writeStringField("level", batch.level(row) != null ? batch.level(row) : "INFO");
+                Map<String, Object> structuredFields = batch.structuredFields(row);
+                provider.defaultSerializeField("structuredData", structuredFields, gen);
+                gen.writeFieldName("structuredDataText");
+                writeStructuredDataText(structuredFields, gen);
+                // 匹配到模板的日志仍写出完整内容：模板只基于消息部分（文本日志为首行）挖掘，且会随后续日志继续泛化，
+                // 由模板ID和参数无法还原原文，内容全文检索也依赖该字段
+                gen.writeStringField("templateId", batch.templateId(row));
+                List<String> templateParams = batch.templateParams(row);
+                provider.defaultSerializeField("templateParams", templateParams, gen);
+            }
+            provider.defaultSerializeField("indexTime", document.indexTime, gen);
+            // 只有重复日志汇总写出折叠字段
+            int repeatCount = batch.repeatCount(row);
+            if (repeatCount > 1) {
+                gen.writeNumberField("repeatCount", repeatCount);
+                gen.writeNumberField("firstSeen", batch.firstSeen(row));
+                gen.writeNumberField("lastSeen", batch.lastSeen(row));
+            }
+            gen.writeEndObject();
+        }
+
+        private static void writeContent(ColumnarLogBatch batch, int row, JsonGenerator gen) throws IOException {
+            if (batch.isNullContent(row)) {
+                gen.writeNull();
+            } else if (gen instanceof UTF8JsonGenerator) {
+                // 字节输出的生成器直接写出UTF-8内容（按需转义）
+                gen.writeUTF8String(batch.contentBuffer(), batch.contentOffset(row), batch.contentLength(row));
+            } else {
+                gen.writeString(batch.content(row));
+            }
+        }
+
+        /**
+         * 将结构化数据值合并为一个可搜索的文本
+         */
+        private static void writeStructuredDataText(Map<String, Object> structuredFields, JsonGenerator gen) throws IOException {
+            if (structuredFields == null || structuredFields.isEmpty()) {
+                gen.writeNull();
+                return;
+            }
+            StringBuilder allValues = new StringBuilder();
+            for (Object value : structuredFields.values()) {
+                if (value != null) {
+                    allValues.append(value).append(" ");
+                }
+            }
+            gen.writeString(allValues.toString());
+        }
+
+        private static String orUnknown(String value) {
+            return value != null ? value : "unknown";
+        }
+    }
+
+}
@@ -0,0 +1,431 @@
+package cn.cug.sxy.infrastructure.elastic;
+
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/22 15:30
+ * @Description ES批量请求合并器（将发往同一索引的多个小批次合并为大小合适的bulk请求，响应按条目映射回各来源批次）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class ElasticsearchBulkCoalescer implements InitializingBean, DisposableBean {
+
+    /**
+     * 文档已存在（create操作冲突）时ES返回的状态码
+     * 文档ID由批次ID和日志在原始批次中的序号组成，冲突只可能来自同一条源日志之前的写入
+     */
+    private static final int STATUS_CONFLICT = 409;
+
+    /**
+     * ES限流时返回的状态码，与5xx一样表示存储后端暂时不可用，其余4xx为文档数据错误
+     */
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * 单个文档的估算固定开销（操作行、ID及元数据字段，字节）
+     */
+    private static final int DOCUMENT_OVERHEAD_BYTES = 512;
+
+    /**
+     * 单个结构化字段的估算大小（在structuredData和structuredDataText中各出现一次，字节）
+     */
+    private static final int STRUCTURED_FIELD_BYTES = 48;
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    /**
+     * 单个bulk请求的目标大小（字节），达到后立即发送
+     */
+    @Value("${elasticsearch.bulk.max-bytes:10485760}")
+    private long maxBytes;
+
+    /**
+     * 单个bulk请求的最大文档数
+     */
+    @Value("${elasticsearch.bulk.max-actions:10000}")
+    private int maxActions;
+
+    /**
+     * 最大等待合并时间（毫秒），未达到目标大小的请求到期后发送
+     */
+    @Value("${elasticsearch.bulk.linger-ms:50}")
+    private long lingerMs;
+
+    /**
+     * 同时在途的bulk请求数
+     */
+    @Value("${elasticsearch.bulk.max-in-flight:4}")
+    private int maxInFlight;
+
+    /**
+     * 等待发送的bulk请求数上限，积压超过上限时新的请求直接失败，由批次重试流程重新提交
+     */
+    @Value("${elasticsearch.bulk.max-queued:64}")
+    private int maxQueued;
+
+    /**
+     * 待发送的合并请求
+     * key: 索引名
+     */
+    private final Map<String, PendingBulk> pending = new HashMap<>();
+    private final Object lock = new Object();
+
+    /**
+     * 到期发送定时器
+     */
+    private final ScheduledExecutorService lingerTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "es-bulk-linger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * bulk请求发送线程池
+     */
+    private ThreadPoolExecutor bulkExecutor;
+
+    // 合并统计
+    private final LongAdder bulkRequests = new LongAdder();
+    private final LongAdder bulkDocuments = new LongAdder();
+    private final LongAdder bulkBatches = new LongAdder();
+    private final LongAdder rejectedBulks = new LongAdder();
+
+    public ElasticsearchBulkCoalescer(ElasticsearchClient elasticsearchClient) {
+        this.elasticsearchClient = elasticsearchClient;
+    }
+
+    /**
+     * 提交一个批次的日志，等待与其他批次合并发送
+     *
+     * @param batchId      批次ID
+     * @param indexName    默认索引名
+     * @param routeIndices 路由规则指定的索引名后缀 -> 索引名，批次中没有路由的日志时为空
+     * @param logs         列式日志批次
+     * @return 该批次的写入结果
+     */
+    public CompletableFuture<BatchBulkResult> submit(BatchId batchId, String indexName,
+                                                     Map<String, String> routeIndices, ColumnarLogBatch logs) {
+        PendingBatch pendingBatch = new PendingBatch(batchId, logs, routeIndices, estimateBytes(logs));
+        PendingBulk ready = null;
+        synchronized (lock) {
+            PendingBulk bulk = pending.computeIfAbsent(indexName, PendingBulk::new);
+            bulk.add(pendingBatch);
+            if (bulk.bytes >= maxBytes || bulk.documentCount >= maxActions) {
+                pending.remove(indexName);
+                ready = bulk;
+            }
+        }
+        if (ready != null) {
+            dispatch(ready);
+        }
+        return pendingBatch.future;
+    }
+
+    public long getBulkRequestCount() {
+        return bulkRequests.sum();
+    }
+
+    public long getBulkDocumentCount() {
+        return bulkDocuments.sum();
+    }
+
+    public long getBulkBatchCount() {
+        return bulkBatches.sum();
+    }
+
+    public long getRejectedBulkCount() {
+        return rejectedBulks.sum();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        bulkExecutor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueued),
+                new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r);
+                        thread.setName("es-bulk-sender-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                },
+                // 积压已满时拒绝，不在提交线程（包括到期发送定时器线程）上发送
+                new ThreadPoolExecutor.AbortPolicy());
+        long period = Math.max(1, lingerMs / 2);
+        lingerTimer.scheduleWithFixedDelay(this::flushExpired, period, period, TimeUnit.MILLISECONDS);
+
+        log.info("ES批量请求合并器已启动, 目标大小: {}B, 最大文档数: {}, 合并等待: {}ms, 在途请求数: {}, 积压上限: {}",
+                maxBytes, maxActions, lingerMs, maxInFlight, maxQueued);
+    }
+
+    @Override
+    public void destroy() {
+        lingerTimer.shutdownNow();
+        // 关闭前发送所有待合并的请求
+        List<PendingBulk> remaining;
+        synchronized (lock) {
+            remaining = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        for (PendingBulk bulk : remaining) {
+            dispatch(bulk);
+        }
+        bulkExecutor.shutdown();
+        try {
+            if (!bulkExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                bulkExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            bulkExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        log.info("ES批量请求合并器已关闭, 累计请求数: {}, 文档数: {}, 批次数: {}",
+                bulkRequests.sum(), bulkDocuments.sum(), bulkBatches.sum());
+    }
+
+    /**
+     * 发送超过合并等待时间的请求
+     */
+    private void flushExpired() {
+        try {
+            long now = System.currentTimeMillis();
+            List<PendingBulk> expired = new ArrayList<>();
+            synchronized (lock) {
+                Iterator<PendingBulk> iterator = pending.values().iterator();
+                while (iterator.hasNext()) {
+                    PendingBulk bulk = iterator.next();
+                    if (now - bulk.createdAt >= lingerMs) {
+                        iterator.remove();
+                        expired.add(bulk);
+                    }
+                }
+            }
+            for (PendingBulk bulk : expired) {
+                dispatch(bulk);
+            }
+        } catch (Exception e) {
+            log.error("发送到期的ES批量请求异常", e);
+        }
+    }
+
+    private void dispatch(PendingBulk bulk) {
+        try {
+            bulkExecutor.execute(() -> execute(bulk));
+        } catch (RejectedExecutionException e) {
+            if (bulkExecutor.isShutdown()) {
+                // 关闭流程中发送剩余请求，直接在当前线程发送
+                execute(bulk);
+                return;
+            }
+            // 积压已满，批次按发送失败处理，由批次处理流程重试
+            rejectedBulks.increment();
+            log.warn("ES批量请求积压已满，拒绝发送: index={}, batches={}, documents={}",
+                    bulk.indexName, bulk.batches.size(), bulk.documentCount);
+            RejectedExecutionException rejected = new RejectedExecutionException("ES批量请求积压已满");
+            for (PendingBatch pendingBatch : bulk.batches) {
+                pendingBatch.future.completeExceptionally(rejected);
+            }
+        }
+    }
+
+    /**
+     * 发送合并后的bulk请求，并将条目结果按顺序映射回各来源批次
+     */
+    private void execute(PendingBulk bulk) {
+        try {
+            BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
+            // 同一bulk请求中的文档使用相同的索引时间
+            Instant indexTime = Instant.now();
+            int operations = 0;
+            for (PendingBatch pendingBatch : bulk.batches) {
+                ColumnarLogBatch logs = pendingBatch.logs;
+                for (int row = 0; row < logs.size(); row++) {
+                    // 行视图在序列化时直接读取批次各列
+                    ColumnarLogDocument document = new ColumnarLogDocument(logs, row, indexTime);
+                    // 路由到其他索引的文档与默认索引的文档在同一bulk请求中发送
+                    String route = logs.route(row);
+                    String index = route != null ? pendingBatch.routeIndices.get(route) : bulk.indexName;
+                    bulkBuilder.operations(op -> op
+                            .create(c -> c
+                                    .index(index)
+                                    .id(document.getId())
+                                    .document(document)
+                            )
+                    );
+                    operations++;
+                }
+            }
+            BulkResponse response = elasticsearchClient.bulk(bulkBuilder.build());
+            bulkRequests.increment();
+            bulkDocuments.add(bulk.documentCount);
+            bulkBatches.add(bulk.batches.size());
+            // 响应条目与请求操作顺序一致，按各批次文档数切分；
+            // 条目数与操作数不一致时无法确定每条日志的结果，整个bulk中的批次都按失败处理，交由重试或死信流程
+            List<BulkResponseItem> items = response.items();
+            if (items.size() != operations) {
+                throw new IllegalStateException("ES批量响应条目数与请求操作数不一致: operations="
+                        + operations + ", items=" + items.size());
+            }
+            int offset = 0;
+            for (PendingBatch pendingBatch : bulk.batches) {
+                int end = offset + pendingBatch.logs.size();
+                int failed = 0;
+                int existed = 0;
+                int unavailable = 0;
+                String firstError = null;
+                if (response.errors()) {
+                    for (int i = offset; i < end; i++) {
+                        BulkResponseItem item = items.get(i);
+                        if (item.error() == null) {
+                            continue;
+                        }
+                        if (item.status() == STATUS_CONFLICT) {
+                            existed++;
+                            continue;
+                        }
+                        failed++;
+                        if (item.status() == STATUS_TOO_MANY_REQUESTS || item.status() >= 500) {
+                            unavailable++;
+                        }
+                        if (firstError == null) {
+                            firstError = item.error().reason();
+                        }
+                    }
+                }
+                if (failed > 0) {
+                    log.warn("批次文档写入失败: batchId={}, failed={}, reason={}",
+                            pendingBatch.batchId.getValue(), failed, firstError);
+                }
+                pendingBatch.future.complete(new BatchBulkResult(failed, existed, unavailable, firstError));
+                offset = end;
+            }
+        } catch (Exception e) {
+            log.error("发送ES批量请求异常: index={}, batches={}, documents={}, error={}",
+                    bulk.indexName, bulk.batches.size(), bulk.documentCount, e.getMessage(), e);
+            for (PendingBatch pendingBatch : bulk.batches) {
+                pendingBatch.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 估算批次序列化后的大小（内容按UTF-8缓冲区的实际字节数计算）
+     */
+    private long estimateBytes(ColumnarLogBatch logs) {
+        long bytes = (long) logs.size() * DOCUMENT_OVERHEAD_BYTES + logs.contentBytes();
+        for (int row = 0; row < logs.size(); row++) {
+            Map<String, Object> structuredFields = logs.structuredFields(row);
+            if (structuredFields != null) {
+                bytes += (long) structuredFields.size() * STRUCTURED_FIELD_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 单个批次在合并请求中的写入结果
+     */
+    @Getter
+    public static class BatchBulkResult {
+        // 写入失败的文档数（不含已存在的文档）
+        private final int failedCount;
+        // 已存在的文档数（之前的尝试已写入）
+        private final int existedCount;
+        // 因存储后端不可用（429/5xx）失败的文档数，包含在失败文档数中
+        private final int unavailableCount;
+        // 第一个失败原因
+        private final String firstError;
+
+        public BatchBulkResult(int failedCount, int existedCount, int unavailableCount, String firstError) {
+            this.failedCount = failedCount;
+            this.existedCount = existedCount;
+            this.unavailableCount = unavailableCount;
+            this.firstError = firstError;
+        }
+
+        public boolean isSuccess() {
+            return failedCount == 0;
+        }
+
+        /**
+         * 失败是否由存储后端不可用引起（否则为文档映射、解析等数据错误）
+         */
+        public boolean isBackendFailure() {
+            return unavailableCount > 0;
+        }
+    }
+
+    /**
+     * 等待合并的批次
+     */
+    private static class PendingBatch {
+        private final BatchId batchId;
+        private final ColumnarLogBatch logs;
+        private final Map<String, String> routeIndices;
+        private final long bytes;
+        private final CompletableFuture<BatchBulkResult> future = new CompletableFuture<>();
+
+        PendingBatch(BatchId batchId, ColumnarLogBatch logs, Map<String, String> routeIndices, long bytes) {
+            this.batchId = batchId;
+            this.logs = logs;
+            this.routeIndices = routeIndices;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * 发往同一索引的待发送合并请求
+     */
+    private static class PendingBulk {
+        private final String indexName;
+        private final List<PendingBatch> batches = new ArrayList<>();
+        private final long createdAt = System.currentTimeMillis();
+        private long bytes;
+        private int documentCount;
+
+        PendingBulk(String indexName) {
+            this.indexName = indexName;
+        }
+
+        void add(PendingBatch pendingBatch) {
+            batches.add(pendingBatch);
+            bytes += pendingBatch.bytes;
+            documentCount += pendingBatch.logs.size();
+        }
+    }
+
+}
@@ -5,6 +5,7 @@ import cn.cug.sxy.domain.storage.model.valobj.LogQuery;
 import cn.cug.sxy.domain.storage.model.valobj.LogQueryResult;
 import cn.cug.sxy.infrastructure.elastic.mapping.StructuredFieldManager;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.RuntimeFieldType;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
@@ -35,9 +36,16 @@ public class ElasticsearchLogQueryService implements IElasticsearchLogQueryServi
     private final ElasticsearchClient elasticsearchClient;
     private final StructuredFieldManager structuredFieldManager;
 
+    /**
+     * 原样接入文档从内容中提取级别的运行时字段名
+     */
+    private static final String RAW_LEVEL_FIELD = "rawLevel";
+
     @Value("${elasticsearch.index-prefix:logs}")
     private String indexPrefix;
 
+    private final RawDocumentReader rawDocumentReader = new RawDocumentReader();
+
     public ElasticsearchLogQueryService(
             ElasticsearchClient elasticsearchClient,
             StructuredFieldManager structuredFieldManager) {
@@ -59,6 +67,20 @@ public class ElasticsearchLogQueryService implements IElasticsearchLogQueryServi
                     .size(query.getPageSize())
                     .from((query.getPageNumber() - 1) * query.getPageSize())
                     .ignoreUnavailable(true);
+            // 原样接入的文档没有级别字段，按级别过滤时通过运行时字段在查询时从内容中提取
+            boolean levelFiltered = query.getLevel() != null && !query.getLevel().isEmpty();
+            if (levelFiltered) {
+                searchBuilder.runtimeMappings(RAW_LEVEL_FIELD, r -> r
+                        .type(RuntimeFieldType.Keyword)
+                        .script(sc -> sc
+                                .inline(i -> i
+                                        .source(RawDocumentReader.LEVEL_SCRIPT)
+                                        .params("levels", JsonData.of(List.of(RawDocumentReader.LEVEL_KEYWORDS)))
+                                        .params("scan", JsonData.of(RawDocumentReader.LEVEL_SCAN_LENGTH))
+                                )
+                        )
+                );
+            }
             // 添加查询条件
             searchBuilder.query(q -> q
                     .bool(b -> {
@@ -81,12 +103,26 @@ public class ElasticsearchLogQueryService implements IElasticsearchLogQueryServi
                                     )
                             );
                         }
-                        // 添加日志级别过滤
-                        if (query.getLevel() != null && !query.getLevel().isEmpty()) {
+                        // 添加日志级别过滤（运行时字段只对缺少级别的原样接入文档求值）
+                        if (levelFiltered) {
                             b.filter(f -> f
-                                    .term(t -> t
-                                            .field("level.keyword")
-                                            .value(query.getLevel())
+                                    .bool(levelBool -> levelBool
+                                            .should(s -> s
+                                                    .term(t -> t
+                                                            .field("level.keyword")
+                                                            .value(query.getLevel())
+                                                    )
+                                            )
+                                            .should(s -> s
+                                                    .bool(rawBool -> rawBool
+                                                            .filter(rf -> rf.term(t -> t.field("raw").value(true)))
+                                                            .mustNot(mn -> mn.exists(e -> e.field("level")))
+                                                            .filter(rf -> rf.term(t -> t
+                                                                    .field(RAW_LEVEL_FIELD)
+                                                                    .value(query.getLevel().toUpperCase())))
+                                                    )
+                                            )
+                                            .minimumShouldMatch("1")
                                     )
                             );
                         }
@@ -138,6 +174,8 @@ public class ElasticsearchLogQueryService implements IElasticsearchLogQueryServi
             List<LogDocument> logs = new ArrayList<>();
             for (Hit<LogDocument> hit : response.hits().hits()) {
                 if (hit.source() != null) {
+                    // 原样接入的文档在读取时解析，只处理当前页
+                    rawDocumentReader.read(hit.source());
                     logs.add(hit.source());
                 }
             }
@@ -185,6 +223,7 @@ public class ElasticsearchLogQueryService implements IElasticsearchLogQueryServi
                     LogDocument.class
             );
 
+            rawDocumentReader.read(response.source());
             return response.source();
         } catch (Exception e) {
             log.error("通过ID获取日志异常: logId={}, error={}", logId, e.getMessage(), e);
@@ -211,7 +250,7 @@ public class ElasticsearchLogQueryService implements IElasticsearchLogQueryServi
         LocalDate current = start;
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.MM.dd");
         while (!current.isAfter(end)) {
-            indices.add(indexPrefix + "-" + current.format(formatter));
+            addDailyIndices(indices, current.format(formatter));
             current = current.plusDays(1);
         }
         // 返回逗号分隔的索引列表
@@ -230,12 +269,23 @@ public class ElasticsearchLogQueryService implements IElasticsearchLogQueryServi
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.MM.dd");
         for (int i = 0; i < days; i++) {
             LocalDate date = current.minusDays(i);
-            indices.add(indexPrefix + "-" + date.format(formatter));
+            addDailyIndices(indices, date.format(formatter));
         }
 
         return String.join(",", indices);
     }
 
+    /**
+     * 添加某一天的默认索引和路由规则指定的索引（如 logs-audit-2025.07.13）
+     *
+     * @param indices 索引列表
+     * @param date    格式化的日期
+     */
+    private void addDailyIndices(List<String> indices, String date) {
+        indices.add(indexPrefix + "-" + date);
+        indices.add(indexPrefix + "-*-" + date);
+    }
+
     /**
      * 增强关键词搜索功能，支持结构化数据字段查询
      *
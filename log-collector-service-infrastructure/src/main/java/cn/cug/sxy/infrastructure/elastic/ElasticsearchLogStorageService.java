@@ -4,11 +4,9 @@ import cn.cug.sxy.domain.reception.model.valobj.BatchId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchStatus;
 import cn.cug.sxy.domain.reception.model.valobj.RawLog;
 import cn.cug.sxy.domain.storage.model.entity.LogDocument;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import cn.cug.sxy.domain.storage.model.valobj.StorageLog;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.BulkRequest;
-import co.elastic.clients.elasticsearch.core.BulkResponse;
-import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -19,7 +17,8 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @version 1.0
@@ -34,54 +33,85 @@ public class ElasticsearchLogStorageService implements IElasticsearchLogStorageS
 
     private final ElasticsearchClient elasticsearchClient;
 
+    /**
+     * 跨批次bulk请求合并器
+     */
+    private final ElasticsearchBulkCoalescer bulkCoalescer;
+
+    /**
+     * 等待批量写入结果的超时时间（毫秒）
+     */
+    @Value("${elasticsearch.bulk.timeout-ms:60000}")
+    private long bulkTimeoutMs;
+
     @Value("${elasticsearch.index-prefix:logs}")
     private String indexPrefix;
 
-    public ElasticsearchLogStorageService(ElasticsearchClient elasticsearchClient) {
+    public ElasticsearchLogStorageService(
+            ElasticsearchClient elasticsearchClient,
+            ElasticsearchBulkCoalescer bulkCoalescer) {
         this.elasticsearchClient = elasticsearchClient;
+        this.bulkCoalescer = bulkCoalescer;
+    }
+
+    @Override
+    public String storeBatch(BatchId batchId, ColumnarLogBatch logs) {
+        return storeBatchAsync(batchId, logs).exceptionally(error -> null).join();
     }
 
     @Override
-    public String storeBatch(BatchId batchId, List<StorageLog> logs) {
+    public CompletableFuture<String> storeBatchAsync(BatchId batchId, ColumnarLogBatch logs) {
         try {
             // 获取当前日期的索引名，按日期分片
             String indexName = getIndexName();
-            // 创建批量请求构建器
-            BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
-            // 将每条日志添加到批量请求中
-            for (StorageLog log : logs) {
-                // 转换为ES文档模型
-                LogDocument document = convertToDocument(batchId, log);
-                // 添加到批量索引操作中
-                bulkBuilder.operations(op -> op
-                        .index(idx -> idx
-                                .index(indexName)
-                                .id(document.getId())
-                                .document(document)
-                        )
-                );
-            }
-            // 执行批量请求
-            BulkResponse response = elasticsearchClient.bulk(bulkBuilder.build());
-            // 检查批量操作结果
-            if (response.errors()) {
-                log.error("批量存储日志到ES时发生错误: batchId={}", batchId.getValue());
-                // 记录每个失败项的详细信息，便于排查
-                for (BulkResponseItem item : response.items()) {
-                    if (item.error() != null) {
-                        log.error("文档错误: {}", item.error().reason());
-                    }
-                }
-                return null;
+            // 路由规则指定的索引同样按日期分片
+            Map<String, String> routeIndices = new HashMap<>();
+            for (String route : logs.routeNames()) {
+                routeIndices.put(route, getIndexName(route));
             }
-            // 返回批次ID作为跟踪ID
-            return batchId.getValue();
+            // 列式批次直接提交到合并器，发送时按行序列化为ES文档（确定性文档ID，重试时已写入的文档不会重复），
+            // 与发往同一默认索引的其他批次合并为一个bulk请求发送；结果在bulk响应返回后由发送线程回调
+            return bulkCoalescer
+                    .submit(batchId, indexName, routeIndices, logs)
+                    .orTimeout(bulkTimeoutMs, TimeUnit.MILLISECONDS)
+                    .thenApply(result -> onBulkResult(batchId, result))
+                    .whenComplete((traceId, error) -> {
+                        if (error != null) {
+                            log.error("存储日志批次到ES异常: batchId={}, error={}",
+                                    batchId.getValue(), error.getMessage(), error);
+                        }
+                    });
         } catch (Exception e) {
-            // 捕获所有异常，确保上层调用不会因存储问题而中断
+            // 提交前的异常同样按存储不可用返回，确保上层调用不会因存储问题而中断
             log.error("存储日志批次到ES异常: batchId={}, error={}",
                     batchId.getValue(), e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 检查本批次的写入结果：文档ID由批次ID和日志在原始批次中的序号组成，
+     * 已存在说明同一条源日志已由之前的尝试写入，视为写入成功
+     *
+     * @return 批次跟踪ID，写入失败时为null
+     */
+    private String onBulkResult(BatchId batchId, ElasticsearchBulkCoalescer.BatchBulkResult result) {
+        if (result.isBackendFailure()) {
+            // 限流或节点错误，按存储不可用处理
+            throw new IllegalStateException("ES暂时无法写入: failed=" + result.getFailedCount()
+                    + ", unavailable=" + result.getUnavailableCount() + ", reason=" + result.getFirstError());
+        }
+        if (!result.isSuccess()) {
+            log.error("批量存储日志到ES时发生错误: batchId={}, failed={}, reason={}",
+                    batchId.getValue(), result.getFailedCount(), result.getFirstError());
             return null;
         }
+        if (result.getExistedCount() > 0) {
+            log.info("批次部分文档已存在，按幂等写入处理: batchId={}, existed={}",
+                    batchId.getValue(), result.getExistedCount());
+        }
+        // 返回批次ID作为跟踪ID
+        return batchId.getValue();
     }
 
     @Override
@@ -118,7 +148,7 @@ public class ElasticsearchLogStorageService implements IElasticsearchLogStorageS
             // 获取当前索引名
             String indexName = getIndexName();
             // 为单条日志生成新的批次ID和文档
-            LogDocument document = convertToDocument(BatchId.generate(), storageLog);
+            LogDocument document = convertToDocument(BatchId.generate(), 0, storageLog);
             // 执行索引操作
             var response = elasticsearchClient.index(i -> i
                     .index(indexName)
@@ -150,18 +180,42 @@ public class ElasticsearchLogStorageService implements IElasticsearchLogStorageS
         return indexPrefix + "-" + LocalDate.now().format(formatter);
     }
 
+    /**
+     * 获取路由规则指定的当前日期的索引名称
+     * 与默认索引使用相同前缀，按索引前缀查询时同样可以检索到
+     *
+     * @param route 索引名后缀
+     * @return 格式化的索引名称，如 logs-audit-2025.07.13
+     */
+    private String getIndexName(String route) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+        return indexPrefix + "-" + route + "-" + LocalDate.now().format(formatter);
+    }
+
+    /**
+     * 生成文档ID
+     *
+     * @param batchId 批次ID
+     * @param seq     日志在原始批次中的序号（校验和路由过滤前的位置）
+     * @return 文档ID
+     */
+    private String documentId(BatchId batchId, int seq) {
+        return batchId.getValue() + "-" + seq;
+    }
+
     /**
      * 将存储日志转换为Elasticsearch文档
      * 提取元数据，构建完整的文档模型
      *
      * @param batchId    批次ID
+     * @param seq        日志在原始批次中的序号（校验和路由过滤前的位置）
      * @param storageLog 存储日志对象
      * @return 转换后的ES文档对象
      */
-    private LogDocument convertToDocument(BatchId batchId, StorageLog storageLog) {
+    private LogDocument convertToDocument(BatchId batchId, int seq, StorageLog storageLog) {
         LogDocument document = new LogDocument();
-        // 生成唯一文档ID
-        document.setId(UUID.randomUUID().toString());
+        // 生成确定性文档ID：批次ID + 批次内序号，同一批次重试时ID不变
+        document.setId(documentId(batchId, seq));
         document.setBatchId(batchId.getValue());
         // 从元数据中提取字段信息
         Map<String, String> metadata = storageLog.getMetadata();
@@ -171,12 +225,7 @@ public class ElasticsearchLogStorageService implements IElasticsearchLogStorageS
         document.setContent(storageLog.getContent());
         document.setFormat(metadata.getOrDefault("format", "unknown"));
         document.setSourceId(metadata.getOrDefault("sourceId", "unknown"));
-        // 解析时间戳，默认当前时间
-        try {
-            document.setTimestamp(Long.parseLong(metadata.getOrDefault("timestamp", "0")));
-        } catch (NumberFormatException e) {
-            document.setTimestamp(System.currentTimeMillis());
-        }
+        document.setTimestamp(storageLog.getTimestamp());
         // 解析标签字符串为Map结构
         String tagsStr = metadata.getOrDefault("tags", "");
         Map<String, String> tags = new HashMap<>();
@@ -197,6 +246,9 @@ public class ElasticsearchLogStorageService implements IElasticsearchLogStorageS
         document.setLevel(metadata.getOrDefault("level", "INFO"));
         // 设置结构化数据
         document.setStructuredData(storageLog.getStructuredFields());
+        // 设置日志模板
+        document.setTemplateId(storageLog.getTemplateId());
+        document.setTemplateParams(storageLog.getTemplateParams());
         // 记录索引时间，用于区分生成时间和处理时间
         document.setIndexTime(Instant.now());
         // 将结构化数据值合并为一个可搜索的文本
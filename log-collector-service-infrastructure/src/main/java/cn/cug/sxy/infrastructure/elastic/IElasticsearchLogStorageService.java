@@ -3,9 +3,11 @@ package cn.cug.sxy.infrastructure.elastic;
 import cn.cug.sxy.domain.reception.model.valobj.BatchId;
 import cn.cug.sxy.domain.reception.model.valobj.BatchStatus;
 import cn.cug.sxy.domain.reception.model.valobj.RawLog;
+import cn.cug.sxy.domain.storage.model.valobj.ColumnarLogBatch;
 import cn.cug.sxy.domain.storage.model.valobj.StorageLog;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @version 1.0
@@ -20,10 +22,19 @@ public interface IElasticsearchLogStorageService {
      * 存储日志批次
      *
      * @param batchId 批次ID
-     * @param logs    日志列表
+     * @param logs    列式日志批次
      * @return 批次跟踪ID
      */
-    String storeBatch(BatchId batchId, List<StorageLog> logs);
+    String storeBatch(BatchId batchId, ColumnarLogBatch logs);
+
+    /**
+     * 异步存储日志批次（提交到bulk合并器后立即返回，不占用调用线程等待合并发送）
+     *
+     * @param batchId 批次ID
+     * @param logs    列式日志批次
+     * @return 批次跟踪ID；文档数据错误导致失败时为null，传输异常、超时或ES返回429/5xx时异常完成
+     */
+    CompletableFuture<String> storeBatchAsync(BatchId batchId, ColumnarLogBatch logs);
 
     /**
      * 确认批次是否已存储
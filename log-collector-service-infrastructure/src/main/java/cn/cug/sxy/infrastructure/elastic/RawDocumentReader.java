@@ -0,0 +1,119 @@
+package cn.cug.sxy.infrastructure.elastic;
+
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.storage.model.entity.LogDocument;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/30 15:10
+ * @Description 原样接入文档的读时解析（只解析查询返回的文档：JSON内容展开为结构化字段，
+ * 缺失的级别优先取JSON中的级别字段，否则按与查询时运行时字段脚本相同的规则从内容开头识别）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+public class RawDocumentReader {
+
+    /**
+     * 运行时字段和读时解析识别的级别关键字
+     */
+    static final String[] LEVEL_KEYWORDS = {"TRACE", "DEBUG", "INFO", "WARN", "ERROR", "FATAL"};
+
+    /**
+     * 只在内容开头的若干字符中查找级别，避免长内容中的偶然匹配和全量扫描
+     */
+    static final int LEVEL_SCAN_LENGTH = 256;
+
+    /**
+     * 运行时字段脚本：在内容开头查找最先出现的级别关键字
+     */
+    static final String LEVEL_SCRIPT = ""
+            + "def c = params['_source']['content'];"
+            + "if (c == null) { return; }"
+            + "String head = (c.length() > params.scan ? c.substring(0, params.scan) : c).toUpperCase();"
+            + "String found = null; int best = Integer.MAX_VALUE;"
+            + "for (String l : params.levels) { int i = head.indexOf(l); if (i >= 0 && i < best) { best = i; found = l; } }"
+            + "if (found != null) { emit(found); }";
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 解析原样接入的文档，非原样接入的文档原样返回
+     *
+     * @param document 查询返回的文档
+     */
+    public void read(LogDocument document) {
+        if (document == null || !Boolean.TRUE.equals(document.getRaw())) {
+            return;
+        }
+        String content = document.getContent();
+        if (content == null) {
+            return;
+        }
+        Map<String, Object> fields = parseJson(content);
+        if (fields != null) {
+            document.setStructuredData(fields);
+        }
+        if (document.getLevel() == null) {
+            LogLevel level = fields != null ? levelOf(fields) : null;
+            document.setLevel(level != null ? level.name() : scanLevel(content));
+        }
+    }
+
+    /**
+     * 在内容开头查找最先出现的级别关键字
+     */
+    static String scanLevel(String content) {
+        String head = (content.length() > LEVEL_SCAN_LENGTH ? content.substring(0, LEVEL_SCAN_LENGTH) : content)
+                .toUpperCase(Locale.ROOT);
+        String found = null;
+        int best = Integer.MAX_VALUE;
+        for (String level : LEVEL_KEYWORDS) {
+            int index = head.indexOf(level);
+            if (index >= 0 && index < best) {
+                best = index;
+                found = level;
+            }
+        }
+        return found;
+    }
+
+    private Map<String, Object> parseJson(String content) {
+        int start = 0;
+        while (start < content.length() && Character.isWhitespace(content.charAt(start))) {
+            start++;
+        }
+        if (start >= content.length() || content.charAt(start) != '{') {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(content, MAP_TYPE);
+        } catch (Exception e) {
+            log.debug("原样接入内容不是有效的JSON对象: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static LogLevel levelOf(Map<String, Object> fields) {
+        for (String key : new String[]{"level", "severity", "log.level", "loglevel"}) {
+            Object value = fields.get(key);
+            if (value instanceof String) {
+                LogLevel level = LogLevel.parse((String) value);
+                if (level != null) {
+                    return level;
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,466 @@
+package cn.cug.sxy.infrastructure.ledger;
+
+import cn.cug.sxy.infrastructure.dao.ILogBatchDao;
+import cn.cug.sxy.infrastructure.dao.po.LogBatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/21 15:40
+ * @Description 批次状态账本（批次状态变更先记录在内存中并按批次合并，定时以多行upsert批量写回数据库，读取优先命中账本；
+ * 条目数有上限，达到上限时由写入方同步刷写等待空位，反复写回失败的行按退避重试，超过次数后移出账本并记录日志）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@Component
+public class LogBatchStatusLedger implements InitializingBean, DisposableBean {
+
+    private static final String STATUS_PROCESSED = "PROCESSED";
+    private static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 账本条目
+     * key: batchId
+     */
+    private final Map<String, LedgerEntry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 定时刷写执行器
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "batch-ledger-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ILogBatchDao logBatchDao;
+
+    /**
+     * 刷写间隔（毫秒）
+     */
+    @Value("${log-center.reception.ledger.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    /**
+     * 单条upsert语句最大行数
+     */
+    @Value("${log-center.reception.ledger.max-rows-per-statement:500}")
+    private int maxRowsPerStatement;
+
+    /**
+     * 已写回的非终态条目保留时间（毫秒），保留期内读取仍由账本提供
+     */
+    @Value("${log-center.reception.ledger.retention-ms:300000}")
+    private long retentionMs;
+
+    /**
+     * 账本最大条目数
+     */
+    @Value("${log-center.reception.ledger.max-entries:100000}")
+    private int maxEntries;
+
+    /**
+     * 账本已满时写入方等待空位的最长时间（毫秒）
+     */
+    @Value("${log-center.reception.ledger.admission-timeout-ms:5000}")
+    private long admissionTimeoutMs;
+
+    /**
+     * 单行最大写回重试次数，超过后移出账本
+     */
+    @Value("${log-center.reception.ledger.max-row-retries:10}")
+    private int maxRowRetries;
+
+    /**
+     * 单行重试退避上限（毫秒）
+     */
+    @Value("${log-center.reception.ledger.max-retry-backoff-ms:30000}")
+    private long maxRetryBackoffMs;
+
+    // 刷写统计
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushStatements = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong parkedRows = new AtomicLong();
+    private final AtomicLong admissionWaits = new AtomicLong();
+
+    /**
+     * 关闭中，最后一次刷写忽略退避时间
+     */
+    private volatile boolean closing;
+
+    public LogBatchStatusLedger(ILogBatchDao logBatchDao) {
+        this.logBatchDao = logBatchDao;
+    }
+
+    /**
+     * 记录完整批次（新建或覆盖）
+     *
+     * @param logBatch 批次持久层对象
+     */
+    public void record(LogBatch logBatch) {
+        LogBatch row = copyOf(logBatch);
+        if (!entries.containsKey(row.getBatchId())) {
+            awaitCapacity();
+        }
+        entries.compute(row.getBatchId(), (k, current) ->
+                current == null ? new LedgerEntry(row, 1, true) : current.next(row));
+    }
+
+    /**
+     * 在账本中变更批次，账本中不存在时先从数据库加载
+     * <p>
+     * 数据库加载在 compute 之外完成，不在持有映射桶锁时访问数据库；加载后以 putIfAbsent 放入，
+     * 期间被并发放入或淘汰时重新读取账本再变更，变更不会丢失
+     *
+     * @param batchId  批次ID
+     * @param mutation 变更操作
+     * @return 批次是否存在
+     */
+    public boolean update(String batchId, Consumer<LogBatch> mutation) {
+        while (true) {
+            LedgerEntry updated = entries.computeIfPresent(batchId, (k, current) -> {
+                LogBatch row = copyOf(current.row);
+                mutation.accept(row);
+                return current.next(row);
+            });
+            if (updated != null) {
+                return true;
+            }
+            LogBatch base = logBatchDao.selectById(batchId);
+            if (base == null) {
+                log.warn("批次状态账本更新失败: 批次不存在, batchId={}", batchId);
+                return false;
+            }
+            LogBatch row = copyOf(base);
+            mutation.accept(row);
+            awaitCapacity();
+            if (entries.putIfAbsent(batchId, new LedgerEntry(row, 1, true)) == null) {
+                return true;
+            }
+            // 加载期间其他线程已放入条目，基于账本中的条目重新变更
+        }
+    }
+
+    /**
+     * 从账本读取批次
+     *
+     * @param batchId 批次ID
+     * @return 批次副本，账本中不存在时返回空
+     */
+    public Optional<LogBatch> get(String batchId) {
+        LedgerEntry entry = entries.get(batchId);
+        return entry == null ? Optional.empty() : Optional.of(copyOf(entry.row));
+    }
+
+    /**
+     * 读取批次，优先从账本读取（包含尚未写回数据库的变更），账本中不存在时查询数据库
+     *
+     * @param batchId 批次ID
+     * @return 批次，不存在时返回null
+     */
+    public LogBatch load(String batchId) {
+        return get(batchId).orElseGet(() -> logBatchDao.selectById(batchId));
+    }
+
+    /**
+     * 将所有未写回的变更刷写到数据库
+     */
+    public void flush() {
+        flush(false);
+    }
+
+    /**
+     * 将到期的未写回变更刷写到数据库并淘汰条目
+     *
+     * @param reclaim 是否同时淘汰保留期内已写回的条目（账本已满时回收空间）
+     */
+    private synchronized void flush(boolean reclaim) {
+        try {
+            long now = System.currentTimeMillis();
+            List<LedgerEntry> dirtyEntries = new ArrayList<>();
+            for (LedgerEntry entry : entries.values()) {
+                if (entry.dirty && (closing || entry.nextAttemptAt <= now)) {
+                    dirtyEntries.add(entry);
+                }
+            }
+            for (int from = 0; from < dirtyEntries.size(); from += maxRowsPerStatement) {
+                List<LedgerEntry> chunk = dirtyEntries.subList(from, Math.min(from + maxRowsPerStatement, dirtyEntries.size()));
+                writeChunk(chunk);
+            }
+            evictFlushedEntries(reclaim);
+        } catch (Exception e) {
+            log.error("批次状态账本刷写异常", e);
+        }
+    }
+
+    /**
+     * 获取未写回的条目数量
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (LedgerEntry entry : entries.values()) {
+            if (entry.dirty) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getFlushedRowCount() {
+        return flushedRows.get();
+    }
+
+    public long getFlushStatementCount() {
+        return flushStatements.get();
+    }
+
+    public long getFlushFailureCount() {
+        return flushFailures.get();
+    }
+
+    public long getParkedRowCount() {
+        return parkedRows.get();
+    }
+
+    public long getAdmissionWaitCount() {
+        return admissionWaits.get();
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler.scheduleWithFixedDelay(
+                this::flush,
+                flushIntervalMs,
+                flushIntervalMs,
+                TimeUnit.MILLISECONDS);
+
+        log.info("批次状态账本已启动, 刷写间隔: {}ms, 单语句最大行数: {}, 最大条目数: {}, 单行最大重试次数: {}",
+                flushIntervalMs, maxRowsPerStatement, maxEntries, maxRowRetries);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // 关闭前写回剩余变更
+        closing = true;
+        flush();
+        log.info("批次状态账本已关闭, 剩余未写回条目: {}", getPendingCount());
+    }
+
+    /**
+     * 账本已满时由写入方同步刷写并回收已写回的条目，直到有空位或等待超时
+     * <p>
+     * 写入速度超过数据库写回速度时，写入方在此等待，压力传递到上游而不是让账本无限增长
+     */
+    private void awaitCapacity() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        admissionWaits.incrementAndGet();
+        long deadline = System.currentTimeMillis() + admissionTimeoutMs;
+        while (true) {
+            flush(true);
+            if (entries.size() < maxEntries) {
+                return;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IllegalStateException("批次状态账本已满: entries=" + entries.size()
+                        + ", pending=" + getPendingCount());
+            }
+            try {
+                Thread.sleep(Math.min(flushIntervalMs, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待批次状态账本空位时被中断", e);
+            }
+        }
+    }
+
+    /**
+     * 写回一组条目，整组失败时逐行重试，单行失败的条目按退避时间等待下次刷写，超过重试次数后移出账本
+     */
+    private void writeChunk(List<LedgerEntry> chunk) {
+        List<LogBatch> rows = new ArrayList<>(chunk.size());
+        for (LedgerEntry entry : chunk) {
+            rows.add(entry.row);
+        }
+        try {
+            flushStatements.incrementAndGet();
+            logBatchDao.upsertBatch(rows);
+            flushedRows.addAndGet(rows.size());
+            for (LedgerEntry entry : chunk) {
+                markClean(entry);
+            }
+        } catch (Exception e) {
+            log.warn("批次状态批量写回失败，改为逐行写回: rows={}, error={}", rows.size(), e.getMessage());
+            for (LedgerEntry entry : chunk) {
+                try {
+                    flushStatements.incrementAndGet();
+                    logBatchDao.upsertBatch(List.of(entry.row));
+                    flushedRows.incrementAndGet();
+                    markClean(entry);
+                } catch (Exception rowException) {
+                    flushFailures.incrementAndGet();
+                    markFailed(entry, rowException);
+                }
+            }
+        }
+    }
+
+    /**
+     * 标记条目已写回（写回期间条目若又被修改，则保持未写回状态）
+     */
+    private void markClean(LedgerEntry flushed) {
+        entries.computeIfPresent(flushed.row.getBatchId(), (k, current) ->
+                current.version == flushed.version ? new LedgerEntry(current.row, current.version, false) : current);
+    }
+
+    /**
+     * 记录单行写回失败，按失败次数指数退避；超过最大重试次数的行移出账本，完整内容记录到错误日志
+     * <p>
+     * 写回期间条目又被修改时只累计失败次数，新版本仍在下次刷写时写回
+     */
+    private void markFailed(LedgerEntry failed, Exception error) {
+        String batchId = failed.row.getBatchId();
+        LedgerEntry result = entries.computeIfPresent(batchId, (k, current) -> {
+            int failures = current.failures + 1;
+            if (failures > maxRowRetries) {
+                return null;
+            }
+            long backoff = Math.min(maxRetryBackoffMs, flushIntervalMs << Math.min(failures, 20));
+            return current.failed(failures, System.currentTimeMillis() + backoff);
+        });
+        if (result == null) {
+            parkedRows.incrementAndGet();
+            log.error("批次状态写回失败次数超过上限，移出账本: batchId={}, appId={}, endpointId={}, status={}, retryCount={}, batchTraceId={}, error={}",
+                    batchId, failed.row.getAppId(), failed.row.getEndpointId(), failed.row.getStatus(),
+                    failed.row.getRetryCount(), failed.row.getBatchTraceId(), error.getMessage());
+        } else {
+            log.warn("批次状态写回失败: batchId={}, failures={}, error={}", batchId, result.failures, error.getMessage());
+        }
+    }
+
+    /**
+     * 移除已写回的终态条目和超过保留时间的条目
+     * <p>
+     * 逐个在 computeIfPresent 中重新判断，判断后被并发变更的条目不会被移除
+     *
+     * @param reclaim 是否移除所有已写回的条目
+     */
+    private void evictFlushedEntries(boolean reclaim) {
+        long now = System.currentTimeMillis();
+        for (String batchId : entries.keySet()) {
+            entries.computeIfPresent(batchId, (k, current) -> isEvictable(current, now, reclaim) ? null : current);
+        }
+    }
+
+    private boolean isEvictable(LedgerEntry entry, long now, boolean reclaim) {
+        if (entry.dirty) {
+            return false;
+        }
+        String status = entry.row.getStatus();
+        return reclaim || STATUS_PROCESSED.equals(status) || STATUS_FAILED.equals(status)
+                || now - entry.touchedAt > retentionMs;
+    }
+
+    private static LogBatch copyOf(LogBatch source) {
+        LogBatch copy = new LogBatch();
+        copy.setId(source.getId());
+        copy.setBatchId(source.getBatchId());
+        copy.setAppId(source.getAppId());
+        copy.setEndpointId(source.getEndpointId());
+        copy.setStatus(source.getStatus());
+        copy.setErrorMessage(source.getErrorMessage());
+        copy.setBatchTraceId(source.getBatchTraceId());
+        copy.setConfirmed(source.isConfirmed());
+        copy.setLogCount(source.getLogCount());
+        copy.setPayloadSize(source.getPayloadSize());
+        copy.setRetryCount(source.getRetryCount());
+        copy.setPriority(source.getPriority());
+        copy.setReceivedTime(source.getReceivedTime());
+        copy.setProcessedTime(source.getProcessedTime());
+        copy.setLastProcessTime(source.getLastProcessTime());
+        copy.setFormat(source.getFormat());
+        copy.setSource(source.getSource());
+        copy.setSourceIp(source.getSourceIp());
+        copy.setStorageIndex(source.getStorageIndex());
+        copy.setStorageType(source.getStorageType());
+        copy.setStoragePath(source.getStoragePath());
+        copy.setCreatedTime(source.getCreatedTime());
+        copy.setUpdatedTime(source.getUpdatedTime());
+        return copy;
+    }
+
+    /**
+     * 账本条目（不可变，每次变更替换为新条目）
+     */
+    private static class LedgerEntry {
+        private final LogBatch row;
+        private final long version;
+        private final boolean dirty;
+        private final long touchedAt;
+        /**
+         * 连续写回失败次数
+         */
+        private final int failures;
+        /**
+         * 下次允许写回的时间
+         */
+        private final long nextAttemptAt;
+
+        LedgerEntry(LogBatch row, long version, boolean dirty) {
+            this(row, version, dirty, 0, 0L);
+        }
+
+        private LedgerEntry(LogBatch row, long version, boolean dirty, int failures, long nextAttemptAt) {
+            this.row = row;
+            this.version = version;
+            this.dirty = dirty;
+            this.touchedAt = System.currentTimeMillis();
+            this.failures = failures;
+            this.nextAttemptAt = nextAttemptAt;
+        }
+
+        /**
+         * 变更后的新版本，保留失败次数和退避时间
+         */
+        LedgerEntry next(LogBatch changed) {
+            return new LedgerEntry(changed, version + 1, true, failures, nextAttemptAt);
+        }
+
+        LedgerEntry failed(int failureCount, long retryAt) {
+            return new LedgerEntry(row, version, dirty, failureCount, retryAt);
+        }
+    }
+
+}
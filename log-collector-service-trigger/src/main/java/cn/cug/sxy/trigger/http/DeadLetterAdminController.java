@@ -0,0 +1,239 @@
+package cn.cug.sxy.trigger.http;
+
+import cn.cug.sxy.api.IDeadLetterAdminService;
+import cn.cug.sxy.api.common.ApiConstants;
+import cn.cug.sxy.api.dto.DeadLetterQueryRequestDTO;
+import cn.cug.sxy.api.dto.DeadLetterQueryResponseDTO;
+import cn.cug.sxy.api.dto.DeadLetterReplayRequestDTO;
+import cn.cug.sxy.api.dto.DeadLetterReplayResponseDTO;
+import cn.cug.sxy.api.response.Response;
+import cn.cug.sxy.domain.reception.model.entity.DeadLetterEntity;
+import cn.cug.sxy.domain.reception.model.valobj.BatchId;
+import cn.cug.sxy.domain.reception.model.valobj.DeadLetterQuery;
+import cn.cug.sxy.domain.reception.service.deadletter.DeadLetterReplayTask;
+import cn.cug.sxy.domain.reception.service.deadletter.IDeadLetterService;
+import cn.cug.sxy.types.enums.ResponseCode;
+import cn.cug.sxy.types.exception.AppException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/23 14:30
+ * @Description 死信管理接口（位于认证路径下，查询、重放和删除都限定在认证通过的应用范围内，
+ * 请求体中的应用ID只能与认证应用一致）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@RestController
+@CrossOrigin("*")
+@RequestMapping("/api/v1/admin/dead_letter/")
+public class DeadLetterAdminController implements IDeadLetterAdminService {
+
+    private final IDeadLetterService deadLetterService;
+
+    public DeadLetterAdminController(IDeadLetterService deadLetterService) {
+        this.deadLetterService = deadLetterService;
+    }
+
+    @RequestMapping(value = "query", method = RequestMethod.POST)
+    @Override
+    public Response<DeadLetterQueryResponseDTO> queryDeadLetters(HttpServletRequest request,
+                                                                 @RequestBody DeadLetterQueryRequestDTO requestDTO) {
+        try {
+            log.info("查询死信开始 requestDTO:{}", requestDTO);
+            DeadLetterQuery query = buildQuery(authenticatedAppId(request, requestDTO.getAppId()), requestDTO);
+            List<DeadLetterEntity> deadLetters = deadLetterService.query(query);
+            DeadLetterQueryResponseDTO data = DeadLetterQueryResponseDTO.builder()
+                    .total(deadLetterService.count(query))
+                    .deadLetters(deadLetters.stream()
+                            .map(deadLetter -> DeadLetterQueryResponseDTO.DeadLetter.builder()
+                                    .batchId(deadLetter.getBatchId().getValue())
+                                    .appId(deadLetter.getAppId())
+                                    .endpointId(deadLetter.getEndpointId())
+                                    .logCount(deadLetter.getLogCount())
+                                    .failureReason(deadLetter.getFailureReason())
+                                    .retryCount(deadLetter.getRetryCount())
+                                    .receivedTime(toEpochMilli(deadLetter.getReceivedTime()))
+                                    .failedTime(toEpochMilli(deadLetter.getFailedTime()))
+                                    .replayCount(deadLetter.getReplayCount())
+                                    .lastReplayTime(toEpochMilli(deadLetter.getLastReplayTime()))
+                                    .build()).collect(Collectors.toList()))
+                    .build();
+
+            return Response.<DeadLetterQueryResponseDTO>builder()
+                    .code(ResponseCode.SUCCESS.getCode())
+                    .info(ResponseCode.SUCCESS.getInfo())
+                    .data(data)
+                    .build();
+        } catch (AppException e) {
+            log.error("查询死信失败 requestDTO:{}", requestDTO, e);
+
+            return Response.<DeadLetterQueryResponseDTO>builder()
+                    .code(e.getCode())
+                    .info(e.getInfo())
+                    .build();
+        } catch (Exception e) {
+            log.error("查询死信异常", e);
+
+            return Response.<DeadLetterQueryResponseDTO>builder()
+                    .code(ResponseCode.UN_ERROR.getCode())
+                    .info(ResponseCode.UN_ERROR.getInfo())
+                    .build();
+        }
+    }
+
+    @RequestMapping(value = "replay", method = RequestMethod.POST)
+    @Override
+    public Response<DeadLetterReplayResponseDTO> replayDeadLetters(HttpServletRequest request,
+                                                                   @RequestBody DeadLetterReplayRequestDTO requestDTO) {
+        try {
+            log.info("重放死信开始 requestDTO:{}", requestDTO);
+            String appId = authenticatedAppId(request, requestDTO.getAppId());
+            double ratePerSecond = requestDTO.getRatePerSecond() != null ? requestDTO.getRatePerSecond() : 0;
+            DeadLetterReplayTask task = deadLetterService.replay(buildQuery(appId, requestDTO), ratePerSecond);
+
+            return Response.<DeadLetterReplayResponseDTO>builder()
+                    .code(ResponseCode.SUCCESS.getCode())
+                    .info(ResponseCode.SUCCESS.getInfo())
+                    .data(buildReplayResponse(task))
+                    .build();
+        } catch (AppException e) {
+            log.error("重放死信失败 requestDTO:{}", requestDTO, e);
+
+            return Response.<DeadLetterReplayResponseDTO>builder()
+                    .code(e.getCode())
+                    .info(e.getInfo())
+                    .build();
+        } catch (Exception e) {
+            log.error("重放死信异常", e);
+
+            return Response.<DeadLetterReplayResponseDTO>builder()
+                    .code(ResponseCode.UN_ERROR.getCode())
+                    .info(ResponseCode.UN_ERROR.getInfo())
+                    .build();
+        }
+    }
+
+    @RequestMapping(value = "replay_task", method = RequestMethod.GET)
+    @Override
+    public Response<DeadLetterReplayResponseDTO> queryReplayTask(HttpServletRequest request, @RequestParam String taskId) {
+        try {
+            DeadLetterReplayTask task = deadLetterService.getReplayTask(taskId, authenticatedAppId(request, null))
+                    .orElseThrow(() -> new AppException(ResponseCode.REPLAY_TASK_NOT_FOUND));
+
+            return Response.<DeadLetterReplayResponseDTO>builder()
+                    .code(ResponseCode.SUCCESS.getCode())
+                    .info(ResponseCode.SUCCESS.getInfo())
+                    .data(buildReplayResponse(task))
+                    .build();
+        } catch (AppException e) {
+            log.error("查询重放任务失败 taskId:{}", taskId, e);
+
+            return Response.<DeadLetterReplayResponseDTO>builder()
+                    .code(e.getCode())
+                    .info(e.getInfo())
+                    .build();
+        } catch (Exception e) {
+            log.error("查询重放任务异常 taskId:{}", taskId, e);
+
+            return Response.<DeadLetterReplayResponseDTO>builder()
+                    .code(ResponseCode.UN_ERROR.getCode())
+                    .info(ResponseCode.UN_ERROR.getInfo())
+                    .build();
+        }
+    }
+
+    @RequestMapping(value = "delete", method = RequestMethod.POST)
+    @Override
+    public Response<Boolean> deleteDeadLetter(HttpServletRequest request, @RequestParam String batchId) {
+        try {
+            log.info("删除死信 batchId:{}", batchId);
+            if (StringUtils.isBlank(batchId)) {
+                throw new AppException(ResponseCode.ILLEGAL_PARAMETER);
+            }
+            // 其他应用的死信按不存在处理，不暴露批次是否存在
+            if (!deadLetterService.delete(new BatchId(batchId), authenticatedAppId(request, null))) {
+                throw new AppException(ResponseCode.DEAD_LETTER_NOT_FOUND);
+            }
+
+            return Response.<Boolean>builder()
+                    .code(ResponseCode.SUCCESS.getCode())
+                    .info(ResponseCode.SUCCESS.getInfo())
+                    .data(true)
+                    .build();
+        } catch (AppException e) {
+            log.error("删除死信失败 batchId:{}", batchId, e);
+
+            return Response.<Boolean>builder()
+                    .code(e.getCode())
+                    .info(e.getInfo())
+                    .build();
+        } catch (Exception e) {
+            log.error("删除死信异常 batchId:{}", batchId, e);
+
+            return Response.<Boolean>builder()
+                    .code(ResponseCode.UN_ERROR.getCode())
+                    .info(ResponseCode.UN_ERROR.getInfo())
+                    .build();
+        }
+    }
+
+    /**
+     * 获取认证通过的应用ID，请求中指定了其他应用时拒绝
+     *
+     * @param request        HTTP请求
+     * @param requestedAppId 请求中指定的应用ID，可为空
+     * @return 认证通过的应用ID
+     */
+    private String authenticatedAppId(HttpServletRequest request, String requestedAppId) {
+        String appId = (String) request.getAttribute(ApiConstants.ATTR_APP_ID);
+        if (appId == null) {
+            throw new AppException(ResponseCode.APP_SCOPE_DENIED);
+        }
+        String requested = StringUtils.trimToNull(requestedAppId);
+        if (requested != null && !requested.equals(appId)) {
+            throw new AppException(ResponseCode.APP_SCOPE_DENIED);
+        }
+        return appId;
+    }
+
+    private DeadLetterQuery buildQuery(String appId, DeadLetterQueryRequestDTO requestDTO) {
+        DeadLetterQuery.DeadLetterQueryBuilder builder = DeadLetterQuery.builder()
+                .appId(appId)
+                .endpointId(StringUtils.trimToNull(requestDTO.getEndpointId()))
+                .batchIds(requestDTO.getBatchIds())
+                .reasonKeyword(StringUtils.trimToNull(requestDTO.getReasonKeyword()))
+                .failedAfter(requestDTO.getFailedAfter() != null ? Instant.ofEpochMilli(requestDTO.getFailedAfter()) : null)
+                .failedBefore(requestDTO.getFailedBefore() != null ? Instant.ofEpochMilli(requestDTO.getFailedBefore()) : null);
+        if (requestDTO.getLimit() != null && requestDTO.getLimit() > 0) {
+            builder.limit(requestDTO.getLimit());
+        }
+        return builder.build();
+    }
+
+    private DeadLetterReplayResponseDTO buildReplayResponse(DeadLetterReplayTask task) {
+        return DeadLetterReplayResponseDTO.builder()
+                .taskId(task.getTaskId())
+                .status(task.getStatus())
+                .total(task.getTotal())
+                .submitted(task.getSubmitted().get())
+                .skipped(task.getSkipped().get())
+                .ratePerSecond(task.getRatePerSecond())
+                .createTime(toEpochMilli(task.getCreateTime()))
+                .finishTime(toEpochMilli(task.getFinishTime()))
+                .build();
+    }
+
+    private Long toEpochMilli(Instant instant) {
+        return instant != null ? instant.toEpochMilli() : null;
+    }
+
+}
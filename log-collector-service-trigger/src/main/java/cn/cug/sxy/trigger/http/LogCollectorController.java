@@ -4,7 +4,9 @@ import cn.cug.sxy.api.ILogCollectorService;
 import cn.cug.sxy.api.common.ApiConstants;
 import cn.cug.sxy.api.dto.*;
 import cn.cug.sxy.api.response.Response;
+import cn.cug.sxy.domain.reception.model.valobj.LogAttributes;
 import cn.cug.sxy.domain.reception.model.valobj.LogFormat;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
 import cn.cug.sxy.domain.reception.model.valobj.RawLog;
 import cn.cug.sxy.domain.reception.model.valobj.ReceptionResult;
 import cn.cug.sxy.domain.reception.service.ILogReceptionService;
@@ -76,7 +78,8 @@ public class LogCollectorController implements ILogCollectorService {
                     sourceId,
                     logFormat,
                     timestamp,
-                    buildMetadata(httpServletRequest, requestDTO)
+                    buildAttributes(httpServletRequest, requestDTO),
+                    buildMetadata(requestDTO)
             );
             // 调用领域服务处理日志
             ReceptionResult result = logReceptionService.receiveLog(rawLog, appId, endpointId);
@@ -184,27 +187,24 @@ public class LogCollectorController implements ILogCollectorService {
     }
 
     /**
-     * 构建日志元数据
+     * 构建日志核心属性（在接入处解析一次，下游直接使用类型化字段）
      */
-    private Map<String, String> buildMetadata(HttpServletRequest request, LogReceiveRequestDTO requestDTO) {
+    private LogAttributes buildAttributes(HttpServletRequest request, LogReceiveRequestDTO requestDTO) {
+        return new LogAttributes(
+                LogLevel.parse(StringUtils.trimToNull(requestDTO.getLevel())),
+                StringUtils.trimToNull(requestDTO.getSource()),
+                StringUtils.trimToNull(requestDTO.getHostname()),
+                (String) request.getAttribute(ApiConstants.HEADER_CLIENT_IP),
+                System.currentTimeMillis(),
+                LogAttributes.parseTags(requestDTO.getTags())
+        );
+    }
+
+    /**
+     * 构建日志元数据（只包含自由格式的字段，核心属性见buildAttributes）
+     */
+    private Map<String, String> buildMetadata(LogReceiveRequestDTO requestDTO) {
         Map<String, String> metadata = new HashMap<>();
-        if (StringUtils.isNoneBlank(requestDTO.getTags())) {
-            metadata.put("tags", requestDTO.getTags());
-        }
-        if (StringUtils.isNoneBlank(requestDTO.getSource())) {
-            metadata.put("source", requestDTO.getSource());
-        }
-        if (StringUtils.isNoneBlank(requestDTO.getHostname())) {
-            metadata.put("hostname", requestDTO.getHostname());
-        }
-        if (StringUtils.isNoneBlank(requestDTO.getLevel())) {
-            metadata.put("level", requestDTO.getLevel());
-        }
-        // 添加时间戳
-        metadata.put("timestamp", String.valueOf(System.currentTimeMillis()));
-        // 添加客户端IP
-        String clientIp = (String) request.getAttribute(ApiConstants.HEADER_CLIENT_IP);
-        metadata.put("clientIp", clientIp);
         // 添加原始日志结构化数据
         if (requestDTO.getStructuredData() != null) {
             for (Map.Entry<String, Object> entry : requestDTO.getStructuredData().entrySet()) {
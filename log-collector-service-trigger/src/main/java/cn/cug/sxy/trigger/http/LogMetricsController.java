@@ -0,0 +1,280 @@
+package cn.cug.sxy.trigger.http;
+
+import cn.cug.sxy.api.ILogMetricsService;
+import cn.cug.sxy.api.common.ApiConstants;
+import cn.cug.sxy.api.dto.LogMetricsQueryRequestDTO;
+import cn.cug.sxy.api.dto.LogMetricsQueryResponseDTO;
+import cn.cug.sxy.api.response.Response;
+import cn.cug.sxy.domain.reception.model.valobj.LogLevel;
+import cn.cug.sxy.domain.reception.service.metrics.IngestStatsCollector;
+import cn.cug.sxy.domain.reception.service.metrics.LogDerivedMetrics;
+import cn.cug.sxy.types.enums.ResponseCode;
+import cn.cug.sxy.types.exception.AppException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/30 10:50
+ * @Description 日志派生指标接口（查询接口需要鉴权且只返回认证应用的数据；Prometheus抓取接口包含所有应用，
+ * 不经过应用鉴权，改为校验运维配置的抓取令牌，未配置令牌时关闭）
+ * @Author jerryhotton
+ */
+
+@Slf4j
+@RestController
+@CrossOrigin("*")
+@RequestMapping("/api/v1/")
+public class LogMetricsController implements ILogMetricsService {
+
+    private static final int DEFAULT_BUCKETS = 15;
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final LogDerivedMetrics logDerivedMetrics;
+    private final IngestStatsCollector ingestStatsCollector;
+
+    /**
+     * Prometheus抓取令牌，为空时抓取接口关闭
+     */
+    @Value("${log-center.metrics.scrape-token:}")
+    private String scrapeToken;
+
+    public LogMetricsController(LogDerivedMetrics logDerivedMetrics, IngestStatsCollector ingestStatsCollector) {
+        this.logDerivedMetrics = logDerivedMetrics;
+        this.ingestStatsCollector = ingestStatsCollector;
+    }
+
+    @RequestMapping(value = "admin/metrics/query", method = RequestMethod.POST)
+    @Override
+    public Response<LogMetricsQueryResponseDTO> queryLogMetrics(HttpServletRequest request,
+                                                                @RequestBody LogMetricsQueryRequestDTO requestDTO) {
+        try {
+            String appId = authenticatedAppId(request, requestDTO.getAppId());
+            String endpointId = StringUtils.trimToNull(requestDTO.getEndpointId());
+            int buckets = requestDTO.getBuckets() != null && requestDTO.getBuckets() > 0
+                    ? requestDTO.getBuckets() : DEFAULT_BUCKETS;
+            List<LogMetricsQueryResponseDTO.MetricsBucket> data = new ArrayList<>(buckets);
+            for (LogDerivedMetrics.BucketSnapshot snapshot : logDerivedMetrics.query(appId, endpointId, buckets)) {
+                data.add(buildBucket(snapshot));
+            }
+            List<Double> bounds = new ArrayList<>(LogDerivedMetrics.DURATION_BOUNDS_MS.length);
+            for (double bound : LogDerivedMetrics.DURATION_BOUNDS_MS) {
+                bounds.add(bound);
+            }
+
+            return Response.<LogMetricsQueryResponseDTO>builder()
+                    .code(ResponseCode.SUCCESS.getCode())
+                    .info(ResponseCode.SUCCESS.getInfo())
+                    .data(LogMetricsQueryResponseDTO.builder()
+                            .appId(appId)
+                            .endpointId(endpointId)
+                            .bucketMs(logDerivedMetrics.getBucketMs())
+                            .durationBoundsMs(bounds)
+                            .buckets(data)
+                            .build())
+                    .build();
+        } catch (AppException e) {
+            log.error("查询日志派生指标失败 requestDTO:{}", requestDTO, e);
+
+            return Response.<LogMetricsQueryResponseDTO>builder()
+                    .code(e.getCode())
+                    .info(e.getInfo())
+                    .build();
+        } catch (Exception e) {
+            log.error("查询日志派生指标异常 requestDTO:{}", requestDTO, e);
+
+            return Response.<LogMetricsQueryResponseDTO>builder()
+                    .code(ResponseCode.UN_ERROR.getCode())
+                    .info(ResponseCode.UN_ERROR.getInfo())
+                    .build();
+        }
+    }
+
+    @RequestMapping(value = "public/metrics/prometheus", method = RequestMethod.GET,
+            produces = "text/plain; version=0.0.4; charset=utf-8")
+    @Override
+    public String prometheus(HttpServletRequest request, HttpServletResponse response) {
+        if (StringUtils.isEmpty(scrapeToken)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return "";
+        }
+        if (!scrapeTokenMatches(request.getHeader(HttpHeaders.AUTHORIZATION))) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return "";
+        }
+        StringBuilder out = new StringBuilder(16384);
+        List<LogDerivedMetrics.SeriesSnapshot> series = logDerivedMetrics.totals();
+
+        out.append("# HELP log_center_logs_total Stored logs by level, derived at ingest time\n");
+        out.append("# TYPE log_center_logs_total counter\n");
+        for (LogDerivedMetrics.SeriesSnapshot s : series) {
+            for (LogLevel level : LogLevel.values()) {
+                out.append("log_center_logs_total{");
+                appendSeriesLabels(out, s);
+                out.append(",level=\"").append(level.name()).append("\"} ")
+                        .append(s.getTotals().levelCount(level)).append('\n');
+            }
+        }
+
+        out.append("# HELP log_center_log_duration_ms Duration field extracted from stored logs\n");
+        out.append("# TYPE log_center_log_duration_ms histogram\n");
+        for (LogDerivedMetrics.SeriesSnapshot s : series) {
+            LogDerivedMetrics.BucketSnapshot totals = s.getTotals();
+            if (totals.getDurationCount() == 0) {
+                continue;
+            }
+            long[] histogram = totals.getDurationHistogram();
+            long cumulative = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                cumulative += histogram[i];
+                String le = i < LogDerivedMetrics.DURATION_BOUNDS_MS.length
+                        ? formatDouble(LogDerivedMetrics.DURATION_BOUNDS_MS[i]) : "+Inf";
+                out.append("log_center_log_duration_ms_bucket{");
+                appendSeriesLabels(out, s);
+                out.append(",le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+            }
+            out.append("log_center_log_duration_ms_sum{");
+            appendSeriesLabels(out, s);
+            out.append("} ").append(formatDouble(totals.getDurationSumMs())).append('\n');
+            out.append("log_center_log_duration_ms_count{");
+            appendSeriesLabels(out, s);
+            out.append("} ").append(totals.getDurationCount()).append('\n');
+        }
+
+        LogDerivedMetrics.Stats stats = logDerivedMetrics.getStats();
+        out.append("# HELP log_center_metrics_series Number of app/endpoint series tracked\n");
+        out.append("# TYPE log_center_metrics_series gauge\n");
+        out.append("log_center_metrics_series ").append(stats.getSeries()).append('\n');
+        out.append("# HELP log_center_metrics_late_logs_total Logs older than the retained window, counted in totals only\n");
+        out.append("# TYPE log_center_metrics_late_logs_total counter\n");
+        out.append("log_center_metrics_late_logs_total ").append(stats.getLateLogs()).append('\n');
+        out.append("# HELP log_center_metrics_overflow_logs_total Logs folded into the overflow series\n");
+        out.append("# TYPE log_center_metrics_overflow_logs_total counter\n");
+        out.append("log_center_metrics_overflow_logs_total ").append(stats.getOverflowLogs()).append('\n');
+
+        // 接入链路各组件的运行统计
+        for (IngestStatsCollector.MetricFamily family : ingestStatsCollector.collect()) {
+            out.append("# HELP ").append(family.getName()).append(' ').append(family.getHelp()).append('\n');
+            out.append("# TYPE ").append(family.getName()).append(' ').append(family.getType()).append('\n');
+            for (IngestStatsCollector.Sample sample : family.getSamples()) {
+                out.append(family.getName());
+                if (!sample.getLabels().isEmpty()) {
+                    out.append('{');
+                    boolean first = true;
+                    for (Map.Entry<String, String> label : sample.getLabels().entrySet()) {
+                        if (!first) {
+                            out.append(',');
+                        }
+                        first = false;
+                        out.append(label.getKey()).append("=\"");
+                        appendEscaped(out, label.getValue());
+                        out.append('"');
+                    }
+                    out.append('}');
+                }
+                out.append(' ').append(formatDouble(sample.getValue())).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 获取认证通过的应用ID，请求中指定了其他应用时拒绝
+     *
+     * @param request        HTTP请求
+     * @param requestedAppId 请求中指定的应用ID，可为空
+     * @return 认证通过的应用ID
+     */
+    private String authenticatedAppId(HttpServletRequest request, String requestedAppId) {
+        String appId = (String) request.getAttribute(ApiConstants.ATTR_APP_ID);
+        if (appId == null) {
+            throw new AppException(ResponseCode.APP_SCOPE_DENIED);
+        }
+        String requested = StringUtils.trimToNull(requestedAppId);
+        if (requested != null && !requested.equals(appId)) {
+            throw new AppException(ResponseCode.APP_SCOPE_DENIED);
+        }
+        return appId;
+    }
+
+    /**
+     * 按固定耗时比较抓取令牌
+     */
+    private boolean scrapeTokenMatches(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return false;
+        }
+        byte[] presented = authorization.substring(BEARER_PREFIX.length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(presented, scrapeToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private LogMetricsQueryResponseDTO.MetricsBucket buildBucket(LogDerivedMetrics.BucketSnapshot snapshot) {
+        Map<String, Long> levelCounts = new LinkedHashMap<>();
+        for (LogLevel level : LogLevel.values()) {
+            levelCounts.put(level.name(), snapshot.levelCount(level));
+        }
+        long[] histogram = snapshot.getDurationHistogram();
+        List<Long> durationHistogram = new ArrayList<>(histogram.length);
+        for (long count : histogram) {
+            durationHistogram.add(count);
+        }
+        long durationCount = snapshot.getDurationCount();
+        return LogMetricsQueryResponseDTO.MetricsBucket.builder()
+                .start(snapshot.getStart())
+                .total(snapshot.getTotal())
+                .levelCounts(levelCounts)
+                .durationHistogram(durationHistogram)
+                .durationCount(durationCount)
+                .durationAvgMs(durationCount > 0 ? snapshot.getDurationSumMs() / durationCount : null)
+                .durationP50Ms(LogDerivedMetrics.percentile(histogram, 0.50))
+                .durationP95Ms(LogDerivedMetrics.percentile(histogram, 0.95))
+                .durationP99Ms(LogDerivedMetrics.percentile(histogram, 0.99))
+                .build();
+    }
+
+    private void appendSeriesLabels(StringBuilder out, LogDerivedMetrics.SeriesSnapshot s) {
+        out.append("app=\"");
+        appendEscaped(out, s.getAppId());
+        out.append("\",endpoint=\"");
+        appendEscaped(out, s.getEndpointId());
+        out.append('"');
+    }
+
+    /**
+     * 按exposition格式转义标签值中的反斜杠、双引号和换行
+     */
+    private void appendEscaped(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private String formatDouble(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value)
+                ? Long.toString((long) value) : Double.toString(value);
+    }
+
+}
@@ -94,6 +94,8 @@ public class AuthInterceptor implements HandlerInterceptor {
             if (authResult.isSuccess()) {
                 // 将clientIp存入请求属性中供后续使用
                 request.setAttribute(ApiConstants.HEADER_CLIENT_IP, clientIp);
+                // 将认证通过的应用ID存入请求属性，管理接口只能操作该应用的数据
+                request.setAttribute(ApiConstants.ATTR_APP_ID, authResult.getAppId());
                 // 认证成功
                 return true;
             } else {
@@ -19,8 +19,12 @@ public enum ResponseCode {
     INVALID_TIMESTAMP("AUTH_004", "请求时间戳无效"),
     INVALID_TIMESTAMP_FORMAT("AUTH_005", "无效的时间戳格式"),
     SIGNATURE_VALIDATION_FAILED("AUTH_006", "签名验证失败"),
+    APP_SCOPE_DENIED("AUTH_007", "无权访问其他应用的数据"),
 
-    SINGLE_LOG_RECEIVE_FAILED("RECV_001", "接收单条日志失败")
+    SINGLE_LOG_RECEIVE_FAILED("RECV_001", "接收单条日志失败"),
+
+    DEAD_LETTER_NOT_FOUND("DLQ_001", "死信不存在"),
+    REPLAY_TASK_NOT_FOUND("DLQ_002", "重放任务不存在")
 
     ;
 
@@ -0,0 +1,352 @@
+package cn.cug.sxy.types.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/27 15:30
+ * @Description 紧凑元数据（键和值按顺序存放在数组中，写入时经符号表规范化；
+ * 条目较少时顺序查找，规范化的键按引用比较即可命中；条目增多后建立开放寻址的位置索引，查找和写入保持常数时间）
+ * @Author jerryhotton
+ */
+
+public class CompactMetadata extends AbstractMap<String, String> {
+
+    private static final String[] EMPTY = new String[0];
+
+    /**
+     * 条目数超过该值后建立位置索引
+     */
+    private static final int INDEX_THRESHOLD = 8;
+
+    private String[] keys;
+    private String[] values;
+    private int size;
+    private int modCount;
+
+    /**
+     * 位置索引（按键哈希线性探测，槽中存放条目位置+1，0为空槽），条目较少时为null
+     */
+    private int[] index;
+
+    public CompactMetadata() {
+        this(8);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param initialCapacity 初始容量
+     */
+    public CompactMetadata(int initialCapacity) {
+        this.keys = initialCapacity == 0 ? EMPTY : new String[initialCapacity];
+        this.values = initialCapacity == 0 ? EMPTY : new String[initialCapacity];
+    }
+
+    /**
+     * 复制构造函数
+     *
+     * @param source        源元数据，可为null
+     * @param extraCapacity 预留的额外容量
+     */
+    public CompactMetadata(Map<String, String> source, int extraCapacity) {
+        int sourceSize = source == null ? 0 : source.size();
+        if (source instanceof CompactMetadata) {
+            // 源中的键和值已规范化，直接复制数组
+            CompactMetadata compact = (CompactMetadata) source;
+            this.keys = Arrays.copyOf(compact.keys, sourceSize + extraCapacity);
+            this.values = Arrays.copyOf(compact.values, sourceSize + extraCapacity);
+            this.size = sourceSize;
+            this.index = compact.index == null ? null : compact.index.clone();
+            return;
+        }
+        int capacity = sourceSize + extraCapacity;
+        this.keys = capacity == 0 ? EMPTY : new String[capacity];
+        this.values = capacity == 0 ? EMPTY : new String[capacity];
+        if (source != null) {
+            for (Map.Entry<String, String> entry : source.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 复制为紧凑元数据（容量与源大小一致）
+     *
+     * @param source 源元数据，可为null
+     * @return 紧凑元数据
+     */
+    public static CompactMetadata copyOf(Map<String, String> source) {
+        return new CompactMetadata(source, 0);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public String getOrDefault(Object key, String defaultValue) {
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    @Override
+    public String put(String key, String value) {
+        if (key == null) {
+            throw new NullPointerException("元数据键不能为null");
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            String previous = values[index];
+            values[index] = SymbolTable.metadata().internValue(keys[index], value);
+            return previous;
+        }
+        if (size == keys.length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        SymbolTable symbols = SymbolTable.metadata();
+        String symbol = symbols.intern(key);
+        keys[size] = symbol;
+        values[size] = symbols.internValue(symbol, value);
+        size++;
+        modCount++;
+        indexAdded(size - 1);
+        return null;
+    }
+
+    @Override
+    public String remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        String previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        index = null;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * 查找键的位置：规范化的键按引用比较即可命中，否则哈希值相同时再按内容比较
+     */
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        int hash = key.hashCode();
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                String candidate = keys[i];
+                if (candidate == key || (candidate.hashCode() == hash && candidate.equals(key))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int position = index[slot] - 1;
+            if (position < 0) {
+                return -1;
+            }
+            String candidate = keys[position];
+            if (candidate == key || (candidate.hashCode() == hash && candidate.equals(key))) {
+                return position;
+            }
+        }
+    }
+
+    /**
+     * 新条目追加后维护位置索引，负载超过一半时扩容重建
+     */
+    private void indexAdded(int position) {
+        if (index == null) {
+            if (size > INDEX_THRESHOLD) {
+                rebuildIndex();
+            }
+            return;
+        }
+        if (size * 2 > index.length) {
+            rebuildIndex();
+            return;
+        }
+        insertIndex(index, position);
+    }
+
+    private void rebuildIndex() {
+        if (size <= INDEX_THRESHOLD) {
+            index = null;
+            return;
+        }
+        // 不小于条目数2倍的2的幂，负载保持在一半以下
+        int[] rebuilt = new int[Integer.highestOneBit(size * 4)];
+        for (int i = 0; i < size; i++) {
+            insertIndex(rebuilt, i);
+        }
+        index = rebuilt;
+    }
+
+    private void insertIndex(int[] table, int position) {
+        int mask = table.length - 1;
+        int slot = spread(keys[position].hashCode()) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(values, index + 1, values, index, moved);
+        }
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+        // 删除会移动后续条目的位置，重建索引（删除很少发生）
+        if (this.index != null) {
+            rebuildIndex();
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * 条目视图，setValue直接写回数组
+     */
+    private class Entry implements Map.Entry<String, String> {
+
+        private final int index;
+
+        Entry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return keys[index];
+        }
+
+        @Override
+        public String getValue() {
+            return values[index];
+        }
+
+        @Override
+        public String setValue(String value) {
+            String previous = values[index];
+            values[index] = SymbolTable.metadata().internValue(keys[index], value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return keys[index].equals(other.getKey()) && Objects.equals(values[index], other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return keys[index].hashCode() ^ (values[index] == null ? 0 : values[index].hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return keys[index] + "=" + values[index];
+        }
+    }
+
+}
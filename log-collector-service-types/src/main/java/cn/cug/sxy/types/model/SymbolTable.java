@@ -0,0 +1,131 @@
+package cn.cug.sxy.types.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @version 1.0
+ * @Date 2025/7/27 15:10
+ * @Description 符号表（将重复出现的字符串规范化为同一个实例，相同符号可直接按引用比较；
+ * 只登记元数据键和配置的低基数键的值，查找无锁，登记数达到容量时整体清空后重新登记）
+ * @Author jerryhotton
+ */
+
+public class SymbolTable {
+
+    /**
+     * 默认的低基数元数据键，只有这些键（及配置的额外键）的值会规范化
+     */
+    public static final Set<String> DEFAULT_LOW_CARDINALITY_KEYS = Set.of(
+            "appId", "endpointId", "sourceId", "batchId", "format", "level", "source", "hostname", "clientIp",
+            "preprocessed", "codec", "text.format", "text.level", "xml.root");
+
+    private static volatile SymbolTable metadata = new SymbolTable(65536, DEFAULT_LOW_CARDINALITY_KEYS);
+
+    private final int capacity;
+
+    private final Set<String> lowCardinalityKeys;
+
+    /**
+     * 符号 -> 规范实例，读多写少：命中时只有一次无锁查找
+     */
+    private final ConcurrentHashMap<String, String> symbols;
+
+    // 符号表统计
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SymbolTable(int capacity, Set<String> lowCardinalityKeys) {
+        this.capacity = capacity;
+        this.lowCardinalityKeys = Set.copyOf(lowCardinalityKeys);
+        this.symbols = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+    }
+
+    /**
+     * 获取元数据使用的全局符号表
+     */
+    public static SymbolTable metadata() {
+        return metadata;
+    }
+
+    /**
+     * 按配置替换元数据使用的全局符号表（启动时调用，已规范化的实例不受影响）
+     *
+     * @param capacity           最多保留的符号数
+     * @param lowCardinalityKeys 值需要规范化的元数据键
+     */
+    public static void configureMetadata(int capacity, Set<String> lowCardinalityKeys) {
+        metadata = new SymbolTable(capacity, lowCardinalityKeys);
+    }
+
+    /**
+     * 规范化字符串
+     *
+     * @param value 字符串
+     * @return 符号表中的同值实例，不存在时登记并返回自身
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String symbol = symbols.get(value);
+        if (symbol != null) {
+            hits.increment();
+            return symbol;
+        }
+        if (symbols.size() >= capacity) {
+            // 达到容量（如长期运行后主机名更替），整体清空，仍在使用的符号随后重新登记
+            int evicted = symbols.size();
+            symbols.clear();
+            evictions.add(evicted);
+        }
+        symbol = symbols.putIfAbsent(value, value);
+        misses.increment();
+        return symbol != null ? symbol : value;
+    }
+
+    /**
+     * 规范化元数据值：只有低基数键的值规范化，其余原样返回（高基数的短值如请求ID不进入符号表）
+     *
+     * @param key   已规范化的元数据键
+     * @param value 元数据值
+     * @return 规范化后的值
+     */
+    public String internValue(String key, String value) {
+        if (value == null || !lowCardinalityKeys.contains(key)) {
+            return value;
+        }
+        return intern(value);
+    }
+
+    /**
+     * 获取符号表统计快照
+     */
+    public SymbolStats getStats() {
+        return new SymbolStats(symbols.size(), capacity, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * 符号表统计快照
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SymbolStats {
+        // 当前符号数
+        private final int size;
+        // 容量
+        private final int capacity;
+        // 命中已有符号的次数
+        private final long hits;
+        // 新登记符号的次数
+        private final long misses;
+        // 容量满时清空的符号数
+        private final long evictions;
+    }
+
+}